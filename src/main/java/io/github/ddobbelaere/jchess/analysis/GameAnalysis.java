@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+
+/**
+ * Analysis of a game: the analysis of each played move.
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class GameAnalysis {
+    /**
+     * Index of the game in the analyzed stream of games.
+     */
+    private final long index;
+
+    /**
+     * Analyzed game.
+     */
+    private final Game game;
+
+    /**
+     * Unmodifiable list of move analyses, in the order in which the moves were
+     * played.
+     */
+    private final List<MoveAnalysis> moveAnalyses;
+
+    /**
+     * Constructor.
+     *
+     * @param index        Index of the game in the analyzed stream of games.
+     * @param game         Analyzed game.
+     * @param moveAnalyses Move analyses, in the order in which the moves were
+     *                     played.
+     */
+    GameAnalysis(long index, Game game, List<MoveAnalysis> moveAnalyses) {
+        this.index = index;
+        this.game = game;
+        this.moveAnalyses = Collections.unmodifiableList(moveAnalyses);
+    }
+
+    /**
+     * @return Index of the game in the analyzed stream of games (zero if a single
+     *         game was analyzed).
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return Analyzed game.
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * @return Unmodifiable list of move analyses, in the order in which the moves
+     *         were played.
+     */
+    public List<MoveAnalysis> getMoveAnalyses() {
+        return moveAnalyses;
+    }
+
+    /**
+     * Count the moves of a player with the given classification.
+     *
+     * @param isWhite        Count the moves of white (or else of black).
+     * @param classification Given classification.
+     * @return Number of moves.
+     */
+    public int getNumMoves(boolean isWhite, MoveClassification classification) {
+        final int firstIndex = (game.getPositions().get(0).isWhiteToMove() == isWhite) ? 0 : 1;
+        int numMoves = 0;
+
+        for (int i = firstIndex; i < moveAnalyses.size(); i += 2) {
+            if (moveAnalyses.get(i).getClassification() == classification) {
+                numMoves++;
+            }
+        }
+
+        return numMoves;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.search.Search;
+import io.github.ddobbelaere.jchess.search.SearchLimits;
+import io.github.ddobbelaere.jchess.search.SearchResult;
+import io.github.ddobbelaere.jchess.search.TranspositionTable;
+
+/**
+ * Batch game analyzer: every position of every game is searched within the
+ * given limits and every played move is annotated with its score, the best
+ * move and a classification by centipawn loss.
+ *
+ * <p>
+ * Games are analyzed by a pool of worker threads, each analyzing whole games
+ * with its own {@link Search}. All searches share a single transposition
+ * table, such that transpositions within and across games are reused.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class GameAnalyzer {
+    /**
+     * Maximum absolute score (in centipawns) that is taken into account. Larger
+     * scores (including mate scores) are clamped, such that e.g. missing a mate
+     * while keeping a winning position isn't a blunder.
+     */
+    public static final int MAX_SCORE = 1000;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int numThreads;
+
+    /**
+     * Shared transposition table.
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * Search limits per position.
+     */
+    private final SearchLimits limits;
+
+    /**
+     * Construct with given number of worker threads, shared transposition table
+     * and search limits.
+     *
+     * @param numThreads         Number of worker threads (at least one).
+     * @param transpositionTable Shared transposition table.
+     * @param limits             Search limits per position (e.g. a depth or a node
+     *                           budget). The analysis is not reproducible, not
+     *                           even with a depth or node budget: the workers
+     *                           share the transposition table, such that the
+     *                           results depend on the thread scheduling.
+     */
+    public GameAnalyzer(int numThreads, TranspositionTable transpositionTable, SearchLimits limits) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads " + numThreads + " should be at least one.");
+        }
+
+        this.numThreads = numThreads;
+        this.transpositionTable = transpositionTable;
+        this.limits = limits;
+    }
+
+    /**
+     * Analyze a single game in the calling thread.
+     *
+     * @param game Given game.
+     * @return Game analysis.
+     */
+    public GameAnalysis analyze(Game game) {
+        transpositionTable.newSearch();
+
+        return analyze(game, 0, new Search(transpositionTable));
+    }
+
+    /**
+     * Analyze a stream of games with the worker threads. The stream is consumed
+     * by the calling thread, which blocks until all games are analyzed.
+     *
+     * @param games    Stream of games.
+     * @param consumer Consumer of the game analyses. It is called from the worker
+     *                 threads (concurrently, and not necessarily in the order of
+     *                 the games, see {@link GameAnalysis#getIndex()}).
+     * @return Number of analyzed games.
+     * @throws IllegalStateException If the analysis of a game or the consumer
+     *                               failed.
+     */
+    public long analyze(Stream<Game> games, Consumer<GameAnalysis> consumer) {
+        transpositionTable.newSearch();
+
+        final ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(transpositionTable));
+
+        return GameWorkerPool.process(numThreads, "Game analyzer", games,
+                (game, index) -> consumer.accept(analyze(game, index, searches.get())));
+    }
+
+    /**
+     * Analyze a game with the given search.
+     *
+     * @param game   Given game.
+     * @param index  Index of the game in the analyzed stream of games.
+     * @param search Search of the calling thread.
+     * @return Game analysis.
+     */
+    private GameAnalysis analyze(Game game, long index, Search search) {
+        final List<Position> positions = game.getPositions();
+        final List<Move> moves = game.getMoves();
+        final List<String> movesSan = game.getMovesSan();
+
+        // Search all positions, including the final one (which scores the last move).
+        final int[] scores = new int[positions.size()];
+        final Move[] bestMoves = new Move[positions.size()];
+
+        for (int i = 0; i < positions.size(); i++) {
+            final SearchResult result = search.searchInBatch(positions.get(i), limits);
+
+            scores[i] = Math.max(-MAX_SCORE, Math.min(result.getScore(), MAX_SCORE));
+            bestMoves[i] = result.getBestMove();
+        }
+
+        final List<MoveAnalysis> moveAnalyses = new ArrayList<>(moves.size());
+
+        for (int i = 0; i < moves.size(); i++) {
+            // The score after the move is from the point of view of the opponent.
+            moveAnalyses.add(new MoveAnalysis(moves.get(i), movesSan.get(i), bestMoves[i], scores[i], -scores[i + 1]));
+        }
+
+        return new GameAnalysis(index, game, moveAnalyses);
+    }
+}
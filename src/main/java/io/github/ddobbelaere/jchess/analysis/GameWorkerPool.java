@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+
+/**
+ * Pool of worker threads that process a stream of games.
+ *
+ * <p>
+ * The number of games in flight is bounded, such that arbitrarily long streams
+ * of games are processed in constant memory.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class GameWorkerPool {
+    /**
+     * Maximum number of games in flight per worker thread.
+     */
+    private static final int NUM_GAMES_IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * Process a stream of games with the given number of worker threads. The
+     * stream is consumed by the calling thread, which blocks until all games are
+     * processed.
+     *
+     * @param numThreads Number of worker threads (at least one).
+     * @param name       Name of the worker threads.
+     * @param games      Stream of games.
+     * @param processor  Processor of a game and its index in the stream (called
+     *                   concurrently from the worker threads).
+     * @return Number of processed games.
+     * @throws IllegalStateException If the processing of a game failed.
+     */
+    static long process(int numThreads, String name, Stream<Game> games, ObjLongConsumer<Game> processor) {
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads, r -> {
+            final Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Semaphore gamesInFlight = new Semaphore(NUM_GAMES_IN_FLIGHT_PER_THREAD * numThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        long numGames = 0;
+
+        try {
+            for (Iterator<Game> iterator = games.iterator(); iterator.hasNext() && failure.get() == null;) {
+                final Game game = iterator.next();
+                final long index = numGames++;
+
+                gamesInFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            processor.accept(game, index);
+                        }
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        gamesInFlight.release();
+                    }
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(name + " was interrupted.", e);
+        } finally {
+            // Release the worker threads if the stream or the calling thread failed.
+            executor.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException(name + " failed.", failure.get());
+        }
+
+        return numGames;
+    }
+}
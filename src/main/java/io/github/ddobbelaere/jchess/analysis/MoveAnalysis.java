@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+
+/**
+ * Analysis of a single played move.
+ *
+ * <p>
+ * Scores are in centipawns from the point of view of the player of the move,
+ * clamped to [-{@link GameAnalyzer#MAX_SCORE}, {@link GameAnalyzer#MAX_SCORE}]
+ * (mate scores included). Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class MoveAnalysis {
+    /**
+     * Played move.
+     */
+    private final Move move;
+
+    /**
+     * Played move in standard algebraic notation.
+     */
+    private final String moveSan;
+
+    /**
+     * Best move according to the analysis.
+     */
+    private final Move bestMove;
+
+    /**
+     * Score of the best move.
+     */
+    private final int bestScore;
+
+    /**
+     * Score of the played move.
+     */
+    private final int score;
+
+    /**
+     * Classification of the played move.
+     */
+    private final MoveClassification classification;
+
+    /**
+     * Constructor.
+     *
+     * @param move      Played move.
+     * @param moveSan   Played move in standard algebraic notation.
+     * @param bestMove  Best move according to the analysis.
+     * @param bestScore Score of the best move.
+     * @param score     Score of the played move.
+     */
+    MoveAnalysis(Move move, String moveSan, Move bestMove, int bestScore, int score) {
+        this.move = move;
+        this.moveSan = moveSan;
+        this.bestMove = bestMove;
+        this.bestScore = bestScore;
+        this.score = score;
+        classification = MoveClassification.classify(getCentipawnLoss(), move.equals(bestMove));
+    }
+
+    /**
+     * @return Played move.
+     */
+    public Move getMove() {
+        return move;
+    }
+
+    /**
+     * @return Played move in standard algebraic notation.
+     */
+    public String getMoveSan() {
+        return moveSan;
+    }
+
+    /**
+     * @return Best move according to the analysis.
+     */
+    public Move getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return Score of the best move.
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * @return Score of the played move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Centipawn loss of the played move compared to the best move (zero
+     *         if the played move is the best move or scores at least as well).
+     */
+    public int getCentipawnLoss() {
+        return move.equals(bestMove) ? 0 : Math.max(0, bestScore - score);
+    }
+
+    /**
+     * @return Classification of the played move.
+     */
+    public MoveClassification getClassification() {
+        return classification;
+    }
+
+    @Override
+    public String toString() {
+        return moveSan + " (" + score + ", best " + bestMove + " " + bestScore + ", " + classification + ")";
+    }
+}
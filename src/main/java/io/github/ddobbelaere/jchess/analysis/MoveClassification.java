@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+/**
+ * Classification of a played move by its centipawn loss.
+ *
+ * @author Dieter Dobbelaere
+ */
+public enum MoveClassification {
+    /**
+     * The move is the best move according to the analysis.
+     */
+    BEST,
+
+    /**
+     * The move loses less than {@link #INACCURACY_THRESHOLD} centipawns.
+     */
+    GOOD,
+
+    /**
+     * The move loses at least {@link #INACCURACY_THRESHOLD} centipawns.
+     */
+    INACCURACY,
+
+    /**
+     * The move loses at least {@link #MISTAKE_THRESHOLD} centipawns.
+     */
+    MISTAKE,
+
+    /**
+     * The move loses at least {@link #BLUNDER_THRESHOLD} centipawns.
+     */
+    BLUNDER;
+
+    /**
+     * Minimum centipawn loss of an inaccuracy.
+     */
+    public static final int INACCURACY_THRESHOLD = 50;
+
+    /**
+     * Minimum centipawn loss of a mistake.
+     */
+    public static final int MISTAKE_THRESHOLD = 100;
+
+    /**
+     * Minimum centipawn loss of a blunder.
+     */
+    public static final int BLUNDER_THRESHOLD = 300;
+
+    /**
+     * Classify a played move.
+     *
+     * @param centipawnLoss Centipawn loss of the move (not negative).
+     * @param isBestMove    The move is the best move according to the analysis.
+     * @return Classification.
+     */
+    public static MoveClassification classify(int centipawnLoss, boolean isBestMove) {
+        if (isBestMove) {
+            return BEST;
+        } else if (centipawnLoss >= BLUNDER_THRESHOLD) {
+            return BLUNDER;
+        } else if (centipawnLoss >= MISTAKE_THRESHOLD) {
+            return MISTAKE;
+        } else if (centipawnLoss >= INACCURACY_THRESHOLD) {
+            return INACCURACY;
+        } else {
+            return GOOD;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Tactical puzzle: a position in which exactly one move wins decisively.
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class Puzzle {
+    /**
+     * Puzzle position.
+     */
+    private final Position position;
+
+    /**
+     * Unmodifiable solution line (starting and ending with a move of the side to
+     * move).
+     */
+    private final List<Move> solution;
+
+    /**
+     * Solution line in standard algebraic notation.
+     */
+    private final List<String> solutionSan;
+
+    /**
+     * Score of the winning move (in centipawns).
+     */
+    private final int score;
+
+    /**
+     * Score of the second best move (in centipawns).
+     */
+    private final int secondBestScore;
+
+    /**
+     * Index of the game in the scanned stream of games.
+     */
+    private final long gameIndex;
+
+    /**
+     * Ply of the position in the game.
+     */
+    private final int ply;
+
+    /**
+     * Constructor.
+     *
+     * @param position        Puzzle position.
+     * @param solution        Solution line.
+     * @param score           Score of the winning move.
+     * @param secondBestScore Score of the second best move.
+     * @param gameIndex       Index of the game in the scanned stream of games.
+     * @param ply             Ply of the position in the game.
+     */
+    Puzzle(Position position, List<Move> solution, int score, int secondBestScore, long gameIndex, int ply) {
+        final Game game = new Game(position);
+
+        game.playMoves(solution.toArray(new Move[0]));
+
+        this.position = position;
+        this.solution = Collections.unmodifiableList(solution);
+        solutionSan = Collections.unmodifiableList(game.getMovesSan());
+        this.score = score;
+        this.secondBestScore = secondBestScore;
+        this.gameIndex = gameIndex;
+        this.ply = ply;
+    }
+
+    /**
+     * @return Puzzle position.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * @return FEN string of the puzzle position.
+     */
+    public String getFen() {
+        return position.getFen();
+    }
+
+    /**
+     * @return Unmodifiable solution line (starting and ending with a move of the
+     *         side to move).
+     */
+    public List<Move> getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return Unmodifiable solution line in standard algebraic notation.
+     */
+    public List<String> getSolutionSan() {
+        return solutionSan;
+    }
+
+    /**
+     * @return Score of the winning move (in centipawns).
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Score of the second best move (in centipawns).
+     */
+    public int getSecondBestScore() {
+        return secondBestScore;
+    }
+
+    /**
+     * @return Index of the game in the scanned stream of games.
+     */
+    public long getGameIndex() {
+        return gameIndex;
+    }
+
+    /**
+     * @return Ply of the position in the game.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    @Override
+    public String toString() {
+        return getFen() + "; " + String.join(" ", solutionSan);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.search.Search;
+import io.github.ddobbelaere.jchess.search.SearchLimits;
+import io.github.ddobbelaere.jchess.search.SearchResult;
+import io.github.ddobbelaere.jchess.search.TranspositionTable;
+
+/**
+ * Extractor of tactical puzzles from games.
+ *
+ * <p>
+ * A position is a puzzle if exactly one move wins decisively: the best move
+ * scores at least the minimum winning score, while the second best move
+ * neither wins nor comes within the minimum margin of the best move. Both
+ * scores are verified by a Multi-PV search with two lines.
+ * </p>
+ *
+ * <p>
+ * Most positions are rejected by cheap filters before any search runs: early
+ * opening positions, positions with a single legal move, positions in which
+ * the side to move has no capture, promotion or check, and positions that
+ * were already extracted (e.g. from another game).
+ * </p>
+ *
+ * <p>
+ * Games are scanned by a pool of worker threads that share a single
+ * transposition table (see {@link GameAnalyzer}).
+ * </p>
+ *
+ * <p>
+ * An extractor handles one extraction at a time: the statistics (such as
+ * {@link #getNumPuzzles()}) are reset at the start of each extraction, such
+ * that concurrent calls of {@link #extract(Stream, Consumer)} on the same
+ * extractor mix up their statistics. Use one extractor per concurrent
+ * extraction instead.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PuzzleExtractor {
+    /**
+     * Default minimum score (in centipawns) of a winning move.
+     */
+    public static final int DEFAULT_MIN_WINNING_SCORE = 300;
+
+    /**
+     * Default minimum margin (in centipawns) of the winning move over the second
+     * best move.
+     */
+    public static final int DEFAULT_MIN_MARGIN = 200;
+
+    /**
+     * Minimum ply of a puzzle position in a game (earlier positions are opening
+     * theory).
+     */
+    public static final int MIN_PLY = 8;
+
+    /**
+     * Maximum number of plies of a solution line.
+     */
+    public static final int MAX_SOLUTION_PLIES = 5;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int numThreads;
+
+    /**
+     * Shared transposition table.
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * Search limits per position.
+     */
+    private final SearchLimits limits;
+
+    /**
+     * Minimum score (in centipawns) of a winning move.
+     */
+    private final int minWinningScore;
+
+    /**
+     * Minimum margin (in centipawns) of the winning move over the second best
+     * move.
+     */
+    private final int minMargin;
+
+    /**
+     * Number of scanned positions of the last extraction.
+     */
+    private final AtomicLong numPositions = new AtomicLong();
+
+    /**
+     * Number of searched positions (that passed the filters) of the last
+     * extraction.
+     */
+    private final AtomicLong numSearchedPositions = new AtomicLong();
+
+    /**
+     * Number of extracted puzzles of the last extraction.
+     */
+    private final AtomicLong numPuzzles = new AtomicLong();
+
+    /**
+     * Construct with given number of worker threads, shared transposition table,
+     * search limits and the default scores.
+     *
+     * @param numThreads         Number of worker threads (at least one).
+     * @param transpositionTable Shared transposition table.
+     * @param limits             Search limits per position.
+     */
+    public PuzzleExtractor(int numThreads, TranspositionTable transpositionTable, SearchLimits limits) {
+        this(numThreads, transpositionTable, limits, DEFAULT_MIN_WINNING_SCORE, DEFAULT_MIN_MARGIN);
+    }
+
+    /**
+     * Construct with given number of worker threads, shared transposition table,
+     * search limits and scores.
+     *
+     * @param numThreads         Number of worker threads (at least one).
+     * @param transpositionTable Shared transposition table.
+     * @param limits             Search limits per position.
+     * @param minWinningScore    Minimum score (in centipawns) of a winning move.
+     * @param minMargin          Minimum margin (in centipawns) of the winning move
+     *                           over the second best move.
+     */
+    public PuzzleExtractor(int numThreads, TranspositionTable transpositionTable, SearchLimits limits,
+            int minWinningScore, int minMargin) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads " + numThreads + " should be at least one.");
+        }
+
+        this.numThreads = numThreads;
+        this.transpositionTable = transpositionTable;
+        this.limits = limits;
+        this.minWinningScore = minWinningScore;
+        this.minMargin = minMargin;
+    }
+
+    /**
+     * Extract the puzzles of a stream of games with the worker threads. The stream
+     * is consumed by the calling thread, which blocks until all games are
+     * scanned. A position that occurs in several games is extracted at most once.
+     *
+     * @param games    Stream of games.
+     * @param consumer Consumer of the puzzles. It is called from the worker
+     *                 threads (concurrently, and not necessarily in the order of
+     *                 the games).
+     * @return Number of scanned games.
+     * @throws IllegalStateException If the scan of a game or the consumer failed.
+     */
+    public long extract(Stream<Game> games, Consumer<Puzzle> consumer) {
+        transpositionTable.newSearch();
+        numPositions.set(0);
+        numSearchedPositions.set(0);
+        numPuzzles.set(0);
+
+        final ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(transpositionTable));
+        final Set<Long> puzzleHashes = ConcurrentHashMap.newKeySet();
+
+        return GameWorkerPool.process(numThreads, "Puzzle extractor", games, (game, index) -> {
+            final List<Position> positions = game.getPositions();
+
+            for (int ply = MIN_PLY; ply < positions.size(); ply++) {
+                final Position position = positions.get(ply);
+
+                numPositions.incrementAndGet();
+
+                if (!isCandidate(position) || puzzleHashes.contains(position.getHash())) {
+                    continue;
+                }
+
+                numSearchedPositions.incrementAndGet();
+
+                final Puzzle puzzle = getPuzzle(position, searches.get(), index, ply);
+
+                if (puzzle != null && puzzleHashes.add(position.getHash())) {
+                    numPuzzles.incrementAndGet();
+                    consumer.accept(puzzle);
+                }
+            }
+        });
+    }
+
+    /**
+     * Check if a position passes the cheap filters: the side to move has at least
+     * two legal moves, and at least one capture, promotion or check.
+     *
+     * @param position Given position.
+     * @return {@code true} if and only if the position is a puzzle candidate.
+     */
+    static boolean isCandidate(Position position) {
+        final List<Move> legalMoves = position.getLegalMoves();
+
+        if (legalMoves.size() < 2) {
+            return false;
+        }
+
+        // Checks are detected on the attack bitboards, without playing the moves.
+        for (Move move : legalMoves) {
+            if (position.isCapturingMove(move) || move.isPromotion() || position.givesCheck(move)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Verify if a position is a puzzle by searching its two best moves.
+     *
+     * @param position  Given position.
+     * @param search    Search of the calling thread.
+     * @param gameIndex Index of the game in the scanned stream of games.
+     * @param ply       Ply of the position in the game.
+     * @return Puzzle, or null if the position is not a puzzle.
+     */
+    Puzzle getPuzzle(Position position, Search search, long gameIndex, int ply) {
+        final List<SearchResult> results = search.searchInBatch(position, limits, 2);
+
+        if (results.size() < 2) {
+            return null;
+        }
+
+        final int score = results.get(0).getScore();
+        final int secondBestScore = results.get(1).getScore();
+
+        if (score < minWinningScore || secondBestScore >= minWinningScore || score - secondBestScore < minMargin) {
+            return null;
+        }
+
+        // The solution ends with a move of the side to move.
+        final List<Move> principalVariation = results.get(0).getPrincipalVariation();
+        int numSolutionPlies = Math.min(principalVariation.size(), MAX_SOLUTION_PLIES);
+
+        if (numSolutionPlies % 2 == 0) {
+            numSolutionPlies--;
+        }
+
+        return new Puzzle(position, new ArrayList<>(principalVariation.subList(0, numSolutionPlies)), score,
+                secondBestScore, gameIndex, ply);
+    }
+
+    /**
+     * @return Number of scanned positions of the last extraction.
+     */
+    public long getNumPositions() {
+        return numPositions.get();
+    }
+
+    /**
+     * @return Number of searched positions (that passed the cheap filters) of the
+     *         last extraction.
+     */
+    public long getNumSearchedPositions() {
+        return numSearchedPositions.get();
+    }
+
+    /**
+     * @return Number of extracted puzzles of the last extraction.
+     */
+    public long getNumPuzzles() {
+        return numPuzzles.get();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.book;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+
+/**
+ * Entry of an opening book: a book move of a position and its weight.
+ *
+ * @author Dieter Dobbelaere
+ */
+public class BookEntry {
+    /**
+     * Book move.
+     */
+    private final Move move;
+
+    /**
+     * Weight of the move (relative to the weights of the other book moves of the
+     * position).
+     */
+    private final int weight;
+
+    /**
+     * Learn value of the move (unused by most books).
+     */
+    private final int learn;
+
+    /**
+     * Construct with given move, weight and learn value.
+     *
+     * @param move   Book move.
+     * @param weight Weight of the move.
+     * @param learn  Learn value of the move.
+     */
+    BookEntry(Move move, int weight, int learn) {
+        this.move = move;
+        this.weight = weight;
+        this.learn = learn;
+    }
+
+    /**
+     * @return Book move.
+     */
+    public Move getMove() {
+        return move;
+    }
+
+    /**
+     * @return Weight of the move (relative to the weights of the other book moves
+     *         of the position).
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return Learn value of the move (unused by most books).
+     */
+    public int getLearn() {
+        return learn;
+    }
+
+    @Override
+    public String toString() {
+        return move + " (weight " + weight + ")";
+    }
+}
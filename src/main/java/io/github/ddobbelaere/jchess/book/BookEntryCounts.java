@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.book;
+
+import java.util.Arrays;
+
+import io.github.ddobbelaere.jchess.util.SortUtils;
+
+/**
+ * Hash map of book entry counts, keyed by Polyglot key and Polyglot move.
+ *
+ * <p>
+ * The map uses open addressing with linear probing on parallel primitive
+ * arrays, such that an entry takes about 36 bytes (at the maximum load factor
+ * of one half), without boxed keys or per-entry objects. A Polyglot move is
+ * never zero (the source and destination squares differ), so a zero move
+ * marks an empty slot.
+ * </p>
+ *
+ * <p>
+ * Once the map is full (see {@link #isFull()}), its entries are sorted in place
+ * (see {@link #sort()}) and spilled, after which the map is cleared.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class BookEntryCounts implements SortUtils.Sortable {
+    /**
+     * Polyglot keys.
+     */
+    private final long[] keys;
+
+    /**
+     * Polyglot moves (zero for empty slots).
+     */
+    private final char[] moves;
+
+    /**
+     * Sums of the weights.
+     */
+    private final int[] weights;
+
+    /**
+     * Numbers of games.
+     */
+    private final int[] numGames;
+
+    /**
+     * Base-2 logarithm of the number of slots.
+     */
+    private final int numSlotsLog2;
+
+    /**
+     * Maximum number of entries.
+     */
+    private final int maxNumEntries;
+
+    /**
+     * Number of entries.
+     */
+    private int numEntries;
+
+    /**
+     * Construct with given maximum number of entries.
+     *
+     * @param maxNumEntries Maximum number of entries (at least one).
+     */
+    BookEntryCounts(int maxNumEntries) {
+        if (maxNumEntries < 1 || maxNumEntries > (1 << 29)) {
+            throw new IllegalArgumentException(
+                    "Maximum number of entries " + maxNumEntries + " should be between one and 2^29.");
+        }
+
+        // Keep the load factor at most one half.
+        numSlotsLog2 = 65 - Long.numberOfLeadingZeros(maxNumEntries - 1);
+        keys = new long[1 << numSlotsLog2];
+        moves = new char[1 << numSlotsLog2];
+        weights = new int[1 << numSlotsLog2];
+        numGames = new int[1 << numSlotsLog2];
+        this.maxNumEntries = maxNumEntries;
+    }
+
+    /**
+     * Add a game to the entry with given key and move.
+     *
+     * @param key    Polyglot key.
+     * @param move   Polyglot move (non-zero).
+     * @param weight Weight of the game.
+     */
+    void add(long key, int move, int weight) {
+        final int mask = (1 << numSlotsLog2) - 1;
+        int slot = (int) (((key ^ move) * 0x9E3779B97F4A7C15L) >>> (64 - numSlotsLog2));
+
+        while (moves[slot] != 0 && (keys[slot] != key || moves[slot] != move)) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (moves[slot] == 0) {
+            keys[slot] = key;
+            moves[slot] = (char) move;
+            numEntries++;
+        }
+
+        weights[slot] += weight;
+        numGames[slot]++;
+    }
+
+    /**
+     * @return Number of entries.
+     */
+    int size() {
+        return numEntries;
+    }
+
+    /**
+     * @return {@code true} if and only if the map holds its maximum number of
+     *         entries.
+     */
+    boolean isFull() {
+        return numEntries >= maxNumEntries;
+    }
+
+    /**
+     * Move the entries to the front of the arrays and sort them by unsigned key
+     * and move. The map can only be read by index (see {@link #getKey(int)} etc.)
+     * afterwards, until it is cleared.
+     */
+    void sort() {
+        int numCompacted = 0;
+
+        for (int slot = 0; slot < moves.length; slot++) {
+            if (moves[slot] != 0) {
+                keys[numCompacted] = keys[slot];
+                moves[numCompacted] = moves[slot];
+                weights[numCompacted] = weights[slot];
+                numGames[numCompacted] = numGames[slot];
+                numCompacted++;
+            }
+        }
+
+        SortUtils.sort(this, 0, numEntries);
+    }
+
+    /**
+     * Clear the map.
+     */
+    void clear() {
+        Arrays.fill(moves, (char) 0);
+        Arrays.fill(weights, 0);
+        Arrays.fill(numGames, 0);
+        numEntries = 0;
+    }
+
+    /**
+     * @param index Entry index (after sorting).
+     * @return Polyglot key of the entry.
+     */
+    long getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @param index Entry index (after sorting).
+     * @return Polyglot move of the entry.
+     */
+    int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * @param index Entry index (after sorting).
+     * @return Sum of the weights of the entry.
+     */
+    int getWeight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * @param index Entry index (after sorting).
+     * @return Number of games of the entry.
+     */
+    int getNumGames(int index) {
+        return numGames[index];
+    }
+
+    /**
+     * Compare two entries by unsigned key and move.
+     *
+     * @param index1 Index of the first entry.
+     * @param index2 Index of the second entry.
+     * @return Negative, zero or positive if the first entry is smaller than, equal
+     *         to or larger than the second entry.
+     */
+    @Override
+    public int compare(int index1, int index2) {
+        final int result = Long.compareUnsigned(keys[index1], keys[index2]);
+
+        return result != 0 ? result : Integer.compare(moves[index1], moves[index2]);
+    }
+
+    /**
+     * Swap two entries.
+     *
+     * @param index1 Index of the first entry.
+     * @param index2 Index of the second entry.
+     */
+    @Override
+    public void swap(int index1, int index2) {
+        final long key = keys[index1];
+        keys[index1] = keys[index2];
+        keys[index2] = key;
+
+        final char move = moves[index1];
+        moves[index1] = moves[index2];
+        moves[index2] = move;
+
+        final int weight = weights[index1];
+        weights[index1] = weights[index2];
+        weights[index2] = weight;
+
+        final int numGame = numGames[index1];
+        numGames[index1] = numGames[index2];
+        numGames[index2] = numGame;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.book;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Polyglot opening book.
+ *
+ * <p>
+ * A Polyglot book is a file of 16-byte big-endian entries, sorted by the
+ * Polyglot key of the position (see {@link Position#getPolyglotKey()}). Each
+ * entry holds the key (8 bytes), the move (2 bytes, see
+ * {@link Position#getPolyglotMove(int)}), the weight (2 bytes) and a learn
+ * value (4 bytes).
+ * </p>
+ *
+ * <p>
+ * The file is memory-mapped rather than read into the heap, and the entries of
+ * a position are found by binary search, such that a lookup only touches a few
+ * pages of the file, even for large books. The mapping is read-only, so a book
+ * can be shared by several threads.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PolyglotBook {
+    /**
+     * Size of an entry (in bytes).
+     */
+    public static final int ENTRY_SIZE = 16;
+
+    /**
+     * Base-2 logarithm of the number of entries per mapped segment (a single
+     * mapping is limited to 2 GiB).
+     */
+    private static final int SEGMENT_SHIFT = 26;
+
+    /**
+     * Mapped segments of the book file.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Number of entries.
+     */
+    private final long numEntries;
+
+    /**
+     * Open the Polyglot book with given path.
+     *
+     * @param path Path of the book file.
+     * @throws IOException If the file cannot be mapped or its size is not a
+     *                     multiple of the entry size.
+     */
+    public PolyglotBook(Path path) throws IOException {
+        // The mapping remains valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            if (size % ENTRY_SIZE != 0) {
+                throw new IOException("Size " + size + " of book " + path + " is not a multiple of " + ENTRY_SIZE
+                        + " bytes.");
+            }
+
+            numEntries = size / ENTRY_SIZE;
+            segments = new MappedByteBuffer[(int) ((numEntries + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+
+            for (int i = 0; i < segments.length; i++) {
+                final long offset = ((long) i << SEGMENT_SHIFT) * ENTRY_SIZE;
+
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(size - offset, (long) ENTRY_SIZE << SEGMENT_SHIFT));
+            }
+        }
+    }
+
+    /**
+     * @return Number of entries.
+     */
+    public long getNumEntries() {
+        return numEntries;
+    }
+
+    /**
+     * Get the book entries of the given position, sorted by decreasing weight.
+     * Entries with a move that is illegal in the position (e.g. because of a key
+     * collision) are skipped.
+     *
+     * @param position Given position.
+     * @return Book entries of the position (empty if the position is not in the
+     *         book).
+     */
+    public List<BookEntry> getEntries(Position position) {
+        final long key = position.getPolyglotKey();
+        final List<BookEntry> entries = new ArrayList<>();
+
+        for (long index = getFirstIndex(key); index < numEntries && getKey(index) == key; index++) {
+            final MappedByteBuffer segment = segments[(int) (index >>> SEGMENT_SHIFT)];
+            final int offset = (int) (index & ((1L << SEGMENT_SHIFT) - 1)) * ENTRY_SIZE;
+            final Move move = position.getPolyglotMove(Short.toUnsignedInt(segment.getShort(offset + 8)));
+
+            if (move != null) {
+                entries.add(new BookEntry(move, Short.toUnsignedInt(segment.getShort(offset + 10)),
+                        segment.getInt(offset + 12)));
+            }
+        }
+
+        // Books are usually sorted by decreasing weight already (the sort is stable).
+        entries.sort(Comparator.comparingInt(BookEntry::getWeight).reversed());
+
+        return entries;
+    }
+
+    /**
+     * Get the book move with the highest weight in the given position.
+     *
+     * @param position Given position.
+     * @return Book move, or {@code null} if the position is not in the book.
+     */
+    public Move getBestMove(Position position) {
+        final List<BookEntry> entries = getEntries(position);
+
+        return entries.isEmpty() ? null : entries.get(0).getMove();
+    }
+
+    /**
+     * Get a random book move in the given position, where each move is chosen with
+     * a probability proportional to its weight.
+     *
+     * @param position Given position.
+     * @param random   Random number generator.
+     * @return Book move, or {@code null} if the position is not in the book or all
+     *         its moves have zero weight.
+     */
+    public Move getRandomMove(Position position, Random random) {
+        final List<BookEntry> entries = getEntries(position);
+        int totalWeight = 0;
+
+        for (BookEntry entry : entries) {
+            totalWeight += entry.getWeight();
+        }
+
+        if (totalWeight == 0) {
+            return null;
+        }
+
+        int value = random.nextInt(totalWeight);
+
+        for (BookEntry entry : entries) {
+            value -= entry.getWeight();
+
+            if (value < 0) {
+                return entry.getMove();
+            }
+        }
+
+        // Unreachable, as the value is smaller than the total weight.
+        return null;
+    }
+
+    /**
+     * Get the number of plies of a game that follow the book, i.e. the length of
+     * the longest prefix of the game moves that are book moves.
+     *
+     * @param game Given game.
+     * @return Number of book plies of the game.
+     */
+    public int getNumBookPlies(Game game) {
+        final List<Position> positions = game.getPositions();
+        final List<Move> moves = game.getMoves();
+        int numPlies = 0;
+
+        while (numPlies < moves.size() && isBookMove(positions.get(numPlies), moves.get(numPlies))) {
+            numPlies++;
+        }
+
+        return numPlies;
+    }
+
+    /**
+     * Check if the given move is a book move in the given position.
+     *
+     * @param position Given position.
+     * @param move     Given move.
+     * @return {@code true} if and only if the move is a book move.
+     */
+    public boolean isBookMove(Position position, Move move) {
+        for (BookEntry entry : getEntries(position)) {
+            if (entry.getMove().equals(move)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the index of the first entry with a key that is not smaller than the
+     * given key (keys are compared as unsigned numbers).
+     *
+     * @param key Given key.
+     * @return Index of the first entry with a key that is not smaller than the
+     *         given key, or the number of entries if there is no such entry.
+     */
+    private long getFirstIndex(long key) {
+        long low = 0;
+        long high = numEntries;
+
+        while (low < high) {
+            final long middle = (low + high) >>> 1;
+
+            if (Long.compareUnsigned(getKey(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Get the key of the entry with given index.
+     *
+     * @param index Entry index.
+     * @return Key of the entry.
+     */
+    private long getKey(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)]
+                .getLong((int) (index & ((1L << SEGMENT_SHIFT) - 1)) * ENTRY_SIZE);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.pgn.PgnGame;
+import io.github.ddobbelaere.jchess.util.SortedRuns;
+
+/**
+ * Builder of Polyglot opening books (see {@link PolyglotBook}) from game
+ * collections.
+ *
+ * <p>
+ * The moves of the first plies of each game are counted per position, where a
+ * move scores two points for a win and one point for a draw of the side that
+ * played it. A book move is kept if it was played in a minimum number of games
+ * and scored at least one point, and its weight is its score (scaled down per
+ * position if it exceeds 16 bits).
+ * </p>
+ *
+ * <p>
+ * Counts are aggregated in a primitive hash map (see {@link BookEntryCounts}).
+ * Whenever the map is full, its entries are sorted and spilled to a run file on
+ * disk, and the runs are merged into the sorted book when it is built (see
+ * {@link SortedRuns}). The memory use is hence bounded, regardless of the size of the collection.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PolyglotBookBuilder {
+    /**
+     * Default maximum number of plies per game.
+     */
+    public static final int DEFAULT_MAX_PLY = 30;
+
+    /**
+     * Default minimum number of games of a book move.
+     */
+    public static final int DEFAULT_MIN_NUM_GAMES = 3;
+
+    /**
+     * Default maximum number of entries in memory (about 72 MiB).
+     */
+    public static final int DEFAULT_MAX_NUM_ENTRIES_IN_MEMORY = 1 << 21;
+
+    /**
+     * Maximum weight of a Polyglot book entry.
+     */
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    /**
+     * Maximum number of plies per game.
+     */
+    private final int maxPly;
+
+    /**
+     * Minimum number of games of a book move.
+     */
+    private final int minNumGames;
+
+    /**
+     * Entry counts in memory.
+     */
+    private final BookEntryCounts counts;
+
+    /**
+     * Run files (sorted by key and move).
+     */
+    private final SortedRuns<RunReader> runs;
+
+    /**
+     * Construct with given temporary directory and default settings.
+     *
+     * @param tempDirectory Directory of the run files.
+     */
+    public PolyglotBookBuilder(Path tempDirectory) {
+        this(DEFAULT_MAX_PLY, DEFAULT_MIN_NUM_GAMES, DEFAULT_MAX_NUM_ENTRIES_IN_MEMORY, tempDirectory);
+    }
+
+    /**
+     * Construct with given settings.
+     *
+     * @param maxPly                Maximum number of plies per game.
+     * @param minNumGames           Minimum number of games of a book move.
+     * @param maxNumEntriesInMemory Maximum number of entries in memory before they
+     *                              are spilled to disk.
+     * @param tempDirectory         Directory of the run files.
+     */
+    public PolyglotBookBuilder(int maxPly, int minNumGames, int maxNumEntriesInMemory, Path tempDirectory) {
+        this.maxPly = maxPly;
+        this.minNumGames = minNumGames;
+        counts = new BookEntryCounts(maxNumEntriesInMemory);
+        runs = new SortedRuns<>(tempDirectory, "jchess-book-", RunReader::new);
+    }
+
+    /**
+     * Add a game with given result. Games with an unknown result are ignored.
+     *
+     * @param game   Given game.
+     * @param result Result of the game (see {@link PgnGame#getResult()}).
+     * @throws IOException If the entries cannot be spilled to disk.
+     */
+    public void addGame(Game game, String result) throws IOException {
+        final int whiteWeight;
+
+        if (PgnGame.WHITE_WINS.equals(result)) {
+            whiteWeight = 2;
+        } else if (PgnGame.DRAW.equals(result)) {
+            whiteWeight = 1;
+        } else if (PgnGame.BLACK_WINS.equals(result)) {
+            whiteWeight = 0;
+        } else {
+            return;
+        }
+
+        final List<Position> positions = game.getPositions();
+        final List<Move> moves = game.getMoves();
+
+        for (int ply = 0; ply < Math.min(maxPly, moves.size()); ply++) {
+            final Position position = positions.get(ply);
+
+            counts.add(position.getPolyglotKey(), position.encodePolyglotMove(moves.get(ply)),
+                    position.isWhiteToMove() ? whiteWeight : 2 - whiteWeight);
+
+            if (counts.isFull()) {
+                spill();
+            }
+        }
+    }
+
+    /**
+     * Add a stream of games.
+     *
+     * @param games Stream of games (e.g. from a {@link io.github.ddobbelaere.jchess.pgn.PgnReader}).
+     * @return Number of added games.
+     * @throws IOException If the entries cannot be spilled to disk.
+     */
+    public long addGames(Stream<PgnGame> games) throws IOException {
+        long numGames = 0;
+
+        for (Iterator<PgnGame> iterator = games.iterator(); iterator.hasNext();) {
+            final PgnGame game = iterator.next();
+
+            addGame(game.getGame(), game.getResult());
+            numGames++;
+        }
+
+        return numGames;
+    }
+
+    /**
+     * @return Number of runs that are spilled to disk so far.
+     */
+    public int getNumRuns() {
+        return runs.getNumRuns();
+    }
+
+    /**
+     * Build the book from the added games, after which the builder is empty.
+     *
+     * @param path Path of the book file.
+     * @return Number of entries of the book.
+     * @throws IOException If the book cannot be written.
+     */
+    public long build(Path path) throws IOException {
+        if (counts.size() > 0) {
+            spill();
+        }
+
+        long numEntries = 0;
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            runs.startMerge();
+
+            // Merge the runs and group the entries by key.
+            final List<long[]> group = new ArrayList<>();
+
+            while (runs.hasNext()) {
+                final RunReader reader = runs.poll();
+                final long key = reader.key;
+                final int move = reader.move;
+                long weight = reader.weight;
+                long numGames = reader.numGames;
+
+                runs.advance(reader);
+
+                while (runs.hasNext() && runs.peek().key == key && runs.peek().move == move) {
+                    final RunReader other = runs.poll();
+
+                    weight += other.weight;
+                    numGames += other.numGames;
+                    runs.advance(other);
+                }
+
+                if (!group.isEmpty() && group.get(0)[0] != key) {
+                    numEntries += writeGroup(output, group);
+                    group.clear();
+                }
+
+                if (numGames >= minNumGames && weight > 0) {
+                    group.add(new long[] { key, move, weight });
+                }
+            }
+
+            numEntries += writeGroup(output, group);
+        } finally {
+            runs.clear();
+        }
+
+        return numEntries;
+    }
+
+    /**
+     * Sort the entries in memory and spill them to a new run file.
+     *
+     * @throws IOException If the run file cannot be written.
+     */
+    private void spill() throws IOException {
+        counts.sort();
+        runs.spill(counts.size(), (output, i) -> {
+            output.writeLong(counts.getKey(i));
+            output.writeChar(counts.getMove(i));
+            output.writeInt(counts.getWeight(i));
+            output.writeInt(counts.getNumGames(i));
+        });
+        counts.clear();
+    }
+
+    /**
+     * Write the entries of a position, sorted by decreasing weight.
+     *
+     * @param output Book output stream.
+     * @param group  Entries of the position (key, move and weight).
+     * @return Number of written entries.
+     * @throws IOException If the book cannot be written.
+     */
+    private static int writeGroup(DataOutputStream output, List<long[]> group) throws IOException {
+        long maxWeight = 0;
+
+        for (long[] entry : group) {
+            maxWeight = Math.max(maxWeight, entry[2]);
+        }
+
+        group.sort((entry1, entry2) -> Long.compare(entry2[2], entry1[2]));
+
+        for (long[] entry : group) {
+            // Scale down the weights of the position if they do not fit in 16 bits.
+            final long weight = maxWeight > MAX_WEIGHT ? Math.max(1, entry[2] * MAX_WEIGHT / maxWeight) : entry[2];
+
+            output.writeLong(entry[0]);
+            output.writeShort((int) entry[1]);
+            output.writeShort((int) weight);
+            output.writeInt(0);
+        }
+
+        return group.size();
+    }
+
+    /**
+     * Sequential reader of a run file.
+     */
+    private static class RunReader extends SortedRuns.Reader<RunReader> {
+        /**
+         * Key of the current entry.
+         */
+        private long key;
+
+        /**
+         * Move of the current entry.
+         */
+        private int move;
+
+        /**
+         * Weight of the current entry.
+         */
+        private int weight;
+
+        /**
+         * Number of games of the current entry.
+         */
+        private int numGames;
+
+        @Override
+        protected void read(DataInputStream input) throws IOException {
+            key = input.readLong();
+            move = input.readChar();
+            weight = input.readInt();
+            numGames = input.readInt();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            final int result = Long.compareUnsigned(key, other.key);
+
+            return result != 0 ? result : Integer.compare(move, other.move);
+        }
+    }
+}
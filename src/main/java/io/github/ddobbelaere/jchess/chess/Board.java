@@ -63,6 +63,11 @@ class Board {
      */
     static final long BB_A1H1 = 0xFFL;
 
+    /**
+     * Bitboard representation of the third rank (aka row 2).
+     */
+    static final long BB_A3H3 = 0xFF0000L;
+
     /**
      * Bitboard representation of the fourth rank (aka row 3).
      */
@@ -73,6 +78,11 @@ class Board {
      */
     static final long BB_A1A8 = 0x0101010101010101L;
 
+    /**
+     * Bitboard representation of the h-file (aka column 7).
+     */
+    static final long BB_H1H8 = BB_A1A8 << 7;
+
     /**
      * Bitboard representation of the a1-square.
      */
@@ -108,6 +118,11 @@ class Board {
      */
     static final long BB_H1 = getSquareBitboard("h1");
 
+    /**
+     * Square representation of the a1-square.
+     */
+    static final int SQUARE_A1 = getSquare("a1");
+
     /**
      * Square representation of the c1-square.
      */
@@ -118,11 +133,26 @@ class Board {
      */
     static final int SQUARE_E1 = getSquare("e1");
 
+    /**
+     * Square representation of the d1-square.
+     */
+    static final int SQUARE_D1 = getSquare("d1");
+
+    /**
+     * Square representation of the f1-square.
+     */
+    static final int SQUARE_F1 = getSquare("f1");
+
     /**
      * Square representation of the g1-square.
      */
     static final int SQUARE_G1 = getSquare("g1");
 
+    /**
+     * Square representation of the h1-square.
+     */
+    static final int SQUARE_H1 = getSquare("h1");
+
     /**
      * Square representation of the a8-square.
      */
@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+/**
+ * Static position evaluator: tapered material and piece-square table
+ * evaluation.
+ *
+ * <p>
+ * Each piece contributes a middlegame and an endgame value (material plus a
+ * piece-square table bonus). The final score interpolates between the summed
+ * middlegame and endgame scores based on the game phase, which is derived
+ * from the remaining non-pawn material.
+ * </p>
+ *
+ * <p>
+ * The summed scores and the game phase are stored in the position and updated
+ * incrementally when a move is played, instead of being recomputed from the
+ * bitboards at every node. The pawn structure and pawn shield evaluation (see
+ * {@link PawnStructureEvaluator}) is added on top of them. Scores are expressed
+ * in centipawns from the point of view of the side to move, which matches the
+ * mirrored board representation (our pieces are always the pieces of the side
+ * to move, seen from their own first rank). Mirroring a position hence simply
+ * negates its scores.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class Evaluator {
+    /**
+     * Pawn value (in centipawns).
+     */
+    static final int PAWN_VALUE = 100;
+
+    /**
+     * Knight value (in centipawns).
+     */
+    static final int KNIGHT_VALUE = 320;
+
+    /**
+     * Bishop value (in centipawns).
+     */
+    static final int BISHOP_VALUE = 330;
+
+    /**
+     * Rook value (in centipawns).
+     */
+    static final int ROOK_VALUE = 500;
+
+    /**
+     * Queen value (in centipawns).
+     */
+    static final int QUEEN_VALUE = 900;
+
+    /**
+     * Game phase of the starting position (the phase decreases to zero as
+     * non-pawn material is traded).
+     */
+    static final int MAX_GAME_PHASE = 24;
+
+    /**
+     * Middlegame material values, indexed by piece type.
+     */
+    private static final int[] MIDDLEGAME_MATERIAL = new int[] { PAWN_VALUE, ROOK_VALUE, KNIGHT_VALUE, BISHOP_VALUE,
+            QUEEN_VALUE, 0 };
+
+    /**
+     * Endgame material values, indexed by piece type.
+     */
+    private static final int[] ENDGAME_MATERIAL = new int[] { 120, 540, 300, 320, 940, 0 };
+
+    /**
+     * Game phase contributions, indexed by piece type.
+     */
+    private static final int[] GAME_PHASE_CONTRIBUTIONS = new int[] { 0, 2, 1, 1, 4, 0 };
+
+    /**
+     * Middlegame pawn piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] MIDDLEGAME_PAWN_TABLE = new int[] {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0 };
+
+    /**
+     * Endgame pawn piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] ENDGAME_PAWN_TABLE = new int[] {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             80,  80,  80,  80,  80,  80,  80,  80,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             30,  30,  30,  30,  30,  30,  30,  30,
+             15,  15,  15,  15,  15,  15,  15,  15,
+              5,   5,   5,   5,   5,   5,   5,   5,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0 };
+
+    /**
+     * Knight piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] KNIGHT_TABLE = new int[] {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50 };
+
+    /**
+     * Bishop piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] BISHOP_TABLE = new int[] {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20 };
+
+    /**
+     * Rook piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] ROOK_TABLE = new int[] {
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0 };
+
+    /**
+     * Queen piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] QUEEN_TABLE = new int[] {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20 };
+
+    /**
+     * Middlegame king piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] MIDDLEGAME_KING_TABLE = new int[] {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20 };
+
+    /**
+     * Endgame king piece-square table (as seen from white, with a8 first).
+     */
+    private static final int[] ENDGAME_KING_TABLE = new int[] {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50 };
+
+    /**
+     * Middlegame values (material plus piece-square table bonus), indexed by piece
+     * type and square (as seen from the owner of the piece).
+     */
+    private static final int[][] MIDDLEGAME_VALUES = createValues(MIDDLEGAME_MATERIAL, MIDDLEGAME_PAWN_TABLE,
+            ROOK_TABLE, KNIGHT_TABLE, BISHOP_TABLE, QUEEN_TABLE, MIDDLEGAME_KING_TABLE);
+
+    /**
+     * Endgame values (material plus piece-square table bonus), indexed by piece
+     * type and square (as seen from the owner of the piece).
+     */
+    private static final int[][] ENDGAME_VALUES = createValues(ENDGAME_MATERIAL, ENDGAME_PAWN_TABLE, ROOK_TABLE,
+            KNIGHT_TABLE, BISHOP_TABLE, QUEEN_TABLE, ENDGAME_KING_TABLE);
+
+    /**
+     * Combine material values and piece-square tables.
+     *
+     * @param material Material values, indexed by piece type.
+     * @param tables   Piece-square tables (as seen from white, with a8 first), in
+     *                 the order of the piece types.
+     * @return Values, indexed by piece type and square.
+     */
+    private static int[][] createValues(int[] material, int[]... tables) {
+        final int[][] values = new int[tables.length][64];
+
+        for (int pieceType = 0; pieceType < tables.length; pieceType++) {
+            for (int square = 0; square < 64; square++) {
+                // Flip the rows, as the tables start at a8.
+                values[pieceType][square] = material[pieceType] + tables[pieceType][square ^ 0b111000];
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Evaluate the given position.
+     *
+     * @param position      Given position.
+     * @param pawnHashTable Pawn hash table that caches the pawn structure
+     *                      evaluation ({@code null} to evaluate the pawn
+     *                      structure directly).
+     * @return Score in centipawns from the point of view of the side to move.
+     */
+    static int evaluate(Position position, PawnHashTable pawnHashTable) {
+        // The pawn shields depend on the king squares, so they're not cached with the
+        // pawn structure.
+        final int pawnScore = ((pawnHashTable != null) ? pawnHashTable.probe(position)
+                : PawnStructureEvaluator.evaluate(position.board))
+                + PawnStructureEvaluator.evaluatePawnShields(position.board);
+        final int middlegameScore = position.middlegameScore + PawnStructureEvaluator.getMiddlegameScore(pawnScore);
+        final int endgameScore = position.endgameScore + PawnStructureEvaluator.getEndgameScore(pawnScore);
+        final int gamePhase = Math.min(position.gamePhase, MAX_GAME_PHASE);
+
+        return (middlegameScore * gamePhase + endgameScore * (MAX_GAME_PHASE - gamePhase)) / MAX_GAME_PHASE;
+    }
+
+    /**
+     * Compute the middlegame and endgame scores and the game phase of the given
+     * position from scratch.
+     *
+     * @param position Given position.
+     */
+    static void initialize(Position position) {
+        final Board board = position.board;
+        final long queens = board.rooks & board.bishops;
+        final long knights = ~(board.pawns | board.rooks | board.bishops | board.kings);
+        final long[] pieceTypeBitboards = new long[] { board.pawns, board.rooks & ~queens, knights,
+                board.bishops & ~queens, queens, board.kings };
+
+        position.middlegameScore = 0;
+        position.endgameScore = 0;
+        position.gamePhase = 0;
+
+        for (PieceType pieceType : PieceType.values()) {
+            final long pieces = pieceTypeBitboards[pieceType.ordinal()];
+
+            for (long bitboard = pieces & board.ourPieces; bitboard != 0; bitboard &= bitboard - 1) {
+                addOurPiece(position, pieceType, Long.numberOfTrailingZeros(bitboard));
+            }
+
+            for (long bitboard = pieces & board.theirPieces; bitboard != 0; bitboard &= bitboard - 1) {
+                // Their pieces are seen from the other side of the board.
+                final int square = Long.numberOfTrailingZeros(bitboard) ^ 0b111000;
+
+                position.middlegameScore -= MIDDLEGAME_VALUES[pieceType.ordinal()][square];
+                position.endgameScore -= ENDGAME_VALUES[pieceType.ordinal()][square];
+                position.gamePhase += GAME_PHASE_CONTRIBUTIONS[pieceType.ordinal()];
+            }
+        }
+    }
+
+    /**
+     * Incrementally update the scores of the given position for a piece of the
+     * side to move that is added to the board.
+     *
+     * @param position  Given position.
+     * @param pieceType Piece type.
+     * @param square    Square (in mirrored coordinates).
+     */
+    static void addOurPiece(Position position, PieceType pieceType, int square) {
+        position.middlegameScore += MIDDLEGAME_VALUES[pieceType.ordinal()][square];
+        position.endgameScore += ENDGAME_VALUES[pieceType.ordinal()][square];
+        position.gamePhase += GAME_PHASE_CONTRIBUTIONS[pieceType.ordinal()];
+    }
+
+    /**
+     * Incrementally update the scores of the given position for a piece of the
+     * side to move that is removed from the board.
+     *
+     * @param position  Given position.
+     * @param pieceType Piece type.
+     * @param square    Square (in mirrored coordinates).
+     */
+    static void removeOurPiece(Position position, PieceType pieceType, int square) {
+        position.middlegameScore -= MIDDLEGAME_VALUES[pieceType.ordinal()][square];
+        position.endgameScore -= ENDGAME_VALUES[pieceType.ordinal()][square];
+        position.gamePhase -= GAME_PHASE_CONTRIBUTIONS[pieceType.ordinal()];
+    }
+
+    /**
+     * Incrementally update the scores of the given position for a piece of the
+     * opponent that is removed from the board (captured).
+     *
+     * @param position  Given position.
+     * @param pieceType Piece type.
+     * @param square    Square (in mirrored coordinates).
+     */
+    static void removeTheirPiece(Position position, PieceType pieceType, int square) {
+        // Their pieces are seen from the other side of the board.
+        position.middlegameScore += MIDDLEGAME_VALUES[pieceType.ordinal()][square ^ 0b111000];
+        position.endgameScore += ENDGAME_VALUES[pieceType.ordinal()][square ^ 0b111000];
+        position.gamePhase -= GAME_PHASE_CONTRIBUTIONS[pieceType.ordinal()];
+    }
+}
@@ -107,7 +107,7 @@ public class Game {
         for (String move : moves) {
             // The next statement possibly throws an IllegalMoveException.
             Move internalMove = SanTranslator.fromSan(move, getLastPosition());
-            Position nextPosition = getLastPosition().playMove(internalMove);
+            Position nextPosition = getLastPosition().playTrustedMove(internalMove);
 
             // If we get here, the move is legal.
             // Add the move and position to the lists.
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+/**
+ * Material signatures of positions.
+ *
+ * <p>
+ * A material signature packs the number of pieces of each type and side into
+ * an int, such that positions with the same material (e.g. KRP vs KR) have the
+ * same signature. Each side takes 16 bits (the white side the lower half and
+ * the black side the upper half): 4 bits for the number of pawns and 3 bits
+ * for the number of knights, bishops, rooks and queens each (saturated at 7).
+ * Kings are implied.
+ * </p>
+ *
+ * <p>
+ * The string representation lists the pieces of the white side and then those
+ * of the black side, each starting with the king (e.g. KRPKR).
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class MaterialSignature {
+    /**
+     * Piece types in the order of the string representation.
+     */
+    private static final PieceType[] PIECE_TYPES = { PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP,
+            PieceType.KNIGHT, PieceType.PAWN };
+
+    /**
+     * Number of bits per side.
+     */
+    private static final int SIDE_BITS = 16;
+
+    /**
+     * Compute the material signature of the given position.
+     *
+     * @param position Given position.
+     * @return Material signature.
+     */
+    static int compute(Position position) {
+        final Board board = position.board;
+        final int ourSignature = getSideSignature(board, board.ourPieces);
+        final int theirSignature = getSideSignature(board, board.theirPieces);
+
+        return board.isMirrored ? theirSignature | (ourSignature << SIDE_BITS)
+                : ourSignature | (theirSignature << SIDE_BITS);
+    }
+
+    /**
+     * Parse the string representation of a material signature (e.g. KRPKR).
+     *
+     * @param string String representation (the piece letters of a side may be in
+     *               any order).
+     * @return Material signature.
+     * @throws IllegalArgumentException If the string is invalid.
+     */
+    public static int valueOf(String string) {
+        final int blackKingIndex = string.indexOf('K', 1);
+
+        if (!string.startsWith("K") || blackKingIndex < 0) {
+            throw new IllegalArgumentException("Material signature " + string + " should contain two kings.");
+        }
+
+        int signature = 0;
+
+        for (int i = 1; i < string.length(); i++) {
+            if (i == blackKingIndex) {
+                continue;
+            }
+
+            final PieceType pieceType = getPieceType(string.charAt(i));
+
+            if (pieceType == null) {
+                throw new IllegalArgumentException(
+                        "Material signature " + string + " has invalid piece " + string.charAt(i) + ".");
+            }
+
+            final boolean isWhite = i < blackKingIndex;
+
+            if (getCount(signature, isWhite, pieceType) == (pieceType == PieceType.PAWN ? 8 : 7)) {
+                throw new IllegalArgumentException("Material signature " + string + " has too many pieces.");
+            }
+
+            signature += 1 << getShift(pieceType, !isWhite);
+        }
+
+        return signature;
+    }
+
+    /**
+     * Get the string representation of a material signature.
+     *
+     * @param signature Material signature.
+     * @return String representation (e.g. KRPKR).
+     */
+    public static String toString(int signature) {
+        final StringBuilder sb = new StringBuilder();
+
+        for (boolean isWhite : new boolean[] { true, false }) {
+            sb.append('K');
+
+            for (PieceType pieceType : PIECE_TYPES) {
+                for (int i = 0; i < getCount(signature, isWhite, pieceType); i++) {
+                    sb.append(pieceType == PieceType.PAWN ? "P" : pieceType.toString());
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Get the number of pieces of a side and piece type.
+     *
+     * @param signature Material signature.
+     * @param isWhite   Count the pieces of the white side.
+     * @param pieceType Piece type.
+     * @return Number of pieces (saturated at 7 for pieces other than pawns).
+     */
+    public static int getCount(int signature, boolean isWhite, PieceType pieceType) {
+        if (pieceType == PieceType.KING) {
+            return 1;
+        }
+
+        return (signature >>> getShift(pieceType, !isWhite)) & (pieceType == PieceType.PAWN ? 0b1111 : 0b111);
+    }
+
+    /**
+     * Get the material signature with the sides swapped (e.g. KRKRP for KRPKR).
+     *
+     * @param signature Material signature.
+     * @return Material signature with the sides swapped.
+     */
+    public static int mirror(int signature) {
+        return (signature >>> SIDE_BITS) | (signature << SIDE_BITS);
+    }
+
+    /**
+     * Compute the signature of a side.
+     *
+     * @param board  Given chess board.
+     * @param pieces Bitboard of the pieces of the side.
+     * @return Signature of the side (in the lower half).
+     */
+    private static int getSideSignature(Board board, long pieces) {
+        final long queens = board.rooks & board.bishops;
+        final long knights = ~(board.pawns | board.rooks | board.bishops | board.kings);
+
+        return Long.bitCount(pieces & board.pawns) | (Math.min(Long.bitCount(pieces & knights), 7) << 4)
+                | (Math.min(Long.bitCount(pieces & board.bishops & ~queens), 7) << 7)
+                | (Math.min(Long.bitCount(pieces & board.rooks & ~queens), 7) << 10)
+                | (Math.min(Long.bitCount(pieces & queens), 7) << 13);
+    }
+
+    /**
+     * Get the piece type corresponding to a letter of the string representation.
+     *
+     * @param c Piece letter.
+     * @return Corresponding piece type (no king) or null if invalid.
+     */
+    private static PieceType getPieceType(char c) {
+        for (PieceType pieceType : PIECE_TYPES) {
+            if (c == (pieceType == PieceType.PAWN ? 'P' : pieceType.toString().charAt(0))) {
+                return pieceType;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the bit offset of the count of a side and piece type.
+     *
+     * @param pieceType Piece type (no king).
+     * @param isBlack   Get the offset of the black side.
+     * @return Bit offset.
+     */
+    private static int getShift(PieceType pieceType, boolean isBlack) {
+        final int sideShift = isBlack ? SIDE_BITS : 0;
+
+        switch (pieceType) {
+            case PAWN:
+                return sideShift;
+            case KNIGHT:
+                return sideShift + 4;
+            case BISHOP:
+                return sideShift + 7;
+            case ROOK:
+                return sideShift + 10;
+            default:
+                return sideShift + 13;
+        }
+    }
+}
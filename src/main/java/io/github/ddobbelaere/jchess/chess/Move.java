@@ -33,43 +33,72 @@ package io.github.ddobbelaere.jchess.chess;
  * Note that castling moves have no special encoding. E.g. white castling short
  * is encoded by the move e1-g1.
  *
+ * <p>
+ * Moves are immutable. The move generator does not allocate moves, but hands
+ * out shared instances from a table that holds every combination of source
+ * square, destination square and promotion piece type (see
+ * {@link #of(int, int, PromotionPieceType)}). Such moves can hence be compared
+ * by reference and are identified by a dense index (see {@link #getIndex()}),
+ * which is convenient for move-indexed tables.
+ *
  * @author Dieter Dobbelaere
  */
 public class Move {
     /**
      * Source square of the moved piece.
      */
-    private byte fromSquare;
+    private final byte fromSquare;
 
     /**
      * Destination square of the moved piece.
      */
-    private byte toSquare;
+    private final byte toSquare;
 
     /**
      * Promotion piece type.
      */
-    private PromotionPieceType promotionPieceType = PromotionPieceType.NONE;
+    private final PromotionPieceType promotionPieceType;
+
+    /**
+     * Number of distinct move indices (see {@link #getIndex()}).
+     */
+    public static final int NUM_INDICES = 64 * 64 * 8;
+
+    /**
+     * Table of shared moves, indexed by move index.
+     */
+    private static final Move[] moves = new Move[NUM_INDICES];
+
+    static {
+        for (int fromSquare = 0; fromSquare < 64; fromSquare++) {
+            for (int toSquare = 0; toSquare < 64; toSquare++) {
+                for (PromotionPieceType promotionPieceType : PromotionPieceType.values()) {
+                    Move move = new Move(fromSquare, toSquare, promotionPieceType);
+                    moves[move.getIndex()] = move;
+                }
+            }
+        }
+    }
 
     /**
      * White short castling move.
      */
-    final static Move SHORT_CASTLING_WHITE = new Move("e1g1");
+    final static Move SHORT_CASTLING_WHITE = of(Board.SQUARE_E1, Board.SQUARE_G1);
 
     /**
      * White long castling move.
      */
-    final static Move LONG_CASTLING_WHITE = new Move("e1c1");
+    final static Move LONG_CASTLING_WHITE = of(Board.SQUARE_E1, Board.SQUARE_C1);
 
     /**
      * Black short castling move.
      */
-    final static Move SHORT_CASTLING_BLACK = new Move("e8g8");
+    final static Move SHORT_CASTLING_BLACK = SHORT_CASTLING_WHITE.getMirrored();
 
     /**
      * Black long castling move.
      */
-    final static Move LONG_CASTLING_BLACK = new Move("e8c8");
+    final static Move LONG_CASTLING_BLACK = LONG_CASTLING_WHITE.getMirrored();
 
     /**
      * Construct with given source and destinations squares and promotion piece
@@ -96,12 +125,49 @@ public class Move {
     }
 
     /**
-     * Copy constructor.
+     * Get the shared move with given source and destination squares and promotion
+     * piece type.
+     *
+     * @param fromSquare         Source square of the moved piece.
+     * @param toSquare           Destination square of the moved piece.
+     * @param promotionPieceType Promotion piece type.
+     * @return Shared move instance.
+     */
+    static Move of(int fromSquare, int toSquare, PromotionPieceType promotionPieceType) {
+        return moves[getIndex(fromSquare, toSquare, promotionPieceType)];
+    }
+
+    /**
+     * Get the shared move with given source and destination squares (assuming no
+     * promotion).
+     *
+     * @param fromSquare Source square of the moved piece.
+     * @param toSquare   Destination square of the moved piece.
+     * @return Shared move instance.
+     */
+    static Move of(int fromSquare, int toSquare) {
+        return moves[getIndex(fromSquare, toSquare, PromotionPieceType.NONE)];
+    }
+
+    /**
+     * Get the shared move with given index.
+     *
+     * @param index Move index (see {@link #getIndex()}).
+     * @return Shared move instance, or {@code null} if the index is not in use.
+     */
+    public static Move fromIndex(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Get the shared move described by the given string (see
+     * {@link #Move(String)} for the format).
      *
-     * @param move Move to copy.
+     * @param moveString Descriptive move string.
+     * @return Shared move instance.
      */
-    Move(Move move) {
-        this(move.fromSquare, move.toSquare, move.promotionPieceType);
+    public static Move valueOf(String moveString) {
+        return new Move(moveString).getShared();
     }
 
     /**
@@ -173,12 +239,50 @@ public class Move {
     }
 
     /**
-     * Mirror the move (change side to move), e.g. d7d8Q becomes d2d1Q.
+     * @return {@code true} if and only if the move is a pawn promotion.
      */
-    void mirror() {
+    public boolean isPromotion() {
+        return promotionPieceType != PromotionPieceType.NONE;
+    }
+
+    /**
+     * Get the move index, which packs the source square (bits 0-5), destination
+     * square (bits 6-11) and promotion piece type (bits 12-14) in an integer
+     * smaller than {@link #NUM_INDICES}.
+     *
+     * @return Move index.
+     */
+    public int getIndex() {
+        return getIndex(fromSquare, toSquare, promotionPieceType);
+    }
+
+    /**
+     * Get the move index of the given move components.
+     *
+     * @param fromSquare         Source square of the moved piece.
+     * @param toSquare           Destination square of the moved piece.
+     * @param promotionPieceType Promotion piece type.
+     * @return Move index.
+     */
+    private static int getIndex(int fromSquare, int toSquare, PromotionPieceType promotionPieceType) {
+        return fromSquare | (toSquare << 6) | (promotionPieceType.ordinal() << 12);
+    }
+
+    /**
+     * @return The shared instance of this move.
+     */
+    Move getShared() {
+        return moves[getIndex()];
+    }
+
+    /**
+     * Get the mirrored move (change side to move), e.g. d7d8Q becomes d2d1Q.
+     *
+     * @return Shared instance of the mirrored move.
+     */
+    Move getMirrored() {
         // Mirror source and destination square, promotion piece type stays the same.
-        fromSquare ^= 0b111000;
-        toSquare ^= 0b111000;
+        return of(fromSquare ^ 0b111000, toSquare ^ 0b111000, promotionPieceType);
     }
 
     @Override
@@ -187,6 +291,11 @@ public class Move {
                 + promotionPieceType.toString().toLowerCase();
     }
 
+    @Override
+    public int hashCode() {
+        return getIndex();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -18,6 +18,7 @@
 package io.github.ddobbelaere.jchess.chess;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -81,6 +82,43 @@ class MoveGenerator {
             0x0008050000000000L, 0x00110A0000000000L, 0x0022140000000000L, 0x0044280000000000L, 0x0088500000000000L,
             0x0010A00000000000L, 0x0020400000000000L };
 
+    /**
+     * Array of line bitboards, indexed by {@code 64 * square1 + square2}. Each entry
+     * holds the full row, column or diagonal through both squares (or zero if the
+     * squares are not aligned).
+     */
+    private static final long[] lineBitboards = new long[64 * 64];
+
+    static {
+        for (int square1 = 0; square1 < 64; square1++) {
+            final int row1 = square1 / 8;
+            final int col1 = square1 % 8;
+
+            for (int square2 = 0; square2 < 64; square2++) {
+                final int row2 = square2 / 8;
+                final int col2 = square2 % 8;
+
+                if (square1 == square2) {
+                    // A square is not aligned with itself.
+                    continue;
+                }
+
+                long lineBitboard = 0;
+
+                if (row1 == row2) {
+                    lineBitboard = Board.getRowBitboard(row1);
+                } else if (col1 == col2) {
+                    lineBitboard = Board.getColBitboard(col1);
+                } else if (Math.abs(row1 - row2) == Math.abs(col1 - col2)) {
+                    // Both squares share exactly one diagonal.
+                    lineBitboard = Board.getDiagsBitboard(row1, col1) & Board.getDiagsBitboard(row2, col2);
+                }
+
+                lineBitboards[64 * square1 + square2] = lineBitboard;
+            }
+        }
+    }
+
     /**
      * <p>
      * Safety information of <em>our</em> king consisting of
@@ -114,6 +152,12 @@ class MoveGenerator {
          */
         long attackLines;
 
+        /**
+         * Bitboard of all squares attacked by the opponent (disregarding our king, such
+         * that X-ray attacks are considered).
+         */
+        long theirAttackedSquares;
+
         /**
          * @return Our king is in check.
          */
@@ -135,24 +179,30 @@ class MoveGenerator {
      * <li>King safety information.</li>
      * <li>Legal moves.</li>
      * </p>
+     *
+     * <p>
+     * Instances are immutable and all fields are final, such that a reference to a
+     * result can safely be shared between threads without synchronization (the
+     * king safety information and moves list are not modified after construction).
+     * </p>
      */
     static class MoveGeneratorResult {
         /**
          * King safety information.
          */
-        private KingSafety kingSafety;
+        private final KingSafety kingSafety;
 
         /**
-         * List of legal moves.
+         * Unmodifiable list of legal moves.
          */
-        List<Move> legalMoves;
+        private final List<Move> legalMoves;
 
         /**
          * Constructor.
          */
         MoveGeneratorResult(KingSafety kingSafety, List<Move> legalMoves) {
             this.kingSafety = kingSafety;
-            this.legalMoves = legalMoves;
+            this.legalMoves = Collections.unmodifiableList(legalMoves);
         }
 
         /**
@@ -163,7 +213,7 @@ class MoveGenerator {
         }
 
         /**
-         * @return List of legal moves.
+         * @return Unmodifiable list of legal moves.
          */
         List<Move> getLegalMoves() {
             return legalMoves;
@@ -276,38 +326,158 @@ class MoveGenerator {
         // Set double check flag.
         kingSafety.isDoubleCheck = (numCheckingPieces == 2);
 
-        // Accessible squares around king where the king can move to.
-        for (int[] kingMoveDirection : kingMoveDirections) {
-            final int row = ourKingRow + kingMoveDirection[0];
-            final int col = ourKingCol + kingMoveDirection[1];
+        // Determine all squares attacked by the opponent in one pass.
+        kingSafety.theirAttackedSquares = generateTheirAttackedSquares(position);
 
-            if (row < 0 || row > 7 || col < 0 || col > 7) {
-                // Invalid square.
-                continue;
-            }
+        // Accessible squares around king where the king can move to are those that are
+        // neither occupied by one of our pieces nor under attack. Since our king is
+        // disregarded in the attack bitboard, squares behind our king on an attack
+        // line are correctly treated as attacked.
+        kingSafety.accessibleSquares = getKingAttackBitboard(position.board.ourPieces & position.board.kings)
+                & ~position.board.ourPieces & ~kingSafety.theirAttackedSquares;
 
-            final long squareBitboard = Board.getSquareBitboard(row, col);
+        // Return king safety object.
+        return kingSafety;
+    }
 
-            if ((squareBitboard & position.board.ourPieces) != 0) {
-                // If one of our pieces is present, the square is not accessible.
-                continue;
-            }
+    /**
+     * Get the bitboard of the line (row, column or diagonal) through two given
+     * squares.
+     *
+     * @param square1 First square (between 0 and 63).
+     * @param square2 Second square (between 0 and 63).
+     * @return Bitboard of the full line through both squares, or zero if they are
+     *         not aligned.
+     */
+    static long getLineBitboard(final int square1, final int square2) {
+        return lineBitboards[64 * square1 + square2];
+    }
 
-            if ((squareBitboard & kingSafety.attackLines & ~position.board.theirPieces) != 0) {
-                // The square lies on an attack line and is not equal to the attacking piece.
-                // Therefore, it is certainly not accessible.
-                continue;
-            }
+    /**
+     * Get the bitboard of all squares attacked by the given knights (set-wise).
+     *
+     * @param knights Bitboard of knights.
+     * @return Bitboard of all squares attacked by the knights.
+     */
+    static long getKnightAttackBitboard(final long knights) {
+        // Shift one and two columns to the left and right, taking care of wrap-arounds.
+        final long oneColShifted = ((knights >>> 1) & ~Board.BB_H1H8) | ((knights << 1) & ~Board.BB_A1A8);
+        final long twoColsShifted = ((knights >>> 2) & ~(Board.BB_H1H8 | (Board.BB_H1H8 >>> 1)))
+                | ((knights << 2) & ~(Board.BB_A1A8 | (Board.BB_A1A8 << 1)));
+
+        // Combine with two and one rows up and down respectively.
+        return (oneColShifted << 16) | (oneColShifted >>> 16) | (twoColsShifted << 8) | (twoColsShifted >>> 8);
+    }
 
-            if (!squareIsUnderAttack(position, 8 * row + col)) {
-                // The square is not under attack. Add it to the accessible
-                // squares bitboard.
-                kingSafety.accessibleSquares |= squareBitboard;
-            }
+    /**
+     * Get the bitboard of all squares attacked by the given kings (set-wise).
+     *
+     * @param kings Bitboard of kings.
+     * @return Bitboard of all squares attacked by the kings.
+     */
+    static long getKingAttackBitboard(final long kings) {
+        // First shift one column to the left and right, taking care of wrap-arounds.
+        long attacks = ((kings >>> 1) & ~Board.BB_H1H8) | ((kings << 1) & ~Board.BB_A1A8);
+
+        // Then shift the resulting row of three squares one row up and down.
+        final long row = attacks | kings;
+        attacks |= (row << 8) | (row >>> 8);
+
+        return attacks;
+    }
+
+    /**
+     * Get the bitboard of all squares attacked by the given pawns of the active
+     * player (set-wise), i.e. pawns that move up the board.
+     *
+     * @param pawns Bitboard of pawns.
+     * @return Bitboard of all squares attacked by the pawns.
+     */
+    static long getOurPawnAttackBitboard(final long pawns) {
+        return ((pawns << 7) & ~Board.BB_H1H8) | ((pawns << 9) & ~Board.BB_A1A8);
+    }
+
+    /**
+     * Get the bitboard of all squares attacked by the given pawns of the opponent
+     * (set-wise), i.e. pawns that move down the board.
+     *
+     * @param pawns Bitboard of pawns.
+     * @return Bitboard of all squares attacked by the pawns.
+     */
+    static long getTheirPawnAttackBitboard(final long pawns) {
+        return ((pawns >>> 7) & ~Board.BB_A1A8) | ((pawns >>> 9) & ~Board.BB_H1H8);
+    }
+
+    /**
+     * Generates the bitboard of all squares attacked by the opponent in the given
+     * position (disregarding our king, such that X-ray attacks are considered).
+     *
+     * @param position Given position.
+     * @return Bitboard of all squares attacked by the opponent.
+     */
+    static long generateTheirAttackedSquares(Position position) {
+        final Board board = position.board;
+
+        // Their sliding pieces see through our king.
+        final long occupiedSquaresBitboard = (board.ourPieces & ~board.kings) | board.theirPieces;
+
+        return generateAttackedSquares(board, board.theirPieces, occupiedSquaresBitboard)
+                | getTheirPawnAttackBitboard(board.theirPieces & board.pawns);
+    }
+
+    /**
+     * Generates the bitboard of all squares attacked by the active player in the
+     * given position.
+     *
+     * @param position Given position.
+     * @return Bitboard of all squares attacked by the active player.
+     */
+    static long generateOurAttackedSquares(Position position) {
+        final Board board = position.board;
+
+        return generateAttackedSquares(board, board.ourPieces, board.ourPieces | board.theirPieces)
+                | getOurPawnAttackBitboard(board.ourPieces & board.pawns);
+    }
+
+    /**
+     * Generates the bitboard of all squares attacked by the non-pawn pieces of one
+     * side.
+     *
+     * @param board                   Given chess board.
+     * @param pieces                  Bitboard of the pieces of the side.
+     * @param occupiedSquaresBitboard Bitboard of occupied squares that block
+     *                                sliding pieces.
+     * @return Bitboard of all squares attacked by the non-pawn pieces.
+     */
+    private static long generateAttackedSquares(Board board, long pieces, long occupiedSquaresBitboard) {
+        // Knights and king.
+        long attackedSquares = getKnightAttackBitboard(
+                pieces & ~(board.pawns | board.rooks | board.bishops | board.kings))
+                | getKingAttackBitboard(pieces & board.kings);
+
+        // Rooks (and queens).
+        long rooks = pieces & board.rooks;
+
+        while (rooks != 0) {
+            attackedSquares |= MagicUtils.getRookAttackBitboard(Long.numberOfTrailingZeros(rooks),
+                    occupiedSquaresBitboard);
+
+            // Remove the rook from the bitboard.
+            rooks &= rooks - 1;
         }
 
-        // Return king safety object.
-        return kingSafety;
+        // Bishops (and queens).
+        long bishops = pieces & board.bishops;
+
+        while (bishops != 0) {
+            attackedSquares |= MagicUtils.getBishopAttackBitboard(Long.numberOfTrailingZeros(bishops),
+                    occupiedSquaresBitboard);
+
+            // Remove the bishop from the bitboard.
+            bishops &= bishops - 1;
+        }
+
+        return attackedSquares;
     }
 
     /**
@@ -360,6 +530,219 @@ class MoveGenerator {
         return false;
     }
 
+    /**
+     * Check if a single move is legal in a given legal chess position, without
+     * generating all legal moves.
+     *
+     * <p>
+     * The move is first checked to be a valid move of the moved piece
+     * (pseudo-legality). Then our king is checked not to be attacked after the
+     * move, by looking up the attacks on our king on the resulting occupancy
+     * (which takes care of pins and of resolving checks at once).
+     * </p>
+     *
+     * @param position Given legal chess position.
+     * @param move     Given move (in absolute squares, i.e. not mirrored).
+     * @return The move is legal.
+     */
+    static boolean isLegalMove(Position position, Move move) {
+        final Board board = position.board;
+
+        // Express the move from the perspective of the side to move.
+        final int fromSquare = board.isMirrored ? (move.getFromSquare() ^ 0b111000) : move.getFromSquare();
+        final int toSquare = board.isMirrored ? (move.getToSquare() ^ 0b111000) : move.getToSquare();
+        final long fromBitboard = 1L << fromSquare;
+        final long toBitboard = 1L << toSquare;
+        final long occupiedSquaresBitboard = board.ourPieces | board.theirPieces;
+
+        // We have to move one of our pieces and cannot capture one of our own pieces.
+        if ((fromBitboard & board.ourPieces) == 0 || (toBitboard & board.ourPieces) != 0) {
+            return false;
+        }
+
+        // Pawn moves to the last row are promotions, other moves are not.
+        final boolean isPawnMove = (fromBitboard & board.pawns) != 0;
+
+        if ((move.getPromotionPieceType() != PromotionPieceType.NONE) != (isPawnMove
+                && toSquare >= Board.SQUARE_A8)) {
+            return false;
+        }
+
+        // Check king moves.
+        if ((fromBitboard & board.kings) != 0) {
+            if ((getKingAttackBitboard(fromBitboard) & toBitboard) != 0) {
+                // Our king cannot move to an attacked square.
+                return !squareIsUnderAttack(position, toSquare);
+            }
+
+            // Castling moves. Note that we don't have to check if a rook is still present,
+            // because each rook move from its original square invalidates the castling
+            // rights.
+            if (fromSquare == Board.SQUARE_E1 && toSquare == Board.SQUARE_G1 && position.weCanCastleShort) {
+                return ((Board.BB_F1 | Board.BB_G1) & occupiedSquaresBitboard) == 0
+                        && !squareIsUnderAttack(position, Board.SQUARE_E1)
+                        && !squareIsUnderAttack(position, Board.SQUARE_E1 + 1)
+                        && !squareIsUnderAttack(position, Board.SQUARE_G1);
+            }
+
+            if (fromSquare == Board.SQUARE_E1 && toSquare == Board.SQUARE_C1 && position.weCanCastleLong) {
+                return ((Board.BB_B1 | Board.BB_C1 | Board.BB_D1) & occupiedSquaresBitboard) == 0
+                        && !squareIsUnderAttack(position, Board.SQUARE_E1)
+                        && !squareIsUnderAttack(position, Board.SQUARE_E1 - 1)
+                        && !squareIsUnderAttack(position, Board.SQUARE_C1);
+            }
+
+            return false;
+        }
+
+        // Bitboard of the captured piece (if any).
+        long capturedPieceBitboard = toBitboard & board.theirPieces;
+
+        if (isPawnMove) {
+            if (toSquare == fromSquare + 8) {
+                // Single push.
+                if ((toBitboard & occupiedSquaresBitboard) != 0) {
+                    return false;
+                }
+            } else if (toSquare == fromSquare + 16) {
+                // Double push from the second row.
+                if ((fromSquare >>> 3) != 1 || (((fromBitboard << 8) | toBitboard) & occupiedSquaresBitboard) != 0) {
+                    return false;
+                }
+            } else if ((getOurPawnAttackBitboard(fromBitboard) & toBitboard) != 0) {
+                // Capture (the en passant pawn is located one square below the capture
+                // square).
+                if (position.enPassantCaptureSquare != 0 && toSquare == position.enPassantCaptureSquare) {
+                    capturedPieceBitboard = toBitboard >>> 8;
+                } else if (capturedPieceBitboard == 0) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        } else {
+            long attackBitboard = 0;
+
+            if ((fromBitboard & (board.rooks | board.bishops)) == 0) {
+                // It's a knight.
+                attackBitboard = knightAttackBitboards[fromSquare];
+            } else {
+                if ((fromBitboard & board.rooks) != 0) {
+                    attackBitboard |= MagicUtils.getRookAttackBitboard(fromSquare, occupiedSquaresBitboard);
+                }
+
+                if ((fromBitboard & board.bishops) != 0) {
+                    attackBitboard |= MagicUtils.getBishopAttackBitboard(fromSquare, occupiedSquaresBitboard);
+                }
+            }
+
+            if ((attackBitboard & toBitboard) == 0) {
+                return false;
+            }
+        }
+
+        // Finally, check that our king is not attacked after the move.
+        final int ourKingSquare = Long.numberOfTrailingZeros(board.ourPieces & board.kings);
+        final long newOccupiedSquaresBitboard = (occupiedSquaresBitboard & ~fromBitboard & ~capturedPieceBitboard)
+                | toBitboard;
+        final long theirRemainingPieces = board.theirPieces & ~capturedPieceBitboard;
+
+        return (MagicUtils.getRookAttackBitboard(ourKingSquare, newOccupiedSquaresBitboard) & theirRemainingPieces
+                & board.rooks) == 0
+                && (MagicUtils.getBishopAttackBitboard(ourKingSquare, newOccupiedSquaresBitboard)
+                        & theirRemainingPieces & board.bishops) == 0
+                && (knightAttackBitboards[ourKingSquare] & theirRemainingPieces
+                        & ~(board.pawns | board.rooks | board.bishops | board.kings)) == 0
+                && (pawnAttackBitboards[ourKingSquare] & theirRemainingPieces & board.pawns) == 0;
+    }
+
+    /**
+     * Check if a legal move gives check, without playing it.
+     *
+     * <p>
+     * The attacks on their king are looked up on the occupancy after the move:
+     * direct checks by the moved (or promoted) piece, and discovered checks by
+     * our sliding pieces, including the rook of a castling move and lines that
+     * are opened by an en passant capture.
+     * </p>
+     *
+     * @param position Given legal chess position.
+     * @param move     Given legal move (in absolute squares, i.e. not mirrored).
+     * @return The move gives check.
+     */
+    static boolean givesCheck(Position position, Move move) {
+        final Board board = position.board;
+
+        // Express the move from the perspective of the side to move.
+        final int fromSquare = board.isMirrored ? (move.getFromSquare() ^ 0b111000) : move.getFromSquare();
+        final int toSquare = board.isMirrored ? (move.getToSquare() ^ 0b111000) : move.getToSquare();
+        final long fromBitboard = 1L << fromSquare;
+        final long toBitboard = 1L << toSquare;
+        final long theirKingBitboard = board.theirPieces & board.kings;
+        final int theirKingSquare = Long.numberOfTrailingZeros(theirKingBitboard);
+
+        long occupiedSquaresBitboard = (board.ourPieces | board.theirPieces | toBitboard) & ~fromBitboard;
+        long ourRooks = board.ourPieces & board.rooks & ~fromBitboard;
+        long ourBishops = board.ourPieces & board.bishops & ~fromBitboard;
+
+        if ((fromBitboard & board.pawns) != 0) {
+            switch (move.getPromotionPieceType()) {
+                case NONE:
+                    // Remove a pawn that is captured en passant (one square below the capture
+                    // square).
+                    if (position.enPassantCaptureSquare != 0 && toSquare == position.enPassantCaptureSquare) {
+                        occupiedSquaresBitboard &= ~(toBitboard >>> 8);
+                    }
+
+                    if ((getOurPawnAttackBitboard(toBitboard) & theirKingBitboard) != 0) {
+                        return true;
+                    }
+                    break;
+                case KNIGHT:
+                    if ((knightAttackBitboards[toSquare] & theirKingBitboard) != 0) {
+                        return true;
+                    }
+                    break;
+                case ROOK:
+                    ourRooks |= toBitboard;
+                    break;
+                case BISHOP:
+                    ourBishops |= toBitboard;
+                    break;
+                case QUEEN:
+                    ourRooks |= toBitboard;
+                    ourBishops |= toBitboard;
+                    break;
+            }
+        } else if ((fromBitboard & board.kings) != 0) {
+            // The rook of a castling move can give check.
+            if (fromSquare == Board.SQUARE_E1 && toSquare == Board.SQUARE_G1) {
+                occupiedSquaresBitboard = (occupiedSquaresBitboard & ~Board.BB_H1) | Board.BB_F1;
+                ourRooks = (ourRooks & ~Board.BB_H1) | Board.BB_F1;
+            } else if (fromSquare == Board.SQUARE_E1 && toSquare == Board.SQUARE_C1) {
+                occupiedSquaresBitboard = (occupiedSquaresBitboard & ~Board.BB_A1) | Board.BB_D1;
+                ourRooks = (ourRooks & ~Board.BB_A1) | Board.BB_D1;
+            }
+        } else if ((fromBitboard & (board.rooks | board.bishops)) == 0) {
+            // It's a knight.
+            if ((knightAttackBitboards[toSquare] & theirKingBitboard) != 0) {
+                return true;
+            }
+        } else {
+            if ((fromBitboard & board.rooks) != 0) {
+                ourRooks |= toBitboard;
+            }
+
+            if ((fromBitboard & board.bishops) != 0) {
+                ourBishops |= toBitboard;
+            }
+        }
+
+        // Direct checks by sliding pieces and discovered checks.
+        return (MagicUtils.getRookAttackBitboard(theirKingSquare, occupiedSquaresBitboard) & ourRooks) != 0
+                || (MagicUtils.getBishopAttackBitboard(theirKingSquare, occupiedSquaresBitboard) & ourBishops) != 0;
+    }
+
     /**
      * Generates all legal moves of a given legal chess position.
      *
@@ -395,8 +778,8 @@ class MoveGenerator {
 
         // If it's black to move, mirror all moves.
         if (position.board.isMirrored) {
-            for (Move move : legalMoves) {
-                move.mirror();
+            for (int i = 0; i < legalMoves.size(); i++) {
+                legalMoves.set(i, legalMoves.get(i).getMirrored());
             }
         }
 
@@ -420,7 +803,7 @@ class MoveGenerator {
 
         while (accessibleSquares != 0) {
             // Add move to list.
-            legalMoves.add(new Move(ourKingSquare, Long.numberOfTrailingZeros(accessibleSquares)));
+            legalMoves.add(Move.of(ourKingSquare, Long.numberOfTrailingZeros(accessibleSquares)));
 
             // Remove the square from the bitboard.
             accessibleSquares &= accessibleSquares - 1;
@@ -438,8 +821,8 @@ class MoveGenerator {
                 // each rook move from h1 invalidates short castling rights.
                 if (((Board.BB_F1 | Board.BB_G1) & (position.board.ourPieces | position.board.theirPieces)) == 0
                         && (kingSafety.accessibleSquares & Board.BB_F1) != 0
-                        && !squareIsUnderAttack(position, Board.SQUARE_G1)) {
-                    legalMoves.add(new Move(ourKingSquare, Board.SQUARE_G1));
+                        && (kingSafety.theirAttackedSquares & Board.BB_G1) == 0) {
+                    legalMoves.add(Move.of(ourKingSquare, Board.SQUARE_G1));
                 }
             }
 
@@ -452,8 +835,8 @@ class MoveGenerator {
                 if (((Board.BB_B1 | Board.BB_C1 | Board.BB_D1)
                         & (position.board.ourPieces | position.board.theirPieces)) == 0
                         && (kingSafety.accessibleSquares & Board.BB_D1) != 0
-                        && !squareIsUnderAttack(position, Board.SQUARE_C1)) {
-                    legalMoves.add(new Move(ourKingSquare, Board.SQUARE_C1));
+                        && (kingSafety.theirAttackedSquares & Board.BB_C1) == 0) {
+                    legalMoves.add(Move.of(ourKingSquare, Board.SQUARE_C1));
                 }
             }
         }
@@ -490,7 +873,7 @@ class MoveGenerator {
             // Add all legal moves.
             while (knightToSquaresBitboard != 0) {
                 // Add move to list.
-                legalMoves.add(new Move(knightFromSquare, Long.numberOfTrailingZeros(knightToSquaresBitboard)));
+                legalMoves.add(Move.of(knightFromSquare, Long.numberOfTrailingZeros(knightToSquaresBitboard)));
 
                 // Remove the destination square from the bitboard.
                 knightToSquaresBitboard &= knightToSquaresBitboard - 1;
@@ -536,7 +919,7 @@ class MoveGenerator {
                 // Add all legal moves.
                 while (rookToSquaresBitboard != 0) {
                     // Add move to list.
-                    legalMoves.add(new Move(rookFromSquare, Long.numberOfTrailingZeros(rookToSquaresBitboard)));
+                    legalMoves.add(Move.of(rookFromSquare, Long.numberOfTrailingZeros(rookToSquaresBitboard)));
 
                     // Remove the destination square from the bitboard.
                     rookToSquaresBitboard &= rookToSquaresBitboard - 1;
@@ -579,7 +962,7 @@ class MoveGenerator {
                     // Add all legal moves.
                     while (rookToSquaresBitboard != 0) {
                         // Add move to list.
-                        legalMoves.add(new Move(rookFromSquare, Long.numberOfTrailingZeros(rookToSquaresBitboard)));
+                        legalMoves.add(Move.of(rookFromSquare, Long.numberOfTrailingZeros(rookToSquaresBitboard)));
 
                         // Remove the destination square from the bitboard.
                         rookToSquaresBitboard &= rookToSquaresBitboard - 1;
@@ -627,7 +1010,7 @@ class MoveGenerator {
                 // Add all legal moves.
                 while (bishopToSquaresBitboard != 0) {
                     // Add move to list.
-                    legalMoves.add(new Move(bishopFromSquare, Long.numberOfTrailingZeros(bishopToSquaresBitboard)));
+                    legalMoves.add(Move.of(bishopFromSquare, Long.numberOfTrailingZeros(bishopToSquaresBitboard)));
 
                     // Remove the destination square from the bitboard.
                     bishopToSquaresBitboard &= bishopToSquaresBitboard - 1;
@@ -670,7 +1053,7 @@ class MoveGenerator {
                     // Add all legal moves.
                     while (bishopToSquaresBitboard != 0) {
                         // Add move to list.
-                        legalMoves.add(new Move(bishopFromSquare, Long.numberOfTrailingZeros(bishopToSquaresBitboard)));
+                        legalMoves.add(Move.of(bishopFromSquare, Long.numberOfTrailingZeros(bishopToSquaresBitboard)));
 
                         // Remove the destination square from the bitboard.
                         bishopToSquaresBitboard &= bishopToSquaresBitboard - 1;
@@ -687,157 +1070,152 @@ class MoveGenerator {
      * Generates all legal pawn moves of a given legal chess position (assuming it's
      * not double check).
      *
+     * <p>
+     * Pawn moves are generated set-wise: the destination squares of all non-pinned
+     * pawns are calculated at once for each move type (single push, double push,
+     * capture to the left and capture to the right) by shifting and masking the
+     * pawns bitboard, after which the destination squares are serialized into
+     * moves. Only pinned pawns and en passant captures (which are rare) are
+     * handled pawn by pawn.
+     * </p>
+     *
      * @param position   Given legal chess position.
      * @param kingSafety King safety corresponding to the position.
      * @param legalMoves List of moves to which the legal pawn moves are appended.
      */
     static void generatePawnMoves(Position position, KingSafety kingSafety, List<Move> legalMoves) {
         // This function is never called for positions in double check.
-        // Loop over all pawns.
-        long ourPawns = position.board.ourPieces & position.board.pawns;
+        final Board board = position.board;
+        final long ourPawns = board.ourPieces & board.pawns;
+        final long emptySquaresBitboard = ~(board.ourPieces | board.theirPieces);
+
+        // If it's check (but not double check, as assumed earlier), pawns can only move
+        // to an attack line (either interposing or capturing the only attacking piece).
+        final long checkMask = kingSafety.isCheck() ? kingSafety.attackLines : ~0L;
+
+        // Generate moves of all non-pinned pawns at once.
+        final long nonPinnedPawns = ourPawns & ~kingSafety.pinnedPieces;
+
+        // Single pushes to empty squares. Double pushes are single pushes from the
+        // second row that can be pushed once more.
+        final long singlePushes = (nonPinnedPawns << 8) & emptySquaresBitboard;
+        final long doublePushes = ((singlePushes & Board.BB_A3H3) << 8) & emptySquaresBitboard;
+
+        addPawnMoves(singlePushes & checkMask, 8, legalMoves);
+        addPawnMoves(doublePushes & checkMask, 16, legalMoves);
+
+        // Captures to the left and to the right, taking care of wrap-arounds.
+        addPawnMoves((nonPinnedPawns << 7) & ~Board.BB_H1H8 & board.theirPieces & checkMask, 7, legalMoves);
+        addPawnMoves((nonPinnedPawns << 9) & ~Board.BB_A1A8 & board.theirPieces & checkMask, 9, legalMoves);
 
         // Determine our king's square.
-        final int ourKingSquare = Long.numberOfTrailingZeros(position.board.ourPieces & position.board.kings);
-        final int ourKingRow = ourKingSquare / 8;
-        final int ourKingCol = ourKingSquare % 8;
+        final int ourKingSquare = Long.numberOfTrailingZeros(board.ourPieces & board.kings);
 
-        // Cache the occupied squares bitboard.
-        final long occupiedSquaresBitboard = position.board.ourPieces | position.board.theirPieces;
+        // Generate all pinned pawn moves.
+        // Note that no pinned pawn can resolve a check.
+        if (!kingSafety.isCheck()) {
+            long ourPinnedPawns = ourPawns & kingSafety.pinnedPieces;
 
-        // Cache their pieces including the en passant square.
-        final long theirPiecesAndEnPassantBitboard = position.board.theirPieces
-                | (1L << position.enPassantCaptureSquare);
-
-        while (ourPawns != 0) {
-            // Calculate the pawn source square.
-            final int pawnFromSquare = Long.numberOfTrailingZeros(ourPawns);
-            final int pawnFromRow = pawnFromSquare / 8;
-            final int pawnFromCol = pawnFromSquare % 8;
-
-            // Cache the pawn source bitboard.
-            final long pawnFromBitboard = 1L << pawnFromSquare;
-
-            // Check if the pawn is pinned.
-            final boolean isPinned = (pawnFromBitboard & kingSafety.pinnedPieces) != 0;
-
-            // Forward pawn moves.
-            // If it is not pinned, it can possibly move.
-            // If it is pinned, it has to stay on the same line w.r.t. the king, which means
-            // the king has to be on the same column of the pawn.
-            if (!isPinned || pawnFromCol == ourKingCol) {
-                if (((pawnFromBitboard << 8) & occupiedSquaresBitboard) == 0) {
-                    // No piece is present one square in front of the pawn.
-                    final int pawnToSquare = pawnFromSquare + 8;
-
-                    // Only continue if
-                    // - It's not check or
-                    // - It's check (but not double check, as assumed earlier) and the pawn moves to
-                    // an attacking line (either interposing or capturing the only attacking piece).
-                    if (!kingSafety.isCheck() || ((pawnFromBitboard << 8) & kingSafety.attackLines) != 0) {
-                        if (pawnFromRow != 6) {
-                            // Normal move.
-                            legalMoves.add(new Move(pawnFromSquare, pawnToSquare));
-                        } else {
-                            // Promotion.
-                            legalMoves.add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.BISHOP));
-                            legalMoves.add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.KNIGHT));
-                            legalMoves.add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.QUEEN));
-                            legalMoves.add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.ROOK));
-                        }
-                    }
+            while (ourPinnedPawns != 0) {
+                // Calculate the pawn source square.
+                final int pawnFromSquare = Long.numberOfTrailingZeros(ourPinnedPawns);
+                final long pawnFromBitboard = 1L << pawnFromSquare;
 
-                    // Two moves forward.
-                    // If the pawn starts from its initial square, moving two squares forward is
-                    // possible if no piece is present on the destination square.
-                    if (pawnFromRow == 1 && ((pawnFromBitboard << 16) & occupiedSquaresBitboard) == 0) {
-                        // Only continue if
-                        // - It's not check or
-                        // - It's check (but not double check, as assumed earlier) and the pawn moves to
-                        // an attacking line (either interposing or capturing the only attacking piece).
-                        if (!kingSafety.isCheck() || ((pawnFromBitboard << 16) & kingSafety.attackLines) != 0) {
-
-                            legalMoves.add(new Move(pawnFromSquare, pawnFromSquare + 16));
-                        }
+                // A pinned pawn has to stay on the same line w.r.t. our king.
+                final long sameLineWrtKingMask = getLineBitboard(ourKingSquare, pawnFromSquare);
 
-                    }
-                }
-            }
+                final long singlePush = (pawnFromBitboard << 8) & emptySquaresBitboard;
+                final long doublePush = ((singlePush & Board.BB_A3H3) << 8) & emptySquaresBitboard;
 
-            // Captures.
-            for (final int direction : new int[] { -1, 1 }) {
-                // Cache destination square parameters.
-                final int pawnToSquare = pawnFromSquare + 8 + direction;
-                final int pawnToCol = pawnFromCol + direction;
-                final long pawnToBitboard = Board.getSquareBitboard(pawnToSquare);
-
-                if (pawnToCol >= 0 && pawnToCol <= 7) {
-                    if ((pawnToBitboard & theirPiecesAndEnPassantBitboard) != 0) {
-                        // One of their pieces is present on the destination square (possibly en
-                        // passant).
-                        // If it is not pinned, it can possibly capture.
-                        // If it is pinned, it has to stay on the same line w.r.t. the king, which means
-                        // the king has to be on the same diagonal of the pawn's source and destination
-                        // square.
-                        if (!isPinned || pawnFromCol - ourKingCol == direction * (pawnFromRow - ourKingRow)) {
-                            boolean enPassantCheckPasses = true;
-                            boolean checkingEnPassantPawnCaptured = false;
-
-                            // Handle en passant captures.
-                            if (pawnToSquare == position.enPassantCaptureSquare) {
-                                // Do a check for en passant captures. It is possible that our pawn is not
-                                // pinned, but still cannot capture in the following situation:
-                                // K . . . P p . r.
-                                // Capturing the en passant pawn would leave the king in check from the
-                                // opponent's rook.
-                                // Check if we are under check from a rook if the two pawns are removed.
-                                if (pawnFromRow == ourKingRow && (MagicUtils.getRookAttackBitboard(ourKingSquare,
-                                        occupiedSquaresBitboard
-                                                & ~(pawnFromBitboard | Board.getSquareBitboard(pawnFromRow, pawnToCol)))
-                                        & position.board.theirPieces & position.board.rooks) != 0) {
-                                    enPassantCheckPasses = false;
-                                }
+                addPawnMoves(singlePush & sameLineWrtKingMask, 8, legalMoves);
+                addPawnMoves(doublePush & sameLineWrtKingMask, 16, legalMoves);
+                addPawnMoves((pawnFromBitboard << 7) & ~Board.BB_H1H8 & board.theirPieces & sameLineWrtKingMask, 7,
+                        legalMoves);
+                addPawnMoves((pawnFromBitboard << 9) & ~Board.BB_A1A8 & board.theirPieces & sameLineWrtKingMask, 9,
+                        legalMoves);
 
-                                // Determine if we capture an en passant pawn that gives check.
-                                // This is the case if the pawn is part of an attack line (and thus gives
-                                // check).
-                                if ((kingSafety.attackLines & Board.getSquareBitboard(pawnFromRow, pawnToCol)) != 0) {
-                                    checkingEnPassantPawnCaptured = true;
-                                }
-                            }
+                // Remove the pawn from the bitboard.
+                ourPinnedPawns &= ourPinnedPawns - 1;
+            }
+        }
 
-                            // Only continue if en passant check passes.
-                            if (enPassantCheckPasses) {
-                                // Only continue if
-                                // - It's not check or
-                                // - It's check (but not double check, as assumed earlier) and the pawn moves to
-                                // an attacking line (either interposing or capturing the only attacking piece)
-                                // or a checking en passant pawn is captured. Note that this pawn can never
-                                // expose the king to other checks once removed, as then our king would have
-                                // been in check on the previous move.
-                                if (!kingSafety.isCheck() || (pawnToBitboard & kingSafety.attackLines) != 0
-                                        || checkingEnPassantPawnCaptured) {
-                                    if (pawnFromRow != 6) {
-                                        // Normal move.
-                                        legalMoves.add(new Move(pawnFromSquare, pawnToSquare));
-                                    } else {
-                                        // Promotion.
-                                        legalMoves
-                                                .add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.BISHOP));
-                                        legalMoves
-                                                .add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.KNIGHT));
-                                        legalMoves
-                                                .add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.QUEEN));
-                                        legalMoves.add(new Move(pawnFromSquare, pawnToSquare, PromotionPieceType.ROOK));
-                                    }
-                                }
-                            }
-                        }
-                    }
+        // Generate en passant captures (at most two pawns can capture).
+        if (position.enPassantCaptureSquare != 0) {
+            final int pawnToSquare = position.enPassantCaptureSquare;
+            final long pawnToBitboard = 1L << pawnToSquare;
+
+            // The en passant pawn is located one square below the capture square.
+            final long enPassantPawnBitboard = pawnToBitboard >>> 8;
+
+            // Our pawns that attack the en passant capture square.
+            long capturingPawns = getTheirPawnAttackBitboard(pawnToBitboard) & ourPawns;
+
+            while (capturingPawns != 0) {
+                // Calculate the pawn source square.
+                final int pawnFromSquare = Long.numberOfTrailingZeros(capturingPawns);
+                final long pawnFromBitboard = 1L << pawnFromSquare;
+
+                // If the pawn is pinned, it has to stay on the same line w.r.t. the king.
+                final boolean pinCheckPasses = (pawnFromBitboard & kingSafety.pinnedPieces) == 0
+                        || (getLineBitboard(ourKingSquare, pawnFromSquare) & pawnToBitboard) != 0;
+
+                // It is possible that our pawn is not pinned, but still cannot capture in the
+                // following situation:
+                // K . . . P p . r.
+                // Capturing the en passant pawn would leave the king in check from the
+                // opponent's rook.
+                // Check if we are under check from a rook if the two pawns are removed.
+                final boolean enPassantCheckPasses = (pawnFromSquare >>> 3) != (ourKingSquare >>> 3)
+                        || (MagicUtils.getRookAttackBitboard(ourKingSquare,
+                                ~emptySquaresBitboard & ~(pawnFromBitboard | enPassantPawnBitboard))
+                                & board.theirPieces & board.rooks) == 0;
+
+                // Only continue if
+                // - It's not check or
+                // - It's check (but not double check, as assumed earlier) and the pawn moves to
+                // an attacking line (interposing) or the checking en passant pawn is captured.
+                // Note that this pawn can never expose the king to other checks once removed,
+                // as then our king would have been in check on the previous move.
+                if (pinCheckPasses && enPassantCheckPasses
+                        && ((pawnToBitboard | enPassantPawnBitboard) & checkMask) != 0) {
+                    legalMoves.add(Move.of(pawnFromSquare, pawnToSquare));
                 }
+
+                // Remove the pawn from the bitboard.
+                capturingPawns &= capturingPawns - 1;
+            }
+        }
+    }
+
+    /**
+     * Serializes a bitboard of pawn destination squares into moves. Moves to the
+     * last row are expanded into all four promotions.
+     *
+     * @param pawnToSquaresBitboard Bitboard of pawn destination squares.
+     * @param squareIncrement       Difference between the destination and source
+     *                              square of each move.
+     * @param legalMoves            List of moves to which the pawn moves are
+     *                              appended.
+     */
+    private static void addPawnMoves(long pawnToSquaresBitboard, int squareIncrement, List<Move> legalMoves) {
+        while (pawnToSquaresBitboard != 0) {
+            // Calculate the source and destination squares.
+            final int pawnToSquare = Long.numberOfTrailingZeros(pawnToSquaresBitboard);
+            final int pawnFromSquare = pawnToSquare - squareIncrement;
+
+            if (pawnToSquare < Board.SQUARE_A8) {
+                // Normal move.
+                legalMoves.add(Move.of(pawnFromSquare, pawnToSquare));
+            } else {
+                // Promotion.
+                legalMoves.add(Move.of(pawnFromSquare, pawnToSquare, PromotionPieceType.BISHOP));
+                legalMoves.add(Move.of(pawnFromSquare, pawnToSquare, PromotionPieceType.KNIGHT));
+                legalMoves.add(Move.of(pawnFromSquare, pawnToSquare, PromotionPieceType.QUEEN));
+                legalMoves.add(Move.of(pawnFromSquare, pawnToSquare, PromotionPieceType.ROOK));
             }
 
-            // Remove the pawn from the bitboard.
-            ourPawns &= ourPawns - 1;
+            // Remove the destination square from the bitboard.
+            pawnToSquaresBitboard &= pawnToSquaresBitboard - 1;
         }
     }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Efficiently updatable neural network (NNUE) with a HalfKP-like feature set.
+ *
+ * <p>
+ * Each of the two perspectives (white and black) has 40960 binary input
+ * features: one for every combination of the square of the king of the
+ * perspective, a non-king piece (five piece types of two colors, relative to
+ * the perspective) and the square of that piece. Squares are seen from the
+ * perspective, i.e. flipped vertically for black. Both perspectives share the
+ * feature transformer, which maps the active features to an accumulator of
+ * {@link #getHiddenSize()} neurons. The output layer combines the clipped
+ * accumulators of the side to move and the other side into a score.
+ * </p>
+ *
+ * <p>
+ * A network is immutable after loading and can be shared by many
+ * {@link NnueEvaluator} objects (one per thread).
+ * </p>
+ *
+ * <p>
+ * Network file format (all values little endian): the magic number
+ * {@link #MAGIC}, the format version {@link #VERSION} and the hidden size as
+ * 32-bit integers, followed by 16-bit integers: the feature weights (indexed
+ * by feature and neuron), the feature biases, the output weights (side to
+ * move neurons first) and the output bias. Accumulator values are quantized by
+ * {@link #QA}, output weights by {@link #QB} and the output bias by
+ * {@code QA * QB}.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class Nnue {
+    /**
+     * Magic number at the start of a network file ("JCNN").
+     */
+    public static final int MAGIC = 0x4E4E434A;
+
+    /**
+     * Network file format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Number of non-king piece kinds (five piece types of two colors).
+     */
+    static final int NUM_PIECE_KINDS = 10;
+
+    /**
+     * Number of input features per perspective.
+     */
+    public static final int NUM_FEATURES = 64 * NUM_PIECE_KINDS * 64;
+
+    /**
+     * Maximum hidden size.
+     */
+    public static final int MAX_HIDDEN_SIZE = 4096;
+
+    /**
+     * Quantization factor (and clipping bound) of accumulator values.
+     */
+    public static final int QA = 255;
+
+    /**
+     * Quantization factor of output weights.
+     */
+    public static final int QB = 64;
+
+    /**
+     * Scale that converts the network output to centipawns.
+     */
+    public static final int OUTPUT_SCALE = 400;
+
+    /**
+     * Number of neurons of the accumulator of one perspective.
+     */
+    final int hiddenSize;
+
+    /**
+     * Feature weights, indexed by feature and neuron.
+     */
+    final short[] featureWeights;
+
+    /**
+     * Feature biases, indexed by neuron.
+     */
+    final short[] featureBiases;
+
+    /**
+     * Output weights: first the weights of the side to move neurons, then the
+     * weights of the neurons of the other side.
+     */
+    final short[] outputWeights;
+
+    /**
+     * Output bias.
+     */
+    final short outputBias;
+
+    /**
+     * Construct from the given parameters.
+     *
+     * @param hiddenSize     Number of neurons of the accumulator of one
+     *                       perspective.
+     * @param featureWeights Feature weights, indexed by feature and neuron.
+     * @param featureBiases  Feature biases.
+     * @param outputWeights  Output weights.
+     * @param outputBias     Output bias.
+     */
+    Nnue(int hiddenSize, short[] featureWeights, short[] featureBiases, short[] outputWeights, short outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Load a network from a file.
+     *
+     * @param path Path of the network file.
+     * @return Loaded network.
+     * @throws IOException If the file can't be read or is not a valid network
+     *                     file.
+     */
+    public static Nnue load(Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.remaining() < 3 * Integer.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("File " + path + " is not a network file.");
+        }
+
+        final int version = buffer.getInt();
+
+        if (version != VERSION) {
+            throw new IOException("Network file version " + version + " is not supported.");
+        }
+
+        final int hiddenSize = buffer.getInt();
+
+        if (hiddenSize < 1 || hiddenSize > MAX_HIDDEN_SIZE) {
+            throw new IOException("Invalid hidden size " + hiddenSize + ".");
+        }
+
+        final short[] featureWeights = new short[NUM_FEATURES * hiddenSize];
+        final short[] featureBiases = new short[hiddenSize];
+        final short[] outputWeights = new short[2 * hiddenSize];
+
+        if (buffer.remaining() != Short.BYTES
+                * (featureWeights.length + featureBiases.length + outputWeights.length + 1)) {
+            throw new IOException("Network file size doesn't match the hidden size " + hiddenSize + ".");
+        }
+
+        buffer.asShortBuffer().get(featureWeights).get(featureBiases).get(outputWeights);
+        buffer.position(buffer.limit() - Short.BYTES);
+
+        return new Nnue(hiddenSize, featureWeights, featureBiases, outputWeights, buffer.getShort());
+    }
+
+    /**
+     * Save the network to a file.
+     *
+     * @param path Path of the network file.
+     * @throws IOException If the file can't be written.
+     */
+    public void save(Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer
+                .allocate(3 * Integer.BYTES
+                        + Short.BYTES * (featureWeights.length + featureBiases.length + outputWeights.length + 1))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hiddenSize);
+        buffer.asShortBuffer().put(featureWeights).put(featureBiases).put(outputWeights).put(outputBias);
+
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * @return Number of neurons of the accumulator of one perspective.
+     */
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    /**
+     * Get the index of an input feature.
+     *
+     * @param kingSquare Square of the king of the perspective (as seen from the
+     *                   perspective).
+     * @param pieceKind  Piece kind: the piece type index (pawn, knight, bishop,
+     *                   rook, queen) times two, plus one for pieces of the other
+     *                   side.
+     * @param square     Square of the piece (as seen from the perspective).
+     * @return Feature index.
+     */
+    static int getFeatureIndex(int kingSquare, int pieceKind, int square) {
+        return (kingSquare * NUM_PIECE_KINDS + pieceKind) * 64 + square;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+/**
+ * Evaluator that uses an efficiently updatable neural network (see
+ * {@link Nnue}).
+ *
+ * <p>
+ * The evaluator keeps a stack of accumulators, indexed by ply, for the
+ * positions along a search path. The accumulator of a position is computed
+ * lazily when the position is evaluated, by updating the accumulator of the
+ * nearest computed ancestor with the pieces that were removed and added by
+ * the moves in between. Only the perspective of a side whose king has moved is
+ * refreshed from scratch, as all of its features depend on the king square.
+ * </p>
+ *
+ * <p>
+ * The added and removed pieces follow from the absolute piece bitboards of
+ * consecutive positions (the {@link Board} bitboards, flipped back if the board
+ * is mirrored), so captures, castlings, promotions, en passant captures and
+ * null moves need no special treatment.
+ * </p>
+ *
+ * <p>
+ * The inner loops are plain scalar loops over short arrays, which the JIT
+ * compiler can vectorize. There is no explicit Vector API implementation: the
+ * library targets Java 8, whereas {@code jdk.incubator.vector} needs Java 16 or
+ * later to compile against and must be enabled with
+ * {@code --add-modules jdk.incubator.vector} at run time.
+ * </p>
+ *
+ * <p>
+ * An evaluator is not thread safe. Use one evaluator per thread (the network
+ * itself can be shared).
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class NnueEvaluator {
+    /**
+     * Number of piece types (including the king).
+     */
+    private static final int NUM_PIECE_TYPES = 6;
+
+    /**
+     * Piece type index of the king.
+     */
+    private static final int KING_INDEX = 5;
+
+    /**
+     * Neural network.
+     */
+    private final Nnue network;
+
+    /**
+     * Positions along the current path, indexed by ply.
+     */
+    private final Position[] positions;
+
+    /**
+     * Absolute piece bitboards of the positions, indexed by ply and by color
+     * (white first) times the number of piece types plus the piece type index
+     * (pawn, knight, bishop, rook, queen and king).
+     */
+    private final long[][] pieceBitboards;
+
+    /**
+     * Accumulators, indexed by ply, perspective (white first) and neuron.
+     */
+    private final short[][][] accumulators;
+
+    /**
+     * The accumulator of the position at a ply is up to date, indexed by ply.
+     */
+    private final boolean[] isComputed;
+
+    /**
+     * Construct an evaluator for paths up to the given length.
+     *
+     * @param network Neural network.
+     * @param maxPly  Maximum ply of a position on a path.
+     */
+    public NnueEvaluator(Nnue network, int maxPly) {
+        this.network = network;
+        positions = new Position[maxPly + 1];
+        pieceBitboards = new long[maxPly + 1][2 * NUM_PIECE_TYPES];
+        accumulators = new short[maxPly + 1][2][network.hiddenSize];
+        isComputed = new boolean[maxPly + 1];
+    }
+
+    /**
+     * @return Neural network.
+     */
+    public Nnue getNetwork() {
+        return network;
+    }
+
+    /**
+     * Set the position at the given ply of the path. The position at a strictly
+     * positive ply must result from the position at the previous ply by a single
+     * (possibly null) move.
+     *
+     * @param ply      Ply of the position.
+     * @param position Given position.
+     */
+    public void setPosition(int ply, Position position) {
+        positions[ply] = position;
+        isComputed[ply] = false;
+
+        final Board board = position.board;
+        final long[] bitboards = pieceBitboards[ply];
+        final long queens = board.rooks & board.bishops;
+
+        for (int color = 0; color < 2; color++) {
+            // Our pieces are white, unless the board is mirrored.
+            final long pieces = ((color == 0) != board.isMirrored) ? board.ourPieces : board.theirPieces;
+            final int offset = color * NUM_PIECE_TYPES;
+
+            bitboards[offset] = pieces & board.pawns;
+            bitboards[offset + 1] = pieces & ~(board.pawns | board.rooks | board.bishops | board.kings);
+            bitboards[offset + 2] = pieces & board.bishops & ~queens;
+            bitboards[offset + 3] = pieces & board.rooks & ~queens;
+            bitboards[offset + 4] = pieces & queens;
+            bitboards[offset + KING_INDEX] = pieces & board.kings;
+
+            if (board.isMirrored) {
+                for (int i = offset; i < offset + NUM_PIECE_TYPES; i++) {
+                    bitboards[i] = Long.reverseBytes(bitboards[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluate the position at the given ply of the path.
+     *
+     * @param ply Ply of the position.
+     * @return Score in centipawns from the point of view of the side to move.
+     */
+    public int evaluate(int ply) {
+        // Find the nearest computed ancestor (or refresh the first position).
+        int computedPly = ply;
+
+        while (computedPly > 0 && !isComputed[computedPly]) {
+            computedPly--;
+        }
+
+        if (!isComputed[computedPly]) {
+            refresh(computedPly, 0);
+            refresh(computedPly, 1);
+            isComputed[computedPly] = true;
+        }
+
+        // Update the accumulators along the path.
+        for (int i = computedPly + 1; i <= ply; i++) {
+            update(i);
+            isComputed[i] = true;
+        }
+
+        return getOutput(ply);
+    }
+
+    /**
+     * Evaluate a single position (which replaces the path).
+     *
+     * @param position Given position.
+     * @return Score in centipawns from the point of view of the side to move.
+     */
+    public int evaluate(Position position) {
+        setPosition(0, position);
+
+        return evaluate(0);
+    }
+
+    /**
+     * Compute the accumulator of one perspective from scratch.
+     *
+     * @param ply         Ply of the position.
+     * @param perspective Perspective (0 for white, 1 for black).
+     */
+    private void refresh(int ply, int perspective) {
+        final short[] accumulator = accumulators[ply][perspective];
+        final long[] bitboards = pieceBitboards[ply];
+        final int kingSquare = getKingSquare(bitboards, perspective);
+
+        System.arraycopy(network.featureBiases, 0, accumulator, 0, accumulator.length);
+
+        for (int color = 0; color < 2; color++) {
+            for (int pieceType = 0; pieceType < KING_INDEX; pieceType++) {
+                final int pieceKind = 2 * pieceType + ((color == perspective) ? 0 : 1);
+
+                for (long bitboard = bitboards[color * NUM_PIECE_TYPES + pieceType]; bitboard != 0; bitboard &= bitboard
+                        - 1) {
+                    addFeature(accumulator, Nnue.getFeatureIndex(kingSquare, pieceKind,
+                            getSquare(Long.numberOfTrailingZeros(bitboard), perspective)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the accumulators of the position at the given ply from the
+     * accumulators of the previous position.
+     *
+     * @param ply Ply of the position (strictly positive).
+     */
+    private void update(int ply) {
+        final long[] bitboards = pieceBitboards[ply];
+        final long[] previousBitboards = pieceBitboards[ply - 1];
+
+        for (int perspective = 0; perspective < 2; perspective++) {
+            final int kingIndex = perspective * NUM_PIECE_TYPES + KING_INDEX;
+
+            if (bitboards[kingIndex] != previousBitboards[kingIndex]) {
+                // All features depend on the king square.
+                refresh(ply, perspective);
+                continue;
+            }
+
+            final short[] accumulator = accumulators[ply][perspective];
+            final int kingSquare = getKingSquare(bitboards, perspective);
+
+            System.arraycopy(accumulators[ply - 1][perspective], 0, accumulator, 0, accumulator.length);
+
+            for (int color = 0; color < 2; color++) {
+                for (int pieceType = 0; pieceType < KING_INDEX; pieceType++) {
+                    final int index = color * NUM_PIECE_TYPES + pieceType;
+                    final int pieceKind = 2 * pieceType + ((color == perspective) ? 0 : 1);
+                    final long removedPieces = previousBitboards[index] & ~bitboards[index];
+                    final long addedPieces = bitboards[index] & ~previousBitboards[index];
+
+                    for (long bitboard = removedPieces; bitboard != 0; bitboard &= bitboard - 1) {
+                        subtractFeature(accumulator, Nnue.getFeatureIndex(kingSquare, pieceKind,
+                                getSquare(Long.numberOfTrailingZeros(bitboard), perspective)));
+                    }
+
+                    for (long bitboard = addedPieces; bitboard != 0; bitboard &= bitboard - 1) {
+                        addFeature(accumulator, Nnue.getFeatureIndex(kingSquare, pieceKind,
+                                getSquare(Long.numberOfTrailingZeros(bitboard), perspective)));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute the network output from the (computed) accumulators of the position
+     * at the given ply.
+     *
+     * @param ply Ply of the position.
+     * @return Score in centipawns from the point of view of the side to move.
+     */
+    private int getOutput(int ply) {
+        final int sideToMove = positions[ply].board.isMirrored ? 1 : 0;
+        final short[] ourAccumulator = accumulators[ply][sideToMove];
+        final short[] theirAccumulator = accumulators[ply][1 - sideToMove];
+        final short[] outputWeights = network.outputWeights;
+        final int hiddenSize = network.hiddenSize;
+        long output = network.outputBias;
+
+        for (int i = 0; i < hiddenSize; i++) {
+            output += clip(ourAccumulator[i]) * outputWeights[i]
+                    + clip(theirAccumulator[i]) * outputWeights[hiddenSize + i];
+        }
+
+        return (int) (output * Nnue.OUTPUT_SCALE / (Nnue.QA * Nnue.QB));
+    }
+
+    /**
+     * Add the weights of a feature to an accumulator.
+     *
+     * @param accumulator Given accumulator.
+     * @param feature     Feature index.
+     */
+    private void addFeature(short[] accumulator, int feature) {
+        final short[] weights = network.featureWeights;
+        final int offset = feature * accumulator.length;
+
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    /**
+     * Subtract the weights of a feature from an accumulator.
+     *
+     * @param accumulator Given accumulator.
+     * @param feature     Feature index.
+     */
+    private void subtractFeature(short[] accumulator, int feature) {
+        final short[] weights = network.featureWeights;
+        final int offset = feature * accumulator.length;
+
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    /**
+     * Clip an accumulator value (clipped ReLU activation).
+     *
+     * @param value Accumulator value.
+     * @return Value clipped between zero and {@link Nnue#QA}.
+     */
+    private static int clip(short value) {
+        return Math.min(Math.max(value, 0), Nnue.QA);
+    }
+
+    /**
+     * Get the king square of the given perspective.
+     *
+     * @param bitboards   Absolute piece bitboards of the position.
+     * @param perspective Perspective (0 for white, 1 for black).
+     * @return King square (as seen from the perspective).
+     */
+    private static int getKingSquare(long[] bitboards, int perspective) {
+        return getSquare(Long.numberOfTrailingZeros(bitboards[perspective * NUM_PIECE_TYPES + KING_INDEX]),
+                perspective);
+    }
+
+    /**
+     * Get an absolute square as seen from the given perspective.
+     *
+     * @param square      Absolute square.
+     * @param perspective Perspective (0 for white, 1 for black).
+     * @return Square, flipped vertically for black.
+     */
+    private static int getSquare(int square, int perspective) {
+        return (perspective == 0) ? square : square ^ 0b111000;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import java.util.Arrays;
+
+/**
+ * Pawn hash table that caches pawn structure evaluations, keyed by the pawn
+ * hash of a position (see {@link Position#getPawnHash()}).
+ *
+ * <p>
+ * The pawn structure changes far less often than the rest of the position, so
+ * most probes during a search hit. The table counts probes and hits, such that
+ * the hit rate can be monitored.
+ * </p>
+ *
+ * <p>
+ * A pawn hash table is not thread safe. Use one table per search thread.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PawnHashTable {
+    /**
+     * Size of an entry (in bytes): the pawn hash and the packed score.
+     */
+    private static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Maximum table size (in kilobytes).
+     */
+    public static final int MAX_SIZE_KB = 1024 * 1024;
+
+    /**
+     * Pawn hashes of the entries. Empty entries have a zero pawn hash, which is
+     * also the pawn hash of positions without pawns (with a zero score).
+     */
+    private final long[] pawnHashes;
+
+    /**
+     * Packed pawn structure scores of the entries (see
+     * {@link PawnStructureEvaluator}), from the point of view of white (as the
+     * pawn hash does not depend on the side to move).
+     */
+    private final int[] scores;
+
+    /**
+     * Bit mask that maps a pawn hash to an entry index.
+     */
+    private final int indexMask;
+
+    /**
+     * Number of probes.
+     */
+    private long numProbes;
+
+    /**
+     * Number of probes that hit.
+     */
+    private long numHits;
+
+    /**
+     * Construct a table of (at most) the given size. The number of entries is
+     * rounded down to a power of two.
+     *
+     * @param sizeKb Table size (in kilobytes, between 1 and {@link #MAX_SIZE_KB}).
+     */
+    public PawnHashTable(int sizeKb) {
+        if (sizeKb < 1 || sizeKb > MAX_SIZE_KB) {
+            throw new IllegalArgumentException(
+                    "Table size " + sizeKb + " kB should be between 1 and " + MAX_SIZE_KB + " kB.");
+        }
+
+        final int numEntries = Integer.highestOneBit((int) ((sizeKb * 1024L) / ENTRY_SIZE));
+
+        pawnHashes = new long[numEntries];
+        scores = new int[numEntries];
+        indexMask = numEntries - 1;
+    }
+
+    /**
+     * Get the packed pawn structure score of the given position, either from the
+     * table or by evaluating it and storing the result.
+     *
+     * @param position Given position.
+     * @return Packed pawn structure score (see {@link PawnStructureEvaluator}).
+     */
+    int probe(Position position) {
+        final long pawnHash = position.pawnHash;
+        final int index = (int) pawnHash & indexMask;
+
+        numProbes++;
+
+        // Packed scores are negated as a whole to switch the point of view.
+        final boolean isWhiteToMove = position.isWhiteToMove();
+
+        if (pawnHashes[index] == pawnHash) {
+            numHits++;
+            return isWhiteToMove ? scores[index] : -scores[index];
+        }
+
+        final int score = PawnStructureEvaluator.evaluate(position.board);
+
+        pawnHashes[index] = pawnHash;
+        scores[index] = isWhiteToMove ? score : -score;
+
+        return score;
+    }
+
+    /**
+     * Clear all entries and the probe statistics.
+     */
+    public void clear() {
+        Arrays.fill(pawnHashes, 0);
+        Arrays.fill(scores, 0);
+        numProbes = 0;
+        numHits = 0;
+    }
+
+    /**
+     * @return Number of entries of the table.
+     */
+    public int getNumEntries() {
+        return pawnHashes.length;
+    }
+
+    /**
+     * @return Number of probes since construction or the last {@link #clear()}.
+     */
+    public long getNumProbes() {
+        return numProbes;
+    }
+
+    /**
+     * @return Number of probes that hit since construction or the last
+     *         {@link #clear()}.
+     */
+    public long getNumHits() {
+        return numHits;
+    }
+
+    /**
+     * @return Fraction of probes that hit (zero if there were no probes).
+     */
+    public double getHitRate() {
+        return (numProbes == 0) ? 0 : (double) numHits / numProbes;
+    }
+}
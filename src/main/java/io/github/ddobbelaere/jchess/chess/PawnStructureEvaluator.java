@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+/**
+ * Set-wise pawn structure evaluator.
+ *
+ * <p>
+ * All pawn structure features (isolated, doubled, backward, supported and
+ * passed pawns) are computed for all pawns at once with bitboard fills and
+ * shifts. The features of their pawns are computed in the same way as ours,
+ * after flipping the board vertically.
+ * </p>
+ *
+ * <p>
+ * The pawn structure score only depends on the pawns, such that it can be
+ * cached in a {@link PawnHashTable}. Pawn shields also depend on the king
+ * squares and are hence evaluated separately (see
+ * {@link #evaluatePawnShields(Board)}).
+ * </p>
+ *
+ * <p>
+ * A middlegame and an endgame score are packed into a single int (see
+ * {@link #getMiddlegameScore(int)} and {@link #getEndgameScore(int)}), such
+ * that scores can be added and subtracted as a whole and stored compactly in a
+ * {@link PawnHashTable}.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class PawnStructureEvaluator {
+    /**
+     * Score of an isolated pawn (no pawns of the same side on adjacent columns).
+     */
+    private static final int ISOLATED_PAWN_SCORE = makeScore(-10, -15);
+
+    /**
+     * Score of a doubled pawn (another pawn of the same side in front of it).
+     */
+    private static final int DOUBLED_PAWN_SCORE = makeScore(-10, -25);
+
+    /**
+     * Score of a backward pawn (a pawn that is not isolated, whose stop square is
+     * attacked by an opponent pawn and can't be defended by a pawn of the same
+     * side, as all pawns on the adjacent columns are in front of it).
+     */
+    private static final int BACKWARD_PAWN_SCORE = makeScore(-8, -10);
+
+    /**
+     * Score of a pawn that is defended by a pawn of the same side.
+     */
+    private static final int SUPPORTED_PAWN_SCORE = makeScore(5, 5);
+
+    /**
+     * Scores of a passed pawn (no opponent pawns in front of it on the same or
+     * adjacent columns), indexed by row (as seen from the owner of the pawn).
+     */
+    private static final int[] PASSED_PAWN_SCORES = new int[] { 0, makeScore(5, 10), makeScore(10, 15),
+            makeScore(15, 25), makeScore(30, 45), makeScore(50, 75), makeScore(80, 120), 0 };
+
+    /**
+     * Scores of a pawn in the shield of its king, indexed by the number of rows
+     * that it's in front of the king (minus one). The shield consists of the
+     * squares on the column of the king and the adjacent columns.
+     */
+    private static final int[] PAWN_SHIELD_SCORES = new int[] { makeScore(12, 0), makeScore(6, 0) };
+
+    /**
+     * Evaluate the pawn structure of the given board.
+     *
+     * @param board Given chess board.
+     * @return Packed middlegame and endgame score in centipawns from the point of
+     *         view of the side to move.
+     */
+    static int evaluate(Board board) {
+        final long ourPawns = board.ourPieces & board.pawns;
+        final long theirPawns = board.theirPieces & board.pawns;
+
+        return evaluate(ourPawns, theirPawns) - evaluate(Long.reverseBytes(theirPawns), Long.reverseBytes(ourPawns));
+    }
+
+    /**
+     * Evaluate the pawn shields of the kings of the given board.
+     *
+     * @param board Given chess board.
+     * @return Packed middlegame and endgame score in centipawns from the point of
+     *         view of the side to move.
+     */
+    static int evaluatePawnShields(Board board) {
+        final long ourPawns = board.ourPieces & board.pawns;
+        final long theirPawns = board.theirPieces & board.pawns;
+
+        return evaluatePawnShield(board.ourPieces & board.kings, ourPawns)
+                - evaluatePawnShield(Long.reverseBytes(board.theirPieces & board.kings), Long.reverseBytes(theirPawns));
+    }
+
+    /**
+     * Evaluate the pawn shield of our king.
+     *
+     * @param ourKing  Bitboard of our king.
+     * @param ourPawns Bitboard of our pawns (moving up the board).
+     * @return Packed middlegame and endgame score of the pawn shield.
+     */
+    private static int evaluatePawnShield(long ourKing, long ourPawns) {
+        final long kingColumns = ourKing | shiftRight(ourKing) | shiftLeft(ourKing);
+
+        return PAWN_SHIELD_SCORES[0] * Long.bitCount(ourPawns & (kingColumns << 8))
+                + PAWN_SHIELD_SCORES[1] * Long.bitCount(ourPawns & (kingColumns << 16));
+    }
+
+    /**
+     * Evaluate our pawns.
+     *
+     * @param ourPawns   Bitboard of our pawns (moving up the board).
+     * @param theirPawns Bitboard of their pawns (moving down the board).
+     * @return Packed middlegame and endgame score of our pawns.
+     */
+    private static int evaluate(long ourPawns, long theirPawns) {
+        // Columns with at least one of our pawns.
+        final long ourColumns = fillDown(fillUp(ourPawns));
+        final long isolatedPawns = ourPawns & ~(shiftRight(ourColumns) | shiftLeft(ourColumns));
+
+        // Pawns with another one of our pawns in front of them.
+        final long doubledPawns = ourPawns & fillDown(ourPawns >>> 8);
+
+        // Pawns whose stop square is attacked by their pawns, but can't be defended by
+        // our pawns (now or after advancing them).
+        final long ourAttackSpans = fillUp(shiftRight(ourPawns << 8) | shiftLeft(ourPawns << 8));
+        final long theirAttacks = shiftRight(theirPawns >>> 8) | shiftLeft(theirPawns >>> 8);
+        final long backwardPawns = ourPawns & ~isolatedPawns & ((theirAttacks & ~ourAttackSpans) >>> 8);
+
+        // Pawns that are defended by one of our pawns.
+        final long supportedPawns = ourPawns & (shiftRight(ourPawns << 8) | shiftLeft(ourPawns << 8));
+
+        // Squares that are in front of their pawns or attacked by them when they
+        // advance, and that are hence unreachable for our passed pawns.
+        final long theirFrontSpans = fillDown(theirPawns >>> 8);
+        final long passedPawns = ourPawns & ~doubledPawns
+                & ~(theirFrontSpans | shiftRight(theirFrontSpans) | shiftLeft(theirFrontSpans));
+
+        int score = ISOLATED_PAWN_SCORE * Long.bitCount(isolatedPawns)
+                + DOUBLED_PAWN_SCORE * Long.bitCount(doubledPawns)
+                + BACKWARD_PAWN_SCORE * Long.bitCount(backwardPawns)
+                + SUPPORTED_PAWN_SCORE * Long.bitCount(supportedPawns);
+
+        for (long bitboard = passedPawns; bitboard != 0; bitboard &= bitboard - 1) {
+            score += PASSED_PAWN_SCORES[Long.numberOfTrailingZeros(bitboard) / 8];
+        }
+
+        return score;
+    }
+
+    /**
+     * Pack a middlegame and an endgame score into a single int.
+     *
+     * @param middlegameScore Middlegame score.
+     * @param endgameScore    Endgame score.
+     * @return Packed score.
+     */
+    static int makeScore(int middlegameScore, int endgameScore) {
+        return (middlegameScore << 16) + endgameScore;
+    }
+
+    /**
+     * Get the middlegame score of a packed score.
+     *
+     * @param score Packed score.
+     * @return Middlegame score.
+     */
+    static int getMiddlegameScore(int score) {
+        // Compensate for the borrow of a negative endgame score.
+        return (score + 0x8000) >> 16;
+    }
+
+    /**
+     * Get the endgame score of a packed score.
+     *
+     * @param score Packed score.
+     * @return Endgame score.
+     */
+    static int getEndgameScore(int score) {
+        return (short) score;
+    }
+
+    /**
+     * Fill the given bitboard upwards (each set square also sets all squares above
+     * it).
+     *
+     * @param bitboard Given bitboard.
+     * @return Filled bitboard.
+     */
+    private static long fillUp(long bitboard) {
+        bitboard |= bitboard << 8;
+        bitboard |= bitboard << 16;
+
+        return bitboard | (bitboard << 32);
+    }
+
+    /**
+     * Fill the given bitboard downwards (each set square also sets all squares
+     * below it).
+     *
+     * @param bitboard Given bitboard.
+     * @return Filled bitboard.
+     */
+    private static long fillDown(long bitboard) {
+        bitboard |= bitboard >>> 8;
+        bitboard |= bitboard >>> 16;
+
+        return bitboard | (bitboard >>> 32);
+    }
+
+    /**
+     * Shift the given bitboard one column to the right (towards the h-column).
+     *
+     * @param bitboard Given bitboard.
+     * @return Shifted bitboard.
+     */
+    private static long shiftRight(long bitboard) {
+        return (bitboard << 1) & ~Board.BB_A1A8;
+    }
+
+    /**
+     * Shift the given bitboard one column to the left (towards the a-column).
+     *
+     * @param bitboard Given bitboard.
+     * @return Shifted bitboard.
+     */
+    private static long shiftLeft(long bitboard) {
+        return (bitboard >>> 1) & ~Board.BB_H1H8;
+    }
+}
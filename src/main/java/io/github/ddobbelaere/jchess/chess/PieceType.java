@@ -22,7 +22,7 @@ package io.github.ddobbelaere.jchess.chess;
  *
  * @author Dieter Dobbelaere
  */
-enum PieceType {
+public enum PieceType {
     PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING;
 
     @Override
@@ -18,7 +18,6 @@
 package io.github.ddobbelaere.jchess.chess;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -49,6 +48,11 @@ import io.github.ddobbelaere.jchess.chess.MoveGenerator.MoveGeneratorResult;
  * <li>Pawns cannot be at the back ranks.</li>
  * </ul>
  *
+ * <p>
+ * Positions are immutable from outside the package and can safely be shared
+ * between threads once they have been published (e.g. via a static final field,
+ * a concurrent collection or an executor).
+ *
  * @author Dieter Dobbelaere
  */
 public class Position {
@@ -94,7 +98,39 @@ public class Position {
     int numGameMoves;
 
     /**
-     * Move generator result.
+     * Zobrist hash of the position (see {@link Zobrist}).
+     */
+    long hash;
+
+    /**
+     * Zobrist hash of the pawns (see {@link Zobrist#computePawnHash(Position)}).
+     */
+    long pawnHash;
+
+    /**
+     * Middlegame score (see {@link Evaluator}).
+     */
+    int middlegameScore;
+
+    /**
+     * Endgame score (see {@link Evaluator}).
+     */
+    int endgameScore;
+
+    /**
+     * Game phase (see {@link Evaluator}).
+     */
+    int gamePhase;
+
+    /**
+     * Move generator result (lazily initialized).
+     *
+     * <p>
+     * This field is deliberately not volatile. Concurrent initialization by several
+     * threads is a benign data race: each thread computes an equal result and, as
+     * {@link MoveGeneratorResult} is immutable with only final fields, a reference
+     * that is read from this field always points to a fully constructed result.
+     * </p>
      */
     MoveGeneratorResult moveGenResult;
 
@@ -122,8 +158,14 @@ public class Position {
         weCanCastleLong = position.weCanCastleLong;
         theyCanCastleShort = position.theyCanCastleShort;
         theyCanCastleLong = position.theyCanCastleLong;
+        enPassantCaptureSquare = position.enPassantCaptureSquare;
         numNoCaptureOrPawnAdvancePlies = position.numNoCaptureOrPawnAdvancePlies;
         numGameMoves = position.numGameMoves;
+        hash = position.hash;
+        pawnHash = position.pawnHash;
+        middlegameScore = position.middlegameScore;
+        endgameScore = position.endgameScore;
+        gamePhase = position.gamePhase;
         moveGenResult = position.moveGenResult;
     }
 
@@ -248,6 +290,13 @@ public class Position {
             throw new IllegalFenException("Illegal position.");
         }
 
+        // Compute the hashes of the position.
+        position.hash = Zobrist.computeHash(position);
+        position.pawnHash = Zobrist.computePawnHash(position);
+
+        // Compute the evaluation scores of the position.
+        Evaluator.initialize(position);
+
         return position;
     }
 
@@ -326,6 +375,15 @@ public class Position {
 
         // Invalidate the move generator result.
         moveGenResult = null;
+
+        // Negate the evaluation scores, as they are from the point of view of the side
+        // to move.
+        middlegameScore = -middlegameScore;
+        endgameScore = -endgameScore;
+
+        // Toggle the side to move in the hash (the other keys and the pawn hash do not
+        // depend on the mirrored board representation).
+        hash ^= Zobrist.blackToMoveKey;
     }
 
     @Override
@@ -451,13 +509,18 @@ public class Position {
      * @return The move generator result.
      */
     MoveGeneratorResult getMoveGeneratorResult() {
+        // Read the field only once, as another thread may write it concurrently (see
+        // the documentation of the field).
+        MoveGeneratorResult result = moveGenResult;
+
         // Lazy initialization.
-        if (moveGenResult == null) {
+        if (result == null) {
             // Cache move generator result.
-            moveGenResult = MoveGenerator.generateLegalMoves(this);
+            result = MoveGenerator.generateLegalMoves(this);
+            moveGenResult = result;
         }
 
-        return moveGenResult;
+        return result;
     }
 
     /**
@@ -473,10 +536,12 @@ public class Position {
     }
 
     /**
-     * @param move Given move.
+     * Check if the given move captures a piece (including en passant captures).
+     *
+     * @param move Given legal move.
      * @return The given move is a capturing move.
      */
-    boolean isCapturingMove(Move move) {
+    public boolean isCapturingMove(Move move) {
         final long toSquareBitboard = Board.getSquareBitboard(
                 isWhiteToMove() ? move.getToSquare() : (move.getToSquare() ^ 0b111000));
 
@@ -505,24 +570,53 @@ public class Position {
     /**
      * Get the piece type corresponding to the given move.
      *
-     * @param move Given move.
-     * @return Piece type corresponding to the given move.
+     * @param move Given legal move.
+     * @return Piece type of the moved piece.
      */
-    PieceType getMovePieceType(Move move) {
-        final long fromSquareBitboard = Board.getSquareBitboard(
-                isWhiteToMove() ? move.getFromSquare() : (move.getFromSquare() ^ 0b111000));
+    public PieceType getMovePieceType(Move move) {
+        return getPieceType(Board.getSquareBitboard(
+                isWhiteToMove() ? move.getFromSquare() : (move.getFromSquare() ^ 0b111000)));
+    }
 
-        if ((board.pawns & fromSquareBitboard) != 0) {
+    /**
+     * Get the type of the piece that is captured by the given move.
+     *
+     * @param move Given legal move.
+     * @return Piece type of the captured piece, or {@code null} if the move is not
+     *         a capturing move.
+     */
+    public PieceType getCapturedPieceType(Move move) {
+        final long toSquareBitboard = Board.getSquareBitboard(
+                isWhiteToMove() ? move.getToSquare() : (move.getToSquare() ^ 0b111000));
+
+        if ((board.theirPieces & toSquareBitboard) != 0) {
+            return getPieceType(toSquareBitboard);
+        } else if (isCapturingMove(move)) {
+            // En passant capture.
             return PieceType.PAWN;
-        } else if ((board.bishops & fromSquareBitboard) != 0) {
-            if ((board.rooks & fromSquareBitboard) != 0) {
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Get the type of the piece on the given (occupied) square.
+     *
+     * @param squareBitboard Bitboard of the square (in mirrored coordinates).
+     * @return Piece type of the piece on the square.
+     */
+    private PieceType getPieceType(long squareBitboard) {
+        if ((board.pawns & squareBitboard) != 0) {
+            return PieceType.PAWN;
+        } else if ((board.bishops & squareBitboard) != 0) {
+            if ((board.rooks & squareBitboard) != 0) {
                 return PieceType.QUEEN;
             } else {
                 return PieceType.BISHOP;
             }
-        } else if ((board.rooks & fromSquareBitboard) != 0) {
+        } else if ((board.rooks & squareBitboard) != 0) {
             return PieceType.ROOK;
-        } else if ((board.kings & fromSquareBitboard) != 0) {
+        } else if ((board.kings & squareBitboard) != 0) {
             return PieceType.KING;
         } else {
             return PieceType.KNIGHT;
@@ -557,8 +651,39 @@ public class Position {
      * @return List of all legal moves in the position.
      */
     public List<Move> getLegalMoves() {
-        // Return an unmodifiable view of the list.
-        return Collections.unmodifiableList(getMoveGeneratorResult().getLegalMoves());
+        // The move generator result already holds an unmodifiable list.
+        return getMoveGeneratorResult().getLegalMoves();
+    }
+
+    /**
+     * Check if the given move is legal in the position.
+     *
+     * <p>
+     * This only checks the single move and is much cheaper than generating all
+     * legal moves.
+     * </p>
+     *
+     * @param move Given move.
+     * @return {@code true} if and only if the move is legal.
+     */
+    public boolean isLegalMove(Move move) {
+        return MoveGenerator.isLegalMove(this, move);
+    }
+
+    /**
+     * Check if the given legal move gives check, without playing it.
+     *
+     * <p>
+     * This only looks up the attacks on the opponent's king and is much cheaper
+     * than {@code playTrustedMove(move).isCheck()}, which generates all legal
+     * moves of the resulting position.
+     * </p>
+     *
+     * @param move Given legal move.
+     * @return {@code true} if and only if the move gives check.
+     */
+    public boolean givesCheck(Move move) {
+        return MoveGenerator.givesCheck(this, move);
     }
 
     /**
@@ -570,19 +695,39 @@ public class Position {
      */
     public Position playMove(Move move) {
         // Check if the move is legal.
-        if (!getLegalMoves().contains(move)) {
+        if (!isLegalMove(move)) {
             throw new IllegalMoveException("Move " + move + " is illegal in the position " + this);
         }
 
+        return playTrustedMove(move);
+    }
+
+    /**
+     * Play the move without checking its legality and return the resulting
+     * position.
+     *
+     * <p>
+     * Only use this for moves that are known to be legal, e.g. moves returned by
+     * {@link #getLegalMoves()} or moves replayed from a verified game record. The
+     * result of playing an illegal move is undefined.
+     * </p>
+     *
+     * @param move Given legal move.
+     * @return Resulting position after the given move is applied.
+     */
+    public Position playTrustedMove(Move move) {
         // Mirror the move if it's black to move.
         if (board.isMirrored) {
-            move = new Move(move);
-            move.mirror();
+            move = move.getMirrored();
         }
 
         // Construct the returned position.
         Position position = new Position(this);
 
+        // Remove the castling rights and en passant column from the hash (they are
+        // added back below, after they are updated).
+        position.hash ^= Zobrist.getCastlingHash(position) ^ Zobrist.getEnPassantHash(position);
+
         // Calculate source and destination square bitboards.
         final long fromSquareBitboard = Board.getSquareBitboard(move.getFromSquare());
         final long toSquareBitboard = Board.getSquareBitboard(move.getToSquare());
@@ -590,6 +735,26 @@ public class Position {
         // Check if it's a pawn move.
         final boolean isPawnMove = (position.board.pawns & fromSquareBitboard) != 0;
 
+        // Incrementally update the evaluation scores for the moving piece (it's added
+        // to its destination square below) and the captured piece (except for en
+        // passant captures, which are handled below).
+        final PieceType pieceType = getPieceType(fromSquareBitboard);
+
+        Evaluator.removeOurPiece(position, pieceType, move.getFromSquare());
+        Zobrist.toggleOurPiece(position, pieceType, move.getFromSquare());
+
+        if ((board.theirPieces & toSquareBitboard) != 0) {
+            final PieceType capturedPieceType = getPieceType(toSquareBitboard);
+
+            Evaluator.removeTheirPiece(position, capturedPieceType, move.getToSquare());
+            Zobrist.toggleTheirPiece(position, capturedPieceType, move.getToSquare());
+        }
+
+        if (!isPawnMove) {
+            Evaluator.addOurPiece(position, pieceType, move.getToSquare());
+            Zobrist.toggleOurPiece(position, pieceType, move.getToSquare());
+        }
+
         // Update number of plies since the last capture or pawn advance.
         if (isPawnMove || (position.board.theirPieces & toSquareBitboard) != 0) {
             // This is either a pawn move or a piece capture, reset the counter.
@@ -630,24 +795,36 @@ public class Position {
             if (move.getToSquare() == enPassantCaptureSquare) {
                 position.board.theirPieces &= ~(toSquareBitboard >> 8);
                 position.board.pawns &= ~(toSquareBitboard >> 8);
+                Evaluator.removeTheirPiece(position, PieceType.PAWN, move.getToSquare() - 8);
+                Zobrist.toggleTheirPiece(position, PieceType.PAWN, move.getToSquare() - 8);
             }
 
             // Handle promotion.
             switch (move.getPromotionPieceType()) {
                 case NONE:
                     position.board.pawns |= toSquareBitboard;
+                    Evaluator.addOurPiece(position, PieceType.PAWN, move.getToSquare());
+                    Zobrist.toggleOurPiece(position, PieceType.PAWN, move.getToSquare());
                     break;
                 case QUEEN:
                     position.board.rooks |= toSquareBitboard;
                     position.board.bishops |= toSquareBitboard;
+                    Evaluator.addOurPiece(position, PieceType.QUEEN, move.getToSquare());
+                    Zobrist.toggleOurPiece(position, PieceType.QUEEN, move.getToSquare());
                     break;
                 case ROOK:
                     position.board.rooks |= toSquareBitboard;
+                    Evaluator.addOurPiece(position, PieceType.ROOK, move.getToSquare());
+                    Zobrist.toggleOurPiece(position, PieceType.ROOK, move.getToSquare());
                     break;
                 case BISHOP:
                     position.board.bishops |= toSquareBitboard;
+                    Evaluator.addOurPiece(position, PieceType.BISHOP, move.getToSquare());
+                    Zobrist.toggleOurPiece(position, PieceType.BISHOP, move.getToSquare());
                     break;
                 case KNIGHT:
+                    Evaluator.addOurPiece(position, PieceType.KNIGHT, move.getToSquare());
+                    Zobrist.toggleOurPiece(position, PieceType.KNIGHT, move.getToSquare());
                     break;
             }
 
@@ -673,6 +850,11 @@ public class Position {
 
                 position.board.ourPieces &= ~Board.BB_H1;
                 position.board.ourPieces |= Board.BB_F1;
+
+                Evaluator.removeOurPiece(position, PieceType.ROOK, Board.SQUARE_H1);
+                Zobrist.toggleOurPiece(position, PieceType.ROOK, Board.SQUARE_H1);
+                Evaluator.addOurPiece(position, PieceType.ROOK, Board.SQUARE_F1);
+                Zobrist.toggleOurPiece(position, PieceType.ROOK, Board.SQUARE_F1);
             } else if (move.equals(Move.LONG_CASTLING_WHITE)) {
                 // Long castling.
                 // Move the rook from a1 to d1.
@@ -681,6 +863,11 @@ public class Position {
 
                 position.board.ourPieces &= ~Board.BB_A1;
                 position.board.ourPieces |= Board.BB_D1;
+
+                Evaluator.removeOurPiece(position, PieceType.ROOK, Board.SQUARE_A1);
+                Zobrist.toggleOurPiece(position, PieceType.ROOK, Board.SQUARE_A1);
+                Evaluator.addOurPiece(position, PieceType.ROOK, Board.SQUARE_D1);
+                Zobrist.toggleOurPiece(position, PieceType.ROOK, Board.SQUARE_D1);
             }
 
             // Invalidate castling rights.
@@ -715,6 +902,9 @@ public class Position {
 
         // Note that knight moves require no special actions.
 
+        // Add the updated castling rights and en passant column to the hash.
+        position.hash ^= Zobrist.getCastlingHash(position) ^ Zobrist.getEnPassantHash(position);
+
         // Now mirror the position to change the side to move.
         position.mirror();
 
@@ -722,6 +912,39 @@ public class Position {
         return position;
     }
 
+    /**
+     * Pass the turn to the opponent ("null move") and return the resulting
+     * position. This is not a legal chess move, but it's used by search
+     * algorithms (null move pruning).
+     *
+     * <p>
+     * Only use this if the side to move is not in check, as the resulting position
+     * would be illegal otherwise.
+     * </p>
+     *
+     * @return Resulting position with the opponent to move.
+     */
+    public Position playNullMove() {
+        // Construct the returned position.
+        Position position = new Position(this);
+
+        position.numNoCaptureOrPawnAdvancePlies++;
+
+        // Increment number of moves after black's move.
+        if (position.board.isMirrored) {
+            position.numGameMoves++;
+        }
+
+        // Clear en passant capture square.
+        position.hash ^= Zobrist.getEnPassantHash(position);
+        position.enPassantCaptureSquare = 0;
+
+        // Mirror the position to change the side to move.
+        position.mirror();
+
+        return position;
+    }
+
     /**
      * Play the move in standard algebraic notation and return the resulting
      * position.
@@ -831,6 +1054,120 @@ public class Position {
         return getMoveGeneratorResult().isCheck();
     }
 
+    /**
+     * Return {@code true} if and only if the side to move has other pieces than
+     * pawns and its king.
+     *
+     * @return {@code true} if and only if the side to move has non-pawn material.
+     */
+    public boolean hasNonPawnMaterial() {
+        return (board.ourPieces & ~board.pawns & ~board.kings) != 0;
+    }
+
+    /**
+     * Get the Zobrist hash of the position.
+     *
+     * <p>
+     * Positions that are equal when ignoring move counts (see
+     * {@link #equalsIgnoreMoveCounts(Position)}) have the same hash.
+     * </p>
+     *
+     * @return Hash of the position.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the Zobrist hash of the pawns of the position, which is used as the key
+     * of a {@link PawnHashTable}. Unlike the hash (see {@link #getHash()}), it
+     * does not depend on the side to move.
+     *
+     * @return Pawn hash of the position.
+     */
+    public long getPawnHash() {
+        return pawnHash;
+    }
+
+    /**
+     * Get the material signature of the position (see
+     * {@link MaterialSignature}).
+     *
+     * @return Material signature of the position.
+     */
+    public int getMaterialSignature() {
+        return MaterialSignature.compute(this);
+    }
+
+    /**
+     * Get the Polyglot key of the position, which identifies the position in
+     * Polyglot opening books (see {@link Polyglot}).
+     *
+     * <p>
+     * Unlike the hash (see {@link #getHash()}), the key is computed on demand.
+     * </p>
+     *
+     * @return Polyglot key of the position.
+     */
+    public long getPolyglotKey() {
+        return Polyglot.computeKey(this);
+    }
+
+    /**
+     * Decode a move of a Polyglot opening book entry (see {@link Polyglot}).
+     *
+     * @param polyglotMove Polyglot move (16 bits).
+     * @return Corresponding legal move, or {@code null} if the Polyglot move is not
+     *         legal in the position.
+     */
+    public Move getPolyglotMove(int polyglotMove) {
+        return Polyglot.decodeMove(this, polyglotMove);
+    }
+
+    /**
+     * Encode a move as the move of a Polyglot opening book entry (see
+     * {@link Polyglot}).
+     *
+     * @param move Given legal move.
+     * @return Polyglot move (16 bits).
+     */
+    public int encodePolyglotMove(Move move) {
+        return Polyglot.encodeMove(this, move);
+    }
+
+    /**
+     * Get the static exchange evaluation of the given move, i.e. the material
+     * balance of the sequence of captures on its destination square, where both
+     * sides capture with their least valuable piece first and may stop capturing
+     * at any time.
+     *
+     * @param move Given legal move.
+     * @return Material gain of the side to move (in centipawns).
+     */
+    public int getStaticExchangeEvaluation(Move move) {
+        return StaticExchangeEvaluator.evaluate(this, move);
+    }
+
+    /**
+     * Statically evaluate the position (without searching any moves).
+     *
+     * @return Score in centipawns from the point of view of the side to move.
+     */
+    public int evaluate() {
+        return Evaluator.evaluate(this, null);
+    }
+
+    /**
+     * Statically evaluate the position (without searching any moves), using the
+     * given pawn hash table to cache the pawn structure evaluation.
+     *
+     * @param pawnHashTable Pawn hash table.
+     * @return Score in centipawns from the point of view of the side to move.
+     */
+    public int evaluate(PawnHashTable pawnHashTable) {
+        return Evaluator.evaluate(this, pawnHashTable);
+    }
+
     /**
      * Return {@code true} if and only if it's checkmate.
      *
@@ -863,6 +1200,11 @@ public class Position {
                 && weCanCastleLong == other.weCanCastleLong && weCanCastleShort == other.weCanCastleShort;
     }
 
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -45,10 +45,20 @@ class SanTranslator {
         }
 
         // Detect castling moves.
+        Move castlingMove = null;
+
         if (san.startsWith("O-O-O") || san.startsWith("0-0-0")) {
-            return position.isWhiteToMove() ? Move.LONG_CASTLING_WHITE : Move.LONG_CASTLING_BLACK;
+            castlingMove = position.isWhiteToMove() ? Move.LONG_CASTLING_WHITE : Move.LONG_CASTLING_BLACK;
         } else if (san.startsWith("O-O") || san.startsWith("0-0")) {
-            return position.isWhiteToMove() ? Move.SHORT_CASTLING_WHITE : Move.SHORT_CASTLING_BLACK;
+            castlingMove = position.isWhiteToMove() ? Move.SHORT_CASTLING_WHITE : Move.SHORT_CASTLING_BLACK;
+        }
+
+        if (castlingMove != null) {
+            if (!position.isLegalMove(castlingMove)) {
+                throw new IllegalMoveException("Move \"" + san + "\" is illegal in the position\n" + position);
+            }
+
+            return castlingMove;
         }
 
         // Determine the piece type.
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+/**
+ * Static exchange evaluator.
+ *
+ * <p>
+ * The static exchange evaluation (SEE) of a move is the material balance of the
+ * sequence of captures on the destination square of the move, where both sides
+ * capture with their least valuable piece first and may stop capturing at any
+ * time. Sliding pieces behind other pieces (X-ray attackers) join the exchange
+ * once the pieces in front of them have captured. Pins are ignored.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class StaticExchangeEvaluator {
+    /**
+     * King value (in centipawns), only used to never trade the king.
+     */
+    private static final int KING_VALUE = 20000;
+
+    /**
+     * Maximum number of captures in an exchange.
+     */
+    private static final int MAX_NUM_CAPTURES = 32;
+
+    /**
+     * Evaluate the exchange initiated by the given move.
+     *
+     * @param position Given legal chess position.
+     * @param move     Given legal move (in absolute squares, i.e. not mirrored).
+     * @return Material gain of the side to move (in centipawns).
+     */
+    static int evaluate(Position position, Move move) {
+        final Board board = position.board;
+
+        // Express the move from the perspective of the side to move.
+        final int fromSquare = board.isMirrored ? (move.getFromSquare() ^ 0b111000) : move.getFromSquare();
+        final int toSquare = board.isMirrored ? (move.getToSquare() ^ 0b111000) : move.getToSquare();
+        final long fromBitboard = 1L << fromSquare;
+        final long toBitboard = 1L << toSquare;
+
+        long occupiedSquaresBitboard = board.ourPieces | board.theirPieces;
+
+        // Gains of the side that makes the corresponding capture, assuming the other
+        // side doesn't recapture.
+        final int[] gains = new int[MAX_NUM_CAPTURES];
+        int attackerValue = getPieceValue(board, fromBitboard);
+
+        gains[0] = getPieceValue(board, toBitboard & board.theirPieces);
+
+        if ((fromBitboard & board.pawns) != 0) {
+            if (position.enPassantCaptureSquare != 0 && toSquare == position.enPassantCaptureSquare) {
+                // Remove the en passant captured pawn.
+                gains[0] = Evaluator.PAWN_VALUE;
+                occupiedSquaresBitboard &= ~(toBitboard >>> 8);
+            } else if (move.getPromotionPieceType() != PromotionPieceType.NONE) {
+                // The pawn is replaced by the promotion piece.
+                attackerValue = getPromotionPieceValue(move.getPromotionPieceType());
+                gains[0] += attackerValue - Evaluator.PAWN_VALUE;
+            }
+        }
+
+        occupiedSquaresBitboard &= ~fromBitboard;
+
+        long attackers = getAttackers(board, toSquare, occupiedSquaresBitboard);
+        boolean isOurTurn = false;
+        int numCaptures = 1;
+
+        while (numCaptures < MAX_NUM_CAPTURES) {
+            final long sideAttackers = attackers & (isOurTurn ? board.ourPieces : board.theirPieces);
+
+            if (sideAttackers == 0) {
+                break;
+            }
+
+            // The side captures the last capturing piece.
+            gains[numCaptures] = attackerValue - gains[numCaptures - 1];
+
+            // Capture with the least valuable attacker.
+            final long attackerBitboard = getLeastValuableAttacker(board, sideAttackers);
+
+            if ((attackerBitboard & board.kings) != 0
+                    && (attackers & (isOurTurn ? board.theirPieces : board.ourPieces)) != 0) {
+                // The king can't capture a defended piece.
+                break;
+            }
+
+            attackerValue = getPieceValue(board, attackerBitboard);
+            occupiedSquaresBitboard &= ~attackerBitboard;
+
+            // Recompute the attackers to add X-ray attackers behind the capturing piece.
+            attackers = getAttackers(board, toSquare, occupiedSquaresBitboard);
+            isOurTurn = !isOurTurn;
+            numCaptures++;
+        }
+
+        // Propagate the gains back, as each side may stop capturing.
+        while (--numCaptures > 0) {
+            gains[numCaptures - 1] = -Math.max(-gains[numCaptures - 1], gains[numCaptures]);
+        }
+
+        return gains[0];
+    }
+
+    /**
+     * Get all pieces (of both sides) that attack the given square, given the
+     * occupied squares.
+     *
+     * @param board                   Given chess board.
+     * @param square                  Given square.
+     * @param occupiedSquaresBitboard Bitboard of occupied squares (pieces that are
+     *                                not occupied are considered captured).
+     * @return Bitboard of attacking pieces.
+     */
+    private static long getAttackers(Board board, int square, long occupiedSquaresBitboard) {
+        final long squareBitboard = 1L << square;
+        final long knights = ~(board.pawns | board.rooks | board.bishops | board.kings);
+
+        final long attackers = (MagicUtils.getRookAttackBitboard(square, occupiedSquaresBitboard) & board.rooks)
+                | (MagicUtils.getBishopAttackBitboard(square, occupiedSquaresBitboard) & board.bishops)
+                | (MoveGenerator.getKnightAttackBitboard(squareBitboard) & knights)
+                | (MoveGenerator.getKingAttackBitboard(squareBitboard) & board.kings)
+                | (MoveGenerator.getTheirPawnAttackBitboard(squareBitboard) & board.ourPieces & board.pawns)
+                | (MoveGenerator.getOurPawnAttackBitboard(squareBitboard) & board.theirPieces & board.pawns);
+
+        return attackers & occupiedSquaresBitboard;
+    }
+
+    /**
+     * Get the least valuable piece among the given pieces.
+     *
+     * @param board  Given chess board.
+     * @param pieces Given (non-empty) bitboard of pieces.
+     * @return Bitboard of the least valuable piece.
+     */
+    private static long getLeastValuableAttacker(Board board, long pieces) {
+        final long queens = board.rooks & board.bishops;
+        final long knights = ~(board.pawns | board.rooks | board.bishops | board.kings);
+        final long[] piecesByValue = new long[] { board.pawns, knights, board.bishops & ~queens,
+                board.rooks & ~queens, queens };
+
+        for (long piecesOfType : piecesByValue) {
+            if ((pieces & piecesOfType) != 0) {
+                return Long.lowestOneBit(pieces & piecesOfType);
+            }
+        }
+
+        return Long.lowestOneBit(pieces & board.kings);
+    }
+
+    /**
+     * Get the value of the piece on the given square.
+     *
+     * @param board          Given chess board.
+     * @param squareBitboard Bitboard of the square (or zero if there is no piece).
+     * @return Value of the piece (in centipawns), zero if there is no piece.
+     */
+    static int getPieceValue(Board board, long squareBitboard) {
+        if ((squareBitboard & (board.ourPieces | board.theirPieces)) == 0) {
+            return 0;
+        } else if ((squareBitboard & board.pawns) != 0) {
+            return Evaluator.PAWN_VALUE;
+        } else if ((squareBitboard & board.bishops) != 0) {
+            return ((squareBitboard & board.rooks) != 0) ? Evaluator.QUEEN_VALUE : Evaluator.BISHOP_VALUE;
+        } else if ((squareBitboard & board.rooks) != 0) {
+            return Evaluator.ROOK_VALUE;
+        } else if ((squareBitboard & board.kings) != 0) {
+            return KING_VALUE;
+        } else {
+            return Evaluator.KNIGHT_VALUE;
+        }
+    }
+
+    /**
+     * Get the value of a promotion piece type.
+     *
+     * @param promotionPieceType Given promotion piece type.
+     * @return Value of the piece (in centipawns).
+     */
+    private static int getPromotionPieceValue(PromotionPieceType promotionPieceType) {
+        switch (promotionPieceType) {
+            case QUEEN:
+                return Evaluator.QUEEN_VALUE;
+            case ROOK:
+                return Evaluator.ROOK_VALUE;
+            case BISHOP:
+                return Evaluator.BISHOP_VALUE;
+            case KNIGHT:
+                return Evaluator.KNIGHT_VALUE;
+            default:
+                return Evaluator.PAWN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+/**
+ * Zobrist hashing of positions.
+ *
+ * <p>
+ * The hash combines keys for the pieces (by color, piece type and absolute
+ * square), the castling rights (by color), the en passant capture column and
+ * the side to move. Two positions hence have the same hash if (and, barring
+ * collisions, only if) they are equal when ignoring move counts.
+ * </p>
+ *
+ * <p>
+ * As the keys do not depend on the mirrored board representation, the hash of
+ * a position is updated incrementally when a move is played (see
+ * {@link Position#playTrustedMove(Move)}): only the keys of the moved,
+ * captured and promoted pieces, the changed castling rights and en passant
+ * column and the side to move are toggled. The hash is only computed from
+ * scratch for positions that are parsed from a FEN string.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class Zobrist {
+    /**
+     * Piece keys, indexed by color (0 for white, 1 for black), piece type ordinal
+     * and absolute square.
+     */
+    private static final long[][][] pieceKeys = new long[2][PieceType.values().length][64];
+
+    /**
+     * Castling keys (white short, white long, black short and black long castling
+     * rights).
+     */
+    private static final long[] castlingKeys = new long[4];
+
+    /**
+     * En passant keys, indexed by column of the en passant capture square.
+     */
+    private static final long[] enPassantKeys = new long[8];
+
+    /**
+     * Key of black to move.
+     */
+    static final long blackToMoveKey;
+
+    static {
+        // Use a fixed seed, such that hashes are reproducible.
+        long seed = 0x4A43686573735A6FL;
+
+        for (long[][] colorKeys : pieceKeys) {
+            for (long[] pieceTypeKeys : colorKeys) {
+                for (int square = 0; square < 64; square++) {
+                    seed += 0x9E3779B97F4A7C15L;
+                    pieceTypeKeys[square] = mix(seed);
+                }
+            }
+        }
+
+        for (int i = 0; i < castlingKeys.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            castlingKeys[i] = mix(seed);
+        }
+
+        for (int i = 0; i < enPassantKeys.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            enPassantKeys[i] = mix(seed);
+        }
+
+        seed += 0x9E3779B97F4A7C15L;
+        blackToMoveKey = mix(seed);
+    }
+
+    /**
+     * Compute the hash of the given position from scratch.
+     *
+     * @param position Given position.
+     * @return Hash of the position.
+     */
+    static long computeHash(Position position) {
+        final Board board = position.board;
+        final boolean isMirrored = board.isMirrored;
+        final int squareFlip = isMirrored ? 0b111000 : 0;
+        long hash = getPiecesHash(board, board.ourPieces, isMirrored ? 1 : 0, squareFlip)
+                ^ getPiecesHash(board, board.theirPieces, isMirrored ? 0 : 1, squareFlip)
+                ^ getCastlingHash(position) ^ getEnPassantHash(position);
+
+        if (isMirrored) {
+            hash ^= blackToMoveKey;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Toggle a piece of the side to move in the hash (and, for a pawn, the pawn
+     * hash) of the given position.
+     *
+     * @param position  Given position.
+     * @param pieceType Piece type.
+     * @param square    Square (in mirrored coordinates).
+     */
+    static void toggleOurPiece(Position position, PieceType pieceType, int square) {
+        final boolean isMirrored = position.board.isMirrored;
+        final long key = pieceKeys[isMirrored ? 1 : 0][pieceType.ordinal()][isMirrored ? square ^ 0b111000 : square];
+
+        position.hash ^= key;
+
+        if (pieceType == PieceType.PAWN) {
+            position.pawnHash ^= key;
+        }
+    }
+
+    /**
+     * Toggle a piece of the opponent in the hash (and, for a pawn, the pawn hash)
+     * of the given position.
+     *
+     * @param position  Given position.
+     * @param pieceType Piece type.
+     * @param square    Square (in mirrored coordinates).
+     */
+    static void toggleTheirPiece(Position position, PieceType pieceType, int square) {
+        final boolean isMirrored = position.board.isMirrored;
+        final long key = pieceKeys[isMirrored ? 0 : 1][pieceType.ordinal()][isMirrored ? square ^ 0b111000 : square];
+
+        position.hash ^= key;
+
+        if (pieceType == PieceType.PAWN) {
+            position.pawnHash ^= key;
+        }
+    }
+
+    /**
+     * Get the combined key of the castling rights of the given position.
+     *
+     * @param position Given position.
+     * @return Castling hash of the position.
+     */
+    static long getCastlingHash(Position position) {
+        final boolean isMirrored = position.board.isMirrored;
+        long hash = 0;
+
+        if (position.weCanCastleShort) {
+            hash ^= castlingKeys[isMirrored ? 2 : 0];
+        }
+
+        if (position.weCanCastleLong) {
+            hash ^= castlingKeys[isMirrored ? 3 : 1];
+        }
+
+        if (position.theyCanCastleShort) {
+            hash ^= castlingKeys[isMirrored ? 0 : 2];
+        }
+
+        if (position.theyCanCastleLong) {
+            hash ^= castlingKeys[isMirrored ? 1 : 3];
+        }
+
+        return hash;
+    }
+
+    /**
+     * Get the key of the en passant capture column of the given position.
+     *
+     * @param position Given position.
+     * @return En passant hash of the position (zero if en passant capture is not
+     *         possible).
+     */
+    static long getEnPassantHash(Position position) {
+        return position.enPassantCaptureSquare != 0 ? enPassantKeys[position.enPassantCaptureSquare & 0b111] : 0;
+    }
+
+    /**
+     * Compute the pawn hash of the given position from scratch, i.e. the hash of
+     * the pawns of both sides only (see {@link PawnHashTable}).
+     *
+     * <p>
+     * The pawn hash uses the same keys as the position hash, but does not depend
+     * on the side to move. It's updated incrementally together with the position
+     * hash, which only changes it on pawn moves, pawn captures and promotions.
+     * </p>
+     *
+     * @param position Given position.
+     * @return Pawn hash of the position.
+     */
+    static long computePawnHash(Position position) {
+        final Board board = position.board;
+        final boolean isMirrored = board.isMirrored;
+        final int squareFlip = isMirrored ? 0b111000 : 0;
+
+        return getBitboardHash(board.ourPieces & board.pawns, pieceKeys[isMirrored ? 1 : 0][PieceType.PAWN.ordinal()],
+                squareFlip)
+                ^ getBitboardHash(board.theirPieces & board.pawns,
+                        pieceKeys[isMirrored ? 0 : 1][PieceType.PAWN.ordinal()], squareFlip);
+    }
+
+    /**
+     * Compute the hash of the pieces of one side.
+     *
+     * @param board      Given chess board.
+     * @param pieces     Bitboard of the pieces of the side.
+     * @param color      Color index of the side (0 for white, 1 for black).
+     * @param squareFlip Mask that maps the squares of the bitboards to absolute
+     *                   squares (nonzero if black is to move).
+     * @return Hash of the pieces.
+     */
+    private static long getPiecesHash(Board board, long pieces, int color, int squareFlip) {
+        final long queens = board.rooks & board.bishops;
+        final long knights = ~(board.pawns | board.rooks | board.bishops | board.kings);
+        final long[][] colorKeys = pieceKeys[color];
+
+        return getBitboardHash(pieces & board.pawns, colorKeys[PieceType.PAWN.ordinal()], squareFlip)
+                ^ getBitboardHash(pieces & board.rooks & ~queens, colorKeys[PieceType.ROOK.ordinal()], squareFlip)
+                ^ getBitboardHash(pieces & knights, colorKeys[PieceType.KNIGHT.ordinal()], squareFlip)
+                ^ getBitboardHash(pieces & board.bishops & ~queens, colorKeys[PieceType.BISHOP.ordinal()], squareFlip)
+                ^ getBitboardHash(pieces & queens, colorKeys[PieceType.QUEEN.ordinal()], squareFlip)
+                ^ getBitboardHash(pieces & board.kings, colorKeys[PieceType.KING.ordinal()], squareFlip);
+    }
+
+    /**
+     * Compute the hash of the pieces on the given bitboard.
+     *
+     * @param bitboard   Bitboard of pieces of the same side and piece type.
+     * @param keys       Keys of the side and piece type, indexed by square.
+     * @param squareFlip Mask that maps the squares of the bitboard to the indices
+     *                   of the keys.
+     * @return Hash of the pieces.
+     */
+    private static long getBitboardHash(long bitboard, long[] keys, int squareFlip) {
+        long hash = 0;
+
+        while (bitboard != 0) {
+            hash ^= keys[Long.numberOfTrailingZeros(bitboard) ^ squareFlip];
+
+            // Remove the piece from the bitboard.
+            bitboard &= bitboard - 1;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Mix the bits of the given value (finalizer of the SplitMix64 generator).
+     *
+     * @param value Given value.
+     * @return Mixed value.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.MaterialSignature;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Index of the material signatures (see {@link MaterialSignature}) and pawn
+ * structures reached by the games of a game collection, to find the games that
+ * reached a given material (e.g. a rook endgame) or a given pawn structure
+ * without replaying their moves.
+ *
+ * <p>
+ * A pawn structure is the placement of the pawns of both sides, and is keyed by
+ * the pawn hash of a position (see {@link Position#getPawnHash()}).
+ * </p>
+ *
+ * <p>
+ * The index file (see {@link MaterialIndexBuilder}) consists of
+ * <ul>
+ * <li>A header with the number of games, the total number of signatures and the
+ * total number of pawn structures.</li>
+ * <li>The game column of 32-byte entries, one per game in order of game
+ * identifier: a 64-bit bitset with a bit set for each reached signature (see
+ * {@link #getBit(int)}), the end index of its signatures in the signature
+ * column, and likewise a bitset (see {@link #getPawnStructureBit(long)}) and
+ * end index of its pawn structures.</li>
+ * <li>The pawn structure column: the distinct pawn hashes reached by each game,
+ * sorted.</li>
+ * <li>The signature column: the distinct signatures reached by each game,
+ * sorted.</li>
+ * </ul>
+ *
+ * <p>
+ * A query scans the compact game column and only reads the signatures (or pawn
+ * structures) of the games whose bitset contains the bit of the queried key, to
+ * rule out false positives. The file is memory-mapped read-only, so an index
+ * can be shared by several threads.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class MaterialIndex {
+    /**
+     * Magic number of an index file ("JCMI").
+     */
+    static final int MAGIC = 0x4A434D49;
+
+    /**
+     * Version of the index file format.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Size of the header (in bytes).
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Size of a game column entry (in bytes).
+     */
+    static final int GAME_ENTRY_SIZE = 32;
+
+    /**
+     * Base-2 logarithm of the size of a mapped segment (a single mapping is
+     * limited to 2 GiB).
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * Mapped segments of the index file.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Number of games.
+     */
+    private final long numGames;
+
+    /**
+     * Offset of the pawn structure column.
+     */
+    private final long pawnStructuresOffset;
+
+    /**
+     * Offset of the signature column.
+     */
+    private final long signaturesOffset;
+
+    /**
+     * Open the index with given path.
+     *
+     * @param path Path of the index file.
+     * @throws IOException If the file cannot be mapped or is no index file.
+     */
+    public MaterialIndex(Path path) throws IOException {
+        // The mapping remains valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            segments = new MappedByteBuffer[(int) ((size + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+
+            for (int i = 0; i < segments.length; i++) {
+                final long offset = (long) i << SEGMENT_SHIFT;
+
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(size - offset, 1L << SEGMENT_SHIFT));
+            }
+
+            if (size < HEADER_SIZE || getInt(0) != MAGIC || getInt(4) != VERSION) {
+                throw new IOException("File " + path + " is no material index (of version " + VERSION + ").");
+            }
+
+            numGames = getLong(8);
+            pawnStructuresOffset = HEADER_SIZE + numGames * GAME_ENTRY_SIZE;
+            signaturesOffset = pawnStructuresOffset + getLong(24) * Long.BYTES;
+
+            if (signaturesOffset + getLong(16) * Integer.BYTES != size) {
+                throw new IOException("Material index " + path + " is truncated.");
+            }
+        }
+    }
+
+    /**
+     * @return Number of games.
+     */
+    public long getNumGames() {
+        return numGames;
+    }
+
+    /**
+     * Get the distinct material signatures reached by a game.
+     *
+     * @param gameId Game identifier.
+     * @return Sorted material signatures.
+     */
+    public int[] getSignatures(long gameId) {
+        final long begin = gameId == 0 ? 0 : getLong(getGameOffset(gameId - 1) + 8);
+        final int[] signatures = new int[(int) (getLong(getGameOffset(gameId) + 8) - begin)];
+
+        for (int i = 0; i < signatures.length; i++) {
+            signatures[i] = getInt(signaturesOffset + (begin + i) * Integer.BYTES);
+        }
+
+        return signatures;
+    }
+
+    /**
+     * Get the distinct pawn structures reached by a game.
+     *
+     * @param gameId Game identifier.
+     * @return Sorted pawn hashes (see {@link Position#getPawnHash()}).
+     */
+    public long[] getPawnStructures(long gameId) {
+        final long begin = gameId == 0 ? 0 : getLong(getGameOffset(gameId - 1) + 24);
+        final long[] pawnHashes = new long[(int) (getLong(getGameOffset(gameId) + 24) - begin)];
+
+        for (int i = 0; i < pawnHashes.length; i++) {
+            pawnHashes[i] = getLong(pawnStructuresOffset + (begin + i) * Long.BYTES);
+        }
+
+        return pawnHashes;
+    }
+
+    /**
+     * Find the games that reached the given material.
+     *
+     * @param signature Material signature (see {@link MaterialSignature}).
+     * @return Identifiers of the games, sorted.
+     */
+    public List<Long> findGames(int signature) {
+        return findGames(signature, false);
+    }
+
+    /**
+     * Find the games that reached the given material.
+     *
+     * @param signature         Material signature (see
+     *                          {@link MaterialSignature}).
+     * @param withColorsSwapped Also find the games that reached the given
+     *                          material with the colors swapped (e.g. KRKRP for
+     *                          KRPKR).
+     * @return Identifiers of the games, sorted.
+     */
+    public List<Long> findGames(int signature, boolean withColorsSwapped) {
+        final List<Long> gameIds = new ArrayList<>();
+        final int mirroredSignature = withColorsSwapped ? MaterialSignature.mirror(signature) : signature;
+        final long bit = getBit(signature);
+        final long mirroredBit = getBit(mirroredSignature);
+        long begin = 0;
+
+        for (long gameId = 0; gameId < numGames; gameId++) {
+            final long offset = getGameOffset(gameId);
+            final long bitset = getLong(offset);
+            final long end = getLong(offset + 8);
+
+            if (((bitset & bit) != 0 && containsSignature(begin, end, signature))
+                    || ((bitset & mirroredBit) != 0 && containsSignature(begin, end, mirroredSignature))) {
+                gameIds.add(gameId);
+            }
+
+            begin = end;
+        }
+
+        return gameIds;
+    }
+
+    /**
+     * Find the games that reached the pawn structure of the given position (with
+     * the same side to move or not, and regardless of the other pieces).
+     *
+     * @param position Position with the given pawn structure.
+     * @return Identifiers of the games, sorted.
+     */
+    public List<Long> findGamesWithPawnStructure(Position position) {
+        final List<Long> gameIds = new ArrayList<>();
+        final long pawnHash = position.getPawnHash();
+        final long bit = getPawnStructureBit(pawnHash);
+        long begin = 0;
+
+        for (long gameId = 0; gameId < numGames; gameId++) {
+            final long offset = getGameOffset(gameId);
+            final long bitset = getLong(offset + 16);
+            final long end = getLong(offset + 24);
+
+            if ((bitset & bit) != 0 && containsPawnStructure(begin, end, pawnHash)) {
+                gameIds.add(gameId);
+            }
+
+            begin = end;
+        }
+
+        return gameIds;
+    }
+
+    /**
+     * Get the bit of a material signature in the bitset of a game.
+     *
+     * @param signature Material signature.
+     * @return Bitset with a single bit set.
+     */
+    static long getBit(int signature) {
+        // Multiplicative hashing spreads similar signatures over the bits.
+        return 1L << ((signature * 0x9E3779B9) >>> 26);
+    }
+
+    /**
+     * Get the bit of a pawn structure in the pawn structure bitset of a game.
+     *
+     * @param pawnHash Pawn hash of the pawn structure.
+     * @return Bitset with a single bit set.
+     */
+    static long getPawnStructureBit(long pawnHash) {
+        // The bits of a Zobrist hash are already spread evenly.
+        return 1L << (pawnHash >>> 58);
+    }
+
+    /**
+     * Check whether a range of the signature column contains a signature.
+     *
+     * @param begin     Begin index of the range.
+     * @param end       End index of the range (exclusive).
+     * @param signature Given signature.
+     * @return {@code true} if and only if the range contains the signature.
+     */
+    private boolean containsSignature(long begin, long end, int signature) {
+        // The signatures of a game are sorted, but there are few, so search linearly.
+        for (long i = begin; i < end; i++) {
+            if (getInt(signaturesOffset + i * Integer.BYTES) == signature) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check whether a range of the pawn structure column contains a pawn hash.
+     *
+     * @param begin    Begin index of the range.
+     * @param end      End index of the range (exclusive).
+     * @param pawnHash Given pawn hash.
+     * @return {@code true} if and only if the range contains the pawn hash.
+     */
+    private boolean containsPawnStructure(long begin, long end, long pawnHash) {
+        // A game reaches a new pawn structure with each pawn move or capture, so
+        // there are more of them than signatures: use binary search.
+        long low = begin;
+        long high = end - 1;
+
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final long middleHash = getLong(pawnStructuresOffset + middle * Long.BYTES);
+
+            if (middleHash < pawnHash) {
+                low = middle + 1;
+            } else if (middleHash > pawnHash) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param gameId Game identifier.
+     * @return Offset of the game column entry in the file.
+     */
+    private long getGameOffset(long gameId) {
+        return HEADER_SIZE + gameId * GAME_ENTRY_SIZE;
+    }
+
+    /**
+     * @param offset Offset in the file (a multiple of four, such that the integer
+     *               does not cross segments).
+     * @return Integer at the given offset.
+     */
+    private int getInt(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+
+    /**
+     * @param offset Offset in the file (a multiple of eight, such that the long
+     *               does not cross segments).
+     * @return Long at the given offset.
+     */
+    private long getLong(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+}
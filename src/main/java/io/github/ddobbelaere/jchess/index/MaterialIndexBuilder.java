@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.pgn.PgnGame;
+
+/**
+ * Builder of material indices (see {@link MaterialIndex}).
+ *
+ * <p>
+ * The material signatures and pawn structures of the positions of every added
+ * game are computed once, and the columns of the index are streamed to
+ * temporary files, which are concatenated when the index is built. The memory
+ * use is hence bounded, regardless of the number of games.
+ * </p>
+ *
+ * <p>
+ * Closing the builder deletes the temporary files, also if the index has not
+ * been built.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class MaterialIndexBuilder implements Closeable {
+    /**
+     * Temporary file of the game column.
+     */
+    private final Path gamesPath;
+
+    /**
+     * Temporary file of the pawn structure column.
+     */
+    private final Path pawnStructuresPath;
+
+    /**
+     * Temporary file of the signature column.
+     */
+    private final Path signaturesPath;
+
+    /**
+     * Output stream of the game column.
+     */
+    private final DataOutputStream gamesOutput;
+
+    /**
+     * Output stream of the pawn structure column.
+     */
+    private final DataOutputStream pawnStructuresOutput;
+
+    /**
+     * Output stream of the signature column.
+     */
+    private final DataOutputStream signaturesOutput;
+
+    /**
+     * Number of added games.
+     */
+    private long numGames;
+
+    /**
+     * Number of added signatures (over all games).
+     */
+    private long numSignatures;
+
+    /**
+     * Number of added pawn structures (over all games).
+     */
+    private long numPawnStructures;
+
+    /**
+     * The builder has been closed.
+     */
+    private boolean isClosed;
+
+    /**
+     * Construct with given temporary directory.
+     *
+     * @param tempDirectory Directory of the temporary column files.
+     * @throws IOException If the temporary files cannot be created.
+     */
+    public MaterialIndexBuilder(Path tempDirectory) throws IOException {
+        gamesPath = Files.createTempFile(tempDirectory, "jchess-material-", ".games");
+        pawnStructuresPath = Files.createTempFile(tempDirectory, "jchess-material-", ".pawns");
+        signaturesPath = Files.createTempFile(tempDirectory, "jchess-material-", ".signatures");
+        gamesOutput = newOutput(gamesPath);
+        pawnStructuresOutput = newOutput(pawnStructuresPath);
+        signaturesOutput = newOutput(signaturesPath);
+    }
+
+    /**
+     * Add a game, whose identifier is the number of games that were added before.
+     *
+     * @param game Given game.
+     * @return Game identifier.
+     * @throws IOException If the columns cannot be written.
+     */
+    public long addGame(Game game) throws IOException {
+        final List<Position> positions = game.getPositions();
+        final int[] signatures = new int[positions.size()];
+        final long[] pawnHashes = new long[positions.size()];
+
+        for (int i = 0; i < signatures.length; i++) {
+            signatures[i] = positions.get(i).getMaterialSignature();
+            pawnHashes[i] = positions.get(i).getPawnHash();
+        }
+
+        Arrays.sort(signatures);
+        Arrays.sort(pawnHashes);
+
+        long bitset = 0;
+
+        // Write the distinct signatures, and record them in the bitset.
+        for (int i = 0; i < signatures.length; i++) {
+            if (i == 0 || signatures[i] != signatures[i - 1]) {
+                signaturesOutput.writeInt(signatures[i]);
+                bitset |= MaterialIndex.getBit(signatures[i]);
+                numSignatures++;
+            }
+        }
+
+        long pawnStructureBitset = 0;
+
+        // Likewise for the distinct pawn structures.
+        for (int i = 0; i < pawnHashes.length; i++) {
+            if (i == 0 || pawnHashes[i] != pawnHashes[i - 1]) {
+                pawnStructuresOutput.writeLong(pawnHashes[i]);
+                pawnStructureBitset |= MaterialIndex.getPawnStructureBit(pawnHashes[i]);
+                numPawnStructures++;
+            }
+        }
+
+        gamesOutput.writeLong(bitset);
+        gamesOutput.writeLong(numSignatures);
+        gamesOutput.writeLong(pawnStructureBitset);
+        gamesOutput.writeLong(numPawnStructures);
+
+        return numGames++;
+    }
+
+    /**
+     * Add a stream of games.
+     *
+     * @param games Stream of games.
+     * @return Number of added games.
+     * @throws IOException If the columns cannot be written.
+     */
+    public long addGames(Stream<PgnGame> games) throws IOException {
+        long numAddedGames = 0;
+
+        for (Iterator<PgnGame> iterator = games.iterator(); iterator.hasNext();) {
+            addGame(iterator.next().getGame());
+            numAddedGames++;
+        }
+
+        return numAddedGames;
+    }
+
+    /**
+     * @return Number of added games.
+     */
+    public long getNumGames() {
+        return numGames;
+    }
+
+    /**
+     * Build the index from the added games. The builder is closed afterwards.
+     *
+     * @param path Path of the index file.
+     * @return Number of games of the index.
+     * @throws IOException If the index cannot be written.
+     */
+    public long build(Path path) throws IOException {
+        if (isClosed) {
+            throw new IllegalStateException("The builder is closed.");
+        }
+
+        try {
+            gamesOutput.close();
+            pawnStructuresOutput.close();
+            signaturesOutput.close();
+
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+                final DataOutputStream dataOutput = new DataOutputStream(output);
+
+                dataOutput.writeInt(MaterialIndex.MAGIC);
+                dataOutput.writeInt(MaterialIndex.VERSION);
+                dataOutput.writeLong(numGames);
+                dataOutput.writeLong(numSignatures);
+                dataOutput.writeLong(numPawnStructures);
+
+                Files.copy(gamesPath, dataOutput);
+                Files.copy(pawnStructuresPath, dataOutput);
+                Files.copy(signaturesPath, dataOutput);
+                dataOutput.flush();
+            }
+        } finally {
+            close();
+        }
+
+        return numGames;
+    }
+
+    /**
+     * Close the builder and delete its temporary files (if it hasn't been closed
+     * yet). Added games that have not been built into an index are discarded.
+     *
+     * @throws IOException If a temporary file cannot be closed or deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+
+        // Closing a stream that build() closed already has no effect.
+        try {
+            gamesOutput.close();
+            pawnStructuresOutput.close();
+            signaturesOutput.close();
+        } finally {
+            Files.deleteIfExists(gamesPath);
+            Files.deleteIfExists(pawnStructuresPath);
+            Files.deleteIfExists(signaturesPath);
+        }
+    }
+
+    /**
+     * Open a buffered data output stream to a temporary file.
+     *
+     * @param path Path of the temporary file.
+     * @return Data output stream.
+     * @throws IOException If the file cannot be opened.
+     */
+    private static DataOutputStream newOutput(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+    }
+}
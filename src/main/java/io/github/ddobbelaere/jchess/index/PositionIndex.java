@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Index of the positions of a game collection, to find the games that reached
+ * a given position.
+ *
+ * <p>
+ * The index file (see {@link PositionIndexBuilder}) consists of
+ * <ul>
+ * <li>A header with the number of distinct position hashes, the offset of the
+ * key table and the number of postings.</li>
+ * <li>The posting lists, one per hash, sorted by game identifier and ply. Each
+ * posting is encoded as the difference of its game identifier with the one of
+ * the previous posting, followed by its ply, both as variable-length
+ * integers.</li>
+ * <li>The key table of 16-byte entries (hash and offset of its posting list),
+ * sorted by hash and terminated by an entry with the end offset of the posting
+ * lists.</li>
+ * </ul>
+ *
+ * <p>
+ * The file is memory-mapped rather than read into the heap, and a lookup is a
+ * binary search in the key table followed by a sequential read of a single
+ * posting list, such that it only touches a few pages of the file. The mapping
+ * is read-only, so an index can be shared by several threads.
+ * </p>
+ *
+ * <p>
+ * Positions are identified by their hash (see {@link Position#getHash()}), so
+ * lookups may (rarely) return postings of another position with the same hash.
+ * Replay the game up to the ply of a posting to verify it if needed.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PositionIndex {
+    /**
+     * Magic number of an index file ("JCPI").
+     */
+    static final int MAGIC = 0x4A435049;
+
+    /**
+     * Version of the index file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header (in bytes).
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Size of a key table entry (in bytes).
+     */
+    static final int KEY_ENTRY_SIZE = 16;
+
+    /**
+     * Mask of the ply in a packed posting.
+     */
+    static final long PLY_MASK = (1L << PostingBuffer.PLY_BITS) - 1;
+
+    /**
+     * Base-2 logarithm of the size of a mapped segment (a single mapping is
+     * limited to 2 GiB).
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * Mapped segments of the index file.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Number of distinct position hashes.
+     */
+    private final long numKeys;
+
+    /**
+     * Offset of the key table.
+     */
+    private final long keysOffset;
+
+    /**
+     * Number of postings.
+     */
+    private final long numPostings;
+
+    /**
+     * Open the index with given path.
+     *
+     * @param path Path of the index file.
+     * @throws IOException If the file cannot be mapped or is no index file.
+     */
+    public PositionIndex(Path path) throws IOException {
+        // The mapping remains valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+
+            segments = new MappedByteBuffer[(int) ((size + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT)];
+
+            for (int i = 0; i < segments.length; i++) {
+                final long offset = (long) i << SEGMENT_SHIFT;
+
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(size - offset, 1L << SEGMENT_SHIFT));
+            }
+
+            if (size < HEADER_SIZE || getInt(0) != MAGIC || getInt(4) != VERSION) {
+                throw new IOException("File " + path + " is no position index (of version " + VERSION + ").");
+            }
+
+            numKeys = getLong(8);
+            keysOffset = getLong(16);
+            numPostings = getLong(24);
+
+            if (keysOffset + (numKeys + 1) * KEY_ENTRY_SIZE != size) {
+                throw new IOException("Position index " + path + " is truncated.");
+            }
+        }
+    }
+
+    /**
+     * @return Number of distinct position hashes.
+     */
+    public long getNumPositions() {
+        return numKeys;
+    }
+
+    /**
+     * @return Number of postings.
+     */
+    public long getNumPostings() {
+        return numPostings;
+    }
+
+    /**
+     * Find the games that reached the given position.
+     *
+     * @param position Given position.
+     * @return Postings of the position, sorted by game identifier and ply (empty if
+     *         the position is not in the index).
+     */
+    public List<Posting> lookup(Position position) {
+        return lookup(position, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find the first games that reached the given position.
+     *
+     * @param position       Given position.
+     * @param maxNumPostings Maximum number of returned postings.
+     * @return First postings of the position, sorted by game identifier and ply
+     *         (empty if the position is not in the index).
+     */
+    public List<Posting> lookup(Position position, int maxNumPostings) {
+        final List<Posting> postings = new ArrayList<>();
+        final long keyIndex = getKeyIndex(position.getHash());
+
+        if (keyIndex < 0) {
+            return postings;
+        }
+
+        final long end = getLong(getKeyOffset(keyIndex + 1) + 8);
+        long offset = getLong(getKeyOffset(keyIndex) + 8);
+        long gameId = 0;
+
+        while (offset < end && postings.size() < maxNumPostings) {
+            // Decode the game identifier difference and the ply.
+            final long gameIdDifference = getVarLong(offset);
+            offset = skipVarLong(offset);
+            final long ply = getVarLong(offset);
+            offset = skipVarLong(offset);
+
+            gameId += gameIdDifference;
+            postings.add(new Posting(gameId, (int) ply));
+        }
+
+        return postings;
+    }
+
+    /**
+     * Count the postings of the given position.
+     *
+     * @param position Given position.
+     * @return Number of postings of the position.
+     */
+    public long count(Position position) {
+        final long keyIndex = getKeyIndex(position.getHash());
+
+        if (keyIndex < 0) {
+            return 0;
+        }
+
+        final long end = getLong(getKeyOffset(keyIndex + 1) + 8);
+        long count = 0;
+
+        // Each posting consists of two variable-length integers, so count the bytes
+        // that end an integer.
+        for (long offset = getLong(getKeyOffset(keyIndex) + 8); offset < end; offset++) {
+            if (getByte(offset) >= 0) {
+                count++;
+            }
+        }
+
+        return count / 2;
+    }
+
+    /**
+     * Get the index of the key table entry of the given hash.
+     *
+     * @param hash Given hash.
+     * @return Index of the key table entry, or -1 if the hash is not in the index.
+     */
+    private long getKeyIndex(long hash) {
+        long low = 0;
+        long high = numKeys - 1;
+
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final long middleHash = getLong(getKeyOffset(middle));
+
+            if (middleHash < hash) {
+                low = middle + 1;
+            } else if (middleHash > hash) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param keyIndex Index of a key table entry.
+     * @return Offset of the key table entry in the file.
+     */
+    private long getKeyOffset(long keyIndex) {
+        return keysOffset + keyIndex * KEY_ENTRY_SIZE;
+    }
+
+    /**
+     * Get a variable-length integer (see {@link PositionIndexBuilder}).
+     *
+     * @param offset Offset of the integer in the file.
+     * @return Integer at the given offset.
+     */
+    private long getVarLong(long offset) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = getByte(offset++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return value;
+    }
+
+    /**
+     * Skip a variable-length integer.
+     *
+     * @param offset Offset of the integer in the file.
+     * @return Offset of the next byte after the integer.
+     */
+    private long skipVarLong(long offset) {
+        while (getByte(offset) < 0) {
+            offset++;
+        }
+
+        return offset + 1;
+    }
+
+    /**
+     * @param offset Offset in the file.
+     * @return Byte at the given offset.
+     */
+    private byte getByte(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+
+    /**
+     * @param offset Offset in the file (a multiple of four, such that the integer
+     *               does not cross segments).
+     * @return Integer at the given offset.
+     */
+    private int getInt(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+
+    /**
+     * @param offset Offset in the file (a multiple of eight, such that the long
+     *               does not cross segments).
+     * @return Long at the given offset.
+     */
+    private long getLong(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.pgn.PgnGame;
+import io.github.ddobbelaere.jchess.util.SortedRuns;
+
+/**
+ * Builder of position indices (see {@link PositionIndex}).
+ *
+ * <p>
+ * Every position of every added game yields a posting (position hash, game
+ * identifier and ply). Postings are collected in a buffer of primitive arrays
+ * (see {@link PostingBuffer}). Whenever the buffer is full, it is sorted and
+ * spilled to a run file on disk, and the runs are merged into the index when it
+ * is built (see {@link SortedRuns}). The memory use is hence bounded, regardless of the number of games.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PositionIndexBuilder {
+    /**
+     * Default maximum number of postings in memory (16 bytes each).
+     */
+    public static final int DEFAULT_MAX_NUM_POSTINGS_IN_MEMORY = 1 << 22;
+
+    /**
+     * Maximum game identifier.
+     */
+    public static final long MAX_GAME_ID = (1L << (63 - PostingBuffer.PLY_BITS)) - 1;
+
+    /**
+     * Maximum ply of an indexed position (positions after this ply are not
+     * indexed).
+     */
+    public static final int MAX_PLY = (1 << PostingBuffer.PLY_BITS) - 1;
+
+    /**
+     * Directory of the run files.
+     */
+    private final Path tempDirectory;
+
+    /**
+     * Postings in memory.
+     */
+    private final PostingBuffer buffer;
+
+    /**
+     * Run files (sorted by hash and posting).
+     */
+    private final SortedRuns<RunReader> runs;
+
+    /**
+     * Construct with given temporary directory and default settings.
+     *
+     * @param tempDirectory Directory of the run files.
+     */
+    public PositionIndexBuilder(Path tempDirectory) {
+        this(DEFAULT_MAX_NUM_POSTINGS_IN_MEMORY, tempDirectory);
+    }
+
+    /**
+     * Construct with given settings.
+     *
+     * @param maxNumPostingsInMemory Maximum number of postings in memory before
+     *                               they are spilled to disk.
+     * @param tempDirectory          Directory of the run files.
+     */
+    public PositionIndexBuilder(int maxNumPostingsInMemory, Path tempDirectory) {
+        this.tempDirectory = tempDirectory;
+        buffer = new PostingBuffer(maxNumPostingsInMemory);
+        runs = new SortedRuns<>(tempDirectory, "jchess-index-", RunReader::new);
+    }
+
+    /**
+     * Add the positions of a game.
+     *
+     * @param gameId Game identifier (between zero and {@link #MAX_GAME_ID}).
+     * @param game   Given game.
+     * @throws IOException If the postings cannot be spilled to disk.
+     */
+    public void addGame(long gameId, Game game) throws IOException {
+        if (gameId < 0 || gameId > MAX_GAME_ID) {
+            throw new IllegalArgumentException("Game identifier " + gameId + " is out of range.");
+        }
+
+        final List<Position> positions = game.getPositions();
+
+        for (int ply = 0; ply < Math.min(positions.size(), MAX_PLY + 1); ply++) {
+            buffer.add(positions.get(ply).getHash(), PostingBuffer.pack(gameId, ply));
+
+            if (buffer.isFull()) {
+                spill();
+            }
+        }
+    }
+
+    /**
+     * Add a stream of games with consecutive game identifiers (e.g. the indices of
+     * the games in a PGN file).
+     *
+     * @param games       Stream of games.
+     * @param firstGameId Game identifier of the first game.
+     * @return Number of added games.
+     * @throws IOException If the postings cannot be spilled to disk.
+     */
+    public long addGames(Stream<PgnGame> games, long firstGameId) throws IOException {
+        long numGames = 0;
+
+        for (Iterator<PgnGame> iterator = games.iterator(); iterator.hasNext();) {
+            addGame(firstGameId + numGames, iterator.next().getGame());
+            numGames++;
+        }
+
+        return numGames;
+    }
+
+    /**
+     * @return Number of runs that are spilled to disk so far.
+     */
+    public int getNumRuns() {
+        return runs.getNumRuns();
+    }
+
+    /**
+     * Build the index from the added games, after which the builder is empty.
+     *
+     * @param path Path of the index file.
+     * @return Number of postings of the index.
+     * @throws IOException If the index cannot be written.
+     */
+    public long build(Path path) throws IOException {
+        if (buffer.size() > 0) {
+            spill();
+        }
+
+        final Path keysPath = Files.createTempFile(tempDirectory, "jchess-index-", ".keys");
+        long numKeys = 0;
+        long numPostings = 0;
+        long offset;
+
+        try {
+            try (CountingOutputStream output = new CountingOutputStream(Files.newOutputStream(path))) {
+                // Reserve the header, which is written last.
+                output.write(new byte[PositionIndex.HEADER_SIZE]);
+
+                runs.startMerge();
+
+                // Write the key table to a temporary file first, and append it once it's
+                // complete.
+                try (DataOutputStream keysOutput = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(keysPath), 1 << 16))) {
+                    // Merge the runs and write the postings of each hash, delta-encoded.
+                    long hash = 0;
+                    long previousGameId = 0;
+
+                    while (runs.hasNext()) {
+                        final RunReader reader = runs.poll();
+
+                        if (numPostings == 0 || reader.hash != hash) {
+                            hash = reader.hash;
+                            previousGameId = 0;
+                            keysOutput.writeLong(hash);
+                            keysOutput.writeLong(output.getCount());
+                            numKeys++;
+                        }
+
+                        final long gameId = reader.posting >>> PostingBuffer.PLY_BITS;
+
+                        writeVarLong(output, gameId - previousGameId);
+                        writeVarLong(output, reader.posting & PositionIndex.PLY_MASK);
+                        previousGameId = gameId;
+                        numPostings++;
+
+                        runs.advance(reader);
+                    }
+
+                    // Align the key table, and terminate it by the end offset of the postings.
+                    final long postingsEnd = output.getCount();
+
+                    while (output.getCount() % PositionIndex.KEY_ENTRY_SIZE != 0) {
+                        output.write(0);
+                    }
+
+                    offset = output.getCount();
+                    keysOutput.writeLong(0);
+                    keysOutput.writeLong(postingsEnd);
+                }
+
+                Files.copy(keysPath, output);
+            }
+
+            // Write the header.
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                final ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_SIZE);
+
+                header.putInt(PositionIndex.MAGIC).putInt(PositionIndex.VERSION).putLong(numKeys).putLong(offset)
+                        .putLong(numPostings).flip();
+
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            }
+        } finally {
+            try {
+                runs.clear();
+            } finally {
+                Files.deleteIfExists(keysPath);
+            }
+        }
+
+        return numPostings;
+    }
+
+    /**
+     * Sort the postings in memory and spill them to a new run file.
+     *
+     * @throws IOException If the run file cannot be written.
+     */
+    private void spill() throws IOException {
+        buffer.sort();
+        runs.spill(buffer.size(), (output, i) -> {
+            output.writeLong(buffer.getHash(i));
+            output.writeLong(buffer.getPosting(i));
+        });
+        buffer.clear();
+    }
+
+    /**
+     * Write a non-negative number as a variable-length integer (seven bits per
+     * byte, least significant group first, with the high bit set on all bytes but
+     * the last).
+     *
+     * @param output Output stream.
+     * @param value  Non-negative number.
+     * @throws IOException If the number cannot be written.
+     */
+    private static void writeVarLong(OutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        output.write((int) value);
+    }
+
+    /**
+     * Buffered output stream that counts the written bytes.
+     */
+    private static class CountingOutputStream extends BufferedOutputStream {
+        /**
+         * Number of written bytes.
+         */
+        private long count;
+
+        /**
+         * Construct with given underlying output stream.
+         *
+         * @param output Underlying output stream.
+         */
+        CountingOutputStream(OutputStream output) {
+            super(output, 1 << 16);
+        }
+
+        /**
+         * @return Number of written bytes.
+         */
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            super.write(b);
+            count++;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Sequential reader of a run file.
+     */
+    private static class RunReader extends SortedRuns.Reader<RunReader> {
+        /**
+         * Hash of the current posting.
+         */
+        private long hash;
+
+        /**
+         * Current packed posting.
+         */
+        private long posting;
+
+        @Override
+        protected void read(DataInputStream input) throws IOException {
+            hash = input.readLong();
+            posting = input.readLong();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            final int result = Long.compare(hash, other.hash);
+
+            return result != 0 ? result : Long.compare(posting, other.posting);
+        }
+    }
+}
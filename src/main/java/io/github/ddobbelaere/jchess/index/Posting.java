@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+/**
+ * Occurrence of a position in a game: the game identifier and the ply at which
+ * the position was reached.
+ *
+ * @author Dieter Dobbelaere
+ */
+public class Posting {
+    /**
+     * Game identifier.
+     */
+    private final long gameId;
+
+    /**
+     * Ply at which the position was reached (zero for the starting position of
+     * the game).
+     */
+    private final int ply;
+
+    /**
+     * Construct with given game identifier and ply.
+     *
+     * @param gameId Game identifier.
+     * @param ply    Ply at which the position was reached.
+     */
+    public Posting(long gameId, int ply) {
+        this.gameId = gameId;
+        this.ply = ply;
+    }
+
+    /**
+     * @return Game identifier.
+     */
+    public long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * @return Ply at which the position was reached (zero for the starting
+     *         position of the game).
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    @Override
+    public String toString() {
+        return gameId + ":" + ply;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(gameId) * 31 + ply;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null) {
+            return false;
+        }
+
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+
+        Posting other = (Posting) obj;
+        return gameId == other.gameId && ply == other.ply;
+    }
+}
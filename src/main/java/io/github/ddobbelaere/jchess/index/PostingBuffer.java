@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+import io.github.ddobbelaere.jchess.util.SortUtils;
+
+/**
+ * Buffer of postings in memory, as pairs of a position hash and a packed
+ * posting (game identifier and ply) on parallel primitive arrays.
+ *
+ * <p>
+ * Once the buffer is full, its postings are sorted in place (see
+ * {@link #sort()}) and spilled, after which the buffer is cleared.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class PostingBuffer implements SortUtils.Sortable {
+    /**
+     * Number of bits of the ply in a packed posting.
+     */
+    static final int PLY_BITS = 16;
+
+    /**
+     * Position hashes.
+     */
+    private final long[] hashes;
+
+    /**
+     * Packed postings (game identifier shifted left by {@link #PLY_BITS} bits,
+     * plus the ply).
+     */
+    private final long[] postings;
+
+    /**
+     * Number of postings.
+     */
+    private int size;
+
+    /**
+     * Construct with given capacity.
+     *
+     * @param capacity Maximum number of postings (at least one).
+     */
+    PostingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity " + capacity + " should be at least one.");
+        }
+
+        hashes = new long[capacity];
+        postings = new long[capacity];
+    }
+
+    /**
+     * Pack a game identifier and a ply into a posting.
+     *
+     * @param gameId Game identifier.
+     * @param ply    Ply.
+     * @return Packed posting.
+     */
+    static long pack(long gameId, int ply) {
+        return (gameId << PLY_BITS) | ply;
+    }
+
+    /**
+     * Add a posting.
+     *
+     * @param hash    Position hash.
+     * @param posting Packed posting.
+     */
+    void add(long hash, long posting) {
+        hashes[size] = hash;
+        postings[size] = posting;
+        size++;
+    }
+
+    /**
+     * @return Number of postings.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if and only if the buffer is full.
+     */
+    boolean isFull() {
+        return size == hashes.length;
+    }
+
+    /**
+     * Clear the buffer.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param index Posting index.
+     * @return Position hash of the posting.
+     */
+    long getHash(int index) {
+        return hashes[index];
+    }
+
+    /**
+     * @param index Posting index.
+     * @return Packed posting.
+     */
+    long getPosting(int index) {
+        return postings[index];
+    }
+
+    /**
+     * Sort the postings by hash and packed posting.
+     */
+    void sort() {
+        SortUtils.sort(this, 0, size);
+    }
+
+    /**
+     * Compare two postings by hash and packed posting.
+     *
+     * @param index1 Index of the first posting.
+     * @param index2 Index of the second posting.
+     * @return Negative, zero or positive if the first posting is smaller than,
+     *         equal to or larger than the second posting.
+     */
+    @Override
+    public int compare(int index1, int index2) {
+        final int result = Long.compare(hashes[index1], hashes[index2]);
+
+        return result != 0 ? result : Long.compare(postings[index1], postings[index2]);
+    }
+
+    /**
+     * Swap two postings.
+     *
+     * @param index1 Index of the first posting.
+     * @param index2 Index of the second posting.
+     */
+    @Override
+    public void swap(int index1, int index2) {
+        final long hash = hashes[index1];
+        hashes[index1] = hashes[index2];
+        hashes[index2] = hash;
+
+        final long posting = postings[index1];
+        postings[index1] = postings[index2];
+        postings[index2] = posting;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.pgn;
+
+import java.util.Collections;
+import java.util.Map;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+
+/**
+ * Game that is read from a PGN file: the game itself, its tag pairs and its
+ * result.
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PgnGame {
+    /**
+     * Result of a game that white won.
+     */
+    public static final String WHITE_WINS = "1-0";
+
+    /**
+     * Result of a game that black won.
+     */
+    public static final String BLACK_WINS = "0-1";
+
+    /**
+     * Result of a drawn game.
+     */
+    public static final String DRAW = "1/2-1/2";
+
+    /**
+     * Result of a game that is unfinished or whose result is unknown.
+     */
+    public static final String UNKNOWN = "*";
+
+    /**
+     * Tag pairs (in the order in which they occur).
+     */
+    private final Map<String, String> tags;
+
+    /**
+     * Game.
+     */
+    private final Game game;
+
+    /**
+     * Result (see {@link #getResult()}).
+     */
+    private final String result;
+
+    /**
+     * Construct with given tag pairs, game and result.
+     *
+     * @param tags   Tag pairs.
+     * @param game   Game.
+     * @param result Result.
+     */
+    PgnGame(Map<String, String> tags, Game game, String result) {
+        this.tags = Collections.unmodifiableMap(tags);
+        this.game = game;
+        this.result = result;
+    }
+
+    /**
+     * @return Unmodifiable view of the tag pairs (in the order in which they
+     *         occur).
+     */
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * Get the value of the tag with given name.
+     *
+     * @param name Tag name (e.g. White).
+     * @return Tag value, or {@code null} if the game has no such tag.
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * @return Game.
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * Get the result of the game, as given by the game termination marker of the
+     * movetext (or the Result tag if the movetext has no termination marker).
+     *
+     * @return Result ({@link #WHITE_WINS}, {@link #BLACK_WINS}, {@link #DRAW} or
+     *         {@link #UNKNOWN}).
+     */
+    public String getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.pgn;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.IllegalFenException;
+import io.github.ddobbelaere.jchess.chess.IllegalMoveException;
+
+/**
+ * Streaming reader of PGN (portable game notation) files.
+ *
+ * <p>
+ * Games are read one at a time, such that arbitrarily large collections are
+ * read in constant memory. Tag pairs and the moves of the main line are kept,
+ * whereas comments, variations and numeric annotation glyphs are skipped. Games
+ * that start from a set-up position (FEN tag) are supported.
+ * </p>
+ *
+ * <p>
+ * A game with an illegal move or set-up position is read up to its end, after
+ * which an {@link IllegalPgnException} is thrown, such that the reader can
+ * simply continue with the next game.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class PgnReader implements Closeable {
+    /**
+     * Marker of the absence of a pushed back character.
+     */
+    private static final int NONE = -2;
+
+    /**
+     * Underlying reader.
+     */
+    private final BufferedReader reader;
+
+    /**
+     * Pushed back character (or {@link #NONE}).
+     */
+    private int pushedBackChar = NONE;
+
+    /**
+     * Current line number (starting from one).
+     */
+    private long lineNumber = 1;
+
+    /**
+     * Construct with given underlying reader.
+     *
+     * @param reader Underlying reader.
+     */
+    public PgnReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Open the PGN file with given path. The file is decoded as UTF-8, where
+     * malformed input (e.g. Latin-1 player names) is replaced rather than
+     * rejected.
+     *
+     * @param path Path of the PGN file.
+     * @return PGN reader of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static PgnReader open(Path path) throws IOException {
+        return new PgnReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read the next game.
+     *
+     * @return Next game, or {@code null} if there are no more games.
+     * @throws IOException         If the underlying reader fails.
+     * @throws IllegalPgnException If the game has an illegal move or set-up
+     *                             position (the reader is positioned after the
+     *                             game).
+     */
+    public PgnGame readGame() throws IOException {
+        final Map<String, String> tags = new LinkedHashMap<>();
+        final long startLineNumber;
+        int c = skipWhitespace();
+
+        if (c == -1) {
+            return null;
+        }
+
+        startLineNumber = lineNumber;
+
+        // Read the tag pairs.
+        while (c == '[') {
+            readTag(tags);
+            c = skipWhitespace();
+        }
+
+        Game game = null;
+        RuntimeException failure = null;
+        String result = null;
+
+        try {
+            game = tags.containsKey("FEN") ? new Game(tags.get("FEN")) : new Game();
+        } catch (IllegalFenException e) {
+            failure = e;
+        }
+
+        // Read the movetext up to the game termination marker, the tag pairs of the
+        // next game or the end of the input.
+        int variationDepth = 0;
+
+        while (c != -1) {
+            if (c == '[' && variationDepth == 0) {
+                pushBack(c);
+                break;
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';') {
+                skipUntil('\n');
+            } else if (c == '(') {
+                variationDepth++;
+            } else if (c == ')') {
+                variationDepth = Math.max(variationDepth - 1, 0);
+            } else {
+                pushBack(c);
+
+                final String token = readToken();
+
+                if (token.isEmpty()) {
+                    // Skip stray characters (e.g. a separate annotation like !?).
+                    read();
+                } else if (variationDepth == 0) {
+                    if (isResult(token)) {
+                        result = token;
+                        break;
+                    } else if (failure == null && token.charAt(0) != '$') {
+                        final String move = stripMoveNumber(token);
+
+                        try {
+                            if (!move.isEmpty()) {
+                                game.playMoves(move);
+                            }
+                        } catch (IllegalMoveException e) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+
+            c = skipWhitespace();
+        }
+
+        if (failure != null) {
+            throw new IllegalPgnException("Invalid game at line " + startLineNumber + ": " + failure.getMessage(),
+                    failure);
+        }
+
+        if (result == null) {
+            result = isResult(tags.get("Result")) ? tags.get("Result") : PgnGame.UNKNOWN;
+        }
+
+        return new PgnGame(tags, game, result);
+    }
+
+    /**
+     * Get a lazy stream of the remaining games. Games that cannot be read are
+     * skipped if {@code skipIllegalGames} is set.
+     *
+     * @param skipIllegalGames Skip games with an illegal move or set-up position
+     *                         (rather than failing).
+     * @return Stream of the remaining games.
+     * @throws UncheckedIOException If the underlying reader fails while the stream
+     *                              is consumed.
+     * @throws IllegalPgnException  If an illegal game is encountered while the
+     *                              stream is consumed and such games are not
+     *                              skipped.
+     */
+    public Stream<PgnGame> games(boolean skipIllegalGames) {
+        final Iterator<PgnGame> iterator = new Iterator<PgnGame>() {
+            /**
+             * Next game (or {@code null} if it is not read yet or there are no more
+             * games).
+             */
+            private PgnGame nextGame;
+
+            /**
+             * There are no more games.
+             */
+            private boolean isExhausted;
+
+            @Override
+            public boolean hasNext() {
+                while (nextGame == null && !isExhausted) {
+                    try {
+                        nextGame = readGame();
+                        isExhausted = nextGame == null;
+                    } catch (IllegalPgnException e) {
+                        if (!skipIllegalGames) {
+                            throw e;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                return nextGame != null;
+            }
+
+            @Override
+            public PgnGame next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final PgnGame game = nextGame;
+                nextGame = null;
+
+                return game;
+            }
+        };
+
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Read a tag pair (after its opening bracket).
+     *
+     * @param tags Tag pairs to which the tag pair is added.
+     * @throws IOException If the underlying reader fails.
+     */
+    private void readTag(Map<String, String> tags) throws IOException {
+        pushBack(skipWhitespace());
+
+        final String name = readToken();
+        final StringBuilder value = new StringBuilder();
+        int c = skipWhitespace();
+
+        if (c == '"') {
+            for (c = read(); c != -1 && c != '"' && c != '\n'; c = read()) {
+                if (c == '\\') {
+                    c = read();
+                }
+
+                if (c != -1) {
+                    value.append((char) c);
+                }
+            }
+
+            c = read();
+        }
+
+        // Skip the remainder of the tag pair.
+        while (c != -1 && c != ']' && c != '\n') {
+            c = read();
+        }
+
+        tags.put(name, value.toString());
+    }
+
+    /**
+     * Read a symbol token (move, move number, game termination marker or numeric
+     * annotation glyph). Trailing annotations (e.g. !?) are stripped.
+     *
+     * @return Symbol token (empty if the next character does not start a token).
+     * @throws IOException If the underlying reader fails.
+     */
+    private String readToken() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        int c = read();
+
+        while (c != -1 && (Character.isLetterOrDigit(c) || "_+#=:-/.$*!?".indexOf(c) >= 0)) {
+            sb.append((char) c);
+            c = read();
+        }
+
+        pushBack(c);
+
+        int length = sb.length();
+
+        while (length > 1 && (sb.charAt(length - 1) == '!' || sb.charAt(length - 1) == '?')) {
+            length--;
+        }
+
+        return sb.substring(0, length);
+    }
+
+    /**
+     * @param token Given token.
+     * @return {@code true} if and only if the token is a game termination marker.
+     */
+    private static boolean isResult(String token) {
+        return PgnGame.WHITE_WINS.equals(token) || PgnGame.BLACK_WINS.equals(token) || PgnGame.DRAW.equals(token)
+                || PgnGame.UNKNOWN.equals(token);
+    }
+
+    /**
+     * Strip a leading move number indication (e.g. 12. or 12...) from a token.
+     *
+     * @param token Given token.
+     * @return Token without move number indication (empty if the token is a move
+     *         number indication only).
+     */
+    private static String stripMoveNumber(String token) {
+        int i = 0;
+
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+
+        if (i == token.length()) {
+            return "";
+        }
+
+        // Castling written with zeros (e.g. 0-0) has no move number.
+        if (token.charAt(i) != '.') {
+            i = 0;
+        }
+
+        while (i < token.length() && token.charAt(i) == '.') {
+            i++;
+        }
+
+        return token.substring(i);
+    }
+
+    /**
+     * Skip characters up to and including the given character.
+     *
+     * @param end Given character.
+     * @throws IOException If the underlying reader fails.
+     */
+    private void skipUntil(int end) throws IOException {
+        int c = read();
+
+        while (c != -1 && c != end) {
+            c = read();
+        }
+    }
+
+    /**
+     * Skip whitespace and escaped lines (lines starting with %).
+     *
+     * @return First character that is no whitespace (or -1 at the end of the
+     *         input).
+     * @throws IOException If the underlying reader fails.
+     */
+    private int skipWhitespace() throws IOException {
+        int c = read();
+
+        while (Character.isWhitespace(c) || c == '%') {
+            if (c == '%') {
+                skipUntil('\n');
+            }
+
+            c = read();
+        }
+
+        return c;
+    }
+
+    /**
+     * Read the next character.
+     *
+     * @return Next character, or -1 at the end of the input.
+     * @throws IOException If the underlying reader fails.
+     */
+    private int read() throws IOException {
+        final int c;
+
+        if (pushedBackChar != NONE) {
+            c = pushedBackChar;
+            pushedBackChar = NONE;
+        } else {
+            c = reader.read();
+
+            if (c == '\n') {
+                lineNumber++;
+            }
+        }
+
+        return c;
+    }
+
+    /**
+     * Push back a character, such that it is read again by the next read.
+     *
+     * @param c Character (or -1 at the end of the input).
+     */
+    private void pushBack(int c) {
+        pushedBackChar = c;
+    }
+}
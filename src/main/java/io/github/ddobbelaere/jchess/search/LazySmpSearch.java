@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import io.github.ddobbelaere.jchess.chess.Nnue;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Multi-threaded search (Lazy SMP).
+ *
+ * <p>
+ * The main thread and a number of helper threads search the same root
+ * position independently, sharing only the transposition table. Half of the
+ * helper threads search one ply deeper in each iteration, such that the
+ * threads diverge and fill the table with entries that speed up the other
+ * threads. The result of the main thread is reported, and the helper threads
+ * are stopped as soon as the main thread finishes.
+ * </p>
+ *
+ * <p>
+ * The helper threads are created once and reused for subsequent searches.
+ * Call {@link #close()} to release them.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class LazySmpSearch implements AutoCloseable {
+    /**
+     * Shared transposition table.
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * Search of the main thread.
+     */
+    private final Search mainSearch;
+
+    /**
+     * Searches of the helper threads.
+     */
+    private final Search[] helperSearches;
+
+    /**
+     * Executor that runs the helper searches (null if there are no helper
+     * threads).
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Construct with the given number of threads (including the main thread) and
+     * the given shared transposition table.
+     *
+     * @param numThreads         Number of threads (at least one).
+     * @param transpositionTable Shared transposition table.
+     */
+    public LazySmpSearch(int numThreads, TranspositionTable transpositionTable) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads " + numThreads + " should be at least one.");
+        }
+
+        this.transpositionTable = transpositionTable;
+        mainSearch = new Search(transpositionTable);
+        helperSearches = new Search[numThreads - 1];
+
+        for (int i = 0; i < helperSearches.length; i++) {
+            helperSearches[i] = new Search(transpositionTable);
+            helperSearches[i].depthOffset = (i % 2 == 0) ? 1 : 0;
+        }
+
+        executor = (helperSearches.length == 0) ? null : Executors.newFixedThreadPool(helperSearches.length, r -> {
+            Thread thread = new Thread(r, "LazySmpSearch helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return Number of threads (including the main thread).
+     */
+    public int getNumThreads() {
+        return helperSearches.length + 1;
+    }
+
+    /**
+     * @return Shared transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Set the neural network that is used by all threads to evaluate positions
+     * (see {@link Search#setNetwork(Nnue)}).
+     *
+     * @param network Neural network (null to use the classical evaluation).
+     */
+    public void setNetwork(Nnue network) {
+        mainSearch.setNetwork(network);
+
+        for (Search helperSearch : helperSearches) {
+            helperSearch.setNetwork(network);
+        }
+    }
+
+    /**
+     * Set a listener that is notified of the result of each completed iteration
+     * of the main thread (see {@link Search#setIterationListener(Consumer)}). The
+     * number of nodes of these results only includes the nodes of the main
+     * thread.
+     *
+     * @param iterationListener Iteration listener (null to remove it).
+     */
+    public void setIterationListener(Consumer<SearchResult> iterationListener) {
+        mainSearch.setIterationListener(iterationListener);
+    }
+
+    /**
+     * Search the given position within the given limits, using all threads. The
+     * calling thread acts as the main thread.
+     *
+     * @param position Given root position.
+     * @param limits   Search limits (that apply to the main thread).
+     * @return Result of the main thread, with the number of nodes of all threads.
+     */
+    public SearchResult search(Position position, SearchLimits limits) {
+        transpositionTable.newSearch();
+        mainSearch.clearStopRequest();
+
+        // Start the helper threads. They search without limits until they are stopped.
+        final SearchLimits helperLimits = SearchLimits.depth(Search.MAX_PLY);
+        final List<Future<SearchResult>> futures = new ArrayList<>();
+
+        for (Search helperSearch : helperSearches) {
+            helperSearch.clearStopRequest();
+            futures.add(executor.submit(() -> helperSearch.iterativeDeepening(position, helperLimits)));
+        }
+
+        // Search in the calling thread.
+        final SearchResult result = mainSearch.iterativeDeepening(position, limits);
+
+        // Stop the helper threads and wait until they are finished, such that they
+        // are idle before the next search starts.
+        long numNodes = mainSearch.getNumNodes();
+
+        for (Search helperSearch : helperSearches) {
+            helperSearch.stop();
+        }
+
+        for (int i = 0; i < helperSearches.length; i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Helper search failed.", e.getCause());
+            }
+
+            numNodes += helperSearches[i].getNumNodes();
+        }
+
+        return new SearchResult(result.getScore(), result.getDepth(), result.getPrincipalVariation(), numNodes,
+                result.getTimeMillis());
+    }
+
+    /**
+     * Request the current search to stop as soon as possible. This method can be
+     * called from any thread.
+     */
+    public void stop() {
+        mainSearch.stop();
+
+        for (Search helperSearch : helperSearches) {
+            helperSearch.stop();
+        }
+    }
+
+    /**
+     * Release the helper threads. The object can't be used for searching anymore.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Forced mating line found by the {@link MateSolver}.
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class MateSolution {
+    /**
+     * Position in which the mate starts.
+     */
+    private final Position position;
+
+    /**
+     * Unmodifiable mating line (alternating attacker and defender moves, ending
+     * with the mating move).
+     */
+    private final List<Move> moves;
+
+    /**
+     * Mating line in standard algebraic notation.
+     */
+    private final List<String> movesSan;
+
+    /**
+     * Number of searched nodes.
+     */
+    private final long numNodes;
+
+    /**
+     * Constructor.
+     *
+     * @param position Position in which the mate starts.
+     * @param moves    Mating line.
+     * @param numNodes Number of searched nodes.
+     */
+    MateSolution(Position position, List<Move> moves, long numNodes) {
+        final Game game = new Game(position);
+
+        game.playMoves(moves.toArray(new Move[0]));
+
+        this.position = position;
+        this.moves = Collections.unmodifiableList(moves);
+        movesSan = Collections.unmodifiableList(game.getMovesSan());
+        this.numNodes = numNodes;
+    }
+
+    /**
+     * @return Position in which the mate starts.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * @return Number of moves of the attacker until mate.
+     */
+    public int getNumMoves() {
+        return (moves.size() + 1) / 2;
+    }
+
+    /**
+     * @return Unmodifiable mating line (alternating attacker and defender moves,
+     *         ending with the mating move).
+     */
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return Unmodifiable mating line in standard algebraic notation (e.g. Qg8+,
+     *         Rxg8, Nf7#).
+     */
+    public List<String> getMovesSan() {
+        return movesSan;
+    }
+
+    /**
+     * @return Number of searched nodes.
+     */
+    public long getNumNodes() {
+        return numNodes;
+    }
+
+    @Override
+    public String toString() {
+        return "mate in " + getNumMoves() + ": " + String.join(" ", movesSan);
+    }
+}
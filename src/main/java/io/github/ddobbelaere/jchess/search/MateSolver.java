@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Mate solver based on depth-first proof-number search (df-pn).
+ *
+ * <p>
+ * The solver proves or disproves that the side to move (the attacker) can
+ * force mate within a given number of moves by only giving check. The
+ * attacker's moves are restricted to checking moves and the defender's moves
+ * are check evasions, which keeps the tree narrow. Proof and disproof numbers
+ * are stored in a fixed-size table. A table entry is keyed by the position
+ * hash and the remaining number of plies, and full buckets replace the entry
+ * that cost the least work to compute. Mates are searched with an increasing
+ * number of moves, such that the shortest checking mate is found.
+ * </p>
+ *
+ * <p>
+ * Mates that need a quiet (non-checking) attacking move are not found. A
+ * solver object is not thread safe.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class MateSolver {
+    /**
+     * Maximum number of moves of a mate.
+     */
+    public static final int MAX_NUM_MOVES = 64;
+
+    /**
+     * Default table size (in megabytes).
+     */
+    public static final int DEFAULT_TABLE_SIZE_MB = 16;
+
+    /**
+     * Maximum table size (in megabytes), limited by the maximum array length.
+     */
+    public static final int MAX_TABLE_SIZE_MB = 8192;
+
+    /**
+     * Infinite proof or disproof number.
+     */
+    private static final int INFINITE = (1 << 28) - 1;
+
+    /**
+     * Number of bits of a proof or disproof number in a table entry.
+     */
+    private static final int NUMBER_BITS = 28;
+
+    /**
+     * Number of entries per bucket.
+     */
+    private static final int NUM_ENTRIES_PER_BUCKET = 2;
+
+    /**
+     * Number of longs per entry (key and data).
+     */
+    private static final int NUM_LONGS_PER_ENTRY = 2;
+
+    /**
+     * Number of longs per bucket.
+     */
+    private static final int NUM_LONGS_PER_BUCKET = NUM_ENTRIES_PER_BUCKET * NUM_LONGS_PER_ENTRY;
+
+    /**
+     * Keys that are XORed with the position hash, indexed by the remaining number
+     * of plies.
+     */
+    private static final long[] PLY_KEYS = new long[2 * MAX_NUM_MOVES];
+
+    /**
+     * Table of entries: the key (position hash XORed with the ply key) followed
+     * by the data (phi, delta and the logarithm of the work).
+     */
+    private final long[] table;
+
+    /**
+     * Bit mask that maps a key to a bucket index.
+     */
+    private final long bucketMask;
+
+    /**
+     * Number of searched nodes of the current (or last) solve.
+     */
+    private long numNodes;
+
+    /**
+     * Maximum number of nodes of the current solve.
+     */
+    private long maxNumNodes;
+
+    static {
+        final SplittableRandom random = new SplittableRandom(0x4D415445L);
+
+        for (int i = 0; i < PLY_KEYS.length; i++) {
+            PLY_KEYS[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Construct with a table of the default size.
+     */
+    public MateSolver() {
+        this(DEFAULT_TABLE_SIZE_MB);
+    }
+
+    /**
+     * Construct with a table of (at most) the given size. The number of buckets is
+     * rounded down to a power of two.
+     *
+     * @param tableSizeMb Table size (in megabytes, between 1 and
+     *                    {@link #MAX_TABLE_SIZE_MB}).
+     */
+    public MateSolver(int tableSizeMb) {
+        if (tableSizeMb < 1 || tableSizeMb > MAX_TABLE_SIZE_MB) {
+            throw new IllegalArgumentException("Table size " + tableSizeMb + " MB should be between 1 and "
+                    + MAX_TABLE_SIZE_MB + " MB.");
+        }
+
+        final long numBuckets = Long
+                .highestOneBit((tableSizeMb * 1024L * 1024L) / (NUM_LONGS_PER_BUCKET * Long.BYTES));
+        final long maxNumBuckets = Integer.highestOneBit(Integer.MAX_VALUE / NUM_LONGS_PER_BUCKET);
+
+        table = new long[(int) (NUM_LONGS_PER_BUCKET * Math.min(numBuckets, maxNumBuckets))];
+        bucketMask = table.length / NUM_LONGS_PER_BUCKET - 1;
+    }
+
+    /**
+     * Clear the table.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    /**
+     * Find the shortest mate of the side to move that only consists of checks.
+     *
+     * @param position    Given position.
+     * @param maxNumMoves Maximum number of moves of the mate (between 1 and
+     *                    {@link #MAX_NUM_MOVES}).
+     * @param maxNumNodes Maximum number of searched nodes.
+     * @return Mating line, or null if there is no checking mate within the given
+     *         number of moves or if the node limit has been reached (see
+     *         {@link #isNodeLimitReached()}).
+     */
+    public MateSolution solve(Position position, int maxNumMoves, long maxNumNodes) {
+        if (maxNumMoves < 1 || maxNumMoves > MAX_NUM_MOVES) {
+            throw new IllegalArgumentException(
+                    "Number of moves " + maxNumMoves + " should be between 1 and " + MAX_NUM_MOVES + ".");
+        }
+
+        numNodes = 0;
+        this.maxNumNodes = maxNumNodes;
+
+        for (int numMoves = 1; numMoves <= maxNumMoves; numMoves++) {
+            if (isAttackerWin(position, 2 * numMoves - 1)) {
+                final List<Move> moves = getMatingLine(position, 2 * numMoves - 1);
+
+                return (moves != null) ? new MateSolution(position, moves, numNodes) : null;
+            }
+
+            if (isNodeLimitReached()) {
+                break;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return Number of searched nodes of the last solve.
+     */
+    public long getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * @return {@code true} if and only if the last solve was aborted because the
+     *         node limit was reached.
+     */
+    public boolean isNodeLimitReached() {
+        return numNodes > maxNumNodes;
+    }
+
+    /**
+     * Check if the attacker can force mate within the given number of plies.
+     *
+     * @param position  Given position.
+     * @param pliesLeft Remaining number of plies (odd if the attacker is to move,
+     *                  even if the defender is to move).
+     * @return {@code true} if and only if the mate is proven (within the node
+     *         limit).
+     */
+    private boolean isAttackerWin(Position position, int pliesLeft) {
+        final boolean isAttacker = (pliesLeft & 1) != 0;
+        final long key = position.getHash() ^ PLY_KEYS[pliesLeft];
+        long data = probe(key);
+
+        if (getPhi(data) != 0 && getDelta(data) != 0) {
+            search(position, pliesLeft, INFINITE, INFINITE);
+            data = probe(key);
+        }
+
+        // The attacker wins if an attacker node is proven (phi is its proof number)
+        // or if a defender node is disproven (delta is its proof number).
+        return isAttacker ? getPhi(data) == 0 : getDelta(data) == 0;
+    }
+
+    /**
+     * Get the mating line of a proven position.
+     *
+     * @param position  Given position.
+     * @param pliesLeft Remaining number of plies (odd, the attacker is to move).
+     * @return Mating line (the attacker plays the fastest mate and the defender
+     *         the slowest), or null if the node limit has been reached.
+     */
+    private List<Move> getMatingLine(Position position, int pliesLeft) {
+        final List<Move> moves = new ArrayList<>();
+
+        while (true) {
+            // The attacker plays a check that mates in the least number of moves.
+            Position defenderPosition = null;
+
+            for (int defenderPliesLeft = 0; defenderPliesLeft < pliesLeft
+                    && defenderPosition == null; defenderPliesLeft += 2) {
+                for (Move move : position.getLegalMoves()) {
+                    final Position nextPosition = position.playTrustedMove(move);
+
+                    if (nextPosition.isCheck() && isAttackerWin(nextPosition, defenderPliesLeft)) {
+                        moves.add(move);
+                        defenderPosition = nextPosition;
+                        pliesLeft = defenderPliesLeft;
+                        break;
+                    }
+                }
+            }
+
+            if (defenderPosition == null) {
+                return null;
+            }
+
+            if (pliesLeft == 0) {
+                return moves;
+            }
+
+            // The defender plays the evasion that delays the mate the longest.
+            Move bestEvasion = null;
+            int bestPliesLeft = 0;
+
+            for (Move evasion : defenderPosition.getLegalMoves()) {
+                final Position nextPosition = defenderPosition.playTrustedMove(evasion);
+                int attackerPliesLeft = 1;
+
+                while (attackerPliesLeft < pliesLeft && !isAttackerWin(nextPosition, attackerPliesLeft)) {
+                    attackerPliesLeft += 2;
+                }
+
+                if (isNodeLimitReached()) {
+                    return null;
+                }
+
+                if (attackerPliesLeft > bestPliesLeft) {
+                    bestEvasion = evasion;
+                    bestPliesLeft = attackerPliesLeft;
+                }
+            }
+
+            moves.add(bestEvasion);
+            position = defenderPosition.playTrustedMove(bestEvasion);
+            pliesLeft = bestPliesLeft;
+        }
+    }
+
+    /**
+     * Depth-first proof-number search of a node until its phi or delta reaches
+     * the given threshold. Phi and delta are the proof and disproof number of the
+     * node from the point of view of the side to move: phi is the proof number of
+     * an attacker node and the disproof number of a defender node.
+     *
+     * @param position   Given position.
+     * @param pliesLeft  Remaining number of plies.
+     * @param phiLimit   Phi threshold.
+     * @param deltaLimit Delta threshold.
+     */
+    private void search(Position position, int pliesLeft, int phiLimit, int deltaLimit) {
+        final long startNumNodes = numNodes++;
+        final long key = position.getHash() ^ PLY_KEYS[pliesLeft];
+
+        if (isNodeLimitReached()) {
+            return;
+        }
+
+        final boolean isAttacker = (pliesLeft & 1) != 0;
+        final List<Move> legalMoves = position.getLegalMoves();
+
+        if (!isAttacker && pliesLeft == 0) {
+            // The defender is mated (proven) or escaped the mate within the number of
+            // plies (disproven).
+            if (legalMoves.isEmpty()) {
+                store(key, INFINITE, 0, 1);
+            } else {
+                store(key, 0, INFINITE, 1);
+            }
+
+            return;
+        }
+
+        // Generate the children: checking moves for the attacker and evasions for the
+        // defender.
+        final List<Position> children = new ArrayList<>(legalMoves.size());
+
+        for (Move move : legalMoves) {
+            final Position child = position.playTrustedMove(move);
+
+            if (!isAttacker || child.isCheck()) {
+                children.add(child);
+            }
+        }
+
+        if (children.isEmpty()) {
+            // The attacker has no checks (disproven) or the defender is mated (proven),
+            // i.e. the side to move loses.
+            store(key, INFINITE, 0, 1);
+            return;
+        }
+
+        final long[] childKeys = new long[children.size()];
+
+        for (int i = 0; i < childKeys.length; i++) {
+            childKeys[i] = children.get(i).getHash() ^ PLY_KEYS[pliesLeft - 1];
+        }
+
+        while (true) {
+            // Phi is the minimum delta of the children and delta is the sum of the phis of
+            // the children.
+            int phi = INFINITE;
+            int delta = 0;
+            int secondDelta = INFINITE;
+            int bestIndex = 0;
+            int bestPhi = 0;
+
+            for (int i = 0; i < childKeys.length; i++) {
+                final long childData = probe(childKeys[i]);
+                final int childPhi = getPhi(childData);
+                final int childDelta = getDelta(childData);
+
+                delta = Math.min(delta + childPhi, INFINITE);
+
+                if (childDelta < phi) {
+                    secondDelta = phi;
+                    phi = childDelta;
+                    bestIndex = i;
+                    bestPhi = childPhi;
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+
+            if (phi >= phiLimit || delta >= deltaLimit || isNodeLimitReached()) {
+                store(key, phi, delta, numNodes - startNumNodes);
+                return;
+            }
+
+            // Search the most proving child until it's no longer the most proving one.
+            final int childPhiLimit = Math.min(deltaLimit - delta + bestPhi, INFINITE);
+            final int childDeltaLimit = Math.min(phiLimit, secondDelta + 1);
+
+            search(children.get(bestIndex), pliesLeft - 1, childPhiLimit, childDeltaLimit);
+        }
+    }
+
+    /**
+     * Probe the table.
+     *
+     * @param key Entry key.
+     * @return Entry data (phi and delta are one if there is no entry).
+     */
+    private long probe(long key) {
+        final int bucketIndex = (int) (key & bucketMask) * NUM_LONGS_PER_BUCKET;
+
+        for (int i = bucketIndex; i < bucketIndex + NUM_LONGS_PER_BUCKET; i += NUM_LONGS_PER_ENTRY) {
+            if (table[i] == key && table[i + 1] != 0) {
+                return table[i + 1];
+            }
+        }
+
+        return packData(1, 1, 0);
+    }
+
+    /**
+     * Store an entry in the table, replacing the entry with the same key or else
+     * the entry of the bucket that took the least work.
+     *
+     * @param key   Entry key.
+     * @param phi   Phi of the node.
+     * @param delta Delta of the node.
+     * @param work  Number of nodes that were searched to compute the entry.
+     */
+    private void store(long key, int phi, int delta, long work) {
+        final int bucketIndex = (int) (key & bucketMask) * NUM_LONGS_PER_BUCKET;
+        int replaceIndex = bucketIndex;
+
+        for (int i = bucketIndex; i < bucketIndex + NUM_LONGS_PER_BUCKET; i += NUM_LONGS_PER_ENTRY) {
+            if (table[i] == key) {
+                replaceIndex = i;
+                break;
+            }
+
+            if (getWorkLog(table[i + 1]) < getWorkLog(table[replaceIndex + 1])) {
+                replaceIndex = i;
+            }
+        }
+
+        table[replaceIndex] = key;
+        table[replaceIndex + 1] = packData(phi, delta, 64 - Long.numberOfLeadingZeros(work));
+    }
+
+    /**
+     * Pack entry data.
+     *
+     * @param phi     Phi.
+     * @param delta   Delta.
+     * @param workLog Logarithm of the work (number of bits of the number of
+     *                searched nodes).
+     * @return Packed entry data.
+     */
+    private static long packData(int phi, int delta, int workLog) {
+        return phi | ((long) delta << NUMBER_BITS) | ((long) workLog << (2 * NUMBER_BITS));
+    }
+
+    /**
+     * @param data Entry data.
+     * @return Phi.
+     */
+    private static int getPhi(long data) {
+        return (int) (data & INFINITE);
+    }
+
+    /**
+     * @param data Entry data.
+     * @return Delta.
+     */
+    private static int getDelta(long data) {
+        return (int) ((data >>> NUMBER_BITS) & INFINITE);
+    }
+
+    /**
+     * @param data Entry data.
+     * @return Logarithm of the work.
+     */
+    private static int getWorkLog(long data) {
+        return (int) (data >>> (2 * NUMBER_BITS));
+    }
+}
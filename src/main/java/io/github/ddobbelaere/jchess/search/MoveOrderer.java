@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.PieceType;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Move ordering for the search.
+ *
+ * <p>
+ * Moves are searched in the following order:
+ * <ul>
+ * <li>The hash move (or the move of the previous principal variation).</li>
+ * <li>Captures and promotions, most valuable victim first and least valuable
+ * attacker first among equal victims (MVV-LVA).</li>
+ * <li>Killer moves: quiet moves that recently caused a cutoff at the same
+ * ply.</li>
+ * <li>Other quiet moves, ordered by their butterfly history score, i.e. how
+ * often the move (indexed by side to move and move index) caused a cutoff
+ * anywhere in the tree.</li>
+ * </ul>
+ *
+ * <p>
+ * All state is kept in primitive arrays that are allocated once. A move orderer
+ * is owned by a single search thread and is not thread safe.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+class MoveOrderer {
+    /**
+     * Maximum number of legal moves in a chess position.
+     */
+    static final int MAX_NUM_MOVES = 256;
+
+    /**
+     * Number of killer moves per ply.
+     */
+    private static final int NUM_KILLERS = 2;
+
+    /**
+     * Maximum absolute history score.
+     */
+    static final int MAX_HISTORY_SCORE = 1 << 14;
+
+    /**
+     * Score of the hash move.
+     */
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+
+    /**
+     * Base score of captures and promotions.
+     */
+    private static final int CAPTURE_SCORE = 1 << 29;
+
+    /**
+     * Score of the first killer move (the second killer move scores one less).
+     */
+    private static final int KILLER_SCORE = 1 << 28;
+
+    /**
+     * Moves to search, indexed by ply and move number.
+     */
+    private final Move[][] moves = new Move[Search.MAX_PLY + 1][MAX_NUM_MOVES];
+
+    /**
+     * Move scores, indexed by ply and move number.
+     */
+    private final int[][] moveScores = new int[Search.MAX_PLY + 1][MAX_NUM_MOVES];
+
+    /**
+     * Number of scored moves, indexed by ply.
+     */
+    private final int[] numMoves = new int[Search.MAX_PLY + 1];
+
+    /**
+     * Move indices of the killer moves, indexed by ply and killer number (zero if
+     * there is no killer move).
+     */
+    private final int[][] killers = new int[Search.MAX_PLY + 1][NUM_KILLERS];
+
+    /**
+     * Butterfly history scores, indexed by side to move (0 for white, 1 for black)
+     * and move index.
+     */
+    private final int[][] history = new int[2][Move.NUM_INDICES];
+
+    /**
+     * Prepare for a new search: clear the killer moves and age the history scores.
+     */
+    void newSearch() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = 0;
+            plyKillers[1] = 0;
+        }
+
+        for (int[] sideHistory : history) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * Score the legal moves of the position at the given ply. The moves can then
+     * be retrieved in order with {@link #getMove(int, int)}.
+     *
+     * @param position   Position at the given ply.
+     * @param legalMoves Legal moves of the position.
+     * @param hashMove   Move to search first ({@code null} if none).
+     * @param ply        Distance to the root (in plies).
+     * @return Number of moves.
+     */
+    int scoreMoves(Position position, List<Move> legalMoves, Move hashMove, int ply) {
+        final Move[] plyMoves = moves[ply];
+        final int[] plyMoveScores = moveScores[ply];
+        final int[] plyKillers = killers[ply];
+        final int[] sideHistory = history[position.isWhiteToMove() ? 0 : 1];
+        int numPlyMoves = 0;
+
+        for (Move move : legalMoves) {
+            final int moveIndex = move.getIndex();
+            int score;
+
+            if (move.equals(hashMove)) {
+                score = HASH_MOVE_SCORE;
+            } else if (isQuiet(position, move)) {
+                if (moveIndex == plyKillers[0]) {
+                    score = KILLER_SCORE;
+                } else if (moveIndex == plyKillers[1]) {
+                    score = KILLER_SCORE - 1;
+                } else {
+                    score = sideHistory[moveIndex];
+                }
+            } else {
+                score = CAPTURE_SCORE + getMvvLvaScore(position, move);
+            }
+
+            plyMoves[numPlyMoves] = move;
+            plyMoveScores[numPlyMoves] = score;
+            numPlyMoves++;
+        }
+
+        numMoves[ply] = numPlyMoves;
+
+        return numPlyMoves;
+    }
+
+    /**
+     * Get the next move to search at the given ply, i.e. the highest scored move
+     * among the moves that haven't been retrieved yet (selection sort step, such
+     * that moves after a cutoff are never sorted).
+     *
+     * @param ply        Distance to the root (in plies).
+     * @param moveNumber Number of moves that have been retrieved before.
+     * @return Next move to search.
+     */
+    Move getMove(int ply, int moveNumber) {
+        final Move[] plyMoves = moves[ply];
+        final int[] plyMoveScores = moveScores[ply];
+        int bestMoveNumber = moveNumber;
+
+        for (int i = moveNumber + 1; i < numMoves[ply]; i++) {
+            if (plyMoveScores[i] > plyMoveScores[bestMoveNumber]) {
+                bestMoveNumber = i;
+            }
+        }
+
+        // Swap the best move to the current move number.
+        final Move bestMove = plyMoves[bestMoveNumber];
+        final int bestMoveScore = plyMoveScores[bestMoveNumber];
+
+        plyMoves[bestMoveNumber] = plyMoves[moveNumber];
+        plyMoveScores[bestMoveNumber] = plyMoveScores[moveNumber];
+        plyMoves[moveNumber] = bestMove;
+        plyMoveScores[moveNumber] = bestMoveScore;
+
+        return bestMove;
+    }
+
+    /**
+     * Update the killer moves and history scores after a cutoff at the given ply.
+     *
+     * @param position   Position at the given ply.
+     * @param ply        Distance to the root (in plies).
+     * @param depth      Remaining depth of the node (in plies).
+     * @param moveNumber Move number of the move that caused the cutoff (all moves
+     *                   before it have been searched without cutoff).
+     */
+    void updateCutoff(Position position, int ply, int depth, int moveNumber) {
+        final Move[] plyMoves = moves[ply];
+        final Move cutoffMove = plyMoves[moveNumber];
+
+        // Only quiet moves are ordered by killers and history.
+        if (!isQuiet(position, cutoffMove)) {
+            return;
+        }
+
+        final int[] plyKillers = killers[ply];
+        final int cutoffMoveIndex = cutoffMove.getIndex();
+
+        if (plyKillers[0] != cutoffMoveIndex) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = cutoffMoveIndex;
+        }
+
+        // Reward the cutoff move and penalize the quiet moves that were searched
+        // before it.
+        final int[] sideHistory = history[position.isWhiteToMove() ? 0 : 1];
+        final int bonus = Math.min(depth * depth, MAX_HISTORY_SCORE);
+
+        updateHistory(sideHistory, cutoffMoveIndex, bonus);
+
+        for (int i = 0; i < moveNumber; i++) {
+            if (isQuiet(position, plyMoves[i])) {
+                updateHistory(sideHistory, plyMoves[i].getIndex(), -bonus);
+            }
+        }
+    }
+
+    /**
+     * Get the history score of a move.
+     *
+     * @param position Given position.
+     * @param move     Given move.
+     * @return History score.
+     */
+    int getHistoryScore(Position position, Move move) {
+        return history[position.isWhiteToMove() ? 0 : 1][move.getIndex()];
+    }
+
+    /**
+     * Update a history score, such that it stays between
+     * {@code -MAX_HISTORY_SCORE} and {@code MAX_HISTORY_SCORE} (large scores
+     * change less).
+     *
+     * @param sideHistory History scores of the side to move.
+     * @param moveIndex   Move index.
+     * @param bonus       Bonus (negative for a penalty).
+     */
+    private static void updateHistory(int[] sideHistory, int moveIndex, int bonus) {
+        sideHistory[moveIndex] += bonus - sideHistory[moveIndex] * Math.abs(bonus) / MAX_HISTORY_SCORE;
+    }
+
+    /**
+     * Get the MVV-LVA score of a capture or promotion.
+     *
+     * @param position Given position.
+     * @param move     Given capture or promotion.
+     * @return MVV-LVA score (higher is better).
+     */
+    private static int getMvvLvaScore(Position position, Move move) {
+        final PieceType capturedPieceType = position.getCapturedPieceType(move);
+        final int victimValue = (capturedPieceType == null) ? 0 : getPieceRank(capturedPieceType);
+
+        // Promotions rank as if a queen is captured additionally.
+        final int promotionValue = move.isPromotion() ? getPieceRank(PieceType.QUEEN) : 0;
+
+        return 8 * (victimValue + promotionValue) - getPieceRank(position.getMovePieceType(move));
+    }
+
+    /**
+     * Get the rank of a piece type in increasing order of value.
+     *
+     * @param pieceType Given piece type.
+     * @return Rank (pawn 1, knight 2, bishop 3, rook 4, queen 5 and king 6).
+     */
+    private static int getPieceRank(PieceType pieceType) {
+        switch (pieceType) {
+            case PAWN:
+                return 1;
+            case KNIGHT:
+                return 2;
+            case BISHOP:
+                return 3;
+            case ROOK:
+                return 4;
+            case QUEEN:
+                return 5;
+            default:
+                return 6;
+        }
+    }
+
+    /**
+     * Check if a move is quiet (neither a capture nor a promotion).
+     *
+     * @param position Given position.
+     * @param move     Given move.
+     * @return {@code true} if and only if the move is quiet.
+     */
+    static boolean isQuiet(Position position, Move move) {
+        return !move.isPromotion() && !position.isCapturingMove(move);
+    }
+}
@@ -0,0 +1,1145 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Nnue;
+import io.github.ddobbelaere.jchess.chess.NnueEvaluator;
+import io.github.ddobbelaere.jchess.chess.PawnHashTable;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Iterative deepening principal variation search (alpha-beta search in which
+ * all but the first move are searched with a null window first).
+ *
+ * <p>
+ * A search object holds per-search state and is not thread safe. Use one
+ * object per thread. The transposition table can however be shared by search
+ * objects of different threads, and a search can be stopped from another
+ * thread by calling {@link #stop()}.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class Search {
+    /**
+     * Maximum search depth (in plies).
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Score of being checkmated at the root. Being checkmated at ply {@code n}
+     * scores {@code -MATE_SCORE + n}, such that shorter mates are preferred.
+     */
+    public static final int MATE_SCORE = 32000;
+
+    /**
+     * Score that exceeds any reachable score.
+     */
+    private static final int INFINITE_SCORE = MATE_SCORE + 1;
+
+    /**
+     * Minimum remaining depth for null move pruning.
+     */
+    private static final int NULL_MOVE_MIN_DEPTH = 2;
+
+    /**
+     * Depth reduction of the search after a null move (in addition to the null
+     * move itself), which is increased by one every four plies of remaining depth.
+     */
+    private static final int NULL_MOVE_REDUCTION = 2;
+
+    /**
+     * Maximum remaining depth for (reverse) futility pruning.
+     */
+    private static final int FUTILITY_MAX_DEPTH = 3;
+
+    /**
+     * Futility margins (in centipawns), indexed by remaining depth: the maximum
+     * amount by which a quiet move is expected to improve the static evaluation.
+     */
+    private static final int[] FUTILITY_MARGINS = new int[] { 0, 150, 300, 500 };
+
+    /**
+     * Reverse futility margin per ply of remaining depth (in centipawns).
+     */
+    private static final int REVERSE_FUTILITY_MARGIN = 120;
+
+    /**
+     * Minimum remaining depth for late move reductions.
+     */
+    private static final int LATE_MOVE_REDUCTION_MIN_DEPTH = 3;
+
+    /**
+     * Number of moves of a node that are never reduced.
+     */
+    private static final int LATE_MOVE_REDUCTION_MIN_MOVE_NUMBER = 3;
+
+    /**
+     * Late move reductions (in plies), indexed by remaining depth and move number.
+     */
+    private static final int[][] LATE_MOVE_REDUCTIONS = new int[MAX_PLY + 1][MoveOrderer.MAX_NUM_MOVES];
+
+    /**
+     * Minimum depth of an iteration that is searched with an aspiration window.
+     */
+    private static final int ASPIRATION_WINDOW_MIN_DEPTH = 4;
+
+    /**
+     * Initial half width of an aspiration window (in centipawns).
+     */
+    private static final int ASPIRATION_WINDOW_DELTA = 25;
+
+    /**
+     * Default transposition table size (in megabytes).
+     */
+    public static final int DEFAULT_HASH_SIZE_MB = 16;
+
+    /**
+     * Pawn hash table size (in kilobytes).
+     */
+    private static final int PAWN_HASH_SIZE_KB = 256;
+
+    /**
+     * Transposition table (possibly shared with other search objects).
+     */
+    private final TranspositionTable transpositionTable;
+
+    /**
+     * Positions along the current search path, indexed by ply.
+     */
+    private final Position[] positions = new Position[MAX_PLY + 1];
+
+    /**
+     * Triangular principal variation table, indexed by ply.
+     */
+    private final Move[][] pvTable = new Move[MAX_PLY + 1][MAX_PLY + 1];
+
+    /**
+     * Principal variation lengths, indexed by ply.
+     */
+    private final int[] pvLengths = new int[MAX_PLY + 1];
+
+    /**
+     * Pawn hash table (private to this search object).
+     */
+    private final PawnHashTable pawnHashTable = new PawnHashTable(PAWN_HASH_SIZE_KB);
+
+    /**
+     * Neural network evaluator (null to use the classical evaluation).
+     */
+    private NnueEvaluator nnueEvaluator;
+
+    /**
+     * Listener that is notified of the result of each completed iteration (null
+     * if there is none).
+     */
+    private Consumer<SearchResult> iterationListener;
+
+    /**
+     * Move orderer.
+     */
+    private final MoveOrderer moveOrderer = new MoveOrderer();
+
+    /**
+     * Number of plies since the last null move on the search path, indexed by ply
+     * (at least {@link #MAX_PLY} if there is none).
+     */
+    private final int[] numPliesSinceNullMove = new int[MAX_PLY + 1];
+
+    /**
+     * Principal variation of the previous iteration (used for move ordering).
+     */
+    private Move[] previousPv = new Move[0];
+
+    /**
+     * The current node lies on the principal variation of the previous iteration.
+     */
+    private boolean isFollowingPv;
+
+    /**
+     * Number of searched nodes.
+     */
+    private long numNodes;
+
+    /**
+     * Time manager of the current (or last) search.
+     */
+    private TimeManager timeManager;
+
+    /**
+     * Maximum number of nodes of the current (or last) search.
+     */
+    private long maxNumNodes;
+
+    /**
+     * The current iteration has been aborted.
+     */
+    private boolean isAborted;
+
+    /**
+     * Stop has been requested (possibly from another thread).
+     */
+    private volatile boolean isStopRequested;
+
+    /**
+     * Number of plies that is added to the depth of each iteration. Helper threads
+     * of a {@link LazySmpSearch} use different offsets, such that they don't all
+     * search the same tree.
+     */
+    int depthOffset;
+
+    /**
+     * Captures with a negative static exchange evaluation are pruned in the
+     * quiescence search (can be disabled for testing).
+     */
+    boolean isSeePruningEnabled = true;
+
+    /**
+     * Null move pruning is enabled (can be disabled for testing).
+     */
+    boolean isNullMovePruningEnabled = true;
+
+    /**
+     * Late move reductions are enabled (can be disabled for testing).
+     */
+    boolean isLateMoveReductionEnabled = true;
+
+    /**
+     * Futility and reverse futility pruning are enabled (can be disabled for
+     * testing).
+     */
+    boolean isFutilityPruningEnabled = true;
+
+    /**
+     * Iterations are searched with aspiration windows (can be disabled for
+     * testing).
+     */
+    boolean isAspirationWindowEnabled = true;
+
+    static {
+        // Reduce more at higher depths and for moves that are ordered later.
+        for (int depth = 1; depth <= MAX_PLY; depth++) {
+            for (int moveNumber = 1; moveNumber < MoveOrderer.MAX_NUM_MOVES; moveNumber++) {
+                LATE_MOVE_REDUCTIONS[depth][moveNumber] = (int) (0.5 + Math.log(depth) * Math.log(moveNumber) / 2);
+            }
+        }
+    }
+
+    /**
+     * Construct with a private transposition table of the default size.
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_HASH_SIZE_MB));
+    }
+
+    /**
+     * Construct with the given (possibly shared) transposition table.
+     *
+     * @param transpositionTable Transposition table.
+     */
+    public Search(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * @return Transposition table.
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Set the neural network that is used to evaluate positions. This method must
+     * not be called during a search.
+     *
+     * @param network Neural network (null to use the classical evaluation).
+     */
+    public void setNetwork(Nnue network) {
+        nnueEvaluator = (network == null) ? null : new NnueEvaluator(network, MAX_PLY);
+    }
+
+    /**
+     * Set a listener that is notified of the result of each completed iteration
+     * (e.g. to report search progress). The listener is called from the search
+     * thread.
+     *
+     * @param iterationListener Iteration listener (null to remove it).
+     */
+    public void setIterationListener(Consumer<SearchResult> iterationListener) {
+        this.iterationListener = iterationListener;
+    }
+
+    /**
+     * @return Pawn hash table.
+     */
+    public PawnHashTable getPawnHashTable() {
+        return pawnHashTable;
+    }
+
+    /**
+     * Search the given position within the given limits.
+     *
+     * @param position Given root position.
+     * @param limits   Search limits.
+     * @return Result of the deepest completed iteration.
+     */
+    public SearchResult search(Position position, SearchLimits limits) {
+        isStopRequested = false;
+        transpositionTable.newSearch();
+
+        return iterativeDeepening(position, limits);
+    }
+
+    /**
+     * Search the given position within the given limits as one of a batch of
+     * searches that share the transposition table (e.g. the positions of many
+     * games that are analyzed by several threads). Unlike
+     * {@link #search(Position, SearchLimits)}, this doesn't signal a new search to
+     * the transposition table, such that the entries of the other searches of the
+     * batch are not aged. Call {@link TranspositionTable#newSearch()} once per
+     * batch instead.
+     *
+     * <p>
+     * If the searches of the batch run concurrently, the result depends on the
+     * thread scheduling (even with a depth or node limit), as each search sees
+     * the entries that the others stored so far.
+     * </p>
+     *
+     * @param position Given root position.
+     * @param limits   Search limits.
+     * @return Result of the deepest completed iteration.
+     */
+    public SearchResult searchInBatch(Position position, SearchLimits limits) {
+        isStopRequested = false;
+
+        return iterativeDeepening(position, limits);
+    }
+
+    /**
+     * Search the given position within the given limits in Multi-PV mode: the
+     * best {@code numLines} root moves are searched, each with its own principal
+     * variation.
+     *
+     * <p>
+     * Each iteration searches all root moves in a single pass. Once enough lines
+     * are found, the other root moves are first searched with a null window
+     * around the score of the worst line, and only the moves that beat it are
+     * searched with the full window.
+     * </p>
+     *
+     * @param position Given root position.
+     * @param limits   Search limits.
+     * @param numLines Number of principal variations (at least one).
+     * @return Results of the deepest completed iteration, one per line (at most
+     *         the number of legal moves, or a single result without principal
+     *         variation if there are none), ranked by score.
+     */
+    public List<SearchResult> search(Position position, SearchLimits limits, int numLines) {
+        if (numLines < 1) {
+            throw new IllegalArgumentException("Number of lines " + numLines + " should be at least one.");
+        }
+
+        isStopRequested = false;
+        transpositionTable.newSearch();
+
+        return iterativeDeepening(position, limits, numLines);
+    }
+
+    /**
+     * Search the given position within the given limits in Multi-PV mode as one of
+     * a batch of searches that share the transposition table (see
+     * {@link #searchInBatch(Position, SearchLimits)} and
+     * {@link #search(Position, SearchLimits, int)}).
+     *
+     * @param position Given root position.
+     * @param limits   Search limits.
+     * @param numLines Number of principal variations (at least one).
+     * @return Results of the deepest completed iteration, ranked by score.
+     */
+    public List<SearchResult> searchInBatch(Position position, SearchLimits limits, int numLines) {
+        if (numLines < 1) {
+            throw new IllegalArgumentException("Number of lines " + numLines + " should be at least one.");
+        }
+
+        isStopRequested = false;
+
+        return iterativeDeepening(position, limits, numLines);
+    }
+
+    /**
+     * Search the given position within the given limits, without clearing a
+     * pending stop request and without signaling a new search to the
+     * transposition table (see {@link #search(Position, SearchLimits)}).
+     *
+     * @param position Given root position.
+     * @param limits   Search limits.
+     * @return Result of the deepest completed iteration.
+     */
+    SearchResult iterativeDeepening(Position position, SearchLimits limits) {
+        return iterativeDeepening(position, limits, 1).get(0);
+    }
+
+    /**
+     * Search the given position within the given limits in Multi-PV mode, without
+     * clearing a pending stop request and without signaling a new search to the
+     * transposition table (see {@link #search(Position, SearchLimits, int)}).
+     *
+     * @param position Given root position.
+     * @param limits   Search limits.
+     * @param numLines Number of principal variations (at least one).
+     * @return Results of the deepest completed iteration, ranked by score.
+     */
+    private List<SearchResult> iterativeDeepening(Position position, SearchLimits limits, int numLines) {
+        // Initialize the search state.
+        timeManager = new TimeManager(limits);
+        maxNumNodes = limits.hasNodeLimit() ? limits.getMaxNumNodes() : Long.MAX_VALUE;
+        numNodes = 0;
+        isAborted = false;
+        previousPv = new Move[0];
+        setPosition(0, position);
+        numPliesSinceNullMove[0] = MAX_PLY;
+        moveOrderer.newSearch();
+
+        // Handle positions without legal moves.
+        final int numLegalMoves = position.getLegalMoves().size();
+
+        if (numLegalMoves == 0) {
+            return Arrays.asList(new SearchResult(position.isCheck() ? -MATE_SCORE : 0, 0, new ArrayList<>(), 0, 0));
+        }
+
+        final int numSearchedLines = Math.min(numLines, numLegalMoves);
+        List<SearchResult> results = null;
+
+        for (int iteration = 1; iteration <= limits.getMaxDepth(); iteration++) {
+            final int depth = Math.min(iteration + depthOffset, limits.getMaxDepth());
+            final List<SearchResult> iterationResults;
+
+            if (numSearchedLines == 1) {
+                final SearchResult previousResult = (results != null) ? results.get(0) : null;
+
+                // Search with a narrow window around the score of the previous iteration
+                // (unless it's a mate score), which speeds up the search if the score
+                // doesn't change much.
+                final int score = (isAspirationWindowEnabled && depth >= ASPIRATION_WINDOW_MIN_DEPTH
+                        && previousResult != null && !isMateScore(previousResult.getScore()))
+                                ? searchWithAspirationWindow(previousResult.getScore(),
+                                        (alpha, beta) -> searchRoot(depth, alpha, beta))
+                                : searchRoot(depth, -INFINITE_SCORE, INFINITE_SCORE);
+
+                iterationResults = Arrays.asList(new SearchResult(score, depth,
+                        Arrays.asList(Arrays.copyOf(pvTable[0], pvLengths[0])), 0, 0));
+            } else {
+                iterationResults = searchRootLines(depth, numSearchedLines, results);
+            }
+
+            // Discard the results of an aborted iteration (the first iteration is never
+            // aborted, see shouldAbort()).
+            if (isAborted) {
+                break;
+            }
+
+            // All lines report the nodes and time of the full iteration.
+            results = new ArrayList<>();
+
+            for (SearchResult lineResult : iterationResults) {
+                results.add(new SearchResult(lineResult.getScore(), depth, lineResult.getPrincipalVariation(),
+                        numNodes, timeManager.getElapsedMillis()));
+            }
+
+            final SearchResult result = results.get(0);
+
+            previousPv = result.getPrincipalVariation().toArray(new Move[0]);
+
+            if (iterationListener != null) {
+                iterationListener.accept(result);
+            }
+
+            timeManager.update((previousPv.length > 0) ? previousPv[0] : null, result.getScore());
+
+            // Stop at the maximum depth, or early if a forced mate is found within the
+            // search depth (only if there is a single line) or if the soft time limit is
+            // reached.
+            if (depth == limits.getMaxDepth()
+                    || numSearchedLines == 1 && isMateScore(result.getScore())
+                            && MATE_SCORE - Math.abs(result.getScore()) <= depth
+                    || timeManager.isSoftLimitReached()) {
+                break;
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Search the root position with the given window.
+     *
+     * @param depth Search depth (in plies).
+     * @param alpha Lower bound of the search window.
+     * @param beta  Upper bound of the search window.
+     * @return Score of the root position.
+     */
+    private int searchRoot(int depth, int alpha, int beta) {
+        isFollowingPv = true;
+
+        return search(depth, alpha, beta, 0);
+    }
+
+    /**
+     * Search the root position in Multi-PV mode: all root moves are searched in a
+     * single pass, keeping the best lines found so far.
+     *
+     * <p>
+     * The root moves of the previous lines are searched first (following their
+     * principal variations), with an aspiration window around their previous
+     * score. Once enough lines are found, each other root move is searched with
+     * a null window around the score of the worst line, and only re-searched
+     * with a full window if it beats it.
+     * </p>
+     *
+     * @param depth           Search depth (in plies).
+     * @param numLines        Number of lines (at least two, at most the number
+     *                        of legal moves).
+     * @param previousResults Results of the previous iteration (null if there
+     *                        is none).
+     * @return Lines of the root position, ranked by score (undefined if the
+     *         iteration has been aborted).
+     */
+    private List<SearchResult> searchRootLines(int depth, int numLines, List<SearchResult> previousResults) {
+        final Position position = positions[0];
+        final List<Move> legalMoves = position.getLegalMoves();
+        final List<SearchResult> lines = new ArrayList<>();
+
+        numNodes++;
+
+        // Extend checks (as in search()).
+        final int searchDepth = position.isCheck() ? depth + 1 : depth;
+
+        // Search the root moves of the previous lines first (in rank order), and the
+        // other moves in the order of the move orderer.
+        final List<Move> rootMoves = new ArrayList<>();
+
+        if (previousResults != null) {
+            for (SearchResult previousResult : previousResults) {
+                rootMoves.add(previousResult.getPrincipalVariation().get(0));
+            }
+        }
+
+        final int numMoves = moveOrderer.scoreMoves(position, legalMoves, null, 0);
+
+        for (int i = 0; i < numMoves; i++) {
+            final Move move = moveOrderer.getMove(0, i);
+
+            if (!rootMoves.contains(move)) {
+                rootMoves.add(move);
+            }
+        }
+
+        for (int i = 0; i < rootMoves.size(); i++) {
+            final Move move = rootMoves.get(i);
+            final Position nextPosition = position.playTrustedMove(move);
+
+            setPosition(1, nextPosition);
+            numPliesSinceNullMove[1] = numPliesSinceNullMove[0] + 1;
+
+            // Follow the principal variation of the previous line with the same root
+            // move, if there is one.
+            final SearchResult previousLine = (previousResults != null && i < previousResults.size())
+                    ? previousResults.get(i)
+                    : null;
+
+            isFollowingPv = previousLine != null;
+
+            if (isFollowingPv) {
+                previousPv = previousLine.getPrincipalVariation().toArray(new Move[0]);
+            }
+
+            int score;
+            boolean isNewLine = true;
+
+            if (lines.size() < numLines) {
+                // Search with a narrow window around the score of the same line in the
+                // previous iteration (as for a single line).
+                if (isAspirationWindowEnabled && depth >= ASPIRATION_WINDOW_MIN_DEPTH && previousLine != null
+                        && !isMateScore(previousLine.getScore())) {
+                    score = searchWithAspirationWindow(previousLine.getScore(), (alpha, beta) -> {
+                        isFollowingPv = true;
+                        return -search(searchDepth - 1, -beta, -alpha, 1);
+                    });
+                } else {
+                    score = -search(searchDepth - 1, -INFINITE_SCORE, INFINITE_SCORE, 1);
+                }
+            } else {
+                // Try to prove that the move is not better than the worst line with a null
+                // window (and a reduced depth for quiet moves that are ordered late, as in
+                // search()), and only re-search with the full window if that fails.
+                final int alpha = lines.get(numLines - 1).getScore();
+                int reduction = 0;
+
+                if (isLateMoveReductionEnabled && !position.isCheck() && MoveOrderer.isQuiet(position, move)
+                        && !nextPosition.isCheck() && searchDepth >= LATE_MOVE_REDUCTION_MIN_DEPTH
+                        && i >= LATE_MOVE_REDUCTION_MIN_MOVE_NUMBER) {
+                    reduction = LATE_MOVE_REDUCTIONS[Math.min(searchDepth, MAX_PLY)][Math.min(i,
+                            MoveOrderer.MAX_NUM_MOVES - 1)] - 1;
+                    reduction = Math.max(0, Math.min(reduction, searchDepth - 2));
+                }
+
+                score = -search(searchDepth - 1 - reduction, -alpha - 1, -alpha, 1);
+
+                if (reduction > 0 && score > alpha && !isAborted) {
+                    score = -search(searchDepth - 1, -alpha - 1, -alpha, 1);
+                }
+
+                if (score > alpha && !isAborted) {
+                    score = -search(searchDepth - 1, -INFINITE_SCORE, -alpha, 1);
+                }
+
+                isNewLine = score > alpha;
+            }
+
+            if (isAborted) {
+                return lines;
+            }
+
+            if (!isNewLine) {
+                continue;
+            }
+
+            // Insert the line after the lines with a higher or equal score, and drop the
+            // worst line if there are too many.
+            final List<Move> pv = new ArrayList<>();
+
+            pv.add(move);
+            pv.addAll(Arrays.asList(pvTable[1]).subList(0, pvLengths[1]));
+
+            int index = lines.size();
+
+            while (index > 0 && lines.get(index - 1).getScore() < score) {
+                index--;
+            }
+
+            lines.add(index, new SearchResult(score, depth, pv, 0, 0));
+
+            if (lines.size() > numLines) {
+                lines.remove(numLines);
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Search with an aspiration window around the given expected score. The
+     * window is widened and the search is repeated as long as the score falls
+     * outside of it.
+     *
+     * @param expectedScore Expected score (typically the score of the previous
+     *                      iteration).
+     * @param windowSearch  Search that maps a window (lower and upper bound) to
+     *                      a score.
+     * @return Score (undefined if the iteration has been aborted).
+     */
+    private int searchWithAspirationWindow(int expectedScore, IntBinaryOperator windowSearch) {
+        int delta = ASPIRATION_WINDOW_DELTA;
+        int alpha = Math.max(expectedScore - delta, -INFINITE_SCORE);
+        int beta = Math.min(expectedScore + delta, INFINITE_SCORE);
+
+        while (true) {
+            final int score = windowSearch.applyAsInt(alpha, beta);
+
+            if (isAborted) {
+                return 0;
+            }
+
+            delta *= 2;
+
+            if (score <= alpha) {
+                // Fail low.
+                alpha = Math.max(expectedScore - delta, -INFINITE_SCORE);
+            } else if (score >= beta) {
+                // Fail high.
+                beta = Math.min(expectedScore + delta, INFINITE_SCORE);
+            } else {
+                return score;
+            }
+        }
+    }
+
+    /**
+     * Request the current search to stop as soon as possible. This method can be
+     * called from any thread. The search returns the result of the deepest
+     * completed iteration.
+     */
+    public void stop() {
+        isStopRequested = true;
+    }
+
+    /**
+     * Clear a pending stop request.
+     */
+    void clearStopRequest() {
+        isStopRequested = false;
+    }
+
+    /**
+     * @return Number of nodes searched so far by the current (or last) search,
+     *         including aborted iterations.
+     */
+    long getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Check if a score corresponds to a forced mate (for either side).
+     *
+     * @param score Given score.
+     * @return {@code true} if and only if the score corresponds to a forced mate.
+     */
+    public static boolean isMateScore(int score) {
+        return Math.abs(score) > MATE_SCORE - MAX_PLY;
+    }
+
+    /**
+     * Principal variation search of the position at the given ply.
+     *
+     * @param depth Remaining depth (in plies).
+     * @param alpha Lower bound of the search window.
+     * @param beta  Upper bound of the search window.
+     * @param ply   Distance to the root (in plies).
+     * @return Score of the position from the point of view of the side to move.
+     */
+    private int search(int depth, int alpha, int beta, final int ply) {
+        final Position position = positions[ply];
+
+        numNodes++;
+        pvLengths[ply] = 0;
+
+        if (shouldAbort()) {
+            isAborted = true;
+            return 0;
+        }
+
+        if (ply > 0 && isDraw(ply)) {
+            return 0;
+        }
+
+        // Probe the transposition table. Only cut off in null window nodes, such that
+        // the principal variation stays intact.
+        final long hash = position.getHash();
+        final long entry = transpositionTable.probe(hash);
+        final Move hashMove = TranspositionTable.getMove(entry);
+
+        if (entry != 0 && beta - alpha == 1 && TranspositionTable.getDepth(entry) >= depth) {
+            final int hashScore = fromTranspositionTableScore(TranspositionTable.getScore(entry), ply);
+            final int bound = TranspositionTable.getBound(entry);
+
+            if ((bound & TranspositionTable.BOUND_LOWER) != 0 && hashScore >= beta
+                    || (bound & TranspositionTable.BOUND_UPPER) != 0 && hashScore <= alpha) {
+                return hashScore;
+            }
+        }
+
+        // Remember the window and depth, which are stored in the transposition table.
+        final int originalAlpha = alpha;
+        final int originalDepth = depth;
+
+        final List<Move> legalMoves = position.getLegalMoves();
+
+        if (legalMoves.isEmpty()) {
+            // Checkmate or stalemate.
+            return position.isCheck() ? -MATE_SCORE + ply : 0;
+        }
+
+        final boolean isCheck = position.isCheck();
+        final boolean isPvNode = beta - alpha > 1;
+
+        // Extend checks, such that mates and check evasions are not cut off at the
+        // horizon.
+        if (isCheck) {
+            depth++;
+        }
+
+        if (depth <= 0 || ply == MAX_PLY) {
+            return quiescence(alpha, beta, ply);
+        }
+
+        // Search the move of the previous principal variation first, otherwise the
+        // hash move.
+        Move firstMove = hashMove;
+
+        if (isFollowingPv) {
+            isFollowingPv = ply < previousPv.length && legalMoves.contains(previousPv[ply]);
+
+            if (isFollowingPv) {
+                firstMove = previousPv[ply];
+            }
+        }
+
+        final int staticEval = isCheck ? -INFINITE_SCORE : evaluate(ply);
+
+        if (!isPvNode && !isCheck && !isFollowingPv && ply > 0 && !isMateScore(beta)) {
+            // Reverse futility pruning: assume that the side to move can keep a static
+            // evaluation that is well above beta near the horizon.
+            if (isFutilityPruningEnabled && depth <= FUTILITY_MAX_DEPTH
+                    && staticEval - REVERSE_FUTILITY_MARGIN * depth >= beta) {
+                return staticEval;
+            }
+
+            // Null move pruning: if passing the turn to the opponent still fails high with
+            // a reduced search, a real move will most likely fail high too. This is not
+            // done after a null move, and not without pieces (to avoid zugzwang issues).
+            if (isNullMovePruningEnabled && depth >= NULL_MOVE_MIN_DEPTH && staticEval >= beta
+                    && numPliesSinceNullMove[ply] > 0 && position.hasNonPawnMaterial()) {
+                setPosition(ply + 1, position.playNullMove());
+                numPliesSinceNullMove[ply + 1] = 0;
+
+                final int reduction = NULL_MOVE_REDUCTION + depth / 4;
+                final int score = -search(depth - 1 - reduction, -beta, -beta + 1, ply + 1);
+
+                if (isAborted) {
+                    return 0;
+                }
+
+                if (score >= beta) {
+                    // Don't return unproven mate scores.
+                    return isMateScore(score) ? beta : score;
+                }
+            }
+        }
+
+        final int numMoves = moveOrderer.scoreMoves(position, legalMoves, firstMove, ply);
+        int bestScore = -INFINITE_SCORE;
+        Move bestMove = null;
+
+        for (int i = 0; i < numMoves; i++) {
+            final Move move = moveOrderer.getMove(ply, i);
+            final Position nextPosition = position.playTrustedMove(move);
+
+            setPosition(ply + 1, nextPosition);
+            numPliesSinceNullMove[ply + 1] = numPliesSinceNullMove[ply] + 1;
+
+            // Quiet moves that don't give check (if not in check) are candidates for
+            // pruning and reductions.
+            final boolean isQuietMove = !isCheck && MoveOrderer.isQuiet(position, move) && !nextPosition.isCheck();
+
+            // Futility pruning: skip quiet moves near the horizon if the static evaluation
+            // is so far below alpha that they are unlikely to raise it.
+            if (isFutilityPruningEnabled && i > 0 && isQuietMove && depth <= FUTILITY_MAX_DEPTH
+                    && !isMateScore(alpha) && staticEval + FUTILITY_MARGINS[depth] <= alpha) {
+                bestScore = Math.max(bestScore, staticEval + FUTILITY_MARGINS[depth]);
+                continue;
+            }
+
+            int score;
+
+            if (i == 0) {
+                // Search the first move with the full window.
+                score = -search(depth - 1, -beta, -alpha, ply + 1);
+
+                // Only the first move of a node can lie on the previous principal variation.
+                isFollowingPv = false;
+            } else {
+                // Late move reductions: search quiet moves that are ordered late with a
+                // reduced depth, and only re-search with the full depth if that fails.
+                int reduction = 0;
+
+                if (isLateMoveReductionEnabled && isQuietMove && depth >= LATE_MOVE_REDUCTION_MIN_DEPTH
+                        && i >= LATE_MOVE_REDUCTION_MIN_MOVE_NUMBER) {
+                    reduction = LATE_MOVE_REDUCTIONS[Math.min(depth, MAX_PLY)][Math.min(i,
+                            MoveOrderer.MAX_NUM_MOVES - 1)];
+
+                    // Reduce less in principal variation nodes.
+                    if (isPvNode) {
+                        reduction--;
+                    }
+
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+
+                // Try to prove that the other moves are worse with a null window, and only
+                // re-search with the full window if that fails.
+                score = -search(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1);
+
+                if (reduction > 0 && score > alpha) {
+                    score = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+                }
+
+                if (score > alpha && score < beta) {
+                    score = -search(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+
+            if (isAborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(move, ply);
+
+                    if (alpha >= beta) {
+                        moveOrderer.updateCutoff(position, ply, depth, i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Store the result in the transposition table.
+        final int bound = (bestScore >= beta) ? TranspositionTable.BOUND_LOWER
+                : (bestScore > originalAlpha) ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+
+        transpositionTable.store(hash, bestMove, toTranspositionTableScore(bestScore, ply), originalDepth, bound);
+
+        return bestScore;
+    }
+
+    /**
+     * Quiescence search of the position at the given ply: only captures and
+     * promotions are searched (or all check evasions if it's check), such that
+     * the position is only evaluated statically if it's quiet.
+     *
+     * <p>
+     * Moves are ordered by their static exchange evaluation, and moves that lose
+     * material according to it are pruned.
+     * </p>
+     *
+     * @param alpha Lower bound of the search window.
+     * @param beta  Upper bound of the search window.
+     * @param ply   Distance to the root (in plies).
+     * @return Score of the position from the point of view of the side to move.
+     */
+    private int quiescence(int alpha, int beta, final int ply) {
+        final Position position = positions[ply];
+
+        numNodes++;
+        pvLengths[ply] = 0;
+
+        if (shouldAbort()) {
+            isAborted = true;
+            return 0;
+        }
+
+        final boolean isCheck = position.isCheck();
+        final List<Move> legalMoves = position.getLegalMoves();
+
+        if (isCheck && legalMoves.isEmpty()) {
+            return -MATE_SCORE + ply;
+        }
+
+        if (ply == MAX_PLY) {
+            return evaluate(ply);
+        }
+
+        int bestScore = -INFINITE_SCORE;
+
+        if (!isCheck) {
+            // The side to move can "stand pat", i.e. decline to capture.
+            bestScore = evaluate(ply);
+
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        // Collect the moves to search with their static exchange evaluation.
+        final Move[] moves = new Move[legalMoves.size()];
+        final int[] moveScores = new int[legalMoves.size()];
+        int numMoves = 0;
+
+        for (Move move : legalMoves) {
+            final boolean isTactical = position.isCapturingMove(move) || move.isPromotion();
+
+            if (!isCheck && !isTactical) {
+                continue;
+            }
+
+            final int moveScore = isTactical ? position.getStaticExchangeEvaluation(move) : 0;
+
+            if (!isCheck && isSeePruningEnabled && moveScore < 0) {
+                continue;
+            }
+
+            // Insert the move, sorted by decreasing static exchange evaluation.
+            int i = numMoves++;
+
+            while (i > 0 && moveScores[i - 1] < moveScore) {
+                moves[i] = moves[i - 1];
+                moveScores[i] = moveScores[i - 1];
+                i--;
+            }
+
+            moves[i] = move;
+            moveScores[i] = moveScore;
+        }
+
+        for (int i = 0; i < numMoves; i++) {
+            setPosition(ply + 1, position.playTrustedMove(moves[i]));
+
+            final int score = -quiescence(-beta, -alpha, ply + 1);
+
+            if (isAborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+
+                if (score > alpha) {
+                    alpha = score;
+
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Set the position at the given ply of the search path.
+     *
+     * @param ply      Distance to the root (in plies).
+     * @param position Position that results from the position at the previous ply
+     *                 by a single (possibly null) move.
+     */
+    private void setPosition(int ply, Position position) {
+        positions[ply] = position;
+
+        if (nnueEvaluator != null) {
+            nnueEvaluator.setPosition(ply, position);
+        }
+    }
+
+    /**
+     * Statically evaluate the position at the given ply, with the neural network
+     * if there is one.
+     *
+     * @param ply Distance to the root (in plies).
+     * @return Score of the position from the point of view of the side to move.
+     */
+    private int evaluate(int ply) {
+        return (nnueEvaluator != null) ? nnueEvaluator.evaluate(ply) : positions[ply].evaluate(pawnHashTable);
+    }
+
+    /**
+     * Convert a score to be stored in the transposition table. Mate scores are
+     * stored relative to the node instead of the root.
+     *
+     * @param score Score relative to the root.
+     * @param ply   Distance of the node to the root (in plies).
+     * @return Score relative to the node.
+     */
+    private static int toTranspositionTableScore(int score, int ply) {
+        if (isMateScore(score)) {
+            return (score > 0) ? score + ply : score - ply;
+        }
+
+        return score;
+    }
+
+    /**
+     * Convert a score from the transposition table (inverse of
+     * {@link #toTranspositionTableScore(int, int)}).
+     *
+     * @param score Score relative to the node.
+     * @param ply   Distance of the node to the root (in plies).
+     * @return Score relative to the root.
+     */
+    private static int fromTranspositionTableScore(int score, int ply) {
+        if (isMateScore(score)) {
+            return (score > 0) ? score - ply : score + ply;
+        }
+
+        return score;
+    }
+
+    /**
+     * Update the principal variation at the given ply with a new best move
+     * followed by the principal variation of the child node.
+     *
+     * @param move Best move.
+     * @param ply  Distance to the root (in plies).
+     */
+    private void updatePv(Move move, int ply) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLengths[ply + 1]);
+        pvLengths[ply] = pvLengths[ply + 1] + 1;
+    }
+
+    /**
+     * Check if the position at the given ply is a draw by the fifty-move rule or
+     * by repetition of a position on the search path.
+     *
+     * @param ply Distance to the root (in plies, strictly positive).
+     * @return {@code true} if and only if the position is a draw.
+     */
+    private boolean isDraw(int ply) {
+        final Position position = positions[ply];
+        final int numReversiblePlies = position.getNumNoCaptureOrPawnAdvancePlies();
+
+        if (numReversiblePlies >= 100) {
+            return true;
+        }
+
+        // Only positions with the same side to move since the last irreversible move
+        // (or null move) can be repeated.
+        final int numPlies = Math.min(numReversiblePlies, numPliesSinceNullMove[ply]);
+
+        for (int i = ply - 4; i >= Math.max(0, ply - numPlies); i -= 2) {
+            if (positions[i].getHash() == position.getHash()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if the search should be aborted because of a stop request, the time
+     * limit or the node limit. The first iteration is never aborted, such that
+     * there is always a best move.
+     *
+     * @return {@code true} if and only if the search should be aborted.
+     */
+    private boolean shouldAbort() {
+        if (previousPv.length == 0) {
+            return false;
+        }
+
+        if (isAborted || isStopRequested) {
+            return true;
+        }
+
+        return numNodes >= maxNumNodes || timeManager.isHardLimitReached(numNodes);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+/**
+ * Limits of a search: maximum depth, maximum time and/or maximum number of
+ * nodes.
+ *
+ * <p>
+ * Besides the maximum (hard) time limit, limits that are allocated from a
+ * clock by the {@link TimeManager} have a soft time limit: no new iteration
+ * is started once it is reached, and it is scaled depending on the stability
+ * of the search.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class SearchLimits {
+    /**
+     * Maximum search depth (in plies).
+     */
+    private final int maxDepth;
+
+    /**
+     * Maximum search time (in milliseconds), zero if there is no time limit.
+     */
+    private final long maxTimeMillis;
+
+    /**
+     * Soft search time limit (in milliseconds), equal to the maximum search time
+     * if there is no separate soft limit.
+     */
+    private final long softTimeMillis;
+
+    /**
+     * Maximum number of searched nodes, zero if there is no node limit.
+     */
+    private final long maxNumNodes;
+
+    /**
+     * Construct with given maximum depth and maximum time.
+     *
+     * @param maxDepth      Maximum search depth (in plies, at least one).
+     * @param maxTimeMillis Maximum search time (in milliseconds), zero if there is
+     *                      no time limit.
+     */
+    public SearchLimits(int maxDepth, long maxTimeMillis) {
+        this(maxDepth, maxTimeMillis, maxTimeMillis);
+    }
+
+    /**
+     * Construct with given maximum depth, maximum time and soft time limit.
+     *
+     * @param maxDepth       Maximum search depth (in plies, at least one).
+     * @param maxTimeMillis  Maximum search time (in milliseconds), zero if there
+     *                       is no time limit.
+     * @param softTimeMillis Soft search time limit (in milliseconds, at most the
+     *                       maximum search time).
+     */
+    SearchLimits(int maxDepth, long maxTimeMillis, long softTimeMillis) {
+        this(maxDepth, maxTimeMillis, softTimeMillis, 0);
+    }
+
+    /**
+     * Construct with given maximum depth, maximum time, soft time limit and
+     * maximum number of nodes.
+     *
+     * @param maxDepth       Maximum search depth (in plies, at least one).
+     * @param maxTimeMillis  Maximum search time (in milliseconds), zero if there
+     *                       is no time limit.
+     * @param softTimeMillis Soft search time limit (in milliseconds, at most the
+     *                       maximum search time).
+     * @param maxNumNodes    Maximum number of searched nodes, zero if there is no
+     *                       node limit.
+     */
+    private SearchLimits(int maxDepth, long maxTimeMillis, long softTimeMillis, long maxNumNodes) {
+        if (maxDepth < 1 || maxDepth > Search.MAX_PLY) {
+            throw new IllegalArgumentException(
+                    "Maximum depth " + maxDepth + " should be between 1 and " + Search.MAX_PLY + ".");
+        }
+
+        if (maxTimeMillis < 0) {
+            throw new IllegalArgumentException("Maximum time " + maxTimeMillis + " should not be negative.");
+        }
+
+        if (softTimeMillis < 0 || softTimeMillis > maxTimeMillis) {
+            throw new IllegalArgumentException(
+                    "Soft time limit " + softTimeMillis + " should be between 0 and " + maxTimeMillis + ".");
+        }
+
+        if (maxNumNodes < 0) {
+            throw new IllegalArgumentException("Maximum number of nodes " + maxNumNodes + " should not be negative.");
+        }
+
+        this.maxDepth = maxDepth;
+        this.maxTimeMillis = maxTimeMillis;
+        this.softTimeMillis = softTimeMillis;
+        this.maxNumNodes = maxNumNodes;
+    }
+
+    /**
+     * Get limits with only a maximum depth.
+     *
+     * @param maxDepth Maximum search depth (in plies).
+     * @return Search limits.
+     */
+    public static SearchLimits depth(int maxDepth) {
+        return new SearchLimits(maxDepth, 0);
+    }
+
+    /**
+     * Get limits with only a maximum time.
+     *
+     * @param maxTimeMillis Maximum search time (in milliseconds).
+     * @return Search limits.
+     */
+    public static SearchLimits time(long maxTimeMillis) {
+        return new SearchLimits(Search.MAX_PLY, maxTimeMillis);
+    }
+
+    /**
+     * Get limits with only a maximum number of nodes. The search completes at
+     * least one iteration, even if it exceeds the node limit.
+     *
+     * <p>
+     * The result only depends on the position if the transposition table isn't
+     * shared: searches that run concurrently on a shared table (the threads of
+     * a {@link LazySmpSearch} or a batch of searches) see each other's entries,
+     * such that the result depends on the thread scheduling.
+     * </p>
+     *
+     * @param maxNumNodes Maximum number of searched nodes (at least one).
+     * @return Search limits.
+     */
+    public static SearchLimits nodes(long maxNumNodes) {
+        if (maxNumNodes < 1) {
+            throw new IllegalArgumentException("Maximum number of nodes " + maxNumNodes + " should be at least one.");
+        }
+
+        return new SearchLimits(Search.MAX_PLY, 0, 0, maxNumNodes);
+    }
+
+    /**
+     * @return Maximum search depth (in plies).
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return Maximum search time (in milliseconds), zero if there is no time
+     *         limit.
+     */
+    public long getMaxTimeMillis() {
+        return maxTimeMillis;
+    }
+
+    /**
+     * @return Soft search time limit (in milliseconds), equal to the maximum
+     *         search time if there is no separate soft limit.
+     */
+    public long getSoftTimeMillis() {
+        return softTimeMillis;
+    }
+
+    /**
+     * @return {@code true} if and only if there is a soft time limit below the
+     *         maximum search time.
+     */
+    public boolean hasSoftTimeLimit() {
+        return softTimeMillis < maxTimeMillis;
+    }
+
+    /**
+     * @return {@code true} if and only if there is a time limit.
+     */
+    public boolean hasTimeLimit() {
+        return maxTimeMillis != 0;
+    }
+
+    /**
+     * @return Maximum number of searched nodes, zero if there is no node limit.
+     */
+    public long getMaxNumNodes() {
+        return maxNumNodes;
+    }
+
+    /**
+     * @return {@code true} if and only if there is a node limit.
+     */
+    public boolean hasNodeLimit() {
+        return maxNumNodes != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + maxDepth + (hasSoftTimeLimit() ? ", soft time " + softTimeMillis + " ms" : "")
+                + (hasTimeLimit() ? ", time " + maxTimeMillis + " ms" : "")
+                + (hasNodeLimit() ? ", nodes " + maxNumNodes : "");
+    }
+}
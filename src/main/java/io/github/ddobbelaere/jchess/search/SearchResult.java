@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+
+/**
+ * Result of a search: best move, score and principal variation of the deepest
+ * completed iteration.
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class SearchResult {
+    /**
+     * Score in centipawns from the point of view of the side to move.
+     */
+    private final int score;
+
+    /**
+     * Depth (in plies) of the deepest completed iteration.
+     */
+    private final int depth;
+
+    /**
+     * Unmodifiable principal variation (starting with the best move).
+     */
+    private final List<Move> principalVariation;
+
+    /**
+     * Number of searched nodes.
+     */
+    private final long numNodes;
+
+    /**
+     * Elapsed time (in milliseconds).
+     */
+    private final long timeMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param score              Score in centipawns from the point of view of the
+     *                           side to move.
+     * @param depth              Depth (in plies) of the deepest completed
+     *                           iteration.
+     * @param principalVariation Principal variation (starting with the best move).
+     * @param numNodes           Number of searched nodes.
+     * @param timeMillis         Elapsed time (in milliseconds).
+     */
+    SearchResult(int score, int depth, List<Move> principalVariation, long numNodes, long timeMillis) {
+        this.score = score;
+        this.depth = depth;
+        this.principalVariation = Collections.unmodifiableList(principalVariation);
+        this.numNodes = numNodes;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * @return Best move, or {@code null} if there are no legal moves.
+     */
+    public Move getBestMove() {
+        return principalVariation.isEmpty() ? null : principalVariation.get(0);
+    }
+
+    /**
+     * @return Score in centipawns from the point of view of the side to move (see
+     *         {@link Search#isMateScore(int)} for mate scores).
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Depth (in plies) of the deepest completed iteration.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return Unmodifiable principal variation (starting with the best move).
+     */
+    public List<Move> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    /**
+     * @return Number of searched nodes.
+     */
+    public long getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * @return Elapsed time (in milliseconds).
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("depth ").append(depth).append(" score ").append(score).append(" nodes ").append(numNodes)
+                .append(" time ").append(timeMillis).append(" pv");
+
+        for (Move move : principalVariation) {
+            sb.append(' ').append(move);
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+
+/**
+ * Time manager that allocates the time of a move from the clock and decides
+ * when a search has to stop.
+ *
+ * <p>
+ * The allocation (see {@link #allocate(int, long, long, int)}) consists of a
+ * soft and a hard time limit. The hard limit is never exceeded: it is checked
+ * during the search, but the clock is only read every
+ * {@value #NUM_NODES_BETWEEN_CLOCK_CHECKS} nodes. The soft limit is checked
+ * between iterations: no new iteration is started once it is reached. It is
+ * scaled after each iteration: an unstable best move or a dropping score
+ * extend it, a best move that remains stable over several iterations shortens
+ * it.
+ * </p>
+ *
+ * <p>
+ * A time manager tracks a single search and is not thread safe.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class TimeManager {
+    /**
+     * Number of moves until the next time control that is assumed if it's
+     * unknown.
+     */
+    public static final int DEFAULT_MOVES_TO_GO = 30;
+
+    /**
+     * Maximum number of moves until the next time control that is taken into
+     * account.
+     */
+    public static final int MAX_MOVES_TO_GO = 50;
+
+    /**
+     * Time that is kept in reserve to account for communication delays (in
+     * milliseconds).
+     */
+    public static final long MOVE_OVERHEAD_MILLIS = 50;
+
+    /**
+     * Number of nodes between two consecutive clock reads (a power of two).
+     */
+    static final int NUM_NODES_BETWEEN_CLOCK_CHECKS = 1024;
+
+    /**
+     * Ratio of the hard time limit to the soft time limit.
+     */
+    private static final int HARD_LIMIT_FACTOR = 5;
+
+    /**
+     * Maximum fraction of the remaining time that is allocated to a single move.
+     */
+    private static final double MAX_TIME_FRACTION = 0.8;
+
+    /**
+     * Soft time limit scale factors, indexed by the number of consecutive
+     * iterations that didn't change the best move.
+     */
+    private static final double[] STABILITY_FACTORS = { 1.4, 1.1, 0.9, 0.75, 0.6 };
+
+    /**
+     * Score drop (in centipawns) at which the soft time limit is scaled by the
+     * maximum factor {@code 1 + }{@value #MAX_SCORE_DROP_EXTENSION}.
+     */
+    private static final int MAX_SCORE_DROP = 100;
+
+    /**
+     * Maximum extension of the soft time limit because of a score drop (as a
+     * fraction of the soft time limit).
+     */
+    private static final double MAX_SCORE_DROP_EXTENSION = 0.5;
+
+    /**
+     * Search limits.
+     */
+    private final SearchLimits limits;
+
+    /**
+     * Time (as given by {@link System#nanoTime()}) at which the search started.
+     */
+    private final long startTimeNanos;
+
+    /**
+     * Time (as given by {@link System#nanoTime()}) at which the search has to stop,
+     * only used if there is a time limit.
+     */
+    private final long hardStopTimeNanos;
+
+    /**
+     * Soft time limit, scaled according to the stability of the search (in
+     * nanoseconds).
+     */
+    private long scaledSoftTimeNanos;
+
+    /**
+     * At least one iteration has been completed.
+     */
+    private boolean hasCompletedIteration;
+
+    /**
+     * Best move of the last completed iteration.
+     */
+    private Move previousBestMove;
+
+    /**
+     * Score of the last completed iteration.
+     */
+    private int previousScore;
+
+    /**
+     * Number of consecutive iterations that didn't change the best move.
+     */
+    private int numStableIterations;
+
+    /**
+     * Start tracking a search with the given limits.
+     *
+     * @param limits Search limits.
+     */
+    TimeManager(SearchLimits limits) {
+        this.limits = limits;
+        startTimeNanos = System.nanoTime();
+        hardStopTimeNanos = startTimeNanos + 1000000L * limits.getMaxTimeMillis();
+        scaledSoftTimeNanos = 1000000L * limits.getSoftTimeMillis();
+    }
+
+    /**
+     * Allocate the time of a move from the clock.
+     *
+     * @param maxDepth        Maximum search depth (in plies).
+     * @param timeMillis      Remaining time on the clock (in milliseconds).
+     * @param incrementMillis Increment per move (in milliseconds).
+     * @param movesToGo       Number of moves until the next time control (zero if
+     *                        unknown).
+     * @return Search limits with a soft and a hard time limit.
+     */
+    public static SearchLimits allocate(int maxDepth, long timeMillis, long incrementMillis, int movesToGo) {
+        final int numMoves = (movesToGo > 0) ? Math.min(movesToGo, MAX_MOVES_TO_GO) : DEFAULT_MOVES_TO_GO;
+        final long availableMillis = Math.max(1, timeMillis - MOVE_OVERHEAD_MILLIS);
+
+        // Spread the remaining time over the remaining moves and spend most of the
+        // increment, but never use (almost) all of the remaining time.
+        final long maxMillis = Math.max(1, (long) (MAX_TIME_FRACTION * availableMillis));
+        final long softMillis = Math.max(1,
+                Math.min(availableMillis / numMoves + 3 * incrementMillis / 4, maxMillis));
+        final long hardMillis = Math.min(HARD_LIMIT_FACTOR * softMillis, maxMillis);
+
+        return new SearchLimits(maxDepth, hardMillis, softMillis);
+    }
+
+    /**
+     * Check if the hard time limit is reached. The clock is only read if the
+     * number of nodes is a multiple of {@value #NUM_NODES_BETWEEN_CLOCK_CHECKS}.
+     *
+     * @param numNodes Number of nodes searched so far.
+     * @return {@code true} if and only if the hard time limit is reached.
+     */
+    boolean isHardLimitReached(long numNodes) {
+        return limits.hasTimeLimit() && (numNodes & (NUM_NODES_BETWEEN_CLOCK_CHECKS - 1)) == 0
+                && System.nanoTime() - hardStopTimeNanos >= 0;
+    }
+
+    /**
+     * Update the soft time limit after a completed iteration.
+     *
+     * @param bestMove Best move of the iteration (can be null).
+     * @param score    Score of the iteration.
+     */
+    void update(Move bestMove, int score) {
+        if (hasCompletedIteration) {
+            numStableIterations = (bestMove != null && bestMove.equals(previousBestMove))
+                    ? Math.min(numStableIterations + 1, STABILITY_FACTORS.length - 1)
+                    : 0;
+        }
+
+        final int scoreDrop = hasCompletedIteration ? Math.min(previousScore - score, MAX_SCORE_DROP) : 0;
+        final double scale = STABILITY_FACTORS[numStableIterations]
+                * (1 + MAX_SCORE_DROP_EXTENSION * Math.max(scoreDrop, 0) / MAX_SCORE_DROP);
+
+        scaledSoftTimeNanos = (long) (scale * 1000000L * limits.getSoftTimeMillis());
+        previousBestMove = bestMove;
+        previousScore = score;
+        hasCompletedIteration = true;
+    }
+
+    /**
+     * Check if the (scaled) soft time limit is reached, such that no new iteration
+     * should be started.
+     *
+     * @return {@code true} if and only if the soft time limit is reached.
+     */
+    boolean isSoftLimitReached() {
+        return limits.hasSoftTimeLimit() && System.nanoTime() - startTimeNanos >= getScaledSoftTimeNanos();
+    }
+
+    /**
+     * @return Soft time limit, scaled according to the stability of the search
+     *         and capped by the hard time limit (in nanoseconds).
+     */
+    long getScaledSoftTimeNanos() {
+        return Math.min(scaledSoftTimeNanos, 1000000L * limits.getMaxTimeMillis());
+    }
+
+    /**
+     * @return Time elapsed since the start of the search (in milliseconds).
+     */
+    long getElapsedMillis() {
+        return (System.nanoTime() - startTimeNanos) / 1000000L;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import java.util.Arrays;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+
+/**
+ * Fixed-size, lock-free transposition table that can be shared by many search
+ * threads.
+ *
+ * <p>
+ * The table is a single {@code long[]} divided into buckets of four entries
+ * (64 bytes, i.e. one cache line). Each entry consists of two longs: the
+ * position hash XORed with the entry data, followed by the entry data. Readers
+ * and writers do not synchronize. If a reader observes a torn entry (the two
+ * longs stem from different writes), the XOR of both longs doesn't match the
+ * position hash and the entry is treated as a miss.
+ * </p>
+ *
+ * <p>
+ * Entry data is packed into a single long (see {@link #probe(long)}) and
+ * decoded by static methods, such that probing doesn't allocate.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class TranspositionTable {
+    /**
+     * The stored score is an upper bound (fail-low).
+     */
+    public static final int BOUND_UPPER = 1;
+
+    /**
+     * The stored score is a lower bound (fail-high).
+     */
+    public static final int BOUND_LOWER = 2;
+
+    /**
+     * The stored score is exact.
+     */
+    public static final int BOUND_EXACT = BOUND_UPPER | BOUND_LOWER;
+
+    /**
+     * Number of entries per bucket.
+     */
+    private static final int NUM_ENTRIES_PER_BUCKET = 4;
+
+    /**
+     * Number of longs per entry.
+     */
+    private static final int NUM_LONGS_PER_ENTRY = 2;
+
+    /**
+     * Number of longs per bucket.
+     */
+    private static final int NUM_LONGS_PER_BUCKET = NUM_ENTRIES_PER_BUCKET * NUM_LONGS_PER_ENTRY;
+
+    /**
+     * Size of a bucket (in bytes).
+     */
+    private static final int BUCKET_SIZE = NUM_LONGS_PER_BUCKET * Long.BYTES;
+
+    /**
+     * Maximum table size (in megabytes), limited by the maximum array length.
+     */
+    public static final int MAX_SIZE_MB = 8192;
+
+    /**
+     * Table of entries.
+     */
+    private final long[] table;
+
+    /**
+     * Bit mask that maps a hash to a bucket index.
+     */
+    private final long bucketMask;
+
+    /**
+     * Generation of the current search (eight bits), used to prefer replacing
+     * entries of previous searches.
+     */
+    private int generation;
+
+    /**
+     * Construct a table of (at most) the given size. The number of buckets is
+     * rounded down to a power of two.
+     *
+     * @param sizeMb Table size (in megabytes, between 1 and {@link #MAX_SIZE_MB}).
+     */
+    public TranspositionTable(int sizeMb) {
+        if (sizeMb < 1 || sizeMb > MAX_SIZE_MB) {
+            throw new IllegalArgumentException(
+                    "Table size " + sizeMb + " MB should be between 1 and " + MAX_SIZE_MB + " MB.");
+        }
+
+        final long numBuckets = Long.highestOneBit((sizeMb * 1024L * 1024L) / BUCKET_SIZE);
+
+        // Stay within the maximum array length.
+        final long maxNumBuckets = Integer.highestOneBit(Integer.MAX_VALUE / NUM_LONGS_PER_BUCKET);
+
+        table = new long[(int) (NUM_LONGS_PER_BUCKET * Math.min(numBuckets, maxNumBuckets))];
+        bucketMask = table.length / NUM_LONGS_PER_BUCKET - 1;
+    }
+
+    /**
+     * @return Number of entries of the table.
+     */
+    public int getNumEntries() {
+        return table.length / NUM_LONGS_PER_ENTRY;
+    }
+
+    /**
+     * Clear all entries. This method must not be called during a search.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        generation = 0;
+    }
+
+    /**
+     * Signal the start of a new search, such that entries of previous searches are
+     * replaced first. This method must not be called during a search.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Probe the table.
+     *
+     * @param hash Position hash.
+     * @return Packed entry data (to be decoded with the static getters), or zero
+     *         if there is no entry for the given hash.
+     */
+    public long probe(long hash) {
+        final int bucketIndex = getBucketIndex(hash);
+
+        for (int i = bucketIndex; i < bucketIndex + NUM_LONGS_PER_BUCKET; i += NUM_LONGS_PER_ENTRY) {
+            final long data = table[i + 1];
+
+            if ((table[i] ^ data) == hash) {
+                return data;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Store an entry in the table.
+     *
+     * <p>
+     * An existing entry of the same position is always overwritten (but its move
+     * is kept if no move is given). Otherwise, the entry with the lowest depth is
+     * replaced, where entries of previous searches count as less deep.
+     * </p>
+     *
+     * @param hash  Position hash.
+     * @param move  Best move ({@code null} if unknown).
+     * @param score Score (between {@link Short#MIN_VALUE} and
+     *              {@link Short#MAX_VALUE}).
+     * @param depth Search depth (between 0 and 255).
+     * @param bound Bound type ({@link #BOUND_UPPER}, {@link #BOUND_LOWER} or
+     *              {@link #BOUND_EXACT}).
+     */
+    public void store(long hash, Move move, int score, int depth, int bound) {
+        final int bucketIndex = getBucketIndex(hash);
+        int moveIndex = (move == null) ? 0 : move.getIndex();
+        int replaceIndex = bucketIndex;
+        int lowestReplaceValue = Integer.MAX_VALUE;
+
+        for (int i = bucketIndex; i < bucketIndex + NUM_LONGS_PER_BUCKET; i += NUM_LONGS_PER_ENTRY) {
+            final long data = table[i + 1];
+
+            if ((table[i] ^ data) == hash) {
+                // Overwrite the entry of the same position.
+                if (moveIndex == 0) {
+                    moveIndex = (int) (data & 0x7FFF);
+                }
+
+                replaceIndex = i;
+                break;
+            }
+
+            // Empty entries are replaced first, then entries of previous searches and
+            // shallow entries.
+            final int replaceValue = (data == 0) ? Integer.MIN_VALUE
+                    : getDepth(data) - 8 * ((generation - (int) (data >>> 48)) & 0xFF);
+
+            if (replaceValue < lowestReplaceValue) {
+                lowestReplaceValue = replaceValue;
+                replaceIndex = i;
+            }
+        }
+
+        final long data = moveIndex | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40) | ((long) generation << 48);
+
+        table[replaceIndex] = hash ^ data;
+        table[replaceIndex + 1] = data;
+    }
+
+    /**
+     * Get the permille of entries that were written during the current search,
+     * estimated from the first thousand entries.
+     *
+     * @return Estimated permille of entries of the current search.
+     */
+    public int getHashfull() {
+        final int numSampledEntries = Math.min(1000, getNumEntries());
+        int numUsedEntries = 0;
+
+        for (int i = 0; i < numSampledEntries; i++) {
+            final long data = table[NUM_LONGS_PER_ENTRY * i + 1];
+
+            if (data != 0 && (int) (data >>> 48) == generation) {
+                numUsedEntries++;
+            }
+        }
+
+        return 1000 * numUsedEntries / numSampledEntries;
+    }
+
+    /**
+     * @param entry Packed entry data.
+     * @return Best move ({@code null} if unknown).
+     */
+    public static Move getMove(long entry) {
+        final int moveIndex = (int) (entry & 0x7FFF);
+
+        return (moveIndex == 0) ? null : Move.fromIndex(moveIndex);
+    }
+
+    /**
+     * @param entry Packed entry data.
+     * @return Score.
+     */
+    public static int getScore(long entry) {
+        return (short) (entry >>> 16);
+    }
+
+    /**
+     * @param entry Packed entry data.
+     * @return Search depth.
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * @param entry Packed entry data.
+     * @return Bound type.
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> 40) & 0b11;
+    }
+
+    /**
+     * Get the index in the table of the first long of the bucket of the given
+     * hash.
+     *
+     * @param hash Position hash.
+     * @return Table index of the bucket.
+     */
+    private int getBucketIndex(long hash) {
+        return (int) (hash & bucketMask) * NUM_LONGS_PER_BUCKET;
+    }
+}
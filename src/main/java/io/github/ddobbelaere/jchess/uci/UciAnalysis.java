@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Result of an analysis by an external UCI engine.
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class UciAnalysis {
+    /**
+     * Analyzed position.
+     */
+    private final Position position;
+
+    /**
+     * Best move, null if the engine reported no move (e.g. in a checkmate
+     * position).
+     */
+    private final Move bestMove;
+
+    /**
+     * Last reported search information with a score per principal variation
+     * (index i corresponds to multipv i + 1).
+     */
+    private final List<UciInfo> lines;
+
+    /**
+     * Construct with given fields.
+     *
+     * @param position Analyzed position.
+     * @param bestMove Best move (can be null).
+     * @param lines    Last reported search information per principal variation.
+     */
+    UciAnalysis(Position position, Move bestMove, List<UciInfo> lines) {
+        this.position = position;
+        this.bestMove = bestMove;
+        this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+    }
+
+    /**
+     * @return Analyzed position.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * @return Best move, null if the engine reported no move.
+     */
+    public Move getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return Last reported search information of the main principal variation,
+     *         null if the engine reported none.
+     */
+    public UciInfo getInfo() {
+        return lines.isEmpty() ? null : lines.get(0);
+    }
+
+    /**
+     * @return Last reported search information per principal variation
+     *         (unmodifiable, index i corresponds to multipv i + 1).
+     */
+    public List<UciInfo> getLines() {
+        return lines;
+    }
+
+    @Override
+    public String toString() {
+        return "bestmove " + bestMove + ", " + getInfo();
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.github.ddobbelaere.jchess.chess.IllegalFenException;
+import io.github.ddobbelaere.jchess.chess.IllegalMoveException;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.search.LazySmpSearch;
+import io.github.ddobbelaere.jchess.search.Search;
+import io.github.ddobbelaere.jchess.search.SearchLimits;
+import io.github.ddobbelaere.jchess.search.SearchResult;
+import io.github.ddobbelaere.jchess.search.TimeManager;
+import io.github.ddobbelaere.jchess.search.TranspositionTable;
+
+/**
+ * Chess engine that communicates with the Universal Chess Interface (UCI)
+ * protocol.
+ *
+ * <p>
+ * Commands are read by the thread that calls {@link #run()}, while searches
+ * run on a separate search thread. The reader thread hence keeps handling
+ * commands during a search, such that {@code stop}, {@code isready} and
+ * {@code quit} are answered promptly. Other commands that arrive during a
+ * search (such as {@code position} or {@code go}) first stop it.
+ * </p>
+ *
+ * <p>
+ * Supported commands: {@code uci}, {@code isready}, {@code ucinewgame},
+ * {@code setoption name Hash|Threads value ...},
+ * {@code position startpos|fen ... [moves ...]},
+ * {@code go [depth ...] [movetime ...] [wtime ...] [btime ...] [winc ...] [binc ...] [movestogo ...] [infinite]},
+ * {@code stop} and {@code quit}. Unknown commands are ignored, as required by
+ * the protocol.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class UciEngine {
+    /**
+     * Engine name.
+     */
+    public static final String NAME = "JChess";
+
+    /**
+     * Engine author.
+     */
+    public static final String AUTHOR = "Dieter Dobbelaere";
+
+    /**
+     * Maximum number of search threads.
+     */
+    public static final int MAX_THREADS = 256;
+
+    /**
+     * Reader of the commands.
+     */
+    private final BufferedReader reader;
+
+    /**
+     * Writer of the responses.
+     */
+    private final PrintStream writer;
+
+    /**
+     * Executor that runs the searches.
+     */
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "UCI search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Transposition table.
+     */
+    private TranspositionTable transpositionTable = new TranspositionTable(Search.DEFAULT_HASH_SIZE_MB);
+
+    /**
+     * Search.
+     */
+    private LazySmpSearch search = new LazySmpSearch(1, transpositionTable);
+
+    /**
+     * Result of the running (or last) search, null if no search has been started.
+     */
+    private Future<?> searchFuture;
+
+    /**
+     * Latch that is released by a {@code stop} command, such that an infinite
+     * search only reports its best move after being stopped.
+     */
+    private volatile CountDownLatch stopLatch = new CountDownLatch(0);
+
+    /**
+     * Stop has been requested for the running search.
+     */
+    private volatile boolean isStopRequested;
+
+    /**
+     * Position arguments of the last {@code position} command (the part before
+     * {@code moves}).
+     */
+    private String positionBase = "startpos";
+
+    /**
+     * Moves of the last {@code position} command.
+     */
+    private final List<String> positionMoves = new ArrayList<>();
+
+    /**
+     * Current position (the position of the last {@code position} command).
+     */
+    private Position position = Position.STARTING;
+
+    /**
+     * Construct with the given reader and writer.
+     *
+     * @param reader Reader of the commands.
+     * @param writer Writer of the responses.
+     */
+    public UciEngine(BufferedReader reader, PrintStream writer) {
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    /**
+     * Run an engine that communicates over standard input and output.
+     *
+     * @param args Ignored.
+     * @throws IOException If reading from standard input fails.
+     */
+    public static void main(String[] args) throws IOException {
+        new UciEngine(new BufferedReader(new InputStreamReader(System.in)), System.out).run();
+    }
+
+    /**
+     * Read and handle commands until {@code quit} is received or the input ends.
+     *
+     * @throws IOException If reading a command fails.
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (!handleCommand(line)) {
+                    break;
+                }
+            }
+        } finally {
+            finishSearch();
+            search.close();
+            searchExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Handle a single command.
+     *
+     * @param line Command line.
+     * @return {@code false} if and only if the engine should quit.
+     */
+    boolean handleCommand(String line) {
+        final String[] tokens = line.trim().split("\\s+");
+
+        switch (tokens[0]) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + Search.DEFAULT_HASH_SIZE_MB + " min 1 max "
+                        + TranspositionTable.MAX_SIZE_MB);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "ucinewgame":
+                finishSearch();
+                transpositionTable.clear();
+                break;
+            case "setoption":
+                finishSearch();
+                setOption(tokens);
+                break;
+            case "position":
+                finishSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                finishSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                return false;
+            default:
+                // Unknown commands are ignored.
+                break;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Current position.
+     */
+    Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Handle a {@code setoption} command.
+     *
+     * @param tokens Command tokens.
+     */
+    private void setOption(String[] tokens) {
+        final int nameIndex = Arrays.asList(tokens).indexOf("name");
+        final int valueIndex = Arrays.asList(tokens).indexOf("value");
+
+        if (nameIndex < 0 || valueIndex != nameIndex + 2 || valueIndex + 1 >= tokens.length) {
+            send("info string Invalid option.");
+            return;
+        }
+
+        final String name = tokens[nameIndex + 1];
+        final int value;
+
+        try {
+            value = Integer.parseInt(tokens[valueIndex + 1]);
+        } catch (NumberFormatException e) {
+            send("info string Invalid option value " + tokens[valueIndex + 1] + ".");
+            return;
+        }
+
+        if (name.equalsIgnoreCase("Hash") && value >= 1 && value <= TranspositionTable.MAX_SIZE_MB) {
+            transpositionTable = new TranspositionTable(value);
+            createSearch(search.getNumThreads());
+        } else if (name.equalsIgnoreCase("Threads") && value >= 1 && value <= MAX_THREADS) {
+            createSearch(value);
+        } else {
+            send("info string Unsupported option " + name + " with value " + value + ".");
+        }
+    }
+
+    /**
+     * Replace the search by a new one with the current transposition table.
+     *
+     * @param numThreads Number of threads.
+     */
+    private void createSearch(int numThreads) {
+        search.close();
+        search = new LazySmpSearch(numThreads, transpositionTable);
+    }
+
+    /**
+     * Handle a {@code position} command. If the command only appends moves to the
+     * move list of the previous command, only the appended moves are played on
+     * the previous position.
+     *
+     * @param tokens Command tokens.
+     */
+    private void setPosition(String[] tokens) {
+        int movesIndex = Arrays.asList(tokens).indexOf("moves");
+
+        if (movesIndex < 0) {
+            movesIndex = tokens.length;
+        }
+
+        final String base = String.join(" ", Arrays.copyOfRange(tokens, 1, movesIndex));
+        final List<String> moves = Arrays.asList(tokens).subList(Math.min(movesIndex + 1, tokens.length),
+                tokens.length);
+
+        Position newPosition;
+        int numReusedMoves = 0;
+
+        if (base.equals(positionBase) && moves.size() >= positionMoves.size()
+                && moves.subList(0, positionMoves.size()).equals(positionMoves)) {
+            // Continue from the previous position.
+            newPosition = position;
+            numReusedMoves = positionMoves.size();
+        } else if (base.equals("startpos")) {
+            newPosition = Position.STARTING;
+        } else if (base.startsWith("fen ")) {
+            try {
+                newPosition = Position.fromFen(base.substring(4));
+            } catch (IllegalFenException e) {
+                send("info string Invalid FEN string " + base.substring(4) + ".");
+                return;
+            }
+        } else {
+            send("info string Invalid position command.");
+            return;
+        }
+
+        for (String move : moves.subList(numReusedMoves, moves.size())) {
+            try {
+                newPosition = newPosition.playMove(new Move(move));
+            } catch (IllegalArgumentException | IllegalMoveException e) {
+                send("info string Illegal move " + move + ".");
+                return;
+            }
+        }
+
+        position = newPosition;
+        positionBase = base;
+        positionMoves.clear();
+        positionMoves.addAll(moves);
+    }
+
+    /**
+     * Handle a {@code go} command by starting a search on the search thread.
+     *
+     * @param tokens Command tokens.
+     */
+    private void go(String[] tokens) {
+        int depth = Search.MAX_PLY;
+        long moveTimeMillis = 0;
+        long[] timeMillis = new long[2];
+        long[] incrementMillis = new long[2];
+        int movesToGo = 0;
+        boolean isInfinite = tokens.length == 1;
+
+        try {
+            for (int i = 1; i < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case "depth":
+                        depth = Math.max(1, Math.min(Integer.parseInt(tokens[++i]), Search.MAX_PLY));
+                        break;
+                    case "movetime":
+                        moveTimeMillis = Math.max(1, Long.parseLong(tokens[++i]));
+                        break;
+                    case "wtime":
+                        timeMillis[0] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "btime":
+                        timeMillis[1] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "winc":
+                        incrementMillis[0] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "binc":
+                        incrementMillis[1] = Long.parseLong(tokens[++i]);
+                        break;
+                    case "movestogo":
+                        movesToGo = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "infinite":
+                        isInfinite = true;
+                        break;
+                    default:
+                        // Unsupported parameters are ignored.
+                        break;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            send("info string Invalid go command.");
+            return;
+        }
+
+        // Allocate time from the clock of the side to move, if given.
+        final int side = position.isWhiteToMove() ? 0 : 1;
+        final SearchLimits limits = (!isInfinite && moveTimeMillis == 0 && timeMillis[side] > 0)
+                ? TimeManager.allocate(depth, timeMillis[side], incrementMillis[side], movesToGo)
+                : new SearchLimits(depth, isInfinite ? 0 : moveTimeMillis);
+        final Position rootPosition = position;
+        final LazySmpSearch rootSearch = search;
+
+        final CountDownLatch latch = new CountDownLatch(isInfinite ? 1 : 0);
+
+        isStopRequested = false;
+        stopLatch = latch;
+
+        rootSearch.setIterationListener(result -> {
+            sendInfo(result);
+
+            // Honor a stop request that arrived before the search started.
+            if (isStopRequested) {
+                rootSearch.stop();
+            }
+        });
+
+        searchFuture = searchExecutor.submit(() -> {
+            final SearchResult result = rootSearch.search(rootPosition, limits);
+
+            // An infinite search only reports its best move after being stopped.
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            send("bestmove " + ((result.getBestMove() != null) ? result.getBestMove() : "0000"));
+        });
+    }
+
+    /**
+     * Stop the running search (if any).
+     */
+    private void stopSearch() {
+        isStopRequested = true;
+        search.stop();
+        stopLatch.countDown();
+    }
+
+    /**
+     * Stop the running search (if any) and wait until it has reported its best
+     * move. Commands that change the engine state call this first, such that
+     * they never block on an infinite search.
+     */
+    private void finishSearch() {
+        stopSearch();
+        waitForSearch();
+    }
+
+    /**
+     * Wait until the running search (if any) has finished.
+     */
+    private void waitForSearch() {
+        if (searchFuture == null) {
+            return;
+        }
+
+        try {
+            searchFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            send("info string Search failed: " + e.getCause());
+        }
+
+        searchFuture = null;
+    }
+
+    /**
+     * Send an info line with the result of a completed iteration.
+     *
+     * @param result Result of the iteration.
+     */
+    private void sendInfo(SearchResult result) {
+        final StringBuilder sb = new StringBuilder("info depth ").append(result.getDepth());
+        final int score = result.getScore();
+
+        if (Search.isMateScore(score)) {
+            // Mate scores are given in moves instead of plies.
+            sb.append(" score mate ")
+                    .append((score > 0) ? (Search.MATE_SCORE - score + 1) / 2 : -(Search.MATE_SCORE + score) / 2);
+        } else {
+            sb.append(" score cp ").append(score);
+        }
+
+        sb.append(" nodes ").append(result.getNumNodes());
+        sb.append(" nps ").append(result.getNumNodes() * 1000 / Math.max(1, result.getTimeMillis()));
+        sb.append(" time ").append(result.getTimeMillis());
+        sb.append(" hashfull ").append(transpositionTable.getHashfull());
+        sb.append(" pv");
+
+        for (Move move : result.getPrincipalVariation()) {
+            sb.append(" ").append(move);
+        }
+
+        send(sb.toString());
+    }
+
+    /**
+     * Send a line to the writer. This method is called from the reader thread and
+     * the search thread.
+     *
+     * @param line Given line.
+     */
+    private void send(String line) {
+        synchronized (writer) {
+            writer.println(line);
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,640 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import io.github.ddobbelaere.jchess.chess.IllegalMoveException;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.search.SearchLimits;
+
+/**
+ * Pool of external chess engine processes that are driven with the Universal
+ * Chess Interface (UCI) protocol.
+ *
+ * <p>
+ * Analysis jobs are queued and handed out to idle engines, which are reused
+ * across jobs (a job only costs a {@code position fen ...} and a {@code go ...}
+ * command, the engine process is never restarted unless it dies). The
+ * {@code info} lines of an engine are parsed into {@link UciInfo} instances and
+ * its {@code bestmove} line completes the future of the job.
+ * </p>
+ *
+ * <p>
+ * All communication with the engines is done by a single poller thread that
+ * only reads the output that is available without blocking. The pool hence
+ * scales to dozens of engine processes without a thread per process. The
+ * standard error output of the engines is discarded.
+ * </p>
+ *
+ * <p>
+ * Cancelling the future of a running job sends {@code stop} to its engine. An
+ * engine that dies is restarted and its running job (if any) completes
+ * exceptionally with an {@link IOException}. An engine that dies before
+ * answering {@code readyok} is not restarted.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class UciEnginePool implements AutoCloseable {
+    /**
+     * Time the poller thread sleeps if none of the engines has sent output (in
+     * nanoseconds).
+     */
+    private static final long POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Time an engine gets to exit after {@code quit} before it is destroyed (in
+     * milliseconds).
+     */
+    private static final long QUIT_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Null device, to which the error output of the engines is discarded
+     * ({@code ProcessBuilder.Redirect.DISCARD} requires Java 9).
+     */
+    private static final File NULL_FILE = new File(
+            System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+
+    /**
+     * Command (and arguments) that starts an engine process.
+     */
+    private final List<String> command;
+
+    /**
+     * UCI options that are set at the start of every engine process (name to
+     * value).
+     */
+    private final Map<String, String> options;
+
+    /**
+     * Engines.
+     */
+    private final Engine[] engines;
+
+    /**
+     * Jobs that still have to be handed out to an engine.
+     */
+    private final Queue<Job> pendingJobs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Thread that communicates with the engines.
+     */
+    private final Thread pollerThread;
+
+    /**
+     * The pool has been closed.
+     */
+    private volatile boolean isClosed;
+
+    /**
+     * Construct with given engine command and number of engines.
+     *
+     * @param command    Command (and arguments) that starts an engine process.
+     * @param numEngines Number of engine processes (at least one).
+     * @throws IOException If an engine process could not be started.
+     */
+    public UciEnginePool(List<String> command, int numEngines) throws IOException {
+        this(command, numEngines, Collections.emptyMap());
+    }
+
+    /**
+     * Construct with given engine command, number of engines and UCI options.
+     *
+     * @param command    Command (and arguments) that starts an engine process.
+     * @param numEngines Number of engine processes (at least one).
+     * @param options    UCI options that are set at the start of every engine
+     *                   process (name to value, e.g. {@code Hash} to {@code 16}).
+     * @throws IOException If an engine process could not be started.
+     */
+    public UciEnginePool(List<String> command, int numEngines, Map<String, String> options) throws IOException {
+        if (numEngines < 1) {
+            throw new IllegalArgumentException("Number of engines " + numEngines + " should be at least one.");
+        }
+
+        this.command = new ArrayList<>(command);
+        this.options = new LinkedHashMap<>(options);
+        engines = new Engine[numEngines];
+
+        try {
+            for (int i = 0; i < numEngines; i++) {
+                engines[i] = startEngine();
+            }
+        } catch (IOException e) {
+            for (Engine engine : engines) {
+                if (engine != null) {
+                    engine.process.destroyForcibly();
+                }
+            }
+
+            throw e;
+        }
+
+        pollerThread = new Thread(this::poll, "UCI engine pool");
+        pollerThread.setDaemon(true);
+        pollerThread.start();
+    }
+
+    /**
+     * Queue the analysis of a position.
+     *
+     * @param position     Position to analyze.
+     * @param goParameters Parameters of the {@code go} command (e.g.
+     *                     {@code depth 12} or {@code movetime 100}).
+     * @return Future result of the analysis (cancelled if the pool is closed
+     *         before the job completes).
+     */
+    public CompletableFuture<UciAnalysis> analyze(Position position, String goParameters) {
+        if (isClosed) {
+            throw new IllegalStateException("The engine pool is closed.");
+        }
+
+        final Job job = new Job(position, goParameters);
+
+        pendingJobs.add(job);
+        LockSupport.unpark(pollerThread);
+
+        // If the pool was closed concurrently, its final drain of the pending jobs
+        // may have missed this job: cancel it like the other pending jobs.
+        if (isClosed && pendingJobs.remove(job)) {
+            job.future.cancel(false);
+        }
+
+        return job.future;
+    }
+
+    /**
+     * Queue the analysis of a position.
+     *
+     * @param position Position to analyze.
+     * @param limits   Search limits.
+     * @return Future result of the analysis.
+     */
+    public CompletableFuture<UciAnalysis> analyze(Position position, SearchLimits limits) {
+        return analyze(position, getGoParameters(limits));
+    }
+
+    /**
+     * Get the parameters of the {@code go} command that correspond to the given
+     * search limits.
+     *
+     * @param limits Search limits.
+     * @return Parameters of the {@code go} command.
+     */
+    static String getGoParameters(SearchLimits limits) {
+        return "depth " + limits.getMaxDepth()
+                + (limits.hasTimeLimit() ? " movetime " + limits.getMaxTimeMillis() : "");
+    }
+
+    /**
+     * @return Number of engine processes.
+     */
+    public int getNumEngines() {
+        return engines.length;
+    }
+
+    /**
+     * Quit all engines. Jobs that have not completed yet are cancelled.
+     */
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+        LockSupport.unpark(pollerThread);
+
+        try {
+            pollerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Engine engine : engines) {
+            if (engine.job != null) {
+                engine.job.future.cancel(false);
+            }
+
+            try {
+                engine.send("quit");
+            } catch (IOException e) {
+                // The engine has already exited.
+            }
+        }
+
+        for (Engine engine : engines) {
+            try {
+                if (!engine.process.waitFor(QUIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    engine.process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                engine.process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for (Job job; (job = pendingJobs.poll()) != null;) {
+            job.future.cancel(false);
+        }
+    }
+
+    /**
+     * Start an engine process and send the initialization commands.
+     *
+     * @return Started engine.
+     * @throws IOException If the engine process could not be started.
+     */
+    private Engine startEngine() throws IOException {
+        final ProcessBuilder processBuilder = new ProcessBuilder(command);
+
+        processBuilder.redirectError(ProcessBuilder.Redirect.to(NULL_FILE));
+
+        final Engine engine = new Engine(processBuilder.start());
+
+        // Commands are pipelined: the engine handles them in order.
+        engine.send("uci");
+
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            engine.send("setoption name " + option.getKey() + " value " + option.getValue());
+        }
+
+        engine.send("isready");
+
+        return engine;
+    }
+
+    /**
+     * Communicate with the engines until the pool is closed (run by the poller
+     * thread).
+     */
+    private void poll() {
+        while (!isClosed) {
+            boolean hasReceivedOutput = false;
+            boolean hasLiveEngine = false;
+
+            for (int i = 0; i < engines.length; i++) {
+                final Engine engine = engines[i];
+
+                if (engine.isDead) {
+                    continue;
+                }
+
+                try {
+                    hasReceivedOutput |= engine.readAvailableLines();
+
+                    if (engine.job != null && engine.job.future.isCancelled() && !engine.isStopSent) {
+                        engine.send("stop");
+                        engine.isStopSent = true;
+                    }
+                } catch (IOException e) {
+                    // Handled below, as the process is no longer alive.
+                }
+
+                if (!engine.process.isAlive() && !engine.hasAvailableOutput()) {
+                    engines[i] = restartEngine(engine);
+                }
+
+                hasLiveEngine |= !engines[i].isDead;
+            }
+
+            if (!hasLiveEngine) {
+                for (Job job; (job = pendingJobs.poll()) != null;) {
+                    job.future.completeExceptionally(new IOException("No engine process is available."));
+                }
+            }
+
+            dispatchPendingJobs();
+
+            if (!hasReceivedOutput) {
+                LockSupport.parkNanos(POLL_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Handle the exit of an engine process.
+     *
+     * @param engine Engine whose process has exited.
+     * @return Engine that replaces the given engine (the given engine itself,
+     *         marked as dead, if it cannot be restarted).
+     */
+    private Engine restartEngine(Engine engine) {
+        engine.isDead = true;
+
+        if (engine.job != null) {
+            engine.job.future.completeExceptionally(
+                    new IOException("Engine process exited with code " + engine.process.exitValue() + "."));
+            engine.job = null;
+        }
+
+        if (!engine.hasBeenReady) {
+            return engine;
+        }
+
+        try {
+            return startEngine();
+        } catch (IOException e) {
+            return engine;
+        }
+    }
+
+    /**
+     * Hand out pending jobs to the idle engines.
+     */
+    private void dispatchPendingJobs() {
+        for (Engine engine : engines) {
+            if (engine.isDead || !engine.isReady || engine.job != null) {
+                continue;
+            }
+
+            Job job;
+
+            do {
+                job = pendingJobs.poll();
+            } while (job != null && job.future.isCancelled());
+
+            if (job == null) {
+                return;
+            }
+
+            try {
+                engine.start(job);
+            } catch (IOException e) {
+                // The job completes exceptionally when the engine exit is detected.
+            }
+        }
+    }
+
+    /**
+     * Analysis job.
+     */
+    private static class Job {
+        /**
+         * Position to analyze.
+         */
+        private final Position position;
+
+        /**
+         * Parameters of the {@code go} command.
+         */
+        private final String goParameters;
+
+        /**
+         * Future result.
+         */
+        private final CompletableFuture<UciAnalysis> future = new CompletableFuture<>();
+
+        /**
+         * Construct with given position and {@code go} parameters.
+         *
+         * @param position     Position to analyze.
+         * @param goParameters Parameters of the {@code go} command.
+         */
+        private Job(Position position, String goParameters) {
+            this.position = position;
+            this.goParameters = goParameters;
+        }
+    }
+
+    /**
+     * Engine process (only accessed by the poller thread, or by the closing
+     * thread once the poller thread has finished).
+     */
+    private static class Engine {
+        /**
+         * Engine process.
+         */
+        private final Process process;
+
+        /**
+         * Standard output of the engine.
+         */
+        private final InputStream input;
+
+        /**
+         * Standard input of the engine.
+         */
+        private final OutputStream output;
+
+        /**
+         * Buffer for reading the output of the engine.
+         */
+        private final byte[] readBuffer = new byte[8192];
+
+        /**
+         * Incomplete line of output.
+         */
+        private final StringBuilder lineBuilder = new StringBuilder();
+
+        /**
+         * Last reported search information with a score of the running job, per
+         * principal variation index.
+         */
+        private final SortedMap<Integer, UciInfo> lines = new TreeMap<>();
+
+        /**
+         * Running job, null if the engine is idle.
+         */
+        private Job job;
+
+        /**
+         * The engine has answered {@code readyok} and accepts jobs.
+         */
+        private boolean isReady;
+
+        /**
+         * The engine has answered {@code readyok} at least once.
+         */
+        private boolean hasBeenReady;
+
+        /**
+         * {@code stop} has been sent for the running job.
+         */
+        private boolean isStopSent;
+
+        /**
+         * The engine process has exited.
+         */
+        private boolean isDead;
+
+        /**
+         * Construct with given process.
+         *
+         * @param process Engine process.
+         */
+        private Engine(Process process) {
+            this.process = process;
+            input = process.getInputStream();
+            output = process.getOutputStream();
+        }
+
+        /**
+         * Send a command to the engine.
+         *
+         * @param command Given command.
+         * @throws IOException If an I/O error occurs.
+         */
+        private void send(String command) throws IOException {
+            output.write((command + "\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+        }
+
+        /**
+         * Start the given job.
+         *
+         * @param job Given job.
+         * @throws IOException If an I/O error occurs.
+         */
+        private void start(Job job) throws IOException {
+            this.job = job;
+            isStopSent = false;
+            lines.clear();
+
+            send("position fen " + job.position.getFen());
+            send("go " + job.goParameters);
+        }
+
+        /**
+         * @return {@code true} if and only if output can be read without blocking.
+         */
+        private boolean hasAvailableOutput() {
+            try {
+                return input.available() > 0;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Read and handle the output lines that are available without blocking.
+         *
+         * @return {@code true} if and only if any output has been read.
+         * @throws IOException If an I/O error occurs.
+         */
+        private boolean readAvailableLines() throws IOException {
+            boolean hasRead = false;
+
+            for (int numAvailable; (numAvailable = input.available()) > 0;) {
+                final int numRead = input.read(readBuffer, 0, Math.min(numAvailable, readBuffer.length));
+
+                if (numRead <= 0) {
+                    break;
+                }
+
+                hasRead = true;
+
+                for (int i = 0; i < numRead; i++) {
+                    final char c = (char) readBuffer[i];
+
+                    if (c == '\n') {
+                        handleLine(lineBuilder.toString().trim());
+                        lineBuilder.setLength(0);
+                    } else {
+                        lineBuilder.append(c);
+                    }
+                }
+            }
+
+            return hasRead;
+        }
+
+        /**
+         * Handle an output line of the engine.
+         *
+         * @param line Given line.
+         */
+        private void handleLine(String line) {
+            if (!isReady) {
+                if (line.equals("readyok")) {
+                    isReady = true;
+                    hasBeenReady = true;
+                }
+
+                // Identification and option lines are ignored.
+                return;
+            }
+
+            if (job == null) {
+                return;
+            }
+
+            if (line.startsWith("info ")) {
+                final UciInfo info = UciInfo.parse(line, job.position);
+
+                if (info != null && info.hasScore()) {
+                    lines.put(info.getMultiPv(), info);
+                }
+            } else if (line.startsWith("bestmove")) {
+                final Job finishedJob = job;
+                job = null;
+
+                completeJob(finishedJob, line);
+            }
+        }
+
+        /**
+         * Complete a job given the {@code bestmove} line of the engine.
+         *
+         * @param finishedJob  Finished job.
+         * @param bestMoveLine The {@code bestmove} line.
+         */
+        private void completeJob(Job finishedJob, String bestMoveLine) {
+            final String[] tokens = bestMoveLine.split("\\s+");
+            Move bestMove = null;
+
+            if (tokens.length > 1 && !tokens[1].equals("(none)") && !tokens[1].equals("0000")) {
+                try {
+                    bestMove = Move.valueOf(tokens[1]);
+                } catch (IllegalArgumentException e) {
+                    // Handled below.
+                }
+
+                if (bestMove == null || !finishedJob.position.isLegalMove(bestMove)) {
+                    finishedJob.future.completeExceptionally(new IllegalMoveException("Engine move " + tokens[1]
+                            + " is illegal in the position " + finishedJob.position.getFen()));
+                    return;
+                }
+            }
+
+            finishedJob.future
+                    .complete(new UciAnalysis(finishedJob.position, bestMove, new ArrayList<>(lines.values())));
+        }
+    }
+}
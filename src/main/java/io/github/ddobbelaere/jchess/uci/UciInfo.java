@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.IllegalMoveException;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Search information sent by a UCI engine (an {@code info} line).
+ *
+ * <p>
+ * Instances are immutable.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class UciInfo {
+    /**
+     * Search depth (in plies), zero if not given.
+     */
+    private final int depth;
+
+    /**
+     * Selective search depth (in plies), zero if not given.
+     */
+    private final int selectiveDepth;
+
+    /**
+     * Index of the principal variation (starting from one).
+     */
+    private final int multiPv;
+
+    /**
+     * The info line contains a score.
+     */
+    private final boolean hasScore;
+
+    /**
+     * Score in centipawns, or in moves if it's a mate score (from the point of
+     * view of the side to move).
+     */
+    private final int score;
+
+    /**
+     * The score is a mate score.
+     */
+    private final boolean isMateScore;
+
+    /**
+     * The score is only a lower bound.
+     */
+    private final boolean isLowerBound;
+
+    /**
+     * The score is only an upper bound.
+     */
+    private final boolean isUpperBound;
+
+    /**
+     * Number of searched nodes, zero if not given.
+     */
+    private final long numNodes;
+
+    /**
+     * Search time (in milliseconds), zero if not given.
+     */
+    private final long timeMillis;
+
+    /**
+     * Principal variation (only the leading moves that are legal in the analyzed
+     * position).
+     */
+    private final List<Move> principalVariation;
+
+    /**
+     * Construct with given fields.
+     *
+     * @param depth              Search depth.
+     * @param selectiveDepth     Selective search depth.
+     * @param multiPv            Index of the principal variation.
+     * @param hasScore           The info line contains a score.
+     * @param score              Score.
+     * @param isMateScore        The score is a mate score.
+     * @param isLowerBound       The score is only a lower bound.
+     * @param isUpperBound       The score is only an upper bound.
+     * @param numNodes           Number of searched nodes.
+     * @param timeMillis         Search time.
+     * @param principalVariation Principal variation.
+     */
+    private UciInfo(int depth, int selectiveDepth, int multiPv, boolean hasScore, int score, boolean isMateScore,
+            boolean isLowerBound, boolean isUpperBound, long numNodes, long timeMillis,
+            List<Move> principalVariation) {
+        this.depth = depth;
+        this.selectiveDepth = selectiveDepth;
+        this.multiPv = multiPv;
+        this.hasScore = hasScore;
+        this.score = score;
+        this.isMateScore = isMateScore;
+        this.isLowerBound = isLowerBound;
+        this.isUpperBound = isUpperBound;
+        this.numNodes = numNodes;
+        this.timeMillis = timeMillis;
+        this.principalVariation = Collections.unmodifiableList(principalVariation);
+    }
+
+    /**
+     * Parse an info line.
+     *
+     * <p>
+     * The moves of the principal variation are validated against the analyzed
+     * position: the principal variation is truncated at the first move that is
+     * not legal. Unknown fields are ignored.
+     * </p>
+     *
+     * @param line     Given line.
+     * @param position Analyzed position.
+     * @return Parsed search information, or null if the line is not a (valid)
+     *         info line.
+     */
+    public static UciInfo parse(String line, Position position) {
+        final String[] tokens = line.trim().split("\\s+");
+
+        if (!tokens[0].equals("info")) {
+            return null;
+        }
+
+        int depth = 0;
+        int selectiveDepth = 0;
+        int multiPv = 1;
+        boolean hasScore = false;
+        int score = 0;
+        boolean isMateScore = false;
+        boolean isLowerBound = false;
+        boolean isUpperBound = false;
+        long numNodes = 0;
+        long timeMillis = 0;
+        final List<Move> principalVariation = new ArrayList<>();
+
+        try {
+            for (int i = 1; i < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case "depth":
+                        depth = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "seldepth":
+                        selectiveDepth = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "multipv":
+                        multiPv = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "score":
+                        hasScore = true;
+                        isMateScore = tokens[++i].equals("mate");
+                        score = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "lowerbound":
+                        isLowerBound = true;
+                        break;
+                    case "upperbound":
+                        isUpperBound = true;
+                        break;
+                    case "nodes":
+                        numNodes = Long.parseLong(tokens[++i]);
+                        break;
+                    case "time":
+                        timeMillis = Long.parseLong(tokens[++i]);
+                        break;
+                    case "pv":
+                        // The principal variation extends until the end of the line.
+                        parsePrincipalVariation(tokens, i + 1, position, principalVariation);
+                        i = tokens.length;
+                        break;
+                    case "string":
+                        // Free text extends until the end of the line.
+                        i = tokens.length;
+                        break;
+                    default:
+                        // Other fields (e.g. nps, hashfull or currmove) are ignored.
+                        break;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+
+        return new UciInfo(depth, selectiveDepth, multiPv, hasScore, score, isMateScore, isLowerBound, isUpperBound,
+                numNodes, timeMillis, principalVariation);
+    }
+
+    /**
+     * Parse the moves of a principal variation, stopping at the first move that is
+     * malformed or illegal.
+     *
+     * @param tokens             Tokens of the info line.
+     * @param fromIndex          Index of the first move token.
+     * @param position           Analyzed position.
+     * @param principalVariation List to which the parsed moves are appended.
+     */
+    private static void parsePrincipalVariation(String[] tokens, int fromIndex, Position position,
+            List<Move> principalVariation) {
+        Position currentPosition = position;
+
+        try {
+            for (int i = fromIndex; i < tokens.length; i++) {
+                final Move move = Move.valueOf(tokens[i]);
+
+                currentPosition = currentPosition.playMove(move);
+                principalVariation.add(move);
+            }
+        } catch (IllegalArgumentException | IllegalMoveException e) {
+            // Keep the legal part of the principal variation.
+        }
+    }
+
+    /**
+     * @return Search depth (in plies), zero if not given.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return Selective search depth (in plies), zero if not given.
+     */
+    public int getSelectiveDepth() {
+        return selectiveDepth;
+    }
+
+    /**
+     * @return Index of the principal variation (starting from one).
+     */
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    /**
+     * @return {@code true} if and only if the info line contains a score.
+     */
+    public boolean hasScore() {
+        return hasScore;
+    }
+
+    /**
+     * @return Score in centipawns, or the number of moves until mate if it's a
+     *         mate score (negative if the side to move is getting mated), from
+     *         the point of view of the side to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return {@code true} if and only if the score is a mate score.
+     */
+    public boolean isMateScore() {
+        return isMateScore;
+    }
+
+    /**
+     * @return {@code true} if and only if the score is only a lower bound.
+     */
+    public boolean isLowerBound() {
+        return isLowerBound;
+    }
+
+    /**
+     * @return {@code true} if and only if the score is only an upper bound.
+     */
+    public boolean isUpperBound() {
+        return isUpperBound;
+    }
+
+    /**
+     * @return Number of searched nodes, zero if not given.
+     */
+    public long getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * @return Search time (in milliseconds), zero if not given.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return Principal variation (unmodifiable, possibly empty).
+     */
+    public List<Move> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + ", multipv " + multiPv + ", score "
+                + (hasScore ? (isMateScore ? "mate " : "cp ") + score : "none") + ", nodes " + numNodes + ", pv "
+                + principalVariation;
+    }
+}
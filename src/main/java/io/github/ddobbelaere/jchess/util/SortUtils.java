@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.util;
+
+/**
+ * Utilities to sort records that are stored on parallel primitive arrays in
+ * place, without boxing them.
+ *
+ * @author Dieter Dobbelaere
+ */
+public class SortUtils {
+    /**
+     * Ranges that are at most this long are sorted by insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * Records that can be compared and swapped by index.
+     */
+    public interface Sortable {
+        /**
+         * Compare two records.
+         *
+         * @param index1 Index of the first record.
+         * @param index2 Index of the second record.
+         * @return Negative, zero or positive if the first record is smaller than,
+         *         equal to or larger than the second record.
+         */
+        int compare(int index1, int index2);
+
+        /**
+         * Swap two records.
+         *
+         * @param index1 Index of the first record.
+         * @param index2 Index of the second record.
+         */
+        void swap(int index1, int index2);
+    }
+
+    /**
+     * Sort the records in the given range (quicksort with a median-of-three pivot
+     * that recurses into the smaller part only, such that the recursion depth is
+     * logarithmic). The sort is not stable.
+     *
+     * @param records Records to sort.
+     * @param from    Start index of the range (inclusive).
+     * @param to      End index of the range (exclusive).
+     */
+    public static void sort(Sortable records, int from, int to) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int pivot = (from + to) >>> 1;
+
+            // Order the first, middle and last records and use the middle one as pivot.
+            if (records.compare(pivot, from) < 0) {
+                records.swap(pivot, from);
+            }
+
+            if (records.compare(to - 1, pivot) < 0) {
+                records.swap(to - 1, pivot);
+
+                if (records.compare(pivot, from) < 0) {
+                    records.swap(pivot, from);
+                }
+            }
+
+            int i = from;
+            int j = to - 1;
+
+            while (i <= j) {
+                while (records.compare(i, pivot) < 0) {
+                    i++;
+                }
+
+                while (records.compare(j, pivot) > 0) {
+                    j--;
+                }
+
+                if (i <= j) {
+                    records.swap(i, j);
+
+                    // Keep track of the pivot record when it's swapped.
+                    if (pivot == i) {
+                        pivot = j;
+                    } else if (pivot == j) {
+                        pivot = i;
+                    }
+
+                    i++;
+                    j--;
+                }
+            }
+
+            if (j + 1 - from < to - i) {
+                sort(records, from, j + 1);
+                from = i;
+            } else {
+                sort(records, i, to);
+                to = j + 1;
+            }
+        }
+
+        // Insertion sort.
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && records.compare(j, j - 1) < 0; j--) {
+                records.swap(j, j - 1);
+            }
+        }
+    }
+}
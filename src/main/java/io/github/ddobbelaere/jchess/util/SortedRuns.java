@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * Sorted run files of an external merge sort.
+ *
+ * <p>
+ * Records are collected in memory until the memory budget is exhausted. They
+ * are then sorted (e.g. with {@link SortUtils}) and spilled to a new run file
+ * (see {@link #spill(int, RecordWriter)}). Once all records are spilled, the
+ * runs are merged with a priority queue of run readers, which yields the
+ * records of all runs in sorted order (see {@link #startMerge()}).
+ * </p>
+ *
+ * <p>
+ * The format of a record is defined by the record writer and the run reader,
+ * which also defines the sort order (by implementing {@link Comparable}).
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ * @param <R> Type of the run readers.
+ */
+public class SortedRuns<R extends SortedRuns.Reader<R>> {
+    /**
+     * Size of the buffers of the run files (in bytes).
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writer of a record to a run file.
+     */
+    public interface RecordWriter {
+        /**
+         * Write a record.
+         *
+         * @param output Output stream of the run file.
+         * @param index  Index of the record (in sorted order).
+         * @throws IOException If the record cannot be written.
+         */
+        void write(DataOutputStream output, int index) throws IOException;
+    }
+
+    /**
+     * Sequential reader of a run file, which holds the current record of the run.
+     *
+     * @param <R> Type of the run reader itself.
+     */
+    public abstract static class Reader<R extends Reader<R>> implements Comparable<R> {
+        /**
+         * Input stream of the run file.
+         */
+        private DataInputStream input;
+
+        /**
+         * Number of records that have not been read yet.
+         */
+        private int numRemainingRecords;
+
+        /**
+         * Read a record (as written by the record writer) into the fields of the
+         * reader.
+         *
+         * @param input Input stream of the run file.
+         * @throws IOException If the record cannot be read.
+         */
+        protected abstract void read(DataInputStream input) throws IOException;
+
+        /**
+         * Open a run file.
+         *
+         * @param path       Path of the run file.
+         * @param numRecords Number of records of the run.
+         * @throws IOException If the run file cannot be opened.
+         */
+        void open(Path path, int numRecords) throws IOException {
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            numRemainingRecords = numRecords;
+        }
+
+        /**
+         * Read the next record.
+         *
+         * @return {@code true} if and only if a record was read ({@code false} at
+         *         the end of the run).
+         * @throws IOException If the run file cannot be read (e.g. if it's
+         *                     truncated).
+         */
+        boolean next() throws IOException {
+            if (numRemainingRecords == 0) {
+                return false;
+            }
+
+            numRemainingRecords--;
+            read(input);
+
+            return true;
+        }
+
+        /**
+         * Close the run file.
+         *
+         * @throws IOException If the run file cannot be closed.
+         */
+        void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * Directory of the run files.
+     */
+    private final Path tempDirectory;
+
+    /**
+     * Prefix of the names of the run files.
+     */
+    private final String prefix;
+
+    /**
+     * Factory of run readers.
+     */
+    private final Supplier<R> readerFactory;
+
+    /**
+     * Run files (sorted).
+     */
+    private final List<Path> runs = new ArrayList<>();
+
+    /**
+     * Number of records of each run.
+     */
+    private final List<Integer> runSizes = new ArrayList<>();
+
+    /**
+     * Readers of the runs that are not exhausted yet during a merge, ordered by
+     * their current record.
+     */
+    private final PriorityQueue<R> queue = new PriorityQueue<>();
+
+    /**
+     * Construct with given temporary directory, file name prefix and run reader
+     * factory.
+     *
+     * @param tempDirectory Directory of the run files.
+     * @param prefix        Prefix of the names of the run files.
+     * @param readerFactory Factory of run readers.
+     */
+    public SortedRuns(Path tempDirectory, String prefix, Supplier<R> readerFactory) {
+        this.tempDirectory = tempDirectory;
+        this.prefix = prefix;
+        this.readerFactory = readerFactory;
+    }
+
+    /**
+     * Spill sorted records to a new run file.
+     *
+     * @param numRecords Number of records.
+     * @param writer     Writer of the records, which is called for each index
+     *                   in order.
+     * @throws IOException If the run file cannot be written.
+     */
+    public void spill(int numRecords, RecordWriter writer) throws IOException {
+        final Path run = Files.createTempFile(tempDirectory, prefix, ".run");
+
+        runs.add(run);
+        runSizes.add(numRecords);
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+            for (int i = 0; i < numRecords; i++) {
+                writer.write(output, i);
+            }
+        }
+    }
+
+    /**
+     * @return Number of runs that are spilled so far.
+     */
+    public int getNumRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Start merging the runs: open a reader for each run. The records are then
+     * consumed in sorted order with {@link #poll()} and {@link #advance(Reader)}.
+     *
+     * @throws IOException If a run file cannot be read.
+     */
+    public void startMerge() throws IOException {
+        for (int i = 0; i < runs.size(); i++) {
+            final R reader = readerFactory.get();
+
+            reader.open(runs.get(i), runSizes.get(i));
+            advance(reader);
+        }
+    }
+
+    /**
+     * @return {@code true} if and only if the merge has records left.
+     */
+    public boolean hasNext() {
+        return !queue.isEmpty();
+    }
+
+    /**
+     * @return Reader with the smallest current record, or null if the merge has no
+     *         records left.
+     */
+    public R peek() {
+        return queue.peek();
+    }
+
+    /**
+     * Remove the reader with the smallest current record from the merge. Once its
+     * record is consumed, it has to be advanced (see {@link #advance(Reader)}).
+     *
+     * @return Reader with the smallest current record, or null if the merge has no
+     *         records left.
+     */
+    public R poll() {
+        return queue.poll();
+    }
+
+    /**
+     * Advance a reader to its next record and put it back into the merge, or close
+     * it if its run is exhausted.
+     *
+     * @param reader Reader that was removed from the merge.
+     * @throws IOException If the run file cannot be read.
+     */
+    public void advance(R reader) throws IOException {
+        if (reader.next()) {
+            queue.add(reader);
+        } else {
+            reader.close();
+        }
+    }
+
+    /**
+     * Close the readers of the merge (if any) and delete all run files.
+     *
+     * @throws IOException If a run file cannot be closed or deleted.
+     */
+    public void clear() throws IOException {
+        try {
+            for (R reader : queue) {
+                reader.close();
+            }
+
+            queue.clear();
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+
+            runs.clear();
+            runSizes.clear();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.search.SearchLimits;
+import io.github.ddobbelaere.jchess.search.TranspositionTable;
+
+/**
+ * Game analyzer test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class GameAnalyzerTest {
+    /**
+     * Moves of test games in standard algebraic notation.
+     */
+    private static final String[][] GAMES_SAN = { { "e4", "e5", "Qh5", "Nc6", "Bc4", "Nf6", "Qxf7#" },
+            { "d4", "d5", "c4", "e6", "Nc3", "Nf6", "Bg5", "Be7" }, { "e4", "c5", "Nf3", "d6", "d4", "cxd4" },
+            { "f3", "e5", "g4", "Qh4#" } };
+
+    /**
+     * Create a test game.
+     *
+     * @param index Index of the game.
+     * @return Game.
+     */
+    private static Game createGame(int index) {
+        final Game game = new Game();
+
+        game.playMoves(GAMES_SAN[index % GAMES_SAN.length]);
+
+        return game;
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.analysis.GameAnalyzer#analyze(Game)}.
+     */
+    @Test
+    void testAnalyzeGame() {
+        final GameAnalyzer analyzer = new GameAnalyzer(1, new TranspositionTable(1), SearchLimits.depth(3));
+        GameAnalysis analysis = analyzer.analyze(createGame(0));
+        List<MoveAnalysis> moveAnalyses = analysis.getMoveAnalyses();
+
+        assertEquals(0, analysis.getIndex());
+        assertEquals(7, moveAnalyses.size());
+
+        // 3... Nf6?? allows mate in one, which is taken.
+        final MoveAnalysis blunder = moveAnalyses.get(5);
+
+        assertEquals("Nf6", blunder.getMoveSan());
+        assertEquals(-GameAnalyzer.MAX_SCORE, blunder.getScore());
+        assertEquals(MoveClassification.BLUNDER, blunder.getClassification());
+        assertEquals(blunder.getBestScore() + GameAnalyzer.MAX_SCORE, blunder.getCentipawnLoss());
+        assertEquals(1, analysis.getNumMoves(false, MoveClassification.BLUNDER));
+
+        final MoveAnalysis mate = moveAnalyses.get(6);
+
+        assertEquals(Move.valueOf("h5f7"), mate.getMove());
+        assertEquals(Move.valueOf("h5f7"), mate.getBestMove());
+        assertEquals(GameAnalyzer.MAX_SCORE, mate.getScore());
+        assertEquals(0, mate.getCentipawnLoss());
+        assertEquals(MoveClassification.BEST, mate.getClassification());
+        assertEquals(0, analysis.getNumMoves(true, MoveClassification.BLUNDER));
+
+        // Fool's mate: 2. g4?? is a blunder.
+        analysis = analyzer.analyze(createGame(3));
+        moveAnalyses = analysis.getMoveAnalyses();
+
+        assertEquals(MoveClassification.BLUNDER, moveAnalyses.get(2).getClassification());
+        assertEquals(MoveClassification.BEST, moveAnalyses.get(3).getClassification());
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.analysis.GameAnalyzer#analyze(Stream, java.util.function.Consumer)}.
+     */
+    @Test
+    void testAnalyzeStream() {
+        final int numGames = 40;
+        final GameAnalyzer analyzer = new GameAnalyzer(3, new TranspositionTable(4), SearchLimits.nodes(2000));
+        final Map<Long, GameAnalysis> analyses = new ConcurrentHashMap<>();
+
+        assertEquals(numGames, analyzer.analyze(IntStream.range(0, numGames).mapToObj(GameAnalyzerTest::createGame),
+                analysis -> analyses.put(analysis.getIndex(), analysis)));
+        assertEquals(numGames, analyses.size());
+
+        for (long i = 0; i < numGames; i++) {
+            final GameAnalysis analysis = analyses.get(i);
+
+            assertEquals(GAMES_SAN[(int) (i % GAMES_SAN.length)].length, analysis.getMoveAnalyses().size());
+            assertEquals(Arrays.asList(GAMES_SAN[(int) (i % GAMES_SAN.length)]), analysis.getGame().getMovesSan());
+        }
+
+        // Failures are propagated.
+        assertThrows(IllegalStateException.class,
+                () -> analyzer.analyze(IntStream.range(0, numGames).mapToObj(GameAnalyzerTest::createGame), analysis -> {
+                    throw new IllegalArgumentException();
+                }));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new GameAnalyzer(0, new TranspositionTable(1), SearchLimits.depth(1)));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.analysis.MoveClassification#classify(int, boolean)}.
+     */
+    @Test
+    void testClassify() {
+        assertEquals(MoveClassification.BEST, MoveClassification.classify(1000, true));
+        assertEquals(MoveClassification.GOOD, MoveClassification.classify(0, false));
+        assertEquals(MoveClassification.GOOD, MoveClassification.classify(49, false));
+        assertEquals(MoveClassification.INACCURACY, MoveClassification.classify(50, false));
+        assertEquals(MoveClassification.MISTAKE, MoveClassification.classify(100, false));
+        assertEquals(MoveClassification.MISTAKE, MoveClassification.classify(299, false));
+        assertEquals(MoveClassification.BLUNDER, MoveClassification.classify(300, false));
+    }
+
+    /**
+     * Throughput benchmark: analyze a stream of games with an increasing number of
+     * threads.
+     *
+     * @param args Optional number of games (default 200).
+     */
+    public static void main(String[] args) {
+        final int numGames = (args.length >= 1) ? Integer.parseInt(args[0]) : 200;
+
+        for (int numThreads = 1; numThreads <= Runtime.getRuntime().availableProcessors(); numThreads *= 2) {
+            final GameAnalyzer analyzer = new GameAnalyzer(numThreads, new TranspositionTable(64),
+                    SearchLimits.nodes(20000));
+            final long startTime = System.nanoTime();
+
+            analyzer.analyze(IntStream.range(0, numGames).mapToObj(GameAnalyzerTest::createGame), analysis -> {
+            });
+
+            final double time = 1e-9 * (System.nanoTime() - startTime);
+
+            System.out.printf("%d threads: %f s, %f games/s%n", numThreads, time, numGames / time);
+        }
+    }
+}
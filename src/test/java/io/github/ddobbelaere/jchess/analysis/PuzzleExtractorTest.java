@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.analysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.search.Search;
+import io.github.ddobbelaere.jchess.search.SearchLimits;
+import io.github.ddobbelaere.jchess.search.TranspositionTable;
+
+/**
+ * Puzzle extractor test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class PuzzleExtractorTest {
+
+    /**
+     * Create a game.
+     *
+     * @param movesSan Moves in standard algebraic notation.
+     * @return Game.
+     */
+    private static Game createGame(String... movesSan) {
+        final Game game = new Game();
+
+        game.playMoves(movesSan);
+
+        return game;
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.analysis.PuzzleExtractor#extract(Stream, java.util.function.Consumer)}.
+     */
+    @Test
+    void testExtract() {
+        final PuzzleExtractor extractor = new PuzzleExtractor(2, new TranspositionTable(4), SearchLimits.depth(4));
+        final List<Puzzle> puzzles = Collections.synchronizedList(new ArrayList<>());
+
+        // Legal's mate (twice, such that the puzzle is extracted once) and a quiet
+        // game.
+        final Game legalsMate = createGame("e4", "e5", "Nf3", "d6", "Bc4", "Bg4", "Nc3", "g6", "Nxe5", "Bxd1", "Bxf7+",
+                "Ke7", "Nd5#");
+        final Game quietGame = createGame("d4", "d5", "c4", "e6", "Nc3", "Nf6", "Bg5", "Be7", "e3", "O-O", "Nf3",
+                "Nbd7");
+
+        assertEquals(3, extractor.extract(Stream.of(legalsMate, quietGame, legalsMate), puzzles::add));
+
+        assertEquals(2, puzzles.size());
+        assertEquals(2, extractor.getNumPuzzles());
+        assertEquals(17, extractor.getNumPositions());
+        assertEquals(true, extractor.getNumSearchedPositions() < extractor.getNumPositions());
+
+        puzzles.sort((puzzle1, puzzle2) -> Integer.compare(puzzle1.getPly(), puzzle2.getPly()));
+
+        Puzzle puzzle = puzzles.get(0);
+
+        assertEquals("rn1qkbnr/ppp2p1p/3p2p1/4N3/2B1P3/2N5/PPPP1PPP/R1BbK2R w KQkq - 0 6", puzzle.getFen());
+        assertEquals(Arrays.asList("Bxf7+", "Ke7", "Nd5#"), puzzle.getSolutionSan());
+        assertEquals(10, puzzle.getPly());
+        assertEquals(Search.MATE_SCORE - 3, puzzle.getScore());
+        assertEquals(true, puzzle.getSecondBestScore() < 0);
+        assertEquals(
+                "rn1qkbnr/ppp2p1p/3p2p1/4N3/2B1P3/2N5/PPPP1PPP/R1BbK2R w KQkq - 0 6; Bxf7+ Ke7 Nd5#",
+                puzzle.toString());
+
+        puzzle = puzzles.get(1);
+
+        assertEquals(Arrays.asList("Nd5#"), puzzle.getSolutionSan());
+        assertEquals(12, puzzle.getPly());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new PuzzleExtractor(0, new TranspositionTable(1), SearchLimits.depth(1)));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.analysis.PuzzleExtractor#isCandidate(Position)}.
+     */
+    @Test
+    void testIsCandidate() {
+        // No capture, promotion or check.
+        assertEquals(false, PuzzleExtractor.isCandidate(Position.STARTING));
+
+        // Single legal move.
+        assertEquals(false, PuzzleExtractor.isCandidate(Position.fromFen("k7/8/1K6/8/8/8/8/7R b - -")));
+
+        assertEquals(true, PuzzleExtractor.isCandidate(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - -")));
+        assertEquals(true, PuzzleExtractor.isCandidate(Position.fromFen("4k3/1P6/8/8/8/8/8/4K3 w - -")));
+        assertEquals(true, PuzzleExtractor.isCandidate(Position.fromFen("4k3/8/8/3p4/4P3/8/8/4K3 w - -")));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.analysis.PuzzleExtractor#getPuzzle(Position, Search, long, int)}.
+     */
+    @Test
+    void testGetPuzzle() {
+        final PuzzleExtractor extractor = new PuzzleExtractor(1, new TranspositionTable(1), SearchLimits.depth(3));
+        final Search search = new Search();
+
+        // Back rank mate.
+        final Puzzle puzzle = extractor.getPuzzle(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - -"), search, 7, 42);
+
+        assertEquals(Arrays.asList("Ra8#"), puzzle.getSolutionSan());
+        assertEquals(7, puzzle.getGameIndex());
+        assertEquals(42, puzzle.getPly());
+
+        // Two mating moves, or no winning move.
+        assertEquals(null, extractor.getPuzzle(Position.fromFen("6k1/5ppp/8/8/8/8/8/RR4K1 w - -"), search, 0, 0));
+        assertEquals(null, extractor.getPuzzle(Position.fromFen("4k3/8/8/3p4/4P3/8/8/4K3 w - -"), search, 0, 0));
+    }
+}
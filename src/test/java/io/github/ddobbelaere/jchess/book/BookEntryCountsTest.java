@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Book entry counts test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class BookEntryCountsTest {
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.book.BookEntryCounts#add(long, int, int)}
+     * and {@link io.github.ddobbelaere.jchess.book.BookEntryCounts#sort()}.
+     */
+    @Test
+    void testAddAndSort() {
+        final int NUM_ENTRIES = 1000;
+        final BookEntryCounts counts = new BookEntryCounts(NUM_ENTRIES);
+        final Random random = new Random(1);
+        final Map<String, Integer> weights = new HashMap<>();
+
+        // Few distinct keys with several moves each, and keys of both signs.
+        while (!counts.isFull()) {
+            final long key = random.nextInt(200) * 0x9E3779B97F4A7C15L;
+            final int move = 1 + random.nextInt(10);
+            final int weight = random.nextInt(3);
+
+            counts.add(key, move, weight);
+            weights.merge(key + " " + move, weight, Integer::sum);
+
+            assertEquals(weights.size(), counts.size());
+        }
+
+        counts.sort();
+
+        int totalNumGames = 0;
+
+        for (int i = 0; i < counts.size(); i++) {
+            assertEquals((int) weights.get(counts.getKey(i) + " " + counts.getMove(i)), counts.getWeight(i));
+            totalNumGames += counts.getNumGames(i);
+
+            if (i > 0) {
+                final int result = Long.compareUnsigned(counts.getKey(i - 1), counts.getKey(i));
+
+                assertEquals(true, result < 0 || (result == 0 && counts.getMove(i - 1) < counts.getMove(i)));
+            }
+        }
+
+        assertEquals(NUM_ENTRIES, counts.size());
+        assertEquals(true, totalNumGames >= NUM_ENTRIES);
+
+        counts.clear();
+
+        assertEquals(0, counts.size());
+        assertEquals(false, counts.isFull());
+
+        counts.add(1, 2, 3);
+        counts.add(1, 2, 3);
+        counts.sort();
+
+        assertEquals(1, counts.size());
+        assertEquals(6, counts.getWeight(0));
+        assertEquals(2, counts.getNumGames(0));
+
+        assertThrows(IllegalArgumentException.class, () -> new BookEntryCounts(0));
+    }
+}
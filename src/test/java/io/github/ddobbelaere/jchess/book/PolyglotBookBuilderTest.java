@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.pgn.PgnGame;
+import io.github.ddobbelaere.jchess.pgn.PgnReader;
+
+/**
+ * Polyglot book builder test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class PolyglotBookBuilderTest {
+
+    /**
+     * Play a random game, where each move is one of the first few legal moves,
+     * such that games share many positions.
+     *
+     * @param random   Random number generator.
+     * @param numPlies Number of plies.
+     * @return Random game.
+     */
+    private static Game createRandomGame(Random random, int numPlies) {
+        final Game game = new Game();
+
+        for (int ply = 0; ply < numPlies; ply++) {
+            final List<Move> moves = game.getLegalMoves();
+
+            if (moves.isEmpty()) {
+                break;
+            }
+
+            game.playMoves(moves.get(random.nextInt(Math.min(3, moves.size()))));
+        }
+
+        return game;
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.book.PolyglotBookBuilder#build(Path)}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If a book cannot be written or read.
+     */
+    @Test
+    void testBuild(@TempDir Path directory) throws IOException {
+        final String pgn = "1. e4 e5 2. Nf3 1-0\n\n1. e4 c5 0-1\n\n1. d4 d5 1/2-1/2\n\n1. c4 *\n";
+        final PolyglotBookBuilder builder = new PolyglotBookBuilder(2, 1, 16, directory);
+        final Path path = directory.resolve("book.bin");
+
+        try (PgnReader reader = new PgnReader(new StringReader(pgn))) {
+            assertEquals(4, builder.addGames(reader.games(false)));
+        }
+
+        // The moves of the third ply and losing moves are no book moves, and games
+        // with an unknown result are ignored.
+        assertEquals(4, builder.build(path));
+
+        final PolyglotBook book = new PolyglotBook(path);
+        final List<BookEntry> entries = book.getEntries(Position.STARTING);
+
+        assertEquals(2, entries.size());
+        assertEquals(Move.valueOf("e2e4"), entries.get(0).getMove());
+        assertEquals(2, entries.get(0).getWeight());
+        assertEquals(Move.valueOf("d2d4"), entries.get(1).getMove());
+        assertEquals(1, entries.get(1).getWeight());
+        assertEquals(Move.valueOf("c7c5"), book.getBestMove(Position.STARTING.playMove("e4")));
+        assertEquals(1, book.getEntries(Position.STARTING.playMove("e4")).size());
+        assertEquals(Move.valueOf("d7d5"), book.getBestMove(Position.STARTING.playMove("d4")));
+        assertEquals(null, book.getBestMove(Position.STARTING.playMove("e4").playMove("e5")));
+
+        // Only the book is left in the temporary directory.
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Arrays.asList(path), Arrays.asList(files.toArray(Path[]::new)));
+        }
+    }
+
+    /**
+     * Test that the book does not depend on the number of spilled runs.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If a book cannot be written or read.
+     */
+    @Test
+    void testSpill(@TempDir Path directory) throws IOException {
+        final String[] RESULTS = { PgnGame.WHITE_WINS, PgnGame.BLACK_WINS, PgnGame.DRAW };
+        final PolyglotBookBuilder inMemoryBuilder = new PolyglotBookBuilder(12, 2, 1 << 16, directory);
+        final PolyglotBookBuilder spillingBuilder = new PolyglotBookBuilder(12, 2, 64, directory);
+        final Random random = new Random(1);
+
+        for (int i = 0; i < 200; i++) {
+            final Game game = createRandomGame(random, 16);
+            final String result = RESULTS[random.nextInt(RESULTS.length)];
+
+            inMemoryBuilder.addGame(game, result);
+            spillingBuilder.addGame(game, result);
+        }
+
+        assertEquals(0, inMemoryBuilder.getNumRuns());
+        assertEquals(true, spillingBuilder.getNumRuns() > 10);
+
+        final Path inMemoryPath = directory.resolve("in-memory.bin");
+        final Path spillingPath = directory.resolve("spilling.bin");
+        final long numEntries = inMemoryBuilder.build(inMemoryPath);
+
+        assertEquals(numEntries, spillingBuilder.build(spillingPath));
+        assertEquals(true, numEntries > 10);
+        assertEquals(true, Arrays.equals(Files.readAllBytes(inMemoryPath), Files.readAllBytes(spillingPath)));
+
+        // The book is sorted by key, such that all its positions are found.
+        final PolyglotBook book = new PolyglotBook(spillingPath);
+
+        assertEquals(numEntries, book.getNumEntries());
+        assertEquals(true, book.getEntries(Position.STARTING).size() >= 2);
+    }
+
+    /**
+     * Benchmark the book builder on random games, with and without spilling.
+     *
+     * @param args Command line arguments (ignored).
+     * @throws IOException If a book cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        final int NUM_GAMES = 20_000;
+        final Random random = new Random(1);
+        final Game[] games = new Game[NUM_GAMES];
+
+        for (int i = 0; i < NUM_GAMES; i++) {
+            games[i] = createRandomGame(random, 40);
+        }
+
+        final Path directory = Files.createTempDirectory("jchess");
+        final Path path = directory.resolve("book.bin");
+
+        try {
+            for (int maxNumEntriesInMemory : new int[] { 1 << 20, 1 << 14 }) {
+                final PolyglotBookBuilder builder = new PolyglotBookBuilder(30, 1, maxNumEntriesInMemory, directory);
+                final long startTime = System.nanoTime();
+
+                for (Game game : games) {
+                    builder.addGame(game, PgnGame.DRAW);
+                }
+
+                final int numRuns = builder.getNumRuns();
+                final long numEntries = builder.build(path);
+                final long elapsedTime = System.nanoTime() - startTime;
+
+                System.out.printf("%d games, %d runs: %d entries in %.0f ms%n", NUM_GAMES, numRuns, numEntries,
+                        elapsedTime / 1e6);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+}
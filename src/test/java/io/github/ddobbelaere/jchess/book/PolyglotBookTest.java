@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Polyglot book test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class PolyglotBookTest {
+
+    /**
+     * Encode a move (without castling or promotion) as a Polyglot move.
+     *
+     * @param move Move string (e.g. e2e4).
+     * @return Polyglot move.
+     */
+    private static int encode(String move) {
+        final int fromSquare = 8 * (move.charAt(1) - '1') + (move.charAt(0) - 'a');
+        final int toSquare = 8 * (move.charAt(3) - '1') + (move.charAt(2) - 'a');
+
+        return (fromSquare << 6) | toSquare;
+    }
+
+    /**
+     * Write a book with given entries (which are sorted by key first).
+     *
+     * @param path    Path of the book file.
+     * @param entries Entries, each given by its key, Polyglot move and weight.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeBook(Path path, long[]... entries) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(PolyglotBook.ENTRY_SIZE * entries.length);
+
+        Arrays.sort(entries, Comparator.comparing(entry -> entry[0], Long::compareUnsigned));
+
+        for (long[] entry : entries) {
+            buffer.putLong(entry[0]).putShort((short) entry[1]).putShort((short) entry[2]).putInt(0);
+        }
+
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.book.PolyglotBook#getEntries(Position)}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If the book cannot be written or read.
+     */
+    @Test
+    void testGetEntries(@TempDir Path directory) throws IOException {
+        final Path path = directory.resolve("test.bin");
+        final Position e4 = Position.STARTING.playMove("e4");
+        final Position castling = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq -");
+
+        // Keys with the most significant bit set sort after the other keys.
+        writeBook(path, new long[] { Position.STARTING.getPolyglotKey(), encode("e2e4"), 10 },
+                new long[] { Position.STARTING.getPolyglotKey(), encode("d2d4"), 20 },
+                new long[] { Position.STARTING.getPolyglotKey(), encode("e2e5"), 100 },
+                new long[] { e4.getPolyglotKey(), encode("e7e5"), 1 },
+                new long[] { castling.getPolyglotKey(), encode("e1h1"), 5 },
+                new long[] { 0, encode("a2a3"), 1 }, new long[] { -1, encode("a2a3"), 1 });
+
+        final PolyglotBook book = new PolyglotBook(path);
+
+        assertEquals(7, book.getNumEntries());
+
+        // The illegal move is skipped and the entries are sorted by decreasing weight.
+        final List<BookEntry> entries = book.getEntries(Position.STARTING);
+
+        assertEquals(2, entries.size());
+        assertEquals(Move.valueOf("d2d4"), entries.get(0).getMove());
+        assertEquals(20, entries.get(0).getWeight());
+        assertEquals(0, entries.get(0).getLearn());
+        assertEquals(Move.valueOf("e2e4"), entries.get(1).getMove());
+        assertEquals(Move.valueOf("d2d4"), book.getBestMove(Position.STARTING));
+
+        assertEquals(Move.valueOf("e7e5"), book.getBestMove(e4));
+        assertEquals(Move.valueOf("e1g1"), book.getBestMove(castling));
+        assertEquals(null, book.getBestMove(e4.playMove("e5")));
+        assertEquals(0, book.getEntries(Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - -")).size());
+
+        // Both book moves are chosen.
+        final Random random = new Random(1);
+        final Set<Move> randomMoves = new HashSet<>();
+
+        for (int i = 0; i < 100; i++) {
+            randomMoves.add(book.getRandomMove(Position.STARTING, random));
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(Move.valueOf("d2d4"), Move.valueOf("e2e4"))), randomMoves);
+        assertEquals(null, book.getRandomMove(e4.playMove("e5"), random));
+
+        // Book moves of a game.
+        final Game game = new Game();
+
+        game.playMoves("e4", "e5", "Nf3");
+
+        assertEquals(2, book.getNumBookPlies(game));
+        assertEquals(true, book.isBookMove(Position.STARTING, Move.valueOf("e2e4")));
+        assertEquals(false, book.isBookMove(Position.STARTING, Move.valueOf("c2c4")));
+
+        // Empty book.
+        writeBook(path);
+
+        assertEquals(null, new PolyglotBook(path).getBestMove(Position.STARTING));
+
+        // Truncated book.
+        Files.write(path, new byte[PolyglotBook.ENTRY_SIZE + 1]);
+
+        assertThrows(IOException.class, () -> new PolyglotBook(path));
+    }
+
+    /**
+     * Benchmark the lookup time in a large book with random keys.
+     *
+     * @param args Command line arguments (ignored).
+     * @throws IOException If the book cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        final int NUM_ENTRIES = 1 << 22;
+        final int NUM_LOOKUPS = 1_000_000;
+        final Path path = Files.createTempFile("jchess", ".bin");
+
+        try {
+            final Random random = new Random(1);
+            final long[][] entries = new long[NUM_ENTRIES][];
+
+            for (int i = 0; i < NUM_ENTRIES; i++) {
+                entries[i] = new long[] { random.nextLong(), encode("e2e4"), 1 };
+            }
+
+            entries[0][0] = Position.STARTING.getPolyglotKey();
+            writeBook(path, entries);
+
+            final PolyglotBook book = new PolyglotBook(path);
+            long numFound = 0;
+            final long startTime = System.nanoTime();
+
+            for (int i = 0; i < NUM_LOOKUPS; i++) {
+                numFound += book.getEntries(Position.STARTING).size();
+            }
+
+            final long elapsedTime = System.nanoTime() - startTime;
+
+            System.out.printf("%d lookups in a book of %d entries (%d found): %.2f us per lookup%n", NUM_LOOKUPS,
+                    NUM_ENTRIES, numFound, elapsedTime / 1e3 / NUM_LOOKUPS);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Evaluator test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class EvaluatorTest {
+
+    /**
+     * Positions with castlings, en passant captures and promotions.
+     */
+    private static final String[] FEN_STRINGS = new String[] {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8" };
+
+    /**
+     * Get the FEN string of the color flipped position (white and black are
+     * swapped and the board is mirrored vertically).
+     *
+     * @param fen Given FEN string.
+     * @return FEN string of the color flipped position.
+     */
+    static String flipColors(String fen) {
+        final String[] fenParts = fen.split(" ");
+        final String[] rows = fenParts[0].split("/");
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = rows.length - 1; i >= 0; i--) {
+            sb.append(swapCase(rows[i])).append((i > 0) ? "/" : " ");
+        }
+
+        sb.append(fenParts[1].equals("w") ? "b" : "w").append(" ");
+
+        // Castling rights are listed with white first.
+        final String castling = swapCase(fenParts[2]);
+        sb.append(castling.equals("-") ? castling
+                : castling.replaceAll("[a-z]", "") + castling.replaceAll("[A-Z]", "")).append(" ");
+
+        sb.append(fenParts[3].equals("-") ? "-"
+                : fenParts[3].substring(0, 1) + (char) ('1' + '8' - fenParts[3].charAt(1)));
+
+        return sb.toString();
+    }
+
+    /**
+     * Swap upper and lower case letters.
+     *
+     * @param s Given string.
+     * @return String with swapped case.
+     */
+    private static String swapCase(String s) {
+        final StringBuilder sb = new StringBuilder();
+
+        for (char c : s.toCharArray()) {
+            sb.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Check that the incrementally updated scores of all positions in the tree
+     * below the given position equal the scores that are computed from scratch.
+     *
+     * @param position Given position.
+     * @param depth    Depth of the tree (in plies).
+     */
+    private static void checkIncrementalUpdates(Position position, int depth) {
+        final Position expectedPosition = Position.fromFen(position.getFen());
+
+        assertEquals(expectedPosition.middlegameScore, position.middlegameScore);
+        assertEquals(expectedPosition.endgameScore, position.endgameScore);
+        assertEquals(expectedPosition.gamePhase, position.gamePhase);
+
+        if (depth > 0) {
+            for (Move move : position.getLegalMoves()) {
+                checkIncrementalUpdates(position.playMove(move), depth - 1);
+            }
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.Evaluator#evaluate(Position)}.
+     */
+    @Test
+    void testEvaluate() {
+        // Symmetrical positions are balanced.
+        assertEquals(0, Position.STARTING.evaluate());
+        assertEquals(Evaluator.MAX_GAME_PHASE, Position.STARTING.gamePhase);
+        assertEquals(0, Position.STARTING.playMove("e4").playMove("e5").evaluate());
+
+        // Scores are from the point of view of the side to move.
+        Position position = Position.STARTING.playMove("e4");
+
+        assertEquals(true, position.evaluate() < 0);
+        assertEquals(-position.evaluate(), position.playNullMove().evaluate());
+
+        // Color flipped positions have the same score.
+        for (String fen : FEN_STRINGS) {
+            assertEquals(Position.fromFen(fen).evaluate(), Position.fromFen(flipColors(fen)).evaluate());
+        }
+
+        // Material advantage.
+        assertEquals(true, Position.fromFen("4k3/8/8/8/8/8/8/3QK3 w - -").evaluate() > 800);
+        assertEquals(true, Position.fromFen("4k3/8/8/8/8/8/8/3QK3 b - -").evaluate() < -800);
+
+        // The endgame tables apply without non-pawn material: the king belongs in the
+        // center and passed pawns are more valuable when advanced.
+        assertEquals(0, Position.fromFen("4k3/8/8/8/8/8/4P3/4K3 w - -").gamePhase);
+        assertEquals(true, Position.fromFen("8/8/8/3k4/8/8/8/K7 b - -").evaluate() > 0);
+        assertEquals(true, Position.fromFen("4k3/8/4P3/8/8/8/8/4K3 w - -").evaluate() > Position
+                .fromFen("4k3/8/8/8/8/8/4P3/4K3 w - -").evaluate());
+    }
+
+    /**
+     * Test the incremental updates of the evaluation scores.
+     */
+    @Test
+    void testIncrementalUpdates() {
+        checkIncrementalUpdates(Position.STARTING, 3);
+
+        for (String fen : FEN_STRINGS) {
+            checkIncrementalUpdates(Position.fromFen(fen), 2);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Material signature test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class MaterialSignatureTest {
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.Position#getMaterialSignature()}.
+     */
+    @Test
+    void testGetMaterialSignature() {
+        final int signature = Position.STARTING.getMaterialSignature();
+
+        assertEquals("KQRRBBNNPPPPPPPPKQRRBBNNPPPPPPPP", MaterialSignature.toString(signature));
+        assertEquals(signature, Position.STARTING.playMove("e4").getMaterialSignature());
+        assertEquals(MaterialSignature.valueOf("KQRRBBNNPPPPPPPPKQRRBBNNPPPPPPP"),
+                Position.STARTING.playMove("e4").playMove("d5").playMove("exd5").getMaterialSignature());
+
+        // The signature does not depend on the side to move.
+        assertEquals(MaterialSignature.valueOf("KRPKR"),
+                Position.fromFen("4k2r/8/8/8/8/8/3P4/R3K3 w - - 0 1").getMaterialSignature());
+        assertEquals(MaterialSignature.valueOf("KRPKR"),
+                Position.fromFen("4k2r/8/8/8/8/8/3P4/R3K3 b - - 0 1").getMaterialSignature());
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.MaterialSignature#valueOf(String)}.
+     */
+    @Test
+    void testValueOf() {
+        assertEquals(0, MaterialSignature.valueOf("KK"));
+        assertEquals(MaterialSignature.valueOf("KRPKR"), MaterialSignature.valueOf("KPRKR"));
+        assertEquals("KQRRBNPPPKN", MaterialSignature.toString(MaterialSignature.valueOf("KPNRPQBPRKN")));
+        assertEquals("KPPPPPPPPKNNNNNNN",
+                MaterialSignature.toString(MaterialSignature.valueOf("KPPPPPPPPKNNNNNNN")));
+
+        assertThrows(IllegalArgumentException.class, () -> MaterialSignature.valueOf("KRP"));
+        assertThrows(IllegalArgumentException.class, () -> MaterialSignature.valueOf("RKK"));
+        assertThrows(IllegalArgumentException.class, () -> MaterialSignature.valueOf("KXK"));
+        assertThrows(IllegalArgumentException.class, () -> MaterialSignature.valueOf("KPPPPPPPPPK"));
+        assertThrows(IllegalArgumentException.class, () -> MaterialSignature.valueOf("KKNNNNNNNN"));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.MaterialSignature#getCount(int, boolean, PieceType)}.
+     */
+    @Test
+    void testGetCount() {
+        final int signature = MaterialSignature.valueOf("KQBPPKRRNP");
+
+        assertEquals(1, MaterialSignature.getCount(signature, true, PieceType.KING));
+        assertEquals(1, MaterialSignature.getCount(signature, true, PieceType.QUEEN));
+        assertEquals(0, MaterialSignature.getCount(signature, true, PieceType.ROOK));
+        assertEquals(1, MaterialSignature.getCount(signature, true, PieceType.BISHOP));
+        assertEquals(2, MaterialSignature.getCount(signature, true, PieceType.PAWN));
+        assertEquals(0, MaterialSignature.getCount(signature, false, PieceType.QUEEN));
+        assertEquals(2, MaterialSignature.getCount(signature, false, PieceType.ROOK));
+        assertEquals(1, MaterialSignature.getCount(signature, false, PieceType.KNIGHT));
+        assertEquals(1, MaterialSignature.getCount(signature, false, PieceType.PAWN));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.MaterialSignature#mirror(int)}.
+     */
+    @Test
+    void testMirror() {
+        assertEquals(MaterialSignature.valueOf("KRKRP"), MaterialSignature.mirror(MaterialSignature.valueOf("KRPKR")));
+        assertEquals(MaterialSignature.valueOf("KQPPPPPPPPK"),
+                MaterialSignature.mirror(MaterialSignature.valueOf("KKQPPPPPPPP")));
+    }
+}
@@ -164,6 +164,72 @@ class MoveGeneratorTest {
                 assertEquals(false, kingSafety.isDoubleCheck());
         }
 
+        /**
+         * Test method for
+         * {@link io.github.ddobbelaere.jchess.chess.MoveGenerator#generateTheirAttackedSquares(io.github.ddobbelaere.jchess.chess.Position)}
+         * and
+         * {@link io.github.ddobbelaere.jchess.chess.MoveGenerator#generateOurAttackedSquares(io.github.ddobbelaere.jchess.chess.Position)}.
+         */
+        @Test
+        void testGenerateAttackedSquares() {
+                List<String> fenStrings = Arrays.asList("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+                                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                                "8/1k6/2b5/8/8/8/3r2K1/8 w - -", "7K/1k6/8/8/8/8/8/8 w - -");
+
+                for (String fen : fenStrings) {
+                        Position position = Position.fromFen(fen);
+
+                        // Compare with the square-by-square attack test. Their king's own square is
+                        // skipped, since a king never attacks its own square.
+                        long theirAttackedSquares = MoveGenerator.generateTheirAttackedSquares(position);
+                        int theirKingSquare = Long
+                                        .numberOfTrailingZeros(position.board.theirPieces & position.board.kings);
+
+                        for (int square = 0; square < 64; square++) {
+                                if (square != theirKingSquare) {
+                                        assertEquals(MoveGenerator.squareIsUnderAttack(position, square),
+                                                        (theirAttackedSquares & Board.getSquareBitboard(square)) != 0,
+                                                        "Square " + Board.getSquareName(square)
+                                                                        + " in position\n" + position);
+                                }
+                        }
+
+                        // Our attacked squares are their attacked squares in the mirrored position (note
+                        // that none of the test positions has an X-ray attack through their king).
+                        long ourAttackedSquares = MoveGenerator.generateOurAttackedSquares(position);
+                        Position mirroredPosition = new Position(position);
+                        mirroredPosition.mirror();
+
+                        assertEquals(Long.reverseBytes(ourAttackedSquares),
+                                        MoveGenerator.generateTheirAttackedSquares(mirroredPosition));
+                }
+
+                // Check the squares attacked by white in the starting position.
+                assertEquals(0xFFFF7EL, MoveGenerator.generateOurAttackedSquares(Position.STARTING));
+        }
+
+        /**
+         * Test method for
+         * {@link io.github.ddobbelaere.jchess.chess.MoveGenerator#getLineBitboard(int, int)}.
+         */
+        @Test
+        void testGetLineBitboard() {
+                assertEquals(Board.getRowBitboard(0),
+                                MoveGenerator.getLineBitboard(Board.getSquare("b1"), Board.getSquare("g1")));
+                assertEquals(Board.getColBitboard(4),
+                                MoveGenerator.getLineBitboard(Board.getSquare("e8"), Board.getSquare("e2")));
+                assertEquals(0x8040201008040201L,
+                                MoveGenerator.getLineBitboard(Board.getSquare("c3"), Board.getSquare("f6")));
+                assertEquals(Long.reverseBytes(0x8040201008040201L),
+                                MoveGenerator.getLineBitboard(Board.getSquare("b7"), Board.getSquare("g2")));
+                assertEquals(0L, MoveGenerator.getLineBitboard(Board.getSquare("a1"), Board.getSquare("b3")));
+                assertEquals(0L, MoveGenerator.getLineBitboard(Board.getSquare("d4"), Board.getSquare("d4")));
+        }
+
         /**
          * Test method for
          * {@link io.github.ddobbelaere.jchess.chess.MoveGenerator#generateLegalMoves(io.github.ddobbelaere.jchess.chess.Position)}.
@@ -173,6 +239,92 @@ class MoveGeneratorTest {
                 MoveGenerator.generateLegalMoves(Position.STARTING);
         }
 
+        /**
+         * Test method for
+         * {@link io.github.ddobbelaere.jchess.chess.MoveGenerator#isLegalMove(io.github.ddobbelaere.jchess.chess.Position, io.github.ddobbelaere.jchess.chess.Move)}.
+         */
+        @Test
+        void testIsLegalMove() {
+                List<String> fenStrings = Arrays.asList("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+                                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                                "8/8/8/2k5/3Pp3/8/8/4K3 b - d3", "8/8/8/8/k2Pp2Q/8/8/4K3 b - d3");
+
+                for (String fen : fenStrings) {
+                        Position position = Position.fromFen(fen);
+
+                        // Check the position and all positions after one move.
+                        checkIsLegalMove(position);
+
+                        for (Move move : position.getLegalMoves()) {
+                                checkIsLegalMove(position.playMove(move));
+                        }
+                }
+        }
+
+        /**
+         * Test method for
+         * {@link io.github.ddobbelaere.jchess.chess.MoveGenerator#givesCheck(io.github.ddobbelaere.jchess.chess.Position, io.github.ddobbelaere.jchess.chess.Move)}.
+         */
+        @Test
+        void testGivesCheck() {
+                // Include checks by castling rooks, en passant discoveries and promotions.
+                List<String> fenStrings = Arrays.asList("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+                                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                                "5k2/8/8/8/8/8/8/4K2R w K -", "3k4/8/8/8/8/8/8/R3K3 w Q -",
+                                "8/8/8/k2Pp2R/8/8/8/4K3 w - e6", "8/8/8/8/K2pP2r/8/8/7k b - e3",
+                                "1n2k3/2P5/8/8/8/8/8/4K3 w - -", "1n6/2P1k3/8/8/8/8/8/4K3 w - -",
+                                "8/8/8/8/8/7k/1p6/R3K3 b - -");
+
+                for (String fen : fenStrings) {
+                        Position position = Position.fromFen(fen);
+
+                        // Check the position and all positions after one move.
+                        checkGivesCheck(position);
+
+                        for (Move move : position.getLegalMoves()) {
+                                checkGivesCheck(position.playMove(move));
+                        }
+                }
+        }
+
+        /**
+         * Check that exactly the legal moves that lead to check pass the check test.
+         *
+         * @param position Given legal chess position.
+         */
+        private void checkGivesCheck(Position position) {
+                for (Move move : position.getLegalMoves()) {
+                        assertEquals(position.playMove(move).isCheck(), MoveGenerator.givesCheck(position, move),
+                                        "Move " + move + " in position\n" + position);
+                }
+        }
+
+        /**
+         * Check that exactly the generated legal moves pass the single move legality
+         * test.
+         *
+         * @param position Given legal chess position.
+         */
+        private void checkIsLegalMove(Position position) {
+                List<Move> legalMoves = position.getLegalMoves();
+
+                for (int index = 0; index < Move.NUM_INDICES; index++) {
+                        Move move = Move.fromIndex(index);
+
+                        if (move != null) {
+                                assertEquals(legalMoves.contains(move), MoveGenerator.isLegalMove(position, move),
+                                                "Move " + move + " in position\n" + position);
+                        }
+                }
+        }
+
         /**
          * Check if the reference move list is equal to the generated move list.
          *
@@ -446,6 +598,10 @@ class MoveGeneratorTest {
                 testCases.add(Pair.of(Position.fromFen("6q1/1k6/8/5b1r/6P1/8/6K1/8 w - -"),
                                 new Move[] { new Move("g4g5") }));
 
+                // Pawn is pinned and can only move forward (including two squares).
+                testCases.add(Pair.of(Position.fromFen("6r1/1k6/8/8/8/8/6P1/6K1 w - -"),
+                                new Move[] { new Move("g2g3"), new Move("g2g4") }));
+
                 // Pawn is pinned and can only capture.
                 testCases.add(Pair.of(Position.fromFen("6q1/1k6/8/5b2/6P1/7K/8/8 w - -"),
                                 new Move[] { new Move("g4f5") }));
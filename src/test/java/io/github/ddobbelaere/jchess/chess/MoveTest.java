@@ -18,6 +18,7 @@
 package io.github.ddobbelaere.jchess.chess;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import org.junit.jupiter.api.Test;
@@ -89,4 +90,53 @@ class MoveTest {
         assertEquals(true, move.equals(new Move("d7d8")));
     }
 
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.Move#of(int, int, PromotionPieceType)}.
+     */
+    @Test
+    void testOf() {
+        Move move = Move.of(11, 27);
+
+        assertEquals(new Move("d2d4"), move);
+        assertSame(move, Move.of(11, 27, PromotionPieceType.NONE));
+        assertSame(move, Move.valueOf("d2d4"));
+        assertSame(move, Move.fromIndex(move.getIndex()));
+        assertSame(Move.of(55, 63, PromotionPieceType.QUEEN), Move.valueOf("h7h8q"));
+
+        // Test that all move indices are distinct and consistent with hashCode.
+        boolean[] seen = new boolean[Move.NUM_INDICES];
+
+        for (int fromSquare = 0; fromSquare < 64; fromSquare++) {
+            for (int toSquare = 0; toSquare < 64; toSquare++) {
+                for (PromotionPieceType promotionPieceType : PromotionPieceType.values()) {
+                    move = Move.of(fromSquare, toSquare, promotionPieceType);
+
+                    assertEquals(fromSquare, move.getFromSquare());
+                    assertEquals(toSquare, move.getToSquare());
+                    assertEquals(promotionPieceType, move.getPromotionPieceType());
+                    assertEquals(false, seen[move.getIndex()]);
+                    assertEquals(new Move(fromSquare, toSquare, promotionPieceType).hashCode(), move.hashCode());
+
+                    seen[move.getIndex()] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.Move#getMirrored()}.
+     */
+    @Test
+    void testGetMirrored() {
+        Move move = Move.valueOf("d7d8q");
+
+        assertSame(Move.valueOf("d2d1q"), move.getMirrored());
+        assertSame(move, move.getMirrored().getMirrored());
+        assertEquals("d7d8q", move.toString());
+        assertSame(Move.SHORT_CASTLING_BLACK, Move.valueOf("e8g8"));
+        assertSame(Move.LONG_CASTLING_BLACK, Move.valueOf("e8c8"));
+    }
+
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Efficiently updatable neural network test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class NnueTest {
+
+    /**
+     * Positions with castlings, en passant captures and promotions.
+     */
+    private static final String[] FEN_STRINGS = new String[] {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8" };
+
+    /**
+     * Create a network with random parameters.
+     *
+     * @param hiddenSize Hidden size.
+     * @param seed       Random seed.
+     * @return Random network.
+     */
+    private static Nnue createRandomNetwork(int hiddenSize, long seed) {
+        final Random random = new Random(seed);
+        final short[] featureWeights = new short[Nnue.NUM_FEATURES * hiddenSize];
+        final short[] featureBiases = new short[hiddenSize];
+        final short[] outputWeights = new short[2 * hiddenSize];
+
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(41) - 20);
+        }
+
+        for (int i = 0; i < featureBiases.length; i++) {
+            featureBiases[i] = (short) random.nextInt(128);
+        }
+
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+
+        return new Nnue(hiddenSize, featureWeights, featureBiases, outputWeights, (short) random.nextInt(1000));
+    }
+
+    /**
+     * Check that the incrementally updated evaluations of all positions in the
+     * tree below the given position (including null moves) equal the evaluations
+     * that are computed from scratch.
+     *
+     * @param evaluator Evaluator of the path.
+     * @param position  Given position.
+     * @param ply       Ply of the position on the path.
+     * @param depth     Depth of the tree (in plies).
+     */
+    private static void checkIncrementalUpdates(NnueEvaluator evaluator, Position position, int ply, int depth) {
+        evaluator.setPosition(ply, position);
+
+        assertEquals(new NnueEvaluator(evaluator.getNetwork(), 0).evaluate(position), evaluator.evaluate(ply));
+
+        if (depth > 0) {
+            for (Move move : position.getLegalMoves()) {
+                checkIncrementalUpdates(evaluator, position.playMove(move), ply + 1, depth - 1);
+            }
+
+            if (!position.isCheck()) {
+                checkIncrementalUpdates(evaluator, position.playNullMove(), ply + 1, depth - 1);
+            }
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.NnueEvaluator#evaluate(int)}.
+     */
+    @Test
+    void testEvaluate() {
+        final Nnue network = createRandomNetwork(16, 1);
+        final NnueEvaluator evaluator = new NnueEvaluator(network, 8);
+
+        // Color flipped positions have the same evaluation.
+        for (String fen : FEN_STRINGS) {
+            assertEquals(evaluator.evaluate(Position.fromFen(fen)),
+                    evaluator.evaluate(Position.fromFen(EvaluatorTest.flipColors(fen))));
+        }
+
+        // Incremental updates.
+        checkIncrementalUpdates(evaluator, Position.STARTING, 0, 3);
+
+        for (String fen : FEN_STRINGS) {
+            checkIncrementalUpdates(evaluator, Position.fromFen(fen), 0, 2);
+        }
+    }
+
+    /**
+     * Test method for {@link io.github.ddobbelaere.jchess.chess.Nnue#load(Path)}
+     * and {@link io.github.ddobbelaere.jchess.chess.Nnue#save(Path)}.
+     */
+    @Test
+    void testLoad(@TempDir Path directory) throws IOException {
+        final Nnue network = createRandomNetwork(4, 2);
+        final Path path = directory.resolve("test.nnue");
+
+        network.save(path);
+
+        final Nnue loadedNetwork = Nnue.load(path);
+
+        assertEquals(4, loadedNetwork.getHiddenSize());
+        assertEquals(true, Arrays.equals(network.featureWeights, loadedNetwork.featureWeights));
+        assertEquals(true, Arrays.equals(network.featureBiases, loadedNetwork.featureBiases));
+        assertEquals(true, Arrays.equals(network.outputWeights, loadedNetwork.outputWeights));
+        assertEquals(network.outputBias, loadedNetwork.outputBias);
+        assertEquals(new NnueEvaluator(network, 0).evaluate(Position.STARTING),
+                new NnueEvaluator(loadedNetwork, 0).evaluate(Position.STARTING));
+
+        // Invalid files.
+        final byte[] bytes = Files.readAllBytes(path);
+
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> Nnue.load(path));
+
+        bytes[0] = 0;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> Nnue.load(path));
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pawn hash table test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class PawnHashTableTest {
+
+    /**
+     * Test method for {@link io.github.ddobbelaere.jchess.chess.Position#getPawnHash()}.
+     */
+    @Test
+    void testGetPawnHash() {
+        // Piece moves don't change the pawn hash, pawn moves do.
+        assertEquals(Position.STARTING.getPawnHash(), Position.STARTING.playMove("Nf3").getPawnHash());
+        assertEquals(false, Position.STARTING.getPawnHash() == Position.STARTING.playMove("e4").getPawnHash());
+
+        // The pawn hash doesn't depend on the side to move.
+        assertEquals(Position.STARTING.getPawnHash(), Position.STARTING.playNullMove().getPawnHash());
+
+        // The pawn hash after playing moves equals the pawn hash of the same position
+        // parsed from its FEN string.
+        Position position = Position.fromFen("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+
+        for (Move move : position.getLegalMoves()) {
+            Position nextPosition = position.playMove(move);
+
+            for (Move nextMove : nextPosition.getLegalMoves()) {
+                Position resultingPosition = nextPosition.playMove(nextMove);
+
+                assertEquals(Position.fromFen(resultingPosition.getFen()).getPawnHash(),
+                        resultingPosition.getPawnHash());
+            }
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.PawnHashTable#probe(Position)}.
+     */
+    @Test
+    void testProbe() {
+        PawnHashTable pawnHashTable = new PawnHashTable(16);
+        Position position = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+
+        assertEquals(true, pawnHashTable.getNumEntries() > 0);
+        assertEquals(0, pawnHashTable.getHitRate());
+
+        // Cached evaluations equal direct evaluations.
+        assertEquals(position.evaluate(), position.evaluate(pawnHashTable));
+        assertEquals(1, pawnHashTable.getNumProbes());
+        assertEquals(0, pawnHashTable.getNumHits());
+
+        // Piece moves keep the pawn structure.
+        position = position.playMove("Nd3").playMove("Kf8");
+
+        assertEquals(position.evaluate(), position.evaluate(pawnHashTable));
+        assertEquals(2, pawnHashTable.getNumProbes());
+        assertEquals(1, pawnHashTable.getNumHits());
+        assertEquals(0.5, pawnHashTable.getHitRate());
+
+        // The entry is shared by both sides to move.
+        position = position.playMove("Nf4");
+
+        assertEquals(position.evaluate(), position.evaluate(pawnHashTable));
+        assertEquals(3, pawnHashTable.getNumProbes());
+        assertEquals(2, pawnHashTable.getNumHits());
+
+        for (Move move : position.getLegalMoves()) {
+            Position nextPosition = position.playMove(move);
+
+            assertEquals(nextPosition.evaluate(), nextPosition.evaluate(pawnHashTable));
+        }
+
+        pawnHashTable.clear();
+        assertEquals(0, pawnHashTable.getNumProbes());
+
+        // Invalid sizes.
+        assertThrows(IllegalArgumentException.class, () -> new PawnHashTable(0));
+        assertThrows(IllegalArgumentException.class, () -> new PawnHashTable(PawnHashTable.MAX_SIZE_KB + 1));
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pawn structure evaluator test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class PawnStructureEvaluatorTest {
+
+    /**
+     * Evaluate the pawn structure of a position.
+     *
+     * @param fen FEN string of the position.
+     * @return Middlegame and endgame score.
+     */
+    private int[] evaluate(String fen) {
+        final int score = PawnStructureEvaluator.evaluate(Position.fromFen(fen).board);
+
+        return new int[] { PawnStructureEvaluator.getMiddlegameScore(score),
+                PawnStructureEvaluator.getEndgameScore(score) };
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.PawnStructureEvaluator#evaluate(Board)}.
+     */
+    @Test
+    void testEvaluate() {
+        // No pawns.
+        assertEquals(0, PawnStructureEvaluator.evaluate(Position.fromFen("4k3/8/8/8/8/8/8/4K3 w - -").board));
+
+        // Isolated passed pawn.
+        assertEquals(-5, evaluate("4k3/8/8/8/8/8/P7/4K3 w - -")[0]);
+        assertEquals(-5, evaluate("4k3/8/8/8/8/8/P7/4K3 w - -")[1]);
+
+        // Doubled isolated pawns, of which only the front pawn is passed, for both
+        // sides.
+        assertEquals(-20, evaluate("4k3/8/8/8/8/P7/P7/4K3 w - -")[0]);
+        assertEquals(-40, evaluate("4k3/8/8/8/8/P7/P7/4K3 w - -")[1]);
+        assertEquals(-20, evaluate("4k3/p7/p7/8/8/8/8/4K3 b - -")[0]);
+        assertEquals(40, evaluate("4k3/p7/p7/8/8/8/8/4K3 w - -")[1]);
+
+        // Pawns on adjacent columns that can attack each other's path are not passed.
+        assertEquals(0, evaluate("4k3/8/1p6/8/8/8/P7/4K3 w - -")[0]);
+        assertEquals(0, evaluate("4k3/8/1p6/8/8/8/P7/4K3 w - -")[1]);
+
+        // Supported passed pawns.
+        assertEquals(20, evaluate("4k3/8/8/8/8/1P6/P7/4K3 w - -")[0]);
+        assertEquals(30, evaluate("4k3/8/8/8/8/1P6/P7/4K3 w - -")[1]);
+
+        // Backward pawn (b2, whose stop square is attacked by a4 and can't be defended
+        // by c4), next to a passed pawn (c4), versus an isolated pawn (a4).
+        assertEquals(-8 + 15 + 10, evaluate("4k3/8/8/8/p1P5/8/1P6/4K3 w - -")[0]);
+        assertEquals(-10 + 25 + 15, evaluate("4k3/8/8/8/p1P5/8/1P6/4K3 w - -")[1]);
+
+        // A pawn whose stop square is defended by a pawn on an adjacent column is not
+        // backward.
+        assertEquals(5 + 10, evaluate("4k3/8/8/8/p7/8/1PP5/4K3 w - -")[0]);
+        assertEquals(10 + 15, evaluate("4k3/8/8/8/p7/8/1PP5/4K3 w - -")[1]);
+
+        // Passed pawns are more valuable when advanced.
+        assertEquals(true, evaluate("4k3/1P6/8/8/8/8/8/4K3 w - -")[1] > evaluate("4k3/8/8/8/1P6/8/8/4K3 w - -")[1]);
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.PawnStructureEvaluator#evaluatePawnShields(Board)}.
+     */
+    @Test
+    void testEvaluatePawnShields() {
+        // Symmetric shields.
+        assertEquals(0, PawnStructureEvaluator
+                .evaluatePawnShields(Position.fromFen("6k1/5ppp/8/8/8/8/5PPP/6K1 w - -").board));
+
+        // Two pawns directly in front of the king and one pawn two rows in front of it
+        // (middlegame only).
+        final int score = PawnStructureEvaluator
+                .evaluatePawnShields(Position.fromFen("6k1/8/8/8/8/6P1/5P1P/6K1 w - -").board);
+
+        assertEquals(2 * 12 + 6, PawnStructureEvaluator.getMiddlegameScore(score));
+        assertEquals(0, PawnStructureEvaluator.getEndgameScore(score));
+        assertEquals(-score, PawnStructureEvaluator
+                .evaluatePawnShields(Position.fromFen("6k1/8/8/8/8/6P1/5P1P/6K1 b - -").board));
+
+        // Pawns next to or behind the king are no shield.
+        assertEquals(0, PawnStructureEvaluator
+                .evaluatePawnShields(Position.fromFen("6k1/8/8/8/8/8/5PKP/8 w - -").board));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.PawnStructureEvaluator#makeScore(int, int)}.
+     */
+    @Test
+    void testMakeScore() {
+        for (int middlegameScore = -300; middlegameScore <= 300; middlegameScore += 7) {
+            for (int endgameScore = -300; endgameScore <= 300; endgameScore += 11) {
+                final int score = PawnStructureEvaluator.makeScore(middlegameScore, endgameScore);
+
+                assertEquals(middlegameScore, PawnStructureEvaluator.getMiddlegameScore(score));
+                assertEquals(endgameScore, PawnStructureEvaluator.getEndgameScore(score));
+                assertEquals(-middlegameScore, PawnStructureEvaluator.getMiddlegameScore(-score));
+            }
+        }
+    }
+
+}
@@ -23,6 +23,11 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.Test;
@@ -122,6 +127,82 @@ class PositionTest {
                 assertEquals(20, legalMoves.size());
         }
 
+        /**
+         * Stress test of the lazily cached move generator result of positions that are
+         * shared between many threads.
+         *
+         * @throws Exception If a worker thread fails.
+         */
+        @Test
+        void testConcurrentGetLegalMoves() throws Exception {
+                final int NUM_THREADS = 16;
+                final int NUM_ROUNDS = 200;
+
+                List<String> fenStrings = Arrays.asList(
+                                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+                                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                                "rnbqkb1r/pppp1ppp/5n2/3Pp3/8/8/PPP1PPPP/RNBQKBNR w KQkq e6 0 3");
+
+                // Reference move lists, generated on positions that are not shared.
+                List<List<Move>> referenceMoves = new ArrayList<>();
+
+                for (String fen : fenStrings) {
+                        referenceMoves.add(Position.fromFen(fen).getLegalMoves());
+                }
+
+                ExecutorService executorService = Executors.newFixedThreadPool(NUM_THREADS);
+
+                try {
+                        for (int round = 0; round < NUM_ROUNDS; round++) {
+                                // Fresh positions with an empty cache, shared by all threads in this round.
+                                List<Position> sharedPositions = new ArrayList<>();
+
+                                for (String fen : fenStrings) {
+                                        sharedPositions.add(Position.fromFen(fen));
+                                }
+
+                                // Let all threads start at the same time to maximize contention.
+                                CountDownLatch startSignal = new CountDownLatch(1);
+                                List<Future<?>> futures = new ArrayList<>();
+
+                                for (int thread = 0; thread < NUM_THREADS; thread++) {
+                                        final int offset = thread;
+
+                                        futures.add(executorService.submit(() -> {
+                                                startSignal.await();
+
+                                                for (int i = 0; i < sharedPositions.size(); i++) {
+                                                        // Visit the positions in a different order in each thread.
+                                                        int index = (i + offset) % sharedPositions.size();
+                                                        Position position = sharedPositions.get(index);
+
+                                                        assertEquals(referenceMoves.get(index), position.getLegalMoves());
+                                                        assertEquals(false, position.isCheckmate());
+
+                                                        // Also exercise the shared starting position and child positions.
+                                                        assertEquals(20, Position.STARTING.getLegalMoves().size());
+                                                        position.playMove(position.getLegalMoves().get(0))
+                                                                        .getLegalMoves();
+                                                }
+
+                                                return null;
+                                        }));
+                                }
+
+                                startSignal.countDown();
+
+                                // Propagate any assertion failure of the worker threads.
+                                for (Future<?> future : futures) {
+                                        future.get();
+                                }
+                        }
+                } finally {
+                        executorService.shutdown();
+                }
+        }
+
         /**
          * Test method for
          * {@link io.github.ddobbelaere.jchess.chess.Position#applyMove()}.
@@ -318,6 +399,204 @@ class PositionTest {
                                                 .fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1")));
         }
 
+        /**
+         * Test method for {@link io.github.ddobbelaere.jchess.chess.Position#getHash()}.
+         */
+        @Test
+        void testGetHash() {
+                // Transpositions have the same hash, regardless of move counts.
+                Position position = Position.STARTING.playMove("Nf3").playMove("Nf6").playMove("Nc3");
+                Position transposedPosition = Position.STARTING.playMove("Nc3").playMove("Nf6").playMove("Nf3");
+
+                assertEquals(position.getHash(), transposedPosition.getHash());
+                assertEquals(position.hashCode(), transposedPosition.hashCode());
+                assertEquals(Position.STARTING.getHash(), Position.STARTING.playMove("Nf3").playMove("Nf6")
+                                .playMove("Ng1").playMove("Ng8").getHash());
+
+                // Side to move, castling rights and en passant squares are taken into account.
+                assertEquals(false, Position.fromFen("4k3/8/8/8/8/8/8/4K2R w K -").getHash() == Position
+                                .fromFen("4k3/8/8/8/8/8/8/4K2R b K -").getHash());
+                assertEquals(false, Position.fromFen("4k3/8/8/8/8/8/8/4K2R w K -").getHash() == Position
+                                .fromFen("4k3/8/8/8/8/8/8/4K2R w - -").getHash());
+                assertEquals(false, Position.fromFen("rnbqkb1r/pppp1ppp/5n2/3Pp3/8/8/PPP1PPPP/RNBQKBNR w KQkq e6 0 3")
+                                .getHash() == Position
+                                                .fromFen("rnbqkb1r/pppp1ppp/5n2/3Pp3/8/8/PPP1PPPP/RNBQKBNR w KQkq - 0 3")
+                                                .getHash());
+
+                // The hash after playing moves equals the hash of the same position parsed from
+                // its FEN string.
+                position = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -");
+
+                for (Move move : position.getLegalMoves()) {
+                        Position nextPosition = position.playMove(move);
+
+                        for (Move nextMove : nextPosition.getLegalMoves()) {
+                                Position resultingPosition = nextPosition.playMove(nextMove);
+
+                                assertEquals(Position.fromFen(resultingPosition.getFen()).getHash(),
+                                                resultingPosition.getHash());
+                        }
+                }
+
+                // The incrementally updated hash equals the hash computed from scratch along
+                // random games (with castlings, en passant captures, promotions and null
+                // moves).
+                final Random random = new Random(0);
+
+                for (int i = 0; i < 100; i++) {
+                        position = Position.STARTING;
+
+                        for (int ply = 0; ply < 200 && !position.getLegalMoves().isEmpty(); ply++) {
+                                final List<Move> moves = position.getLegalMoves();
+
+                                position = (random.nextInt(10) == 0 && !position.isCheck())
+                                                ? position.playNullMove()
+                                                : position.playMove(moves.get(random.nextInt(moves.size())));
+
+                                assertEquals(Zobrist.computeHash(position), position.getHash());
+                                assertEquals(Zobrist.computePawnHash(position), position.getPawnHash());
+                        }
+                }
+        }
+
+        /**
+         * Test method for {@link io.github.ddobbelaere.jchess.chess.Position#getPolyglotKey()}.
+         */
+        @Test
+        void testGetPolyglotKey() {
+                // Reference keys of the Polyglot book format specification.
+                final String[] moves = { "e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7" };
+                final long[] keys = { 0x463B96181691FC9CL, 0x823C9B50FD114196L, 0x0756B94461C50FB0L,
+                                0x662FAFB965DB29D4L, 0x22A48B5A8E47FF78L, 0x652A607CA3F242C1L, 0x00FDD303C946BDD9L };
+                Position position = Position.STARTING;
+
+                assertEquals(keys[0], position.getPolyglotKey());
+
+                for (int i = 0; i < moves.length; i++) {
+                        position = position.playMove(Move.valueOf(moves[i]));
+
+                        assertEquals(keys[i + 1], position.getPolyglotKey());
+                }
+
+                position = Position.STARTING;
+
+                for (String move : new String[] { "a2a4", "b7b5", "h2h4", "b5b4", "c2c4" }) {
+                        position = position.playMove(Move.valueOf(move));
+                }
+
+                assertEquals(0x3C8123EA7B067637L, position.getPolyglotKey());
+                assertEquals(0x5C3F9B829B279560L, position.playMove(Move.valueOf("b4c3"))
+                                .playMove(Move.valueOf("a1a3")).getPolyglotKey());
+
+                // The key does not depend on move counts.
+                assertEquals(keys[2], Position
+                                .fromFen("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 5 9")
+                                .getPolyglotKey());
+        }
+
+        /**
+         * Test method for
+         * {@link io.github.ddobbelaere.jchess.chess.Position#getPolyglotMove(int)}.
+         */
+        @Test
+        void testGetPolyglotMove() {
+                // e2-e4.
+                assertEquals(Move.valueOf("e2e4"), Position.STARTING.getPolyglotMove((12 << 6) | 28));
+
+                // Illegal moves.
+                assertEquals(null, Position.STARTING.getPolyglotMove((12 << 6) | 36));
+                assertEquals(null, Position.STARTING.getPolyglotMove((4 << 6) | 7));
+
+                // Castling encoded as king takes rook.
+                Position position = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq -");
+
+                assertEquals(Move.valueOf("e1g1"), position.getPolyglotMove((4 << 6) | 7));
+                assertEquals(Move.valueOf("e1c1"), position.getPolyglotMove((4 << 6) | 0));
+                // Plain king moves to the castling destination square are accepted as well.
+                assertEquals(Move.valueOf("e1g1"), position.getPolyglotMove((4 << 6) | 6));
+
+                position = position.playMove(Move.valueOf("a1b1"));
+
+                assertEquals(Move.valueOf("e8g8"), position.getPolyglotMove((60 << 6) | 63));
+                assertEquals(Move.valueOf("e8c8"), position.getPolyglotMove((60 << 6) | 56));
+
+                // Promotions (knight, bishop, rook and queen).
+                position = Position.fromFen("4k3/1P6/8/8/8/8/8/4K3 w - -");
+
+                assertEquals(Move.valueOf("b7b8n"), position.getPolyglotMove((1 << 12) | (49 << 6) | 57));
+                assertEquals(Move.valueOf("b7b8b"), position.getPolyglotMove((2 << 12) | (49 << 6) | 57));
+                assertEquals(Move.valueOf("b7b8r"), position.getPolyglotMove((3 << 12) | (49 << 6) | 57));
+                assertEquals(Move.valueOf("b7b8q"), position.getPolyglotMove((4 << 12) | (49 << 6) | 57));
+                assertEquals(null, position.getPolyglotMove((49 << 6) | 57));
+                assertEquals(null, position.getPolyglotMove((5 << 12) | (49 << 6) | 57));
+        }
+
+        /**
+         * Test method for
+         * {@link io.github.ddobbelaere.jchess.chess.Position#encodePolyglotMove(Move)}.
+         */
+        @Test
+        void testEncodePolyglotMove() {
+                // Encoding and decoding are inverse operations.
+                for (String fen : getLegalFenStrings()) {
+                        Position position = Position.fromFen(fen);
+
+                        for (Move move : position.getLegalMoves()) {
+                                assertEquals(move, position.getPolyglotMove(position.encodePolyglotMove(move)));
+                        }
+                }
+
+                Position position = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq -");
+
+                assertEquals((4 << 6) | 7, position.encodePolyglotMove(Move.valueOf("e1g1")));
+                assertEquals((4 << 6) | 0, position.encodePolyglotMove(Move.valueOf("e1c1")));
+                assertEquals((4 << 6) | 5, position.encodePolyglotMove(Move.valueOf("e1f1")));
+                assertEquals((4 << 12) | (49 << 6) | 57, Position.fromFen("4k3/1P6/8/8/8/8/8/4K3 w - -")
+                                .encodePolyglotMove(Move.valueOf("b7b8q")));
+        }
+
+        /**
+         * Test method for {@link io.github.ddobbelaere.jchess.chess.Position#playNullMove()}.
+         */
+        @Test
+        void testPlayNullMove() {
+                Position position = Position.fromFen("rnbqkb1r/pppp1ppp/5n2/3Pp3/8/8/PPP1PPPP/RNBQKBNR w KQkq e6 0 3");
+
+                // The en passant square is cleared and the move counters are updated.
+                assertEquals("rnbqkb1r/pppp1ppp/5n2/3Pp3/8/8/PPP1PPPP/RNBQKBNR b KQkq - 1 3",
+                                position.playNullMove().getFen());
+                assertEquals("rnbqkb1r/pppp1ppp/5n2/3Pp3/8/8/PPP1PPPP/RNBQKBNR w KQkq - 2 4",
+                                position.playNullMove().playNullMove().getFen());
+                assertEquals(Position.fromFen(position.playNullMove().getFen()).getHash(),
+                                position.playNullMove().getHash());
+
+                assertEquals(true, position.hasNonPawnMaterial());
+                assertEquals(false, Position.fromFen("4k3/8/8/8/8/8/4P3/4K2R b - -").hasNonPawnMaterial());
+        }
+
+        /**
+         * Test method for
+         * {@link io.github.ddobbelaere.jchess.chess.Position#getMovePieceType(Move)}
+         * and
+         * {@link io.github.ddobbelaere.jchess.chess.Position#getCapturedPieceType(Move)}.
+         */
+        @Test
+        void testGetPieceTypes() {
+                Position position = Position.fromFen("rnbqkb1r/pppp1ppp/5n2/3Pp3/8/8/PPP1PPPP/RNBQKBNR w KQkq e6 0 3");
+
+                assertEquals(PieceType.PAWN, position.getMovePieceType(new Move("d5e6")));
+                assertEquals(PieceType.PAWN, position.getCapturedPieceType(new Move("d5e6")));
+                assertEquals(PieceType.KNIGHT, position.getMovePieceType(new Move("g1f3")));
+                assertEquals(null, position.getCapturedPieceType(new Move("g1f3")));
+
+                // Black to move (mirrored board).
+                position = position.playMove("Nc3");
+
+                assertEquals(PieceType.KNIGHT, position.getMovePieceType(new Move("f6d5")));
+                assertEquals(PieceType.PAWN, position.getCapturedPieceType(new Move("f6d5")));
+                assertEquals(PieceType.QUEEN, position.getMovePieceType(new Move("d8e7")));
+        }
+
         /**
          * Get a list of legal FEN strings.
          *
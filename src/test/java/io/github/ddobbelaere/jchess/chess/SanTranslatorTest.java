@@ -49,6 +49,7 @@ class SanTranslatorTest {
                 assertThrows(IllegalMoveException.class, () -> SanTranslator.fromSan("", Position.STARTING));
                 assertThrows(IllegalMoveException.class, () -> SanTranslator.fromSan("Qxi0", Position.STARTING));
                 assertThrows(IllegalMoveException.class, () -> SanTranslator.fromSan("Qxd1", Position.STARTING));
+                assertThrows(IllegalMoveException.class, () -> SanTranslator.fromSan("O-O", Position.STARTING));
                 assertThrows(IllegalMoveException.class,
                                 () -> SanTranslator.fromSan("Ne3",
                                                 Position.fromFen("4k3/8/8/8/2N3N1/8/2N5/4K3 w - -")));
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Static exchange evaluator test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class StaticExchangeEvaluatorTest {
+
+    /**
+     * Get the static exchange evaluation of a move in a position.
+     *
+     * @param fen  FEN string of the position.
+     * @param move Move string.
+     * @return Static exchange evaluation of the move.
+     */
+    private int evaluate(String fen, String move) {
+        return Position.fromFen(fen).getStaticExchangeEvaluation(new Move(move));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.chess.StaticExchangeEvaluator#evaluate(Position, Move)}.
+     */
+    @Test
+    void testEvaluate() {
+        // Capture of an undefended pawn.
+        assertEquals(100, evaluate("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - -", "e1e5"));
+
+        // Capture of a pawn defended by a pawn.
+        assertEquals(-800, evaluate("4k3/8/2p5/3p4/8/8/8/3QK3 w - -", "d1d5"));
+
+        // Quiet moves to safe and attacked squares.
+        assertEquals(0, evaluate("4k3/8/2p5/3p4/8/8/8/3QK3 w - -", "d1d2"));
+        assertEquals(-900, evaluate("4k3/8/2p5/3p4/8/8/8/3QK3 w - -", "d1b5"));
+
+        // A rook behind the capturing rook joins the exchange (X-ray), also with black
+        // to move.
+        assertEquals(100, evaluate("4k3/4r3/8/4p3/8/8/4R3/4R1K1 w - -", "e2e5"));
+        assertEquals(-400, evaluate("4k3/4r3/8/4p3/8/8/4R3/5RK1 w - -", "e2e5"));
+        assertEquals(100, evaluate("4r1k1/4r3/8/8/4P3/8/4R3/4K3 b - -", "e7e4"));
+
+        // The defender recaptures with the least valuable piece, and the exchange
+        // is evaluated until the end.
+        assertEquals(-220, evaluate("4k3/8/2p1q3/3p4/8/4N3/8/4K3 w - -", "e3d5"));
+        assertEquals(-70, evaluate("4k3/5b2/2n5/3p4/8/8/3R4/3RK3 w - -", "d2d5"));
+        assertEquals(100, evaluate("4k3/8/8/3p4/8/8/3Q4/3RK3 w - -", "d2d5"));
+
+        // The king only captures undefended pieces.
+        assertEquals(0, evaluate("3rk3/8/8/8/8/8/8/3RK3 w - -", "d1d8"));
+        assertEquals(500, evaluate("3rk3/8/8/8/8/8/3R4/3RK3 w - -", "d2d8"));
+        assertEquals(-400, evaluate("3rkr2/8/8/8/8/8/8/3QK3 w - -", "d1d8"));
+
+        // En passant capture and promotions.
+        assertEquals(100, evaluate("4k3/8/8/3Pp3/8/8/8/4K3 w - e6", "d5e6"));
+        assertEquals(800, evaluate("4k3/1P6/8/8/8/8/8/4K3 w - -", "b7b8q"));
+        assertEquals(-100, evaluate("r3k3/1P6/8/8/8/8/8/4K3 w - -", "b7b8q"));
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.MaterialSignature;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.pgn.PgnReader;
+
+/**
+ * Material index test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class MaterialIndexTest {
+    /**
+     * Games with a pawn trade (first game) and a pawn capture (last game).
+     */
+    private static final String PGN = "1. e4 d5 2. exd5 Qxd5 *\n\n1. e4 e5 *\n\n1. d4 e5 2. dxe5 *\n";
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.index.MaterialIndex#findGames(int, boolean)}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If the index cannot be built or read.
+     */
+    @Test
+    void testFindGames(@TempDir Path directory) throws IOException {
+        final MaterialIndexBuilder builder = new MaterialIndexBuilder(directory);
+        final Path path = directory.resolve("index.bin");
+
+        try (PgnReader reader = new PgnReader(new StringReader(PGN))) {
+            assertEquals(3, builder.addGames(reader.games(false)));
+        }
+
+        assertEquals(3, builder.build(path));
+
+        // Only the index is left in the temporary directory.
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(Collections.singletonList(path), files.collect(Collectors.toList()));
+        }
+
+        final MaterialIndex index = new MaterialIndex(path);
+        final int start = Position.STARTING.getMaterialSignature();
+        final int pawnUp = MaterialSignature.valueOf("KQRRBBNNPPPPPPPPKQRRBBNNPPPPPPP");
+        final int equal = MaterialSignature.valueOf("KQRRBBNNPPPPPPPKQRRBBNNPPPPPPP");
+
+        assertEquals(3, index.getNumGames());
+        assertEquals(Arrays.asList(0L, 1L, 2L), index.findGames(start));
+        assertEquals(Arrays.asList(0L, 2L), index.findGames(pawnUp));
+        assertEquals(Arrays.asList(0L), index.findGames(equal));
+        assertEquals(Collections.emptyList(), index.findGames(MaterialSignature.mirror(pawnUp)));
+        assertEquals(Arrays.asList(0L, 2L), index.findGames(MaterialSignature.mirror(pawnUp), true));
+        assertEquals(Collections.emptyList(), index.findGames(MaterialSignature.valueOf("KRPKR"), true));
+
+        final int[] signatures = { equal, pawnUp, start };
+
+        Arrays.sort(signatures);
+        assertArrayEquals(signatures, index.getSignatures(0));
+        assertArrayEquals(new int[] { start }, index.getSignatures(1));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.index.MaterialIndex#findGamesWithPawnStructure(Position)}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If the index cannot be built or read.
+     */
+    @Test
+    void testFindGamesWithPawnStructure(@TempDir Path directory) throws IOException {
+        final Path path = directory.resolve("index.bin");
+
+        try (MaterialIndexBuilder builder = new MaterialIndexBuilder(directory);
+                PgnReader reader = new PgnReader(new StringReader(PGN))) {
+            builder.addGames(reader.games(false));
+            builder.build(path);
+        }
+
+        final MaterialIndex index = new MaterialIndex(path);
+        final Position e4 = Position.STARTING.playMove("e4");
+        final Position e4e5 = e4.playMove("e5");
+
+        assertEquals(Arrays.asList(0L, 1L, 2L), index.findGamesWithPawnStructure(Position.STARTING));
+        assertEquals(Arrays.asList(0L, 1L), index.findGamesWithPawnStructure(e4));
+        assertEquals(Arrays.asList(1L), index.findGamesWithPawnStructure(e4e5));
+
+        // Only the pawns count, not the other pieces or the side to move.
+        assertEquals(Arrays.asList(1L), index.findGamesWithPawnStructure(e4e5.playMove("Nf3")));
+        assertEquals(Collections.emptyList(), index.findGamesWithPawnStructure(e4e5.playMove("d4")));
+
+        final long[] pawnHashes = { Position.STARTING.getPawnHash(), e4.getPawnHash(), e4e5.getPawnHash() };
+
+        Arrays.sort(pawnHashes);
+        assertArrayEquals(pawnHashes, index.getPawnStructures(1));
+        assertEquals(5, index.getPawnStructures(0).length);
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.index.MaterialIndexBuilder#close()}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If the temporary files cannot be written.
+     */
+    @Test
+    void testClose(@TempDir Path directory) throws IOException {
+        final MaterialIndexBuilder builder = new MaterialIndexBuilder(directory);
+
+        builder.addGame(new Game());
+        builder.close();
+
+        // An abandoned builder leaves no temporary files behind.
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+
+        assertThrows(IllegalStateException.class, () -> builder.build(directory.resolve("index.bin")));
+    }
+
+    /**
+     * Test that opening a file that is no material index fails.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If the file cannot be written.
+     */
+    @Test
+    void testInvalidFile(@TempDir Path directory) throws IOException {
+        final Path path = directory.resolve("index.bin");
+
+        Files.write(path, new byte[MaterialIndex.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> new MaterialIndex(path));
+    }
+
+    /**
+     * Benchmark the index on random games.
+     *
+     * @param args Command line arguments (ignored).
+     * @throws IOException If the index cannot be built or read.
+     */
+    public static void main(String[] args) throws IOException {
+        final int NUM_GAMES = 100_000;
+        final int NUM_QUERIES = 100;
+        final Random random = new Random(1);
+        final Path directory = Files.createTempDirectory("jchess");
+        final Path path = directory.resolve("index.bin");
+
+        try {
+            final MaterialIndexBuilder builder = new MaterialIndexBuilder(directory);
+            long startTime = System.nanoTime();
+
+            for (int i = 0; i < NUM_GAMES; i++) {
+                final Game game = new Game();
+
+                for (int ply = 0; ply < 60 && !game.getLegalMoves().isEmpty(); ply++) {
+                    final List<Move> moves = game.getLegalMoves();
+
+                    game.playMoves(moves.get(random.nextInt(moves.size())));
+                }
+
+                builder.addGame(game);
+            }
+
+            builder.build(path);
+
+            System.out.printf("Indexed %d games (%d bytes) in %.0f ms%n", NUM_GAMES, Files.size(path),
+                    (System.nanoTime() - startTime) / 1e6);
+
+            final MaterialIndex index = new MaterialIndex(path);
+            final int signature = MaterialSignature.valueOf("KQRRBBNNPPPPPPPKQRRBBNPPPPPPPP");
+            long numFound = 0;
+            startTime = System.nanoTime();
+
+            for (int i = 0; i < NUM_QUERIES; i++) {
+                numFound += index.findGames(signature, true).size();
+            }
+
+            System.out.printf("%d queries (%d games found): %.2f ms per query%n", NUM_QUERIES,
+                    numFound / NUM_QUERIES, (System.nanoTime() - startTime) / 1e6 / NUM_QUERIES);
+
+            final Position pawnStructure = Position.STARTING.playMove("e4").playMove("e5");
+            numFound = 0;
+            startTime = System.nanoTime();
+
+            for (int i = 0; i < NUM_QUERIES; i++) {
+                numFound += index.findGamesWithPawnStructure(pawnStructure).size();
+            }
+
+            System.out.printf("%d pawn structure queries (%d games found): %.2f ms per query%n", NUM_QUERIES,
+                    numFound / NUM_QUERIES, (System.nanoTime() - startTime) / 1e6 / NUM_QUERIES);
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+}
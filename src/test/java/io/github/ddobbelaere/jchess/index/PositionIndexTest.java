@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.ddobbelaere.jchess.chess.Game;
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.pgn.PgnReader;
+
+/**
+ * Position index test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class PositionIndexTest {
+    /**
+     * Games with a transposition (first two games) and a repetition (last game).
+     */
+    private static final String PGN = "1. e4 e5 2. Nf3 Nc6 *\n\n1. Nf3 Nc6 2. e4 e5 3. Bb5 *\n\n1. d4 d5 *\n\n"
+            + "1. Nf3 Nf6 2. Ng1 Ng8 3. Nf3 *\n";
+
+    /**
+     * Game identifiers of the games (with multi-byte differences).
+     */
+    private static final long[] GAME_IDS = { 0, 7, 300, 1L << 40 };
+
+    /**
+     * Build an index of the games.
+     *
+     * @param directory              Temporary directory.
+     * @param name                   File name of the index.
+     * @param maxNumPostingsInMemory Maximum number of postings in memory.
+     * @return Path of the index.
+     * @throws IOException If the index cannot be built.
+     */
+    private static Path buildIndex(Path directory, String name, int maxNumPostingsInMemory) throws IOException {
+        final PositionIndexBuilder builder = new PositionIndexBuilder(maxNumPostingsInMemory, directory);
+        final Path path = directory.resolve(name);
+
+        try (PgnReader reader = new PgnReader(new StringReader(PGN))) {
+            for (long gameId : GAME_IDS) {
+                builder.addGame(gameId, reader.readGame().getGame());
+            }
+        }
+
+        assertEquals(5 + 6 + 3 + 6, builder.build(path));
+
+        return path;
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.index.PositionIndex#lookup(Position)}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If the index cannot be built or read.
+     */
+    @Test
+    void testLookup(@TempDir Path directory) throws IOException {
+        final PositionIndex index = new PositionIndex(buildIndex(directory, "index.bin", 1 << 10));
+
+        assertEquals(20, index.getNumPostings());
+        assertEquals(true, index.getNumPositions() < index.getNumPostings());
+
+        assertEquals(Arrays.asList(new Posting(0, 0), new Posting(7, 0), new Posting(300, 0),
+                new Posting(1L << 40, 0), new Posting(1L << 40, 4)), index.lookup(Position.STARTING));
+        assertEquals(5, index.count(Position.STARTING));
+        assertEquals(Arrays.asList(new Posting(0, 0), new Posting(7, 0)), index.lookup(Position.STARTING, 2));
+
+        // Transposition.
+        final Position position = Position.STARTING.playMove("e4").playMove("e5").playMove("Nf3").playMove("Nc6");
+
+        assertEquals(Arrays.asList(new Posting(0, 4), new Posting(7, 4)), index.lookup(position));
+        assertEquals(2, index.count(position));
+
+        assertEquals(Arrays.asList(new Posting(7, 1), new Posting(1L << 40, 1), new Posting(1L << 40, 5)),
+                index.lookup(Position.STARTING.playMove("Nf3")));
+        assertEquals(Collections.emptyList(), index.lookup(Position.STARTING.playMove("c4")));
+        assertEquals(0, index.count(Position.STARTING.playMove("c4")));
+    }
+
+    /**
+     * Test that the index does not depend on the number of spilled runs, and that
+     * only the index is left in the temporary directory.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If the index cannot be built or read.
+     */
+    @Test
+    void testBuild(@TempDir Path directory) throws IOException {
+        final Path inMemoryPath = buildIndex(directory, "in-memory.bin", 1 << 10);
+        final Path spillingPath = buildIndex(directory, "spilling.bin", 3);
+
+        assertEquals(true, Arrays.equals(Files.readAllBytes(inMemoryPath), Files.readAllBytes(spillingPath)));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+
+        // Games from a stream of games.
+        final PositionIndexBuilder builder = new PositionIndexBuilder(directory);
+
+        try (PgnReader reader = new PgnReader(new StringReader(PGN))) {
+            assertEquals(4, builder.addGames(reader.games(false), 10));
+        }
+
+        builder.build(inMemoryPath);
+
+        assertEquals(Arrays.asList(new Posting(10, 4), new Posting(11, 4)), new PositionIndex(inMemoryPath).lookup(
+                Position.STARTING.playMove("Nf3").playMove("Nc6").playMove("e4").playMove("e5")));
+
+        assertThrows(IllegalArgumentException.class, () -> builder.addGame(-1, new Game()));
+
+        // No index file.
+        Files.write(spillingPath, new byte[PositionIndex.HEADER_SIZE]);
+
+        assertThrows(IOException.class, () -> new PositionIndex(spillingPath));
+    }
+
+    /**
+     * Benchmark the index on random games.
+     *
+     * @param args Command line arguments (ignored).
+     * @throws IOException If the index cannot be built or read.
+     */
+    public static void main(String[] args) throws IOException {
+        final int NUM_GAMES = 100_000;
+        final int NUM_LOOKUPS = 100_000;
+        final Random random = new Random(1);
+        final Path directory = Files.createTempDirectory("jchess");
+        final Path path = directory.resolve("index.bin");
+        final Position[] positions = new Position[NUM_LOOKUPS];
+
+        try {
+            final PositionIndexBuilder builder = new PositionIndexBuilder(1 << 20, directory);
+            long startTime = System.nanoTime();
+
+            for (int i = 0; i < NUM_GAMES; i++) {
+                final Game game = new Game();
+
+                for (int ply = 0; ply < 60 && !game.getLegalMoves().isEmpty(); ply++) {
+                    final List<Move> moves = game.getLegalMoves();
+
+                    game.playMoves(moves.get(random.nextInt(moves.size())));
+                }
+
+                builder.addGame(i, game);
+
+                if (i < NUM_LOOKUPS) {
+                    positions[i] = game.getPositions().get(random.nextInt(game.getPositions().size()));
+                }
+            }
+
+            final long numPostings = builder.build(path);
+
+            System.out.printf("Indexed %d postings of %d games (%d bytes) in %.0f ms%n", numPostings, NUM_GAMES,
+                    Files.size(path), (System.nanoTime() - startTime) / 1e6);
+
+            final PositionIndex index = new PositionIndex(path);
+            long numFound = 0;
+            startTime = System.nanoTime();
+
+            for (Position position : positions) {
+                numFound += index.lookup(position).size();
+            }
+
+            System.out.printf("%d lookups (%d postings found): %.2f us per lookup%n", NUM_LOOKUPS, numFound,
+                    (System.nanoTime() - startTime) / 1e3 / NUM_LOOKUPS);
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.pgn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * PGN reader test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class PgnReaderTest {
+    /**
+     * PGN collection with comments, variations, annotations, a game from a set-up
+     * position, an illegal game and a game without game termination marker.
+     */
+    private static final String PGN = String.join("\n", "% Escaped line.", "[Event \"Casual \\\"game\\\"\"]",
+            "[White \"Legal\"]", "[Black \"Saint Brie\"]", "[Result \"1-0\"]", "",
+            "1. e4 e5 2. Nf3 d6 {Philidor defense} 3. Bc4 Bg4?! (3... Nf6 4. Ng5 $6) 4. Nc3 g6",
+            "5.Nxe5! Bxd1?? 6. Bxf7+ Ke7 7. Nd5# 1-0", "", "[FEN \"4k3/8/8/8/8/8/8/4K2R w K - 0 1\"]", "",
+            "1. 0-0 Kd7 ; castling with zeros", "2. Rd1+ Kc6 1/2-1/2", "", "[Event \"Illegal\"]", "",
+            "1. e4 e5 2. Ke3 Nf6 *", "", "[Event \"Unterminated\"]", "[Result \"0-1\"]", "", "1. d4 d5 2. c4",
+            "[Event \"Last\"]", "", "1. e4 ... c5 *", "");
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.pgn.PgnReader#readGame()}.
+     *
+     * @throws IOException Never.
+     */
+    @Test
+    void testReadGame() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader(PGN))) {
+            PgnGame game = reader.readGame();
+
+            assertEquals("Casual \"game\"", game.getTag("Event"));
+            assertEquals(Arrays.asList("Event", "White", "Black", "Result"),
+                    game.getTags().keySet().stream().collect(Collectors.toList()));
+            assertEquals(null, game.getTag("Site"));
+            assertEquals(PgnGame.WHITE_WINS, game.getResult());
+            assertEquals(Arrays.asList("e4", "e5", "Nf3", "d6", "Bc4", "Bg4", "Nc3", "g6", "Nxe5", "Bxd1", "Bxf7+",
+                    "Ke7", "Nd5#"), game.getGame().getMovesSan());
+
+            game = reader.readGame();
+
+            assertEquals(Arrays.asList("O-O", "Kd7", "Rd1+", "Kc6"), game.getGame().getMovesSan());
+            assertEquals(PgnGame.DRAW, game.getResult());
+
+            assertThrows(IllegalPgnException.class, () -> reader.readGame());
+
+            // The reader continues after the illegal game.
+            game = reader.readGame();
+
+            assertEquals("Unterminated", game.getTag("Event"));
+            assertEquals(3, game.getGame().getMoves().size());
+            assertEquals(PgnGame.BLACK_WINS, game.getResult());
+
+            game = reader.readGame();
+
+            assertEquals(Arrays.asList("e4", "c5"), game.getGame().getMovesSan());
+            assertEquals(PgnGame.UNKNOWN, game.getResult());
+
+            assertEquals(null, reader.readGame());
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.pgn.PgnReader#games(boolean)}.
+     *
+     * @throws IOException Never.
+     */
+    @Test
+    void testGames() throws IOException {
+        try (PgnReader reader = new PgnReader(new StringReader(PGN))) {
+            final List<String> events = reader.games(true).map(game -> game.getTag("Event"))
+                    .collect(Collectors.toList());
+
+            assertEquals(Arrays.asList("Casual \"game\"", null, "Unterminated", "Last"), events);
+        }
+
+        try (PgnReader reader = new PgnReader(new StringReader(PGN))) {
+            assertThrows(IllegalPgnException.class, () -> reader.games(false).count());
+        }
+    }
+}
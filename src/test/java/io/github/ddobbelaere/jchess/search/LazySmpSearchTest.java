@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Lazy SMP search test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class LazySmpSearchTest {
+
+    /**
+     * Positions used by the time-to-depth benchmark.
+     */
+    private static final String[] BENCHMARK_FEN_STRINGS = new String[] {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10" };
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.LazySmpSearch#search(Position, SearchLimits)}.
+     */
+    @Test
+    void testSearch() {
+        try (LazySmpSearch search = new LazySmpSearch(4, new TranspositionTable(4))) {
+            assertEquals(4, search.getNumThreads());
+
+            // Search the same kind of positions as a single-threaded search, several times in
+            // a row to check that the helper threads are reused.
+            for (int i = 0; i < 3; i++) {
+                Position position = Position.fromFen("k7/8/2K5/8/8/8/8/1R6 w - -");
+                SearchResult result = search.search(position, SearchLimits.depth(5));
+
+                assertEquals(Search.MATE_SCORE - 3, result.getScore());
+
+                for (Move move : result.getPrincipalVariation()) {
+                    position = position.playMove(move);
+                }
+
+                assertEquals(true, position.isCheckmate());
+            }
+
+            SearchResult result = search.search(Position.fromFen("4k3/8/8/3q4/8/8/8/3RK3 w - -"),
+                    SearchLimits.depth(4));
+
+            assertEquals(new Move("d1d5"), result.getBestMove());
+            assertEquals(4, result.getDepth());
+
+            // A time limited search returns in time.
+            result = search.search(Position.STARTING, SearchLimits.time(200));
+
+            assertEquals(true, result.getDepth() >= 1);
+            assertEquals(true, result.getTimeMillis() < 2000);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new LazySmpSearch(0, new TranspositionTable(1)));
+    }
+
+    /**
+     * Test stopping a search from another thread.
+     */
+    @Test
+    void testStop() throws InterruptedException {
+        try (LazySmpSearch search = new LazySmpSearch(3, new TranspositionTable(4))) {
+            Thread thread = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                search.stop();
+            });
+
+            thread.start();
+            SearchResult result = search.search(Position.STARTING, SearchLimits.depth(Search.MAX_PLY));
+            thread.join();
+
+            assertEquals(true, result.getDepth() >= 1 && result.getDepth() < Search.MAX_PLY);
+        }
+    }
+
+    /**
+     * Time-to-depth benchmark: search a fixed suite of positions to a fixed depth
+     * with an increasing number of threads and report the speedup.
+     *
+     * <p>
+     * Besides the time, the benchmark reports the number of nodes the main thread
+     * needs to reach the depth, which measures how much the helper threads help it
+     * independently of the number of available cores.
+     * </p>
+     *
+     * @param args Optional search depth (default 9) and maximum number of threads
+     *             (default the number of available processors).
+     */
+    public static void main(String[] args) {
+        final int depth = (args.length >= 1) ? Integer.parseInt(args[0]) : 9;
+        final int maxNumThreads = (args.length >= 2) ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        double singleThreadTime = 0;
+        long singleThreadNumMainNodes = 0;
+
+        // Warm up the JIT compiler, such that the single-threaded run is not penalized.
+        runBenchmark(depth - 2, 1);
+
+        for (int numThreads = 1; numThreads <= maxNumThreads; numThreads *= 2) {
+            final long startTime = System.nanoTime();
+            final long[] numNodes = runBenchmark(depth, numThreads);
+            final double time = 1e-9 * (System.nanoTime() - startTime);
+
+            if (numThreads == 1) {
+                singleThreadTime = time;
+                singleThreadNumMainNodes = numNodes[1];
+            }
+
+            System.out.printf("threads %d: time to depth %d = %f s, speedup %.2f, %d nodes (%f nps), "
+                    + "%d main thread nodes (%.2f)%n", numThreads, depth, time, singleThreadTime / time, numNodes[0],
+                    numNodes[0] / time, numNodes[1], (double) numNodes[1] / singleThreadNumMainNodes);
+        }
+    }
+
+    /**
+     * Search the benchmark positions to the given depth.
+     *
+     * @param depth      Search depth.
+     * @param numThreads Number of threads.
+     * @return Total number of nodes of all threads and of the main thread.
+     */
+    private static long[] runBenchmark(int depth, int numThreads) {
+        final long[] numNodes = new long[2];
+
+        for (String fen : BENCHMARK_FEN_STRINGS) {
+            // Start each position with an empty transposition table.
+            try (LazySmpSearch search = new LazySmpSearch(numThreads, new TranspositionTable(64))) {
+                final long[] numMainNodes = new long[1];
+
+                search.setIterationListener(result -> numMainNodes[0] = result.getNumNodes());
+                numNodes[0] += search.search(Position.fromFen(fen), SearchLimits.depth(depth)).getNumNodes();
+                numNodes[1] += numMainNodes[0];
+            }
+        }
+
+        return numNodes;
+    }
+
+}
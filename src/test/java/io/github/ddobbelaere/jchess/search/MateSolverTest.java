@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Mate solver test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class MateSolverTest {
+    /**
+     * Maximum number of nodes per solve.
+     */
+    private static final long MAX_NUM_NODES = 1000000;
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.MateSolver#solve(Position, int, long)}.
+     */
+    @Test
+    void testSolve() {
+        final MateSolver solver = new MateSolver(1);
+
+        // Back rank mate.
+        MateSolution solution = solver.solve(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - -"), 3, MAX_NUM_NODES);
+
+        assertEquals(1, solution.getNumMoves());
+        assertEquals(Arrays.asList(Move.valueOf("a1a8")), solution.getMoves());
+        assertEquals(Arrays.asList("Ra8#"), solution.getMovesSan());
+
+        // Philidor's smothered mate (the defender delays the mate with Kh8 instead of
+        // Kf8, which allows Qf7#).
+        solution = solver.solve(Position.fromFen("r6k/6pp/8/4N3/2Q5/8/8/6K1 w - -"), 5, MAX_NUM_NODES);
+
+        assertEquals(4, solution.getNumMoves());
+        assertEquals(Arrays.asList("Nf7+", "Kg8", "Nh6+", "Kh8", "Qg8+", "Rxg8", "Nf7#"), solution.getMovesSan());
+        assertEquals("mate in 4: Nf7+ Kg8 Nh6+ Kh8 Qg8+ Rxg8 Nf7#", solution.toString());
+
+        // Black to move.
+        solution = solver.solve(Position.fromFen("r1b1kb1r/pppp1ppp/5q2/4n3/3KP3/2N3PN/PPP4P/R1BQ1B1R b kq - 0 1"),
+                5, MAX_NUM_NODES);
+
+        assertEquals(3, solution.getNumMoves());
+        assertEquals(Arrays.asList("Bc5+", "Kxc5", "Qb6+", "Kd5", "Qd6#"), solution.getMovesSan());
+        assertEquals(false, solver.isNodeLimitReached());
+
+        // No mate, or only a mate that starts with a quiet move (1. Kf7).
+        assertEquals(null, solver.solve(Position.STARTING, 5, MAX_NUM_NODES));
+        assertEquals(null, solver.solve(Position.fromFen("7k/8/5K2/8/8/8/8/6R1 w - -"), 5, MAX_NUM_NODES));
+        assertEquals(null, solver.solve(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 b - -"), 5, MAX_NUM_NODES));
+        assertEquals(false, solver.isNodeLimitReached());
+
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(Position.STARTING, 0, MAX_NUM_NODES));
+        assertThrows(IllegalArgumentException.class,
+                () -> solver.solve(Position.STARTING, MateSolver.MAX_NUM_MOVES + 1, MAX_NUM_NODES));
+    }
+
+    /**
+     * Test the node limit.
+     */
+    @Test
+    void testNodeLimit() {
+        final MateSolver solver = new MateSolver(1);
+        final Position position = Position.fromFen("r6k/6pp/8/4N3/2Q5/8/8/6K1 w - -");
+
+        assertEquals(null, solver.solve(position, 5, 10));
+        assertEquals(true, solver.isNodeLimitReached());
+
+        solver.clear();
+
+        final long numNodes = solver.solve(position, 5, MAX_NUM_NODES).getNumNodes();
+
+        assertEquals(numNodes, solver.getNumNodes());
+
+        // A second solve reuses the proof and disproof numbers in the table.
+        assertEquals(true, solver.solve(position, 5, MAX_NUM_NODES).getNumNodes() < numNodes);
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.MateSolver#MateSolver(int)}.
+     */
+    @Test
+    void testMateSolver() {
+        assertThrows(IllegalArgumentException.class, () -> new MateSolver(0));
+        assertThrows(IllegalArgumentException.class, () -> new MateSolver(MateSolver.MAX_TABLE_SIZE_MB + 1));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Move orderer test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class MoveOrdererTest {
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.MoveOrderer#scoreMoves(Position, java.util.List, Move, int)}
+     * and
+     * {@link io.github.ddobbelaere.jchess.search.MoveOrderer#updateCutoff(Position, int, int, int)}.
+     */
+    @Test
+    void testOrdering() {
+        MoveOrderer moveOrderer = new MoveOrderer();
+        Position position = Position.fromFen("4k3/8/8/3q4/2P5/8/8/3QK3 w - -");
+        int numMoves = moveOrderer.scoreMoves(position, position.getLegalMoves(), new Move("e1f2"), 3);
+
+        assertEquals(position.getLegalMoves().size(), numMoves);
+
+        // Hash move first, then captures (most valuable victim, least valuable
+        // attacker).
+        assertEquals(new Move("e1f2"), moveOrderer.getMove(3, 0));
+        assertEquals(new Move("c4d5"), moveOrderer.getMove(3, 1));
+        assertEquals(new Move("d1d5"), moveOrderer.getMove(3, 2));
+
+        // A quiet move causes a cutoff after two other quiet moves.
+        Move firstQuietMove = moveOrderer.getMove(3, 3);
+        Move secondQuietMove = moveOrderer.getMove(3, 4);
+        Move cutoffMove = moveOrderer.getMove(3, 5);
+
+        moveOrderer.updateCutoff(position, 3, 4, 5);
+
+        assertEquals(true, moveOrderer.getHistoryScore(position, cutoffMove) > 0);
+        assertEquals(true, moveOrderer.getHistoryScore(position, firstQuietMove) < 0);
+        assertEquals(true, moveOrderer.getHistoryScore(position, secondQuietMove) < 0);
+
+        // The cutoff move is now a killer move at the same ply, searched right after
+        // the captures.
+        moveOrderer.scoreMoves(position, position.getLegalMoves(), null, 3);
+
+        assertEquals(new Move("c4d5"), moveOrderer.getMove(3, 0));
+        assertEquals(new Move("d1d5"), moveOrderer.getMove(3, 1));
+        assertEquals(cutoffMove, moveOrderer.getMove(3, 2));
+
+        // At another ply, only the history score orders the cutoff move first among the
+        // quiet moves.
+        moveOrderer.scoreMoves(position, position.getLegalMoves(), null, 4);
+
+        assertEquals(new Move("c4d5"), moveOrderer.getMove(4, 0));
+        assertEquals(new Move("d1d5"), moveOrderer.getMove(4, 1));
+        assertEquals(cutoffMove, moveOrderer.getMove(4, 2));
+
+        // Captures don't update killers and history.
+        moveOrderer.updateCutoff(position, 4, 4, 0);
+
+        assertEquals(0, moveOrderer.getHistoryScore(position, new Move("c4d5")));
+
+        // History scores stay bounded and are aged by a new search.
+        for (int i = 0; i < 1000; i++) {
+            moveOrderer.scoreMoves(position, position.getLegalMoves(), cutoffMove, 3);
+            moveOrderer.getMove(3, 0);
+            moveOrderer.updateCutoff(position, 3, 100, 0);
+        }
+
+        int historyScore = moveOrderer.getHistoryScore(position, cutoffMove);
+
+        assertEquals(true, historyScore <= MoveOrderer.MAX_HISTORY_SCORE);
+        moveOrderer.newSearch();
+        assertEquals(historyScore / 2, moveOrderer.getHistoryScore(position, cutoffMove));
+    }
+
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Nnue;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Search test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class SearchTest {
+
+    /**
+     * Positions used by the node count and time-to-depth benchmark.
+     */
+    private static final String[] BENCHMARK_FEN_STRINGS = new String[] {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10" };
+
+    /**
+     * Names of the selective search techniques, in the order of the bits used by
+     * {@link #createSearch(int)}.
+     */
+    private static final String[] SELECTIVITY_NAMES = new String[] { "null move pruning", "late move reductions",
+            "futility pruning", "aspiration windows" };
+
+    /**
+     * Create a search object with the given selective search techniques enabled.
+     *
+     * @param enabledMask Bit mask of the enabled techniques (see
+     *                    {@link #SELECTIVITY_NAMES}).
+     * @return Search object.
+     */
+    private static Search createSearch(int enabledMask) {
+        Search search = new Search();
+
+        search.isNullMovePruningEnabled = (enabledMask & 1) != 0;
+        search.isLateMoveReductionEnabled = (enabledMask & 2) != 0;
+        search.isFutilityPruningEnabled = (enabledMask & 4) != 0;
+        search.isAspirationWindowEnabled = (enabledMask & 8) != 0;
+
+        return search;
+    }
+
+    /**
+     * Search the position given by a FEN string and check the principal variation.
+     *
+     * @param fen    FEN string of the root position.
+     * @param limits Search limits.
+     * @return Search result.
+     */
+    private SearchResult search(String fen, SearchLimits limits) {
+        Position position = Position.fromFen(fen);
+        SearchResult result = new Search().search(position, limits);
+
+        // The principal variation should consist of legal moves.
+        for (Move move : result.getPrincipalVariation()) {
+            position = position.playMove(move);
+        }
+
+        return result;
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.Search#search(Position, SearchLimits)}.
+     */
+    @Test
+    void testSearch() {
+        // Mate in one for white and black.
+        SearchResult result = search("6k1/5ppp/8/8/8/8/8/R5K1 w - -", SearchLimits.depth(4));
+
+        assertEquals(new Move("a1a8"), result.getBestMove());
+        assertEquals(Search.MATE_SCORE - 1, result.getScore());
+        assertEquals(true, Search.isMateScore(result.getScore()));
+
+        result = search("r5k1/8/8/8/8/8/5PPP/6K1 b - -", SearchLimits.depth(4));
+
+        assertEquals(new Move("a8a1"), result.getBestMove());
+        assertEquals(Search.MATE_SCORE - 1, result.getScore());
+
+        // Mate in two.
+        result = search("k7/8/2K5/8/8/8/8/1R6 w - -", SearchLimits.depth(5));
+
+        assertEquals(Search.MATE_SCORE - 3, result.getScore());
+        assertEquals(3, result.getPrincipalVariation().size());
+
+        // Win a hanging queen.
+        result = search("4k3/8/8/3q4/8/8/8/3RK3 w - -", SearchLimits.depth(3));
+
+        assertEquals(new Move("d1d5"), result.getBestMove());
+        assertEquals(3, result.getDepth());
+        assertEquals(true, result.getScore() > 0);
+
+        // Positions without legal moves.
+        result = search("7k/5Q2/6K1/8/8/8/8/8 b - -", SearchLimits.depth(3));
+
+        assertEquals(null, result.getBestMove());
+        assertEquals(0, result.getScore());
+
+        result = search("R5k1/5ppp/8/8/8/8/8/6K1 b - -", SearchLimits.depth(3));
+
+        assertEquals(null, result.getBestMove());
+        assertEquals(-Search.MATE_SCORE, result.getScore());
+
+        // Starting position.
+        result = search("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", SearchLimits.depth(4));
+
+        assertEquals(4, result.getDepth());
+        assertEquals(true, result.getPrincipalVariation().size() >= 1);
+    }
+
+    /**
+     * Test the quiescence search.
+     */
+    @Test
+    void testQuiescence() {
+        // Without quiescence search, a depth one search would capture the defended pawn.
+        SearchResult result = search("4k3/8/2p5/3p4/8/8/8/3QK3 w - -", SearchLimits.depth(1));
+
+        assertEquals(false, new Move("d1d5").equals(result.getBestMove()));
+        assertEquals(true, result.getScore() >= 0);
+
+        // Pruning captures that lose material reduces the number of nodes without
+        // changing the result.
+        String fen = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+        Search search = new Search();
+        SearchResult prunedResult = search.search(Position.fromFen(fen), SearchLimits.depth(3));
+
+        search = new Search();
+        search.isSeePruningEnabled = false;
+        SearchResult unprunedResult = search.search(Position.fromFen(fen), SearchLimits.depth(3));
+
+        assertEquals(true, prunedResult.getNumNodes() < unprunedResult.getNumNodes());
+    }
+
+    /**
+     * Test the selective search techniques (null move pruning, late move
+     * reductions, futility pruning and aspiration windows).
+     */
+    @Test
+    void testSelectivity() {
+        final int allEnabledMask = (1 << SELECTIVITY_NAMES.length) - 1;
+
+        for (int enabledMask = 0; enabledMask <= allEnabledMask; enabledMask++) {
+            // Mates and simple tactics are found with any combination of techniques.
+            SearchResult result = createSearch(enabledMask).search(Position.fromFen("k7/8/2K5/8/8/8/8/1R6 w - -"),
+                    SearchLimits.depth(5));
+
+            assertEquals(Search.MATE_SCORE - 3, result.getScore());
+
+            result = createSearch(enabledMask).search(Position.fromFen("4k3/8/8/3q4/8/8/8/3RK3 w - -"),
+                    SearchLimits.depth(5));
+
+            assertEquals(new Move("d1d5"), result.getBestMove());
+
+            // Pawn endgame (no null moves are tried without non-pawn material).
+            result = createSearch(enabledMask).search(Position.fromFen("k7/2K5/1P6/8/8/8/8/8 w - -"),
+                    SearchLimits.depth(9));
+
+            assertEquals(true, result.getScore() > 0);
+        }
+
+        // Each technique reduces the number of nodes of a middlegame search.
+        final String fen = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+        final long numNodes = createSearch(allEnabledMask).search(Position.fromFen(fen), SearchLimits.depth(5))
+                .getNumNodes();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(true, numNodes < createSearch(allEnabledMask & ~(1 << i))
+                    .search(Position.fromFen(fen), SearchLimits.depth(5)).getNumNodes());
+        }
+    }
+
+    /**
+     * Test a search with neural network evaluation.
+     */
+    @Test
+    void testNnue(@TempDir Path directory) throws IOException {
+        // Write a network with a single neuron and only zero parameters, which
+        // evaluates all positions as a draw.
+        final ByteBuffer buffer = ByteBuffer.allocate(3 * Integer.BYTES + Short.BYTES * (Nnue.NUM_FEATURES + 4))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        final Path path = directory.resolve("zero.nnue");
+
+        buffer.putInt(Nnue.MAGIC).putInt(Nnue.VERSION).putInt(1);
+        Files.write(path, buffer.array());
+
+        Search search = new Search();
+        search.setNetwork(Nnue.load(path));
+
+        SearchResult result = search.search(Position.fromFen("k7/8/2K5/8/8/8/8/1R6 w - -"), SearchLimits.depth(5));
+
+        assertEquals(Search.MATE_SCORE - 3, result.getScore());
+
+        result = search.search(Position.STARTING, SearchLimits.depth(4));
+
+        assertEquals(0, result.getScore());
+    }
+
+    /**
+     * Test the time limit and stopping a search from another thread.
+     */
+    @Test
+    void testStop() throws InterruptedException {
+        // The time limit should be respected (with a generous margin).
+        SearchResult result = search("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                SearchLimits.time(200));
+
+        assertEquals(true, result.getDepth() >= 1);
+        assertEquals(true, result.getTimeMillis() < 2000);
+
+        // Stop an unlimited search from another thread.
+        Search search = new Search();
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            search.stop();
+        });
+
+        thread.start();
+        result = search.search(Position.STARTING, SearchLimits.depth(Search.MAX_PLY));
+        thread.join();
+
+        assertEquals(true, result.getDepth() >= 1 && result.getDepth() < Search.MAX_PLY);
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.SearchLimits#SearchLimits(int, long)}.
+     */
+    @Test
+    void testSearchLimits() {
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.depth(0));
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.time(-1));
+        assertEquals(Search.MAX_PLY, SearchLimits.time(100).getMaxDepth());
+        assertEquals(false, SearchLimits.depth(5).hasTimeLimit());
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.nodes(0));
+        assertEquals(false, SearchLimits.depth(5).hasNodeLimit());
+        assertEquals(1000, SearchLimits.nodes(1000).getMaxNumNodes());
+
+        // A node limited search stops after the first iteration that exceeds the
+        // limit.
+        final SearchResult result = search(BENCHMARK_FEN_STRINGS[0], SearchLimits.nodes(1000));
+
+        assertEquals(true, result.getDepth() < Search.MAX_PLY);
+        assertEquals(true, result.getNumNodes() <= 1000 || result.getDepth() == 1);
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.Search#search(Position, SearchLimits, int)}.
+     */
+    @Test
+    void testMultiPv() {
+        // The mating move is the best line, the other lines are ranked below it.
+        List<SearchResult> results = new Search().search(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - -"),
+                SearchLimits.depth(4), 3);
+
+        assertEquals(3, results.size());
+        assertEquals(Search.MATE_SCORE - 1, results.get(0).getScore());
+        assertEquals(Move.valueOf("a1a8"), results.get(0).getPrincipalVariation().get(0));
+
+        final Set<Move> rootMoves = new HashSet<>();
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(4, results.get(i).getDepth());
+            assertEquals(true, rootMoves.add(results.get(i).getPrincipalVariation().get(0)));
+
+            if (i > 0) {
+                assertEquals(true, results.get(i).getScore() <= results.get(i - 1).getScore());
+                assertEquals(false, Search.isMateScore(results.get(i).getScore()));
+            }
+        }
+
+        // At most one line per legal move.
+        results = new Search().search(Position.STARTING, SearchLimits.depth(1), 30);
+
+        assertEquals(20, results.size());
+
+        results = new Search().search(Position.fromFen("k7/8/1K6/8/8/8/8/7R b - -"), SearchLimits.depth(3), 5);
+
+        assertEquals(1, results.size());
+        assertEquals(Move.valueOf("a8b8"), results.get(0).getPrincipalVariation().get(0));
+
+        assertThrows(IllegalArgumentException.class, () -> new Search().search(Position.STARTING,
+                SearchLimits.depth(1), 0));
+    }
+
+    /**
+     * Node count and time-to-depth benchmark: search a fixed suite of positions to
+     * a fixed depth with all selective search techniques enabled, with each of
+     * them disabled and with all of them disabled.
+     *
+     * @param args Optional search depth (default 6).
+     */
+    public static void main(String[] args) {
+        final int depth = (args.length >= 1) ? Integer.parseInt(args[0]) : 6;
+        final int allEnabledMask = (1 << SELECTIVITY_NAMES.length) - 1;
+
+        for (int i = -1; i <= SELECTIVITY_NAMES.length; i++) {
+            final int enabledMask = (i < 0) ? allEnabledMask
+                    : (i < SELECTIVITY_NAMES.length) ? allEnabledMask & ~(1 << i) : 0;
+            final String name = (i < 0) ? "all enabled"
+                    : (i < SELECTIVITY_NAMES.length) ? "without " + SELECTIVITY_NAMES[i] : "all disabled";
+            long totalTimeNanos = 0;
+            long totalNumNodes = 0;
+            long totalNumPawnHashProbes = 0;
+            long totalNumPawnHashHits = 0;
+
+            for (String fen : BENCHMARK_FEN_STRINGS) {
+                Search search = createSearch(enabledMask);
+                long startTime = System.nanoTime();
+                SearchResult result = search.search(Position.fromFen(fen), SearchLimits.depth(depth));
+                totalTimeNanos += System.nanoTime() - startTime;
+                totalNumNodes += result.getNumNodes();
+                totalNumPawnHashProbes += search.getPawnHashTable().getNumProbes();
+                totalNumPawnHashHits += search.getPawnHashTable().getNumHits();
+            }
+
+            final double time = 1e-9 * totalTimeNanos;
+
+            System.out.printf("%s: time to depth %d = %f s, %d nodes (%f nps), pawn hash hit rate %.3f%n", name,
+                    depth, time, totalNumNodes, totalNumNodes / time,
+                    (double) totalNumPawnHashHits / totalNumPawnHashProbes);
+        }
+
+        // Multi-PV cost relative to a single line.
+        for (int numLines : new int[] { 1, 3, 5 }) {
+            long totalNumNodes = 0;
+
+            for (String fen : BENCHMARK_FEN_STRINGS) {
+                totalNumNodes += new Search().search(Position.fromFen(fen), SearchLimits.depth(depth), numLines).get(0)
+                        .getNumNodes();
+            }
+
+            System.out.printf("%d lines: %d nodes to depth %d%n", numLines, totalNumNodes, depth);
+        }
+    }
+
+}
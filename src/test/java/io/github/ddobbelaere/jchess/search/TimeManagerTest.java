@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Time manager test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class TimeManagerTest {
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.TimeManager#allocate(int, long, long, int)}.
+     */
+    @Test
+    void testAllocate() {
+        // Sudden death: the remaining time (minus the move overhead) is spread over
+        // 30 moves.
+        SearchLimits limits = TimeManager.allocate(20, 60050, 0, 0);
+
+        assertEquals(20, limits.getMaxDepth());
+        assertEquals(2000, limits.getSoftTimeMillis());
+        assertEquals(10000, limits.getMaxTimeMillis());
+        assertEquals(true, limits.hasSoftTimeLimit());
+
+        // Most of the increment is spent.
+        limits = TimeManager.allocate(Search.MAX_PLY, 60050, 1000, 0);
+
+        assertEquals(2750, limits.getSoftTimeMillis());
+        assertEquals(13750, limits.getMaxTimeMillis());
+
+        // Moves to go.
+        limits = TimeManager.allocate(Search.MAX_PLY, 10050, 0, 5);
+
+        assertEquals(2000, limits.getSoftTimeMillis());
+        assertEquals(8000, limits.getMaxTimeMillis());
+
+        limits = TimeManager.allocate(Search.MAX_PLY, 10050, 0, 1);
+
+        assertEquals(8000, limits.getSoftTimeMillis());
+        assertEquals(8000, limits.getMaxTimeMillis());
+        assertEquals(false, limits.hasSoftTimeLimit());
+
+        // Almost no time left.
+        limits = TimeManager.allocate(Search.MAX_PLY, 10, 1000, 0);
+
+        assertEquals(1, limits.getSoftTimeMillis());
+        assertEquals(1, limits.getMaxTimeMillis());
+
+        assertThrows(IllegalArgumentException.class, () -> new SearchLimits(Search.MAX_PLY, 100, 101));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.TimeManager#update(Move, int)}.
+     */
+    @Test
+    void testUpdate() {
+        final TimeManager timeManager = new TimeManager(new SearchLimits(Search.MAX_PLY, 2000, 1000));
+        final Move move = Move.valueOf("e2e4");
+
+        assertEquals(1000000000L, timeManager.getScaledSoftTimeNanos());
+
+        // A stable best move shortens the soft time limit.
+        final long[] expectedSoftTimeMillis = { 1400, 1100, 900, 750, 600, 600 };
+
+        for (long softTimeMillis : expectedSoftTimeMillis) {
+            timeManager.update(move, 20);
+
+            assertEquals(softTimeMillis, timeManager.getScaledSoftTimeNanos() / 1000000L);
+        }
+
+        // A changing best move and a dropping score extend it (but never beyond the
+        // hard limit).
+        timeManager.update(Move.valueOf("d2d4"), -30);
+
+        assertEquals(1750, timeManager.getScaledSoftTimeNanos() / 1000000L);
+
+        timeManager.update(Move.valueOf("c2c4"), -300);
+
+        assertEquals(2000, timeManager.getScaledSoftTimeNanos() / 1000000L);
+
+        // A rising score doesn't extend it.
+        timeManager.update(Move.valueOf("c2c4"), 500);
+
+        assertEquals(1100, timeManager.getScaledSoftTimeNanos() / 1000000L);
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.TimeManager#isHardLimitReached(long)}
+     * and
+     * {@link io.github.ddobbelaere.jchess.search.TimeManager#isSoftLimitReached()}.
+     */
+    @Test
+    void testLimits() throws InterruptedException {
+        TimeManager timeManager = new TimeManager(new SearchLimits(Search.MAX_PLY, 5, 1));
+
+        Thread.sleep(10);
+
+        // The clock is only read every so many nodes.
+        assertEquals(true, timeManager.isHardLimitReached(TimeManager.NUM_NODES_BETWEEN_CLOCK_CHECKS));
+        assertEquals(false, timeManager.isHardLimitReached(TimeManager.NUM_NODES_BETWEEN_CLOCK_CHECKS + 1));
+        assertEquals(true, timeManager.isSoftLimitReached());
+
+        // Without a separate soft limit or without a time limit.
+        timeManager = new TimeManager(SearchLimits.time(5));
+
+        Thread.sleep(10);
+
+        assertEquals(true, timeManager.isHardLimitReached(0));
+        assertEquals(false, timeManager.isSoftLimitReached());
+
+        timeManager = new TimeManager(SearchLimits.depth(5));
+
+        assertEquals(false, timeManager.isHardLimitReached(0));
+        assertEquals(false, timeManager.isSoftLimitReached());
+    }
+
+    /**
+     * Test a search with limits that are allocated from the clock.
+     */
+    @Test
+    void testSearch() {
+        final SearchLimits limits = TimeManager.allocate(Search.MAX_PLY, 1550, 0, 0);
+        final SearchResult result = new Search().search(Position.STARTING, limits);
+
+        // The search stops after the soft limit (50 ms) and before the hard limit
+        // (250 ms), allowing some slack for slow machines.
+        assertEquals(true, result.getDepth() < Search.MAX_PLY);
+        assertEquals(true, result.getTimeMillis() < limits.getMaxTimeMillis() + 1000);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+
+/**
+ * Transposition table test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class TranspositionTableTest {
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.TranspositionTable#TranspositionTable(int)}.
+     */
+    @Test
+    void testTranspositionTable() {
+        // One megabyte holds 2^14 buckets of four entries.
+        assertEquals(1 << 16, new TranspositionTable(1).getNumEntries());
+        assertEquals(1 << 17, new TranspositionTable(3).getNumEntries());
+
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TranspositionTable(TranspositionTable.MAX_SIZE_MB + 1));
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.search.TranspositionTable#store(long, Move, int, int, int)}
+     * and
+     * {@link io.github.ddobbelaere.jchess.search.TranspositionTable#probe(long)}.
+     */
+    @Test
+    void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        Move move = Move.valueOf("e7e8q");
+
+        assertEquals(0, table.probe(0x123456789L));
+
+        table.store(0x123456789L, move, -31000, 12, TranspositionTable.BOUND_LOWER);
+        long entry = table.probe(0x123456789L);
+
+        assertEquals(move, TranspositionTable.getMove(entry));
+        assertEquals(-31000, TranspositionTable.getScore(entry));
+        assertEquals(12, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.getBound(entry));
+
+        // Overwriting without a move keeps the move.
+        table.store(0x123456789L, null, 25, 13, TranspositionTable.BOUND_EXACT);
+        entry = table.probe(0x123456789L);
+
+        assertEquals(move, TranspositionTable.getMove(entry));
+        assertEquals(25, TranspositionTable.getScore(entry));
+        assertEquals(TranspositionTable.BOUND_EXACT, TranspositionTable.getBound(entry));
+
+        // Other hashes in the same bucket don't match.
+        assertEquals(0, table.probe(0x123456789L ^ (1L << 60)));
+
+        // Fill the bucket: the shallowest entry is replaced.
+        for (int i = 1; i <= 4; i++) {
+            table.store(0x123456789L ^ ((long) i << 60), null, 0, i, TranspositionTable.BOUND_UPPER);
+        }
+
+        assertEquals(0, table.probe(0x123456789L ^ (1L << 60)));
+        assertEquals(13, TranspositionTable.getDepth(table.probe(0x123456789L)));
+        assertEquals(null, TranspositionTable.getMove(table.probe(0x123456789L ^ (4L << 60))));
+
+        // Entries of a previous search count as less deep.
+        table.newSearch();
+        table.store(0x123456789L ^ (5L << 60), null, 0, 1, TranspositionTable.BOUND_UPPER);
+        table.store(0x123456789L ^ (6L << 60), null, 0, 1, TranspositionTable.BOUND_UPPER);
+
+        assertEquals(0, table.probe(0x123456789L ^ (2L << 60)));
+        assertEquals(0, table.probe(0x123456789L ^ (3L << 60)));
+        assertEquals(1, TranspositionTable.getDepth(table.probe(0x123456789L ^ (5L << 60))));
+        assertEquals(1, TranspositionTable.getDepth(table.probe(0x123456789L ^ (6L << 60))));
+
+        // Only entries of the current search count (estimated from the first thousand
+        // entries).
+        assertEquals(0, table.getHashfull());
+        table.store(5, null, 0, 1, TranspositionTable.BOUND_UPPER);
+        assertEquals(1, table.getHashfull());
+
+        table.clear();
+
+        assertEquals(0, table.probe(0x123456789L ^ (5L << 60)));
+    }
+
+    /**
+     * Test that concurrent writers never cause readers to see corrupt entries.
+     */
+    @Test
+    void testConcurrentAccess() throws Exception {
+        // Use a tiny table, such that threads continuously overwrite each other's
+        // entries.
+        TranspositionTable table = new TranspositionTable(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int thread = 0; thread < 8; thread++) {
+            final long seed = thread;
+
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                int numHits = 0;
+
+                for (int i = 0; i < 1000000; i++) {
+                    // Only use 64 buckets and derive the entry data from the hash.
+                    long hash = ((long) random.nextInt(1 << 12) << 32) | random.nextInt(64);
+                    int data = (int) (hash >>> 32);
+
+                    if ((i & 1) == 0) {
+                        table.store(hash, null, data, data & 0xFF, TranspositionTable.BOUND_EXACT);
+                    } else {
+                        long entry = table.probe(hash);
+
+                        if (entry != 0) {
+                            // A hit must carry the data that was stored for this hash.
+                            assertEquals(data, TranspositionTable.getScore(entry));
+                            assertEquals(data & 0xFF, TranspositionTable.getDepth(entry));
+                            numHits++;
+                        }
+                    }
+                }
+
+                return numHits;
+            }));
+        }
+
+        for (Future<Integer> future : futures) {
+            future.get();
+        }
+
+        executor.shutdown();
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * Minimal UCI engine that answers instantly and deterministically, used as a
+ * stand-in for an external engine process.
+ *
+ * <p>
+ * For {@code go}, it reports one info line per principal variation (the legal
+ * moves in generation order, with scores 100, 90, 80, ...) and plays the first
+ * legal move. The command {@code go crash} makes the process exit with code 3.
+ * </p>
+ *
+ * @author Dieter Dobbelaere
+ */
+public class FakeUciEngine {
+    /**
+     * Run the engine on the standard input and output.
+     *
+     * @param args Command line arguments (unused).
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void main(String[] args) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        Position position = Position.STARTING;
+        int multiPv = 1;
+
+        for (String line; (line = reader.readLine()) != null;) {
+            final String[] tokens = line.trim().split("\\s+");
+
+            switch (tokens[0]) {
+                case "uci":
+                    System.out.println("id name Fake");
+                    System.out.println("option name MultiPV type spin default 1 min 1 max 256");
+                    System.out.println("uciok");
+                    break;
+                case "isready":
+                    System.out.println("readyok");
+                    break;
+                case "setoption":
+                    if (tokens[2].equals("MultiPV")) {
+                        multiPv = Integer.parseInt(tokens[4]);
+                    }
+                    break;
+                case "position":
+                    position = Position.fromFen(line.substring(line.indexOf("fen ") + 4));
+                    break;
+                case "go":
+                    if (tokens.length > 1 && tokens[1].equals("crash")) {
+                        System.exit(3);
+                    }
+
+                    go(position, multiPv);
+                    break;
+                case "quit":
+                    return;
+                default:
+                    break;
+            }
+
+            System.out.flush();
+        }
+    }
+
+    /**
+     * Report the fake analysis of a position.
+     *
+     * @param position Position to analyze.
+     * @param multiPv  Number of principal variations.
+     */
+    private static void go(Position position, int multiPv) {
+        final List<Move> legalMoves = position.getLegalMoves();
+
+        System.out.println("info string fake analysis");
+
+        if (legalMoves.isEmpty()) {
+            System.out.println("info depth 0 score " + (position.isCheck() ? "mate 0" : "cp 0"));
+            System.out.println("bestmove (none)");
+            return;
+        }
+
+        for (int i = 0; i < Math.min(multiPv, legalMoves.size()); i++) {
+            final Move move = legalMoves.get(i);
+            final Position nextPosition = position.playMove(move);
+            final List<Move> replies = nextPosition.getLegalMoves();
+
+            System.out.println("info depth 1 currmove " + move + " currmovenumber " + (i + 1));
+            System.out.println("info depth 2 seldepth 3 multipv " + (i + 1) + " score cp " + (100 - 10 * i)
+                    + " nodes 42 nps 42000 time 1 pv " + move + (replies.isEmpty() ? "" : " " + replies.get(0)));
+        }
+
+        System.out.println("bestmove " + legalMoves.get(0));
+    }
+}
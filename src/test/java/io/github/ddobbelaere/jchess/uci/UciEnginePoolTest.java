@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+import io.github.ddobbelaere.jchess.search.SearchLimits;
+
+/**
+ * UCI engine pool test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class UciEnginePoolTest {
+    /**
+     * Timeout for a single analysis (in seconds).
+     */
+    private static final long TIMEOUT_SECONDS = 60;
+
+    /**
+     * Get the command that runs the given class in a new Java virtual machine with
+     * the test class path.
+     *
+     * @param mainClass Class with a main method.
+     * @return Command.
+     */
+    private static List<String> getJavaCommand(Class<?> mainClass) {
+        return Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-cp",
+                System.getProperty("java.class.path"), mainClass.getName());
+    }
+
+    /**
+     * Test method for {@link UciEnginePool#analyze(Position, String)}.
+     */
+    @Test
+    void testAnalyze() throws Exception {
+        try (UciEnginePool pool = new UciEnginePool(getJavaCommand(FakeUciEngine.class), 4)) {
+            assertEquals(4, pool.getNumEngines());
+
+            // Queue more jobs than engines, such that engines are reused.
+            final List<Position> positions = new ArrayList<>();
+            final List<CompletableFuture<UciAnalysis>> futures = new ArrayList<>();
+            Position position = Position.STARTING;
+
+            for (String move : Arrays.asList("e4", "c5", "Nf3", "d6", "d4", "cxd4", "Nxd4", "Nf6", "Nc3", "a6",
+                    "Be3", "e5", "Nb3", "Be6", "f3", "Be7")) {
+                position = position.playMove(move);
+                positions.add(position);
+                futures.add(pool.analyze(position, "depth 2"));
+            }
+
+            for (int i = 0; i < positions.size(); i++) {
+                final UciAnalysis analysis = futures.get(i).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                final Position analyzedPosition = positions.get(i);
+                final Move expectedMove = analyzedPosition.getLegalMoves().get(0);
+
+                assertEquals(analyzedPosition, analysis.getPosition());
+                assertEquals(expectedMove, analysis.getBestMove());
+                assertEquals(1, analysis.getLines().size());
+                assertEquals(2, analysis.getInfo().getDepth());
+                assertEquals(100, analysis.getInfo().getScore());
+                assertEquals(42, analysis.getInfo().getNumNodes());
+                assertEquals(Arrays.asList(expectedMove,
+                        analyzedPosition.playMove(expectedMove).getLegalMoves().get(0)),
+                        analysis.getInfo().getPrincipalVariation());
+            }
+
+            // Checkmate.
+            final UciAnalysis analysis = pool
+                    .analyze(Position.fromFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3"),
+                            SearchLimits.depth(1))
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals(null, analysis.getBestMove());
+            assertEquals(true, analysis.getInfo().isMateScore());
+            assertEquals(0, analysis.getInfo().getScore());
+        }
+    }
+
+    /**
+     * Test multiple principal variations (set as an engine option).
+     */
+    @Test
+    void testMultiPv() throws Exception {
+        try (UciEnginePool pool = new UciEnginePool(getJavaCommand(FakeUciEngine.class), 1,
+                Collections.singletonMap("MultiPV", "3"))) {
+            final UciAnalysis analysis = pool.analyze(Position.STARTING, "movetime 10").get(TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS);
+
+            assertEquals(3, analysis.getLines().size());
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i + 1, analysis.getLines().get(i).getMultiPv());
+                assertEquals(100 - 10 * i, analysis.getLines().get(i).getScore());
+                assertEquals(Position.STARTING.getLegalMoves().get(i),
+                        analysis.getLines().get(i).getPrincipalVariation().get(0));
+            }
+        }
+    }
+
+    /**
+     * Test that an engine that dies is restarted.
+     */
+    @Test
+    void testRestart() throws Exception {
+        try (UciEnginePool pool = new UciEnginePool(getJavaCommand(FakeUciEngine.class), 1)) {
+            final ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> pool.analyze(Position.STARTING, "crash").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            assertEquals(IOException.class, e.getCause().getClass());
+
+            final UciAnalysis analysis = pool.analyze(Position.STARTING, "depth 1").get(TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS);
+
+            assertEquals(Position.STARTING.getLegalMoves().get(0), analysis.getBestMove());
+        }
+
+        // Engines that never get ready are not restarted.
+        try (UciEnginePool pool = new UciEnginePool(getJavaCommand(UciEnginePoolTest.class), 2)) {
+            final ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> pool.analyze(Position.STARTING, "depth 1").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+            assertEquals(IOException.class, e.getCause().getClass());
+        }
+    }
+
+    /**
+     * Test the pool with the engine of this project.
+     */
+    @Test
+    void testUciEngine() throws Exception {
+        try (UciEnginePool pool = new UciEnginePool(getJavaCommand(UciEngine.class), 2)) {
+            final UciAnalysis analysis = pool
+                    .analyze(Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), SearchLimits.depth(4))
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals(Move.valueOf("a1a8"), analysis.getBestMove());
+            assertEquals(true, analysis.getInfo().isMateScore());
+            assertEquals(1, analysis.getInfo().getScore());
+            assertEquals(Arrays.asList(Move.valueOf("a1a8")), analysis.getInfo().getPrincipalVariation());
+        }
+    }
+
+    /**
+     * Test method for {@link UciEnginePool#getGoParameters(SearchLimits)}.
+     */
+    @Test
+    void testGetGoParameters() {
+        assertEquals("depth 7", UciEnginePool.getGoParameters(SearchLimits.depth(7)));
+        assertEquals("depth 5 movetime 250", UciEnginePool.getGoParameters(new SearchLimits(5, 250)));
+    }
+
+    /**
+     * Entry point of a process that exits without speaking UCI.
+     *
+     * @param args Command line arguments (unused).
+     */
+    public static void main(String[] args) {
+        System.out.println("not an engine");
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * UCI engine test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class UciEngineTest {
+
+    /**
+     * Engine that runs on its own thread and receives commands through a pipe.
+     */
+    private static class EngineRunner {
+        /**
+         * Writer of the commands.
+         */
+        private final PrintWriter commandWriter;
+
+        /**
+         * Output of the engine.
+         */
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        /**
+         * Thread that runs the engine.
+         */
+        private final Thread thread;
+
+        /**
+         * Start an engine.
+         */
+        EngineRunner() throws IOException {
+            final PipedWriter pipedWriter = new PipedWriter();
+            final UciEngine engine = new UciEngine(new BufferedReader(new PipedReader(pipedWriter)),
+                    new PrintStream(outputStream, true));
+
+            commandWriter = new PrintWriter(pipedWriter, true);
+            thread = new Thread(() -> {
+                try {
+                    engine.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            thread.start();
+        }
+
+        /**
+         * Send a command to the engine.
+         *
+         * @param command Given command.
+         */
+        void send(String command) {
+            commandWriter.println(command);
+        }
+
+        /**
+         * @return Output lines of the engine so far.
+         */
+        List<String> getOutput() {
+            return Arrays.asList(outputStream.toString().split("\\R"));
+        }
+
+        /**
+         * Wait until the engine outputs a line that starts with the given prefix.
+         *
+         * @param prefix Given prefix.
+         */
+        void waitFor(String prefix) throws InterruptedException {
+            final long startTime = System.currentTimeMillis();
+
+            while (getOutput().stream().noneMatch(line -> line.startsWith(prefix))) {
+                assertEquals(true, System.currentTimeMillis() - startTime < 10000);
+                Thread.sleep(10);
+            }
+        }
+
+        /**
+         * Quit the engine and wait until it has finished.
+         */
+        void quit() throws InterruptedException {
+            send("quit");
+            thread.join(10000);
+
+            assertEquals(false, thread.isAlive());
+        }
+    }
+
+    /**
+     * Run an engine on the given commands, waiting for the best move after each
+     * {@code go} command.
+     *
+     * @param commands Given commands.
+     * @return Output lines of the engine.
+     */
+    private static List<String> run(String... commands) throws IOException, InterruptedException {
+        final EngineRunner runner = new EngineRunner();
+
+        for (String command : commands) {
+            runner.send(command);
+
+            if (command.startsWith("go")) {
+                runner.waitFor("bestmove");
+            }
+        }
+
+        // Make sure all commands are handled.
+        runner.send("isready");
+        runner.waitFor("readyok");
+        runner.quit();
+
+        final List<String> output = runner.getOutput();
+
+        return output.subList(0, output.size() - 1);
+    }
+
+    /**
+     * Test method for {@link io.github.ddobbelaere.jchess.uci.UciEngine#run()}.
+     */
+    @Test
+    void testRun() throws IOException, InterruptedException {
+        List<String> output = run("uci", "setoption name Hash value 1", "setoption name Threads value 2",
+                "ucinewgame", "position startpos moves e2e4 e7e5", "go depth 3");
+
+        assertEquals("id name " + UciEngine.NAME, output.get(0));
+        assertEquals(true, output.contains("uciok"));
+        assertEquals(true, output.stream().anyMatch(line -> line.startsWith("info depth 1 score cp ")));
+        assertEquals(true, output.get(output.size() - 1).startsWith("bestmove "));
+
+        // Mate scores are reported in moves.
+        output = run("position fen k7/8/2K5/8/8/8/8/1R6 w - - 0 1", "go depth 5");
+
+        assertEquals(true, output.stream().anyMatch(line -> line.startsWith("info depth 3 score mate 2 ")));
+        assertEquals(true, output.get(output.size() - 1).startsWith("bestmove "));
+
+        // Checkmated or stalemated positions have no best move.
+        output = run("position fen R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1", "go depth 3");
+
+        assertEquals("bestmove 0000", output.get(output.size() - 1));
+
+        // Invalid commands are reported or ignored.
+        output = run("position fen invalid", "position startpos moves e2e5", "setoption name Hash value x",
+                "setoption name Threads value 0", "unknown");
+
+        assertEquals(4, output.size());
+        assertEquals(true, output.stream().allMatch(line -> line.startsWith("info string ")));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        new UciEngine(new BufferedReader(new StringReader("")), new PrintStream(outputStream))
+                .handleCommand("go depth");
+        assertEquals("info string Invalid go command.", outputStream.toString().trim());
+    }
+
+    /**
+     * Test stopping an infinite search.
+     */
+    @Test
+    void testStop() throws IOException, InterruptedException {
+        final EngineRunner runner = new EngineRunner();
+
+        // An infinite search keeps running (also after a forced mate is found) until
+        // it's stopped, while commands are still handled.
+        runner.send("position fen k7/8/2K5/8/8/8/8/1R6 w - - 0 1");
+        runner.send("go infinite");
+        runner.waitFor("info depth 3 score mate 2");
+        runner.send("isready");
+        runner.waitFor("readyok");
+        Thread.sleep(100);
+
+        assertEquals(true, runner.getOutput().stream().noneMatch(line -> line.startsWith("bestmove")));
+
+        runner.send("stop");
+        runner.waitFor("bestmove");
+
+        // Stop a long search.
+        runner.send("position startpos");
+        runner.send("go depth 100");
+        runner.send("stop");
+        runner.send("isready");
+        runner.waitFor("readyok");
+        runner.quit();
+
+        assertEquals(2, runner.getOutput().stream().filter(line -> line.startsWith("bestmove")).count());
+    }
+
+    /**
+     * Test commands that arrive during an infinite search.
+     */
+    @Test
+    void testCommandDuringSearch() throws IOException, InterruptedException {
+        final EngineRunner runner = new EngineRunner();
+
+        // A position command stops the search instead of waiting for it forever.
+        runner.send("go infinite");
+        runner.waitFor("info depth 1 ");
+        runner.send("position startpos moves e2e4");
+        runner.waitFor("bestmove");
+
+        // So does a go command, which starts a new search.
+        runner.send("go infinite");
+        runner.send("go depth 1");
+        runner.send("isready");
+        runner.waitFor("readyok");
+        runner.quit();
+
+        assertEquals(3, runner.getOutput().stream().filter(line -> line.startsWith("bestmove")).count());
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.uci.UciEngine#handleCommand(String)} with
+     * {@code position} commands.
+     */
+    @Test
+    void testPosition() {
+        final UciEngine engine = new UciEngine(new BufferedReader(new StringReader("")),
+                new PrintStream(new ByteArrayOutputStream()));
+
+        engine.handleCommand("position startpos moves e2e4");
+        assertEquals(Position.STARTING.playMove("e4"), engine.getPosition());
+
+        // Extending the move list continues from the previous position.
+        engine.handleCommand("position startpos moves e2e4 e7e5 g1f3");
+        assertEquals(Position.STARTING.playMove("e4").playMove("e5").playMove("Nf3"), engine.getPosition());
+
+        // Other move lists start again from the base position.
+        engine.handleCommand("position startpos moves d2d4");
+        assertEquals(Position.STARTING.playMove("d4"), engine.getPosition());
+
+        engine.handleCommand("position startpos");
+        assertEquals(Position.STARTING, engine.getPosition());
+
+        // Castling, promotions and FEN strings.
+        engine.handleCommand("position fen 4k3/1P6/8/8/8/8/8/4K2R w K - 0 1 moves e1g1 e8d7 b7b8q");
+        assertEquals(Position.fromFen("1Q6/3k4/8/8/8/8/8/5RK1 b - - 0 2"), engine.getPosition());
+
+        // An illegal move leaves the position unchanged.
+        engine.handleCommand("position fen 4k3/1P6/8/8/8/8/8/4K2R w K - 0 1 moves e1g1 e8e7 e8d8");
+        assertEquals(Position.fromFen("1Q6/3k4/8/8/8/8/8/5RK1 b - - 0 2"), engine.getPosition());
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.uci;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.ddobbelaere.jchess.chess.Move;
+import io.github.ddobbelaere.jchess.chess.Position;
+
+/**
+ * UCI info test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class UciInfoTest {
+
+    /**
+     * Test method for {@link UciInfo#parse(String, Position)}.
+     */
+    @Test
+    void testParse() {
+        UciInfo info = UciInfo.parse(
+                "info depth 12 seldepth 18 multipv 2 score cp -35 upperbound nodes 123456 nps 1000000 time 123 hashfull 5 pv e2e4 e7e5 g1f3",
+                Position.STARTING);
+
+        assertEquals(12, info.getDepth());
+        assertEquals(18, info.getSelectiveDepth());
+        assertEquals(2, info.getMultiPv());
+        assertEquals(true, info.hasScore());
+        assertEquals(-35, info.getScore());
+        assertEquals(false, info.isMateScore());
+        assertEquals(false, info.isLowerBound());
+        assertEquals(true, info.isUpperBound());
+        assertEquals(123456, info.getNumNodes());
+        assertEquals(123, info.getTimeMillis());
+        assertEquals(Arrays.asList(Move.valueOf("e2e4"), Move.valueOf("e7e5"), Move.valueOf("g1f3")),
+                info.getPrincipalVariation());
+
+        // Mate score (castling is encoded as the king move).
+        info = UciInfo.parse("info depth 5 score mate -3 lowerbound pv e1g1",
+                Position.fromFen("4k3/8/8/8/8/8/8/4K2R w K - 0 1"));
+
+        assertEquals(1, info.getMultiPv());
+        assertEquals(-3, info.getScore());
+        assertEquals(true, info.isMateScore());
+        assertEquals(true, info.isLowerBound());
+        assertEquals(Arrays.asList(Move.valueOf("e1g1")), info.getPrincipalVariation());
+
+        // The principal variation is truncated at the first illegal move.
+        info = UciInfo.parse("info depth 3 score cp 20 pv d2d4 d7d5 d4d5 g8f6", Position.STARTING);
+
+        assertEquals(Arrays.asList(Move.valueOf("d2d4"), Move.valueOf("d7d5")), info.getPrincipalVariation());
+
+        info = UciInfo.parse("info depth 3 score cp 20 pv e2e4 xyz", Position.STARTING);
+
+        assertEquals(Arrays.asList(Move.valueOf("e2e4")), info.getPrincipalVariation());
+
+        // Lines without score.
+        info = UciInfo.parse("info depth 7 currmove e2e4 currmovenumber 1", Position.STARTING);
+
+        assertEquals(7, info.getDepth());
+        assertEquals(false, info.hasScore());
+        assertEquals(true, info.getPrincipalVariation().isEmpty());
+
+        info = UciInfo.parse("info string depth 4 score cp 3", Position.STARTING);
+
+        assertEquals(0, info.getDepth());
+        assertEquals(false, info.hasScore());
+
+        // Invalid lines.
+        assertEquals(null, UciInfo.parse("bestmove e2e4", Position.STARTING));
+        assertEquals(null, UciInfo.parse("info depth", Position.STARTING));
+        assertEquals(null, UciInfo.parse("info depth x", Position.STARTING));
+        assertEquals(null, UciInfo.parse("info score cp", Position.STARTING));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sort utilities test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class SortUtilsTest {
+
+    /**
+     * Records with a key and an identifier on parallel arrays, sorted by key only.
+     */
+    private static class Records implements SortUtils.Sortable {
+        /**
+         * Keys.
+         */
+        private final int[] keys;
+
+        /**
+         * Identifiers.
+         */
+        private final int[] ids;
+
+        /**
+         * Construct with given keys, identified by their initial index.
+         *
+         * @param keys Given keys.
+         */
+        Records(int[] keys) {
+            this.keys = keys.clone();
+            ids = new int[keys.length];
+
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = i;
+            }
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            return Integer.compare(keys[index1], keys[index2]);
+        }
+
+        @Override
+        public void swap(int index1, int index2) {
+            final int key = keys[index1];
+            keys[index1] = keys[index2];
+            keys[index2] = key;
+
+            final int id = ids[index1];
+            ids[index1] = ids[index2];
+            ids[index2] = id;
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.util.SortUtils#sort(SortUtils.Sortable, int, int)}.
+     */
+    @Test
+    void testSort() {
+        final Random random = new Random(42);
+
+        for (int length : new int[] { 0, 1, 2, 16, 17, 100, 10000 }) {
+            for (int bound : new int[] { 1, 3, length + 1, Integer.MAX_VALUE }) {
+                final int[] keys = random.ints(length, 0, bound).toArray();
+                final Records records = new Records(keys);
+
+                SortUtils.sort(records, 0, length);
+
+                final int[] expected = keys.clone();
+                Arrays.sort(expected);
+                assertArrayEquals(expected, records.keys);
+
+                // The records are permuted as a whole.
+                for (int i = 0; i < length; i++) {
+                    assertEquals(keys[records.ids[i]], records.keys[i]);
+                }
+            }
+        }
+
+        // Sorted, reversed and sub-ranges.
+        final int[] sorted = new int[1000];
+        final int[] reversed = new int[1000];
+
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+            reversed[i] = sorted.length - i;
+        }
+
+        final Records sortedRecords = new Records(sorted);
+        SortUtils.sort(sortedRecords, 0, sorted.length);
+        assertArrayEquals(sorted, sortedRecords.keys);
+
+        final Records reversedRecords = new Records(reversed);
+        SortUtils.sort(reversedRecords, 100, 900);
+        assertArrayEquals(Arrays.copyOfRange(reversed, 0, 100), Arrays.copyOfRange(reversedRecords.keys, 0, 100));
+        assertArrayEquals(Arrays.copyOfRange(reversed, 900, 1000),
+                Arrays.copyOfRange(reversedRecords.keys, 900, 1000));
+
+        for (int i = 100; i < 900; i++) {
+            assertEquals(101 + (i - 100), reversedRecords.keys[i]);
+        }
+    }
+}
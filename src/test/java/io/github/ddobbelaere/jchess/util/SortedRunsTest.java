@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2019  Dieter Dobbelaere.
+ * All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.ddobbelaere.jchess.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Sorted runs test.
+ *
+ * @author Dieter Dobbelaere
+ */
+class SortedRunsTest {
+
+    /**
+     * Reader of runs of numbers.
+     */
+    private static class NumberReader extends SortedRuns.Reader<NumberReader> {
+        /**
+         * Current number.
+         */
+        private long number;
+
+        @Override
+        protected void read(DataInputStream input) throws IOException {
+            number = input.readLong();
+        }
+
+        @Override
+        public int compareTo(NumberReader other) {
+            return Long.compare(number, other.number);
+        }
+    }
+
+    /**
+     * Spill a sorted run of numbers.
+     *
+     * @param runs    Sorted runs.
+     * @param numbers Sorted numbers.
+     * @throws IOException If the run cannot be written.
+     */
+    private static void spill(SortedRuns<NumberReader> runs, long... numbers) throws IOException {
+        runs.spill(numbers.length, (output, i) -> output.writeLong(numbers[i]));
+    }
+
+    /**
+     * Merge the runs.
+     *
+     * @param runs Sorted runs.
+     * @return Merged numbers.
+     * @throws IOException If a run cannot be read.
+     */
+    private static List<Long> merge(SortedRuns<NumberReader> runs) throws IOException {
+        final List<Long> numbers = new ArrayList<>();
+
+        runs.startMerge();
+
+        while (runs.hasNext()) {
+            final NumberReader reader = runs.poll();
+
+            numbers.add(reader.number);
+            runs.advance(reader);
+        }
+
+        return numbers;
+    }
+
+    /**
+     * @param directory Given directory.
+     * @return Number of files in the directory.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.util.SortedRuns#startMerge()}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If a run cannot be written or read.
+     */
+    @Test
+    void testMerge(@TempDir Path directory) throws IOException {
+        final SortedRuns<NumberReader> runs = new SortedRuns<>(directory, "test-", NumberReader::new);
+
+        spill(runs, 1, 4, 4, 9);
+        spill(runs);
+        spill(runs, -3, 4, 10);
+        spill(runs, 2);
+        assertEquals(4, runs.getNumRuns());
+        assertEquals(4, countFiles(directory));
+
+        assertEquals(Stream.of(-3L, 1L, 2L, 4L, 4L, 4L, 9L, 10L).collect(Collectors.toList()), merge(runs));
+
+        runs.clear();
+        assertEquals(0, runs.getNumRuns());
+        assertEquals(0, countFiles(directory));
+
+        // The runs can be reused after they are cleared.
+        spill(runs, 5);
+        assertEquals(Stream.of(5L).collect(Collectors.toList()), merge(runs));
+        runs.clear();
+    }
+
+    /**
+     * Test method for
+     * {@link io.github.ddobbelaere.jchess.util.SortedRuns#clear()}.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If a run cannot be written or read.
+     */
+    @Test
+    void testClear(@TempDir Path directory) throws IOException {
+        final SortedRuns<NumberReader> runs = new SortedRuns<>(directory, "test-", NumberReader::new);
+
+        spill(runs, 1, 2, 3);
+        spill(runs, 1, 2, 3);
+
+        // Clear in the middle of a merge.
+        runs.startMerge();
+        runs.advance(runs.poll());
+        runs.clear();
+        assertEquals(false, runs.hasNext());
+        assertEquals(0, countFiles(directory));
+    }
+
+    /**
+     * Test that a truncated run is an error.
+     *
+     * @param directory Temporary directory.
+     * @throws IOException If a run cannot be written or read.
+     */
+    @Test
+    void testTruncatedRun(@TempDir Path directory) throws IOException {
+        final SortedRuns<NumberReader> runs = new SortedRuns<>(directory, "test-", NumberReader::new);
+
+        spill(runs, 1, 2, 3);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            final Path run = files.findFirst().get();
+
+            Files.write(run, new byte[16]);
+        }
+
+        assertThrows(EOFException.class, () -> merge(runs));
+        runs.clear();
+        assertEquals(0, countFiles(directory));
+    }
+}